@@ -0,0 +1,42 @@
+package br.ufvjm.barbearia.exceptions;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Exceção lançada quando um agendamento ocupa uma estação já reservada em parte do mesmo horário.
+ */
+public class ConflitoAgendamentoException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int estacao;
+    private final List<UUID> conflitantes;
+
+    public ConflitoAgendamentoException(String message, int estacao, List<UUID> conflitantes) {
+        super(message);
+        this.estacao = estacao;
+        this.conflitantes = List.copyOf(conflitantes);
+    }
+
+    /**
+     * @return número da estação disputada.
+     */
+    public int getEstacao() {
+        return estacao;
+    }
+
+    /**
+     * @return identificadores dos agendamentos que já ocupam o horário, em ordem de início.
+     */
+    public List<UUID> getConflitantes() {
+        return conflitantes;
+    }
+
+    @Override
+    public String toString() {
+        return "ConflitoAgendamentoException[mensagem=" + getMessage()
+                + ", estacao=" + estacao
+                + ", conflitantes=" + conflitantes + ']';
+    }
+}
@@ -74,6 +74,26 @@ public class Agendamento {
         this.status = StatusAtendimento.EM_ESPERA;
     }
 
+    /**
+     * Reconstrói um agendamento persistido, restaurando barbeiro, itens, status
+     * e marca de extrato sem repetir as regras de transição.
+     */
+    public static Agendamento reidratar(UUID id, Cliente cliente, Usuario barbeiro, Estacao estacao,
+                                        LocalDateTime inicio, LocalDateTime fim, List<ItemDeServico> itens,
+                                        StatusAtendimento status, Dinheiro sinal,
+                                        LocalDateTime extratoCancelamentoGeradoEm,
+                                        String referenciaExtratoCancelamento) {
+        Agendamento agendamento = new Agendamento(id, cliente, estacao, inicio, fim, sinal);
+        agendamento.barbeiro = barbeiro;
+        if (itens != null) {
+            agendamento.itens.addAll(itens);
+        }
+        agendamento.status = Objects.requireNonNull(status, "status não pode ser nulo");
+        agendamento.extratoCancelamentoGeradoEm = extratoCancelamentoGeradoEm;
+        agendamento.referenciaExtratoCancelamento = referenciaExtratoCancelamento;
+        return agendamento;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -193,6 +213,17 @@ public class Agendamento {
         this.referenciaExtratoCancelamento = Objects.requireNonNull(referencia, "referencia não pode ser nula");
     }
 
+    /**
+     * Troca a referência do extrato de cancelamento já emitido, quando ele é
+     * movido pela compactação do arquivo de extratos.
+     */
+    public void realocarExtratoCancelamento(String referencia) {
+        if (!isExtratoCancelamentoGerado()) {
+            throw new IllegalStateException("Extrato de cancelamento ainda não foi gerado");
+        }
+        this.referenciaExtratoCancelamento = Objects.requireNonNull(referencia, "referencia não pode ser nula");
+    }
+
     @Override
     public String toString() {
         return "Agendamento{"
@@ -30,6 +30,33 @@ public class CaixaDiario {
         this.movimentos = new ArrayList<>();
     }
 
+    /**
+     * Reconstrói um caixa persistido com os acumulados, o saldo consolidado (se
+     * houver) e os movimentos gravados.
+     */
+    public static CaixaDiario reidratar(LocalDate data, Dinheiro saldoAbertura, Dinheiro entradas, Dinheiro saidas,
+                                        Dinheiro saldoFechamento, List<Venda> vendas, List<ContaAtendimento> contas,
+                                        List<MovimentoCaixa> movimentos) {
+        CaixaDiario caixa = new CaixaDiario(data, saldoAbertura);
+        if (entradas != null) {
+            caixa.entradas = entradas;
+        }
+        if (saidas != null) {
+            caixa.saidas = saidas;
+        }
+        caixa.saldoFechamento = saldoFechamento;
+        if (vendas != null) {
+            caixa.vendas.addAll(vendas);
+        }
+        if (contas != null) {
+            caixa.contas.addAll(contas);
+        }
+        if (movimentos != null) {
+            caixa.movimentos.addAll(movimentos);
+        }
+        return caixa;
+    }
+
     public LocalDate getData() {
         return data;
     }
@@ -46,6 +73,10 @@ public class CaixaDiario {
         return saidas;
     }
 
+    public boolean isConsolidado() {
+        return saldoFechamento != null;
+    }
+
     public Dinheiro getSaldoFechamento() {
         if (saldoFechamento == null) {
             throw new IllegalStateException("Caixa ainda não foi consolidado");
@@ -166,6 +197,10 @@ public class CaixaDiario {
             return new MovimentoCaixa(Tipo.SAIDA, valor, motivo, LocalDateTime.now());
         }
 
+        public static MovimentoCaixa reidratar(Tipo tipo, Dinheiro valor, String motivo, LocalDateTime dataHora) {
+            return new MovimentoCaixa(tipo, valor, motivo, dataHora);
+        }
+
         public Tipo getTipo() {
             return tipo;
         }
@@ -4,9 +4,6 @@ import br.ufvjm.barbearia.value.CpfHash;
 import br.ufvjm.barbearia.value.Email;
 import br.ufvjm.barbearia.value.Endereco;
 import br.ufvjm.barbearia.value.Telefone;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -29,6 +26,9 @@ import java.util.UUID;
  *     de agendamentos sem exclusão definitiva.</li>
  *     <li>Contato atualizado via {@link #atualizarContato(Endereco, Telefone, Email)}
  *     exige preenchimento de todos os campos.</li>
+ *     <li>O cliente guarda apenas a quantidade de extratos emitidos; o
+ *     histórico fica no índice do arquivo de extratos e é consultado em
+ *     páginas pelo {@code Sistema}.</li>
  * </ul>
  *
  * <p>
@@ -52,7 +52,7 @@ public class Cliente extends Pessoa {
     protected static int totalServicosProtegido;
 
     private final CpfHash cpf;
-    private final List<String> extratosGerados = new ArrayList<>();
+    private int totalExtratos;
     private boolean ativo;
 
     public Cliente(UUID id, String nome, Endereco endereco, Telefone telefone, Email email,
@@ -109,13 +109,24 @@ public class Cliente extends Pessoa {
         this.ativo = true;
     }
 
-    public void registrarExtrato(String referencia) {
-        Objects.requireNonNull(referencia, "referencia não pode ser nula");
-        extratosGerados.add(referencia);
+    public void registrarExtrato() {
+        registrarExtratos(1);
     }
 
-    public List<String> getExtratosGerados() {
-        return Collections.unmodifiableList(extratosGerados);
+    /**
+     * Soma extratos já emitidos ao total do cliente (reidratação de snapshots).
+     *
+     * @param quantidade extratos a somar.
+     */
+    public void registrarExtratos(int quantidade) {
+        if (quantidade < 0) {
+            throw new IllegalArgumentException("quantidade não pode ser negativa");
+        }
+        totalExtratos += quantidade;
+    }
+
+    public int getTotalExtratos() {
+        return totalExtratos;
     }
 
     public void atualizarContato(Endereco endereco, Telefone telefone, Email email) {
@@ -129,7 +140,7 @@ public class Cliente extends Pessoa {
         return "Cliente{"
                 + "cpf=" + cpf
                 + ", ativo=" + ativo
-                + ", extratosGerados=" + extratosGerados.size()
+                + ", totalExtratos=" + totalExtratos
                 + ", totalVeiculosProtegido=" + totalVeiculosProtegido
                 + ", totalServicosProtegido=" + totalServicosProtegido
                 + ", pessoa=" + super.toString()
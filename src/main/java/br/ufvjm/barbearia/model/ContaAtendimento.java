@@ -69,6 +69,36 @@ public class ContaAtendimento {
         this.ajustes = new ArrayList<>();
     }
 
+    /**
+     * Reconstrói uma conta persistida com itens, ajustes, total, pagamento e
+     * cancelamento exatamente como gravados, sem recalcular valores.
+     */
+    public static ContaAtendimento reidratar(UUID id, Agendamento agendamento,
+                                             List<ItemContaProduto> produtosFaturados,
+                                             List<ItemDeServico> servicosAdicionais, List<AjusteConta> ajustes,
+                                             Dinheiro desconto, Dinheiro total, FormaPagamento formaPagamento,
+                                             CancelamentoRegistro cancelamentoRegistro, boolean fechada,
+                                             LocalDateTime extratoServicoGeradoEm,
+                                             String referenciaExtratoServico) {
+        ContaAtendimento conta = new ContaAtendimento(id, agendamento, desconto);
+        if (produtosFaturados != null) {
+            conta.produtosFaturados.addAll(produtosFaturados);
+        }
+        if (servicosAdicionais != null) {
+            conta.servicosAdicionais.addAll(servicosAdicionais);
+        }
+        if (ajustes != null) {
+            conta.ajustes.addAll(ajustes);
+        }
+        conta.total = total;
+        conta.formaPagamento = formaPagamento;
+        conta.cancelamentoRegistro = cancelamentoRegistro;
+        conta.fechada = fechada;
+        conta.extratoServicoGeradoEm = extratoServicoGeradoEm;
+        conta.referenciaExtratoServico = referenciaExtratoServico;
+        return conta;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -100,6 +130,14 @@ public class ContaAtendimento {
         return total;
     }
 
+    public boolean isTotalCalculado() {
+        return total != null;
+    }
+
+    public boolean isLiquidada() {
+        return formaPagamento != null;
+    }
+
     public FormaPagamento getFormaPagamento() {
         if (formaPagamento == null) {
             throw new IllegalStateException("Conta ainda não foi liquidada");
@@ -220,6 +258,17 @@ public class ContaAtendimento {
         this.referenciaExtratoServico = Objects.requireNonNull(referencia, "referencia não pode ser nula");
     }
 
+    /**
+     * Troca a referência do extrato de serviço já emitido, quando ele é movido
+     * pela compactação do arquivo de extratos.
+     */
+    public void realocarExtratoServico(String referencia) {
+        if (!isExtratoServicoGerado()) {
+            throw new IllegalStateException("Extrato de serviço da conta ainda não foi gerado");
+        }
+        this.referenciaExtratoServico = Objects.requireNonNull(referencia, "referencia não pode ser nula");
+    }
+
     @Override
     public String toString() {
         return "ContaAtendimento{"
@@ -327,6 +376,11 @@ public class ContaAtendimento {
             this.totalServicos = Objects.requireNonNull(totalServicos, "totalServicos não pode ser nulo");
         }
 
+        public static CancelamentoRegistro reidratar(BigDecimal percentualRetencao, Dinheiro valorRetencao,
+                                                     Dinheiro valorReembolso, Dinheiro totalServicos) {
+            return new CancelamentoRegistro(percentualRetencao, valorRetencao, valorReembolso, totalServicos);
+        }
+
         public BigDecimal getPercentualRetencao() {
             return percentualRetencao;
         }
@@ -3,8 +3,11 @@ package br.ufvjm.barbearia.model;
 import br.ufvjm.barbearia.value.Dinheiro;
 import br.ufvjm.barbearia.value.Quantidade;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
 /**
  * Modelo de produto comercializado ou consumido durante atendimentos.
@@ -22,6 +25,8 @@ import java.util.UUID;
  *     estoque negativo.</li>
  *     <li>Preço de venda e custo médio devem ser fornecidos como {@link Dinheiro}
  *     para preservar arredondamentos consistentes.</li>
+ *     <li>Trocas de nome são avisadas aos observadores registrados, para que
+ *     índices de busca por nome acompanhem a alteração.</li>
  * </ul>
  *
  * <p>
@@ -42,6 +47,7 @@ public class Produto {
     private final Quantidade estoqueMinimo;
     private Dinheiro precoVenda;
     private Dinheiro custoMedio;
+    private final transient List<BiConsumer<Produto, String>> observadoresNome = new ArrayList<>();
 
     public Produto(UUID id, String nome, String sku, Quantidade estoqueAtual, Quantidade estoqueMinimo,
                    Dinheiro precoVenda, Dinheiro custoMedio) {
@@ -135,7 +141,28 @@ public class Produto {
     }
 
     public void atualizarNome(String nome) {
+        String anterior = this.nome;
         this.nome = validarNome(nome);
+        if (!anterior.equals(this.nome)) {
+            for (BiConsumer<Produto, String> observador : List.copyOf(observadoresNome)) {
+                observador.accept(this, anterior);
+            }
+        }
+    }
+
+    /**
+     * Registra um observador chamado após cada troca de nome com o produto e o
+     * nome anterior. O observador não é persistido.
+     */
+    public void adicionarObservadorNome(BiConsumer<Produto, String> observador) {
+        Objects.requireNonNull(observador, "observador não pode ser nulo");
+        if (!observadoresNome.contains(observador)) {
+            observadoresNome.add(observador);
+        }
+    }
+
+    public void removerObservadorNome(BiConsumer<Produto, String> observador) {
+        observadoresNome.remove(observador);
     }
 
     @Override
@@ -27,6 +27,21 @@ public class RecebimentoFornecedor {
         this.itens = new ArrayList<>();
     }
 
+    /**
+     * Reconstrói um recebimento persistido com o total e o pagamento gravados.
+     */
+    public static RecebimentoFornecedor reidratar(UUID id, String fornecedor, LocalDateTime dataHora,
+                                                  String numeroNF, List<ItemRecebimento> itens, Dinheiro total,
+                                                  Dinheiro pagamentoEfetuado) {
+        RecebimentoFornecedor recebimento = new RecebimentoFornecedor(id, fornecedor, dataHora, numeroNF);
+        if (itens != null) {
+            recebimento.itens.addAll(itens);
+        }
+        recebimento.total = total;
+        recebimento.pagamentoEfetuado = pagamentoEfetuado;
+        return recebimento;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -54,6 +69,18 @@ public class RecebimentoFornecedor {
         return total;
     }
 
+    public boolean isTotalCalculado() {
+        return total != null;
+    }
+
+    /**
+     * @return {@code true} se algum pagamento já foi registrado; ao contrário de
+     * {@link #getPagamentoEfetuado()}, não deduz um valor zero.
+     */
+    public boolean isPagamentoRegistrado() {
+        return pagamentoEfetuado != null;
+    }
+
     public Dinheiro getPagamentoEfetuado() {
         if (pagamentoEfetuado != null) {
             return pagamentoEfetuado;
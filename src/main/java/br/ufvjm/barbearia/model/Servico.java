@@ -42,6 +42,11 @@ public class Servico {
     private final boolean requerLavagem;
 
     public Servico(UUID id, String nome, Dinheiro preco, int duracaoMin, boolean requerLavagem) {
+        this(id, nome, preco, duracaoMin, requerLavagem, true);
+    }
+
+    private Servico(UUID id, String nome, Dinheiro preco, int duracaoMin, boolean requerLavagem,
+                    boolean contabilizar) {
         this.id = Objects.requireNonNull(id, "id não pode ser nulo");
         this.nome = validarNome(nome);
         this.preco = Objects.requireNonNull(preco, "preço não pode ser nulo");
@@ -50,6 +55,9 @@ public class Servico {
         }
         this.duracaoMin = duracaoMin;
         this.requerLavagem = requerLavagem;
+        if (!contabilizar) {
+            return;
+        }
 
         // Estratégia encapsulada: delega ao núcleo para manter consistência global.
         Sistema.ServicoTracker.registrarCriacaoServico();
@@ -97,6 +105,14 @@ public class Servico {
                 + '}';
     }
 
+    /**
+     * Reconstrói um serviço persistido sem atualizar os contadores estáticos;
+     * após a carga eles são recalculados por {@link #reidratarContadores(Iterable)}.
+     */
+    public static Servico reidratar(UUID id, String nome, Dinheiro preco, int duracaoMin, boolean requerLavagem) {
+        return new Servico(id, nome, preco, duracaoMin, requerLavagem, false);
+    }
+
     /**
      * Reidrata os contadores estáticos após carregamento do snapshot.
      * <p>
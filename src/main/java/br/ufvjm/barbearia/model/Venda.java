@@ -37,6 +37,23 @@ public class Venda {
         this.itens = new ArrayList<>();
     }
 
+    /**
+     * Reconstrói uma venda persistida, preservando o total gravado (ou a sua
+     * ausência) e a marca de extrato.
+     */
+    public static Venda reidratar(UUID id, Cliente cliente, LocalDateTime dataHora, List<ItemVenda> itens,
+                                  FormaPagamento formaPagamento, Dinheiro desconto, Dinheiro total,
+                                  LocalDateTime extratoGeradoEm, String referenciaExtrato) {
+        Venda venda = new Venda(id, cliente, dataHora, formaPagamento, desconto);
+        if (itens != null) {
+            venda.itens.addAll(itens);
+        }
+        venda.total = total;
+        venda.extratoGeradoEm = extratoGeradoEm;
+        venda.referenciaExtrato = referenciaExtrato;
+        return venda;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -68,6 +85,10 @@ public class Venda {
         return total;
     }
 
+    public boolean isTotalCalculado() {
+        return total != null;
+    }
+
     public void adicionarItem(ItemVenda itemVenda) {
         itens.add(Objects.requireNonNull(itemVenda, "itemVenda não pode ser nulo"));
         total = null;
@@ -111,6 +132,17 @@ public class Venda {
         this.referenciaExtrato = Objects.requireNonNull(referencia, "referencia não pode ser nula");
     }
 
+    /**
+     * Troca a referência do extrato já emitido, quando ele é movido pela
+     * compactação do arquivo de extratos.
+     */
+    public void realocarExtrato(String referencia) {
+        if (!isExtratoGerado()) {
+            throw new IllegalStateException("Extrato da venda ainda não foi gerado");
+        }
+        this.referenciaExtrato = Objects.requireNonNull(referencia, "referencia não pode ser nula");
+    }
+
     @Override
     public String toString() {
         return "Venda{"
@@ -0,0 +1,171 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.util.Log;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grava snapshots em segundo plano.
+ * <p>
+ * Quem chama entrega uma captura ({@link DataSnapshot}) e recebe um
+ * {@link CompletableFuture}. Ainda na thread de quem chama, a captura é
+ * serializada em arquivos temporários ao lado do destino
+ * ({@link GravacaoPreparada}); a thread dedicada faz apenas o fsync, a rotação
+ * das gerações e a troca atômica do arquivo ({@link ArquivoAtomico}).
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>As gravações são executadas uma de cada vez, na ordem de chegada.</li>
+ *     <li>Capturas para o mesmo destino que ainda aguardam execução são
+ *     agrupadas: apenas a mais recente é gravada, os temporários das anteriores
+ *     são descartados e todos os chamadores recebem o mesmo resultado.</li>
+ *     <li>A thread de escrita não lê as entidades: alterações feitas no sistema
+ *     depois do agendamento não aparecem no arquivo, que reflete exatamente
+ *     o momento da captura.</li>
+ *     <li>A ação pós-gravação (por exemplo, o checkpoint do journal) só roda
+ *     depois que o arquivo foi substituído com sucesso.</li>
+ * </ul>
+ */
+public final class AgendadorSnapshot implements Closeable {
+
+    private final int geracoes;
+    private final ExecutorService executor;
+    private final Map<Path, Pendente> pendentes = new HashMap<>();
+
+    /**
+     * @param geracoes versões anteriores a preservar em cada destino.
+     */
+    public AgendadorSnapshot(int geracoes) {
+        if (geracoes < 0) {
+            throw new IllegalArgumentException("geracoes não pode ser negativo");
+        }
+        this.geracoes = geracoes;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ação executada após a gravação bem-sucedida de um snapshot.
+     */
+    @FunctionalInterface
+    public interface AposGravacao {
+        void executar() throws IOException;
+    }
+
+    /**
+     * Agenda a gravação de uma captura, serializada antes do retorno.
+     *
+     * @param captura      estado a ser persistido; lido apenas durante esta chamada.
+     * @param destino      arquivo de destino; o formato segue {@link SnapshotFormato#detectar(Path)}.
+     * @param aposGravacao ação opcional executada após a troca do arquivo.
+     * @return futuro concluído com o destino gravado ou com a falha ocorrida,
+     *         inclusive a da serialização.
+     */
+    public CompletableFuture<Path> agendar(DataSnapshot captura, Path destino, AposGravacao aposGravacao) {
+        Objects.requireNonNull(captura, "captura não pode ser nula");
+        Objects.requireNonNull(destino, "destino não pode ser nulo");
+        long inicio = System.nanoTime();
+        GravacaoPreparada preparada;
+        try {
+            preparada = SnapshotFormato.detectar(destino).preparar(captura, destino);
+        } catch (IOException e) {
+            Log.error("Falha ao serializar snapshot para " + destino, e);
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            Log.error("Falha ao serializar snapshot para " + destino, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        Log.debug("Captura para %s serializada em %d ms", destino,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        synchronized (pendentes) {
+            Pendente pendente = pendentes.get(destino);
+            if (pendente != null) {
+                pendente.preparada.descartar();
+                pendente.preparada = preparada;
+                pendente.aposGravacao = aposGravacao;
+                Log.debug("Snapshot para %s agrupado com gravação pendente", destino);
+                return pendente.futuro;
+            }
+            pendente = new Pendente(preparada, aposGravacao);
+            pendentes.put(destino, pendente);
+            executor.execute(() -> gravar(destino));
+            return pendente.futuro;
+        }
+    }
+
+    public int getGeracoes() {
+        return geracoes;
+    }
+
+    /**
+     * Aguarda as gravações já agendadas e encerra a thread de escrita.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                Log.warning("Gravações de snapshot ainda em andamento após o encerramento");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AgendadorSnapshot[geracoes=" + geracoes + "]";
+    }
+
+    private void gravar(Path destino) {
+        Pendente pendente;
+        synchronized (pendentes) {
+            pendente = pendentes.remove(destino);
+        }
+        if (pendente == null) {
+            return;
+        }
+        try {
+            long inicio = System.nanoTime();
+            pendente.preparada.concluir(geracoes);
+            if (pendente.aposGravacao != null) {
+                pendente.aposGravacao.executar();
+            }
+            Log.info("Snapshot em segundo plano gravado em %s (%d ms)", destino.toAbsolutePath(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            pendente.futuro.complete(destino);
+        } catch (IOException e) {
+            Log.error("Falha ao gravar snapshot em segundo plano", e);
+            pendente.futuro.completeExceptionally(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            Log.error("Falha ao gravar snapshot em segundo plano", e);
+            pendente.futuro.completeExceptionally(e);
+        }
+    }
+
+    private static final class Pendente {
+        private final CompletableFuture<Path> futuro = new CompletableFuture<>();
+        private GravacaoPreparada preparada;
+        private AposGravacao aposGravacao;
+
+        Pendente(GravacaoPreparada preparada, AposGravacao aposGravacao) {
+            this.preparada = preparada;
+            this.aposGravacao = aposGravacao;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.util.Log;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Substituição de arquivos à prova de queda.
+ * <p>
+ * O conteúdo novo é escrito em um arquivo temporário no mesmo diretório,
+ * sincronizado com o disco ({@code fsync}) e só então renomeado sobre o destino
+ * com {@link StandardCopyOption#ATOMIC_MOVE}. Uma interrupção em qualquer ponto
+ * deixa o arquivo anterior intacto.
+ * </p>
+ *
+ * <p>
+ * Opcionalmente, as versões anteriores são preservadas como gerações
+ * numeradas ({@code sistema.json.1} é a mais recente, {@code sistema.json.2} a
+ * seguinte e assim por diante). A geração 1 é criada como hard link do arquivo
+ * atual antes da troca, de modo que o destino nunca deixa de existir.
+ * </p>
+ *
+ * <pre>{@code
+ * ArquivoAtomico.substituir(Path.of("data/sistema.json"), 3,
+ *         temporario -> Files.writeString(temporario, conteudo));
+ * }</pre>
+ */
+public final class ArquivoAtomico {
+
+    private static final AtomicLong SEQUENCIA_TEMPORARIOS = new AtomicLong();
+
+    private ArquivoAtomico() {
+        // utilitário
+    }
+
+    /**
+     * Escrita do conteúdo completo em um caminho temporário.
+     */
+    @FunctionalInterface
+    public interface Escrita {
+        void escrever(Path temporario) throws IOException;
+    }
+
+    /**
+     * Substitui {@code destino} pelo conteúdo produzido por {@code escrita}.
+     *
+     * @param destino  arquivo final.
+     * @param geracoes quantidade de versões anteriores a preservar (0 desativa).
+     * @param escrita  rotina que grava o conteúdo no arquivo temporário recebido.
+     * @throws IOException se a escrita, a sincronização ou a troca falharem; nesse
+     *                     caso o destino permanece com o conteúdo anterior.
+     */
+    public static void substituir(Path destino, int geracoes, Escrita escrita) throws IOException {
+        if (geracoes < 0) {
+            throw new IllegalArgumentException("geracoes não pode ser negativo");
+        }
+        preparar(destino, escrita).concluir(geracoes);
+    }
+
+    /**
+     * Primeira etapa de {@link #substituir(Path, int, Escrita)}: grava o
+     * conteúdo em um temporário ao lado do destino, sem sincronizar nem trocar.
+     *
+     * @throws IOException se a escrita falhar; o temporário é removido.
+     */
+    static GravacaoPreparada preparar(Path destino, Escrita escrita) throws IOException {
+        Objects.requireNonNull(destino, "destino não pode ser nulo");
+        Objects.requireNonNull(escrita, "escrita não pode ser nula");
+        Path diretorio = destino.toAbsolutePath().getParent();
+        if (diretorio != null) {
+            Files.createDirectories(diretorio);
+        }
+        Path temporario = temporario(destino);
+        boolean escrito = false;
+        try {
+            Files.deleteIfExists(temporario);
+            escrita.escrever(temporario);
+            escrito = true;
+        } finally {
+            if (!escrito) {
+                Files.deleteIfExists(temporario);
+            }
+        }
+        return new Preparada(destino, temporario);
+    }
+
+    /**
+     * Caminho temporário exclusivo, no mesmo diretório de {@code destino}.
+     */
+    static Path temporario(Path destino) {
+        return destino.resolveSibling("." + destino.getFileName() + "."
+                + SEQUENCIA_TEMPORARIOS.incrementAndGet() + ".tmp");
+    }
+
+    /**
+     * Caminho da geração {@code numero} do arquivo informado.
+     */
+    public static Path geracao(Path destino, int numero) {
+        Objects.requireNonNull(destino, "destino não pode ser nulo");
+        if (numero < 1) {
+            throw new IllegalArgumentException("numero deve ser positivo");
+        }
+        return destino.resolveSibling(destino.getFileName() + "." + numero);
+    }
+
+    /**
+     * Lista o arquivo atual e as gerações existentes, da mais recente para a
+     * mais antiga.
+     *
+     * @param destino arquivo principal.
+     * @return caminhos existentes, começando pelo próprio destino quando presente.
+     */
+    public static List<Path> versoesExistentes(Path destino) {
+        Objects.requireNonNull(destino, "destino não pode ser nulo");
+        List<Path> versoes = new ArrayList<>();
+        if (Files.exists(destino)) {
+            versoes.add(destino);
+        }
+        for (int numero = 1; ; numero++) {
+            Path anterior = geracao(destino, numero);
+            if (!Files.exists(anterior)) {
+                return versoes;
+            }
+            versoes.add(anterior);
+        }
+    }
+
+    private static void rotacionar(Path destino, int geracoes) throws IOException {
+        Files.deleteIfExists(geracao(destino, geracoes));
+        for (int numero = geracoes - 1; numero >= 1; numero--) {
+            Path origem = geracao(destino, numero);
+            if (Files.exists(origem)) {
+                mover(origem, geracao(destino, numero + 1));
+            }
+        }
+        if (!Files.exists(destino)) {
+            return;
+        }
+        Path primeira = geracao(destino, 1);
+        try {
+            Files.createLink(primeira, destino);
+        } catch (UnsupportedOperationException | IOException e) {
+            Log.debug("Hard link indisponível para %s (%s); copiando", destino, e.getMessage());
+            Files.copy(destino, primeira, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Remove um temporário que não será mais usado, sem propagar falhas.
+     */
+    static void descartar(Path temporario) {
+        try {
+            Files.deleteIfExists(temporario);
+        } catch (IOException e) {
+            Log.warning("Temporário %s não pôde ser removido: %s", temporario, e.getMessage());
+        }
+    }
+
+    static void mover(Path origem, Path destino) throws IOException {
+        try {
+            Files.move(origem, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Log.debug("Movimento atômico indisponível para %s; usando substituição simples", destino);
+            Files.move(origem, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void sincronizarArquivo(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Garante que a renomeação foi registrada no diretório. Alguns sistemas
+     * (como o Windows) não permitem abrir diretórios; nesses casos a etapa é
+     * ignorada.
+     */
+    static void sincronizarDiretorio(Path diretorio) {
+        try (FileChannel canal = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            Log.debug("Sincronização do diretório %s indisponível: %s", diretorio, e.getMessage());
+        }
+    }
+
+    private static final class Preparada implements GravacaoPreparada {
+
+        private final Path destino;
+        private final Path temporario;
+
+        private Preparada(Path destino, Path temporario) {
+            this.destino = destino;
+            this.temporario = temporario;
+        }
+
+        @Override
+        public void concluir(int geracoes) throws IOException {
+            if (geracoes < 0) {
+                throw new IllegalArgumentException("geracoes não pode ser negativo");
+            }
+            Path diretorio = destino.toAbsolutePath().getParent();
+            boolean concluido = false;
+            try {
+                sincronizarArquivo(temporario);
+                if (geracoes > 0) {
+                    rotacionar(destino, geracoes);
+                }
+                mover(temporario, destino);
+                if (diretorio != null) {
+                    sincronizarDiretorio(diretorio);
+                }
+                concluido = true;
+            } finally {
+                if (!concluido) {
+                    descartar();
+                }
+            }
+        }
+
+        @Override
+        public void descartar() {
+            ArquivoAtomico.descartar(temporario);
+        }
+    }
+}
@@ -0,0 +1,1552 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.util.Log;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Arquivo de extratos em segmentos somente-anexação, com índice por cliente.
+ * <p>
+ * Em vez de um arquivo de texto por extrato, os extratos são anexados em
+ * sequência a segmentos ({@code segmento-000001.dat}, {@code segmento-000002.dat},
+ * ...) que são trocados ao atingir o tamanho configurado. Cada extrato é
+ * identificado por uma {@link ReferenciaExtrato} (segmento e deslocamento),
+ * guardada nas entidades no lugar do caminho do arquivo.
+ * </p>
+ *
+ * <p>
+ * Layout adotado:
+ * </p>
+ * <ul>
+ *     <li>Registro no segmento: mágico, tamanho do texto, CRC32 do texto,
+ *     cliente (dois {@code long}, zeros para consumidor final), instante de
+ *     emissão em milissegundos e o texto em UTF-8.</li>
+ *     <li>Índice ({@value #INDICE}): entradas de tamanho fixo com cliente,
+ *     instante, segmento, deslocamento e tamanho, anexadas depois do registro.
+ *     Na abertura ele é carregado em memória, agrupado por cliente e ordenado
+ *     pelo instante de emissão.</li>
+ *     <li>O índice é derivado dos segmentos: ao abrir, entradas que apontam
+ *     para além do fim de um segmento são descartadas e registros do último
+ *     segmento sem entrada são reindexados. Um registro incompleto no fim do
+ *     segmento (queda durante a escrita) é truncado.</li>
+ *     <li>A leitura usa {@link FileChannel#map} somente leitura, com um
+ *     mapeamento por segmento refeito quando o segmento ativo cresce.</li>
+ *     <li>Referências antigas, que são caminhos de arquivos avulsos, continuam
+ *     legíveis por {@link #ler(String)}.</li>
+ *     <li>Cada anexação também atualiza um índice invertido do texto
+ *     ({@link #buscar(String, int)}), gravado no mesmo diretório. Na abertura,
+ *     extratos que ficaram fora dele são indexados; sem o arquivo do índice,
+ *     ele é reconstruído em paralelo a partir dos segmentos e dos arquivos
+ *     avulsos ({@link #reconstruirIndiceTextual()}).</li>
+ *     <li>{@link #compactar(LocalDateTime)} move os extratos antigos (segmentos
+ *     fechados e arquivos avulsos) para um arquivo comprimido por mês de
+ *     emissão ({@link ArquivoMensalExtratos}, {@code extratos-2025-03.arq}),
+ *     com índice interno: a entrada {@code n} guarda o extrato de referência
+ *     {@code extratos-2025-03.arq#n}. As referências antigas são registradas
+ *     em {@value #REALOCACOES} antes de os arquivos de origem serem apagados,
+ *     de modo que {@link #ler(String)} continua resolvendo-as e uma queda no
+ *     meio da compactação é concluída na próxima abertura.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * try (ArquivoExtratos arquivo = ArquivoExtratos.abrir(Path.of("data/extratos"))) {
+ *     ReferenciaExtrato ref = arquivo.anexar(cliente, texto, LocalDateTime.now());
+ *     List<ArquivoExtratos.Registro> recentes = arquivo.ultimos(cliente.getId(), 10);
+ * }
+ * }</pre>
+ */
+public final class ArquivoExtratos implements Closeable {
+
+    public static final long TAMANHO_SEGMENTO_PADRAO = 64L * 1024 * 1024;
+    static final String INDICE = "indice.idx";
+    static final String REALOCACOES = "realocacoes.idx";
+
+    private static final String PREFIXO_SEGMENTO = "segmento-";
+    private static final String EXTENSAO_SEGMENTO = ".dat";
+    private static final String PREFIXO_AVULSO = "extrato_";
+    private static final String EXTENSAO_AVULSO = ".txt";
+    private static final String PREFIXO_MENSAL = "extratos-";
+    private static final String EXTENSAO_MENSAL = ".arq";
+    private static final String CONSUMIDOR_FINAL = "consumidor_final";
+    private static final DateTimeFormatter TIMESTAMP_AVULSO = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int MAGICO = 0x45585431;
+    private static final int CABECALHO = 4 + 4 + 4 + 8 + 8 + 8;
+    private static final int ENTRADA = 8 + 8 + 8 + 4 + 8 + 4;
+
+    private final Path diretorio;
+    private final long tamanhoSegmento;
+    private FileChannel indice;
+    private final Map<UUID, List<Registro>> porCliente = new HashMap<>();
+    private final Map<Integer, MappedByteBuffer> mapeados = new HashMap<>();
+    private final Map<YearMonth, ArquivoMensalExtratos> mensais = new TreeMap<>();
+    private final Map<String, String> realocacoes = new HashMap<>();
+    private final Set<Integer> segmentosCompactados = new HashSet<>();
+    private IndiceTextualExtratos textual;
+    private FileChannel ativo;
+    private int numeroAtivo;
+    private long fimAtivo;
+    private int total;
+    private boolean fechado;
+
+    private ArquivoExtratos(Path diretorio, long tamanhoSegmento, FileChannel indice) {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.indice = indice;
+    }
+
+    /**
+     * Abre (ou cria) o arquivo de extratos com segmentos de
+     * {@link #TAMANHO_SEGMENTO_PADRAO} bytes.
+     */
+    public static ArquivoExtratos abrir(Path diretorio) throws IOException {
+        return abrir(diretorio, TAMANHO_SEGMENTO_PADRAO);
+    }
+
+    /**
+     * Abre (ou cria) o arquivo de extratos, recuperando o índice a partir dos segmentos se necessário.
+     *
+     * @param diretorio       diretório dos segmentos e do índice.
+     * @param tamanhoSegmento tamanho a partir do qual um novo segmento é iniciado.
+     * @return arquivo aberto para leitura e anexação.
+     * @throws IOException se o diretório não puder ser lido ou criado.
+     */
+    public static ArquivoExtratos abrir(Path diretorio, long tamanhoSegmento) throws IOException {
+        Objects.requireNonNull(diretorio, "diretorio não pode ser nulo");
+        if (tamanhoSegmento <= CABECALHO || tamanhoSegmento > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("tamanhoSegmento fora do intervalo suportado: " + tamanhoSegmento);
+        }
+        Files.createDirectories(diretorio);
+        FileChannel indice = FileChannel.open(diretorio.resolve(INDICE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ArquivoExtratos arquivo = new ArquivoExtratos(diretorio, tamanhoSegmento, indice);
+        try {
+            arquivo.recuperar();
+            arquivo.abrirIndiceTextual();
+        } catch (IOException | RuntimeException e) {
+            arquivo.close();
+            throw e;
+        }
+        return arquivo;
+    }
+
+    /**
+     * Extrato a ser anexado, como texto ou já codificado em UTF-8.
+     */
+    public static final class NovoExtrato {
+
+        private final UUID clienteId;
+        private final String texto;
+        private final byte[] utf8;
+        private final LocalDateTime emitidoEm;
+
+        public NovoExtrato(Cliente cliente, String texto, LocalDateTime emitidoEm) {
+            this.clienteId = cliente != null ? cliente.getId() : null;
+            this.texto = Objects.requireNonNull(texto, "texto não pode ser nulo");
+            this.utf8 = null;
+            this.emitidoEm = Objects.requireNonNull(emitidoEm, "emitidoEm não pode ser nulo");
+        }
+
+        /**
+         * @param utf8 conteúdo já codificado; o array passa a pertencer ao extrato e não deve ser alterado.
+         */
+        public NovoExtrato(Cliente cliente, byte[] utf8, LocalDateTime emitidoEm) {
+            this.clienteId = cliente != null ? cliente.getId() : null;
+            this.texto = null;
+            this.utf8 = Objects.requireNonNull(utf8, "utf8 não pode ser nulo");
+            this.emitidoEm = Objects.requireNonNull(emitidoEm, "emitidoEm não pode ser nulo");
+        }
+
+        private byte[] bytes() {
+            return utf8 != null ? utf8 : texto.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private String texto() {
+            return texto != null ? texto : new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Entrada do índice: um extrato gravado.
+     */
+    public static final class Registro {
+
+        private final UUID clienteId;
+        private final LocalDateTime emitidoEm;
+        private final ReferenciaExtrato referencia;
+        private final int tamanho;
+
+        private Registro(UUID clienteId, LocalDateTime emitidoEm, ReferenciaExtrato referencia, int tamanho) {
+            this.clienteId = clienteId;
+            this.emitidoEm = emitidoEm;
+            this.referencia = referencia;
+            this.tamanho = tamanho;
+        }
+
+        /**
+         * @return cliente do extrato ou {@code null} para consumidor final.
+         */
+        public UUID getClienteId() {
+            return clienteId;
+        }
+
+        public LocalDateTime getEmitidoEm() {
+            return emitidoEm;
+        }
+
+        public ReferenciaExtrato getReferencia() {
+            return referencia;
+        }
+
+        /**
+         * @return tamanho do texto em bytes UTF-8.
+         */
+        public int getTamanho() {
+            return tamanho;
+        }
+
+        @Override
+        public String toString() {
+            return "Registro[" + referencia + ", cliente=" + clienteId + ", emitidoEm=" + emitidoEm
+                    + ", bytes=" + tamanho + "]";
+        }
+    }
+
+    /**
+     * Resultado de uma compactação: referências movidas e arquivos economizados.
+     */
+    public static final class Compactacao {
+
+        private final Map<String, String> realocacoes;
+        private final int meses;
+        private final int arquivosRemovidos;
+        private final long bytesAntes;
+        private final long bytesDepois;
+        private final Duration duracao;
+
+        private Compactacao(Map<String, String> realocacoes, int meses, int arquivosRemovidos, long bytesAntes,
+                            long bytesDepois, long nanos) {
+            this.realocacoes = Collections.unmodifiableMap(realocacoes);
+            this.meses = meses;
+            this.arquivosRemovidos = arquivosRemovidos;
+            this.bytesAntes = bytesAntes;
+            this.bytesDepois = bytesDepois;
+            this.duracao = Duration.ofNanos(nanos);
+        }
+
+        /**
+         * Nova referência de um extrato movido nesta compactação.
+         *
+         * @param referencia referência guardada na entidade ({@code segmento#offset}
+         *                   ou caminho de um extrato avulso), ou {@code null}.
+         * @return referência mensal, ou vazio se o extrato não foi movido.
+         */
+        public Optional<String> realocar(String referencia) {
+            return referencia != null ? Optional.ofNullable(realocacoes.get(chave(referencia))) : Optional.empty();
+        }
+
+        public int getExtratos() {
+            return realocacoes.size();
+        }
+
+        /**
+         * @return arquivos mensais criados ou ampliados.
+         */
+        public int getMeses() {
+            return meses;
+        }
+
+        /**
+         * @return segmentos e arquivos avulsos apagados.
+         */
+        public int getArquivosRemovidos() {
+            return arquivosRemovidos;
+        }
+
+        public long getBytesAntes() {
+            return bytesAntes;
+        }
+
+        public long getBytesDepois() {
+            return bytesDepois;
+        }
+
+        public Duration getDuracao() {
+            return duracao;
+        }
+
+        @Override
+        public String toString() {
+            return "Compactacao[extratos=" + realocacoes.size() + ", meses=" + meses + ", removidos="
+                    + arquivosRemovidos + ", bytes=" + bytesAntes + "->" + bytesDepois + ", "
+                    + duracao.toMillis() + " ms]";
+        }
+    }
+
+    /**
+     * Extrato a caminho do arquivo mensal.
+     */
+    private static final class Compactavel {
+
+        private final String origem;
+        private final UUID clienteId;
+        private final LocalDateTime emitidoEm;
+        private final int tamanho;
+        private final ArquivoMensalExtratos.Conteudo conteudo;
+
+        Compactavel(String origem, UUID clienteId, LocalDateTime emitidoEm, int tamanho,
+                    ArquivoMensalExtratos.Conteudo conteudo) {
+            this.origem = origem;
+            this.clienteId = clienteId;
+            this.emitidoEm = emitidoEm;
+            this.tamanho = tamanho;
+            this.conteudo = conteudo;
+        }
+    }
+
+    /**
+     * Anexa um extrato ao segmento ativo.
+     *
+     * @param cliente   cliente do extrato ou {@code null} para consumidor final.
+     * @param texto     conteúdo do extrato.
+     * @param emitidoEm instante de emissão, usado na ordenação do histórico.
+     * @return referência do extrato gravado.
+     * @throws IOException se a escrita falhar.
+     */
+    public ReferenciaExtrato anexar(Cliente cliente, String texto, LocalDateTime emitidoEm) throws IOException {
+        return anexar(List.of(new NovoExtrato(cliente, texto, emitidoEm))).get(0);
+    }
+
+    /**
+     * Anexa um extrato já codificado em UTF-8, sem passar por {@link String}.
+     *
+     * @param cliente   cliente do extrato ou {@code null} para consumidor final.
+     * @param utf8      conteúdo do extrato em UTF-8.
+     * @param emitidoEm instante de emissão, usado na ordenação do histórico.
+     * @return referência do extrato gravado.
+     * @throws IOException se a escrita falhar.
+     */
+    public ReferenciaExtrato anexar(Cliente cliente, byte[] utf8, LocalDateTime emitidoEm) throws IOException {
+        return anexar(List.of(new NovoExtrato(cliente, utf8, emitidoEm))).get(0);
+    }
+
+    /**
+     * Anexa vários extratos com uma escrita por segmento e uma no índice.
+     *
+     * @param novos extratos na ordem de gravação.
+     * @return referências na mesma ordem.
+     * @throws IOException se a escrita falhar; extratos já escritos são
+     *                     recuperados na próxima abertura.
+     */
+    public synchronized List<ReferenciaExtrato> anexar(List<NovoExtrato> novos) throws IOException {
+        Objects.requireNonNull(novos, "novos não pode ser nulo");
+        garantirAberto();
+        List<Registro> registros = new ArrayList<>(novos.size());
+        List<ByteBuffer> pendentes = new ArrayList<>();
+        ByteBuffer entradas = ByteBuffer.allocate(ENTRADA * novos.size());
+        long posicao = fimAtivo;
+        for (NovoExtrato novo : novos) {
+            byte[] texto = novo.bytes();
+            long tamanhoRegistro = (long) CABECALHO + texto.length;
+            if (tamanhoRegistro > tamanhoSegmento) {
+                throw new IllegalArgumentException("Extrato maior que o segmento: " + texto.length + " bytes");
+            }
+            if (posicao > 0 && posicao + tamanhoRegistro > tamanhoSegmento) {
+                escreverTodos(ativo, fimAtivo, pendentes);
+                pendentes.clear();
+                iniciarSegmento(numeroAtivo + 1);
+                posicao = 0;
+            }
+            long millis = millis(novo.emitidoEm);
+            pendentes.add(cabecalho(novo.clienteId, millis, texto));
+            pendentes.add(ByteBuffer.wrap(texto));
+            Registro registro = new Registro(novo.clienteId, instante(millis),
+                    ReferenciaExtrato.of(numeroAtivo, posicao), texto.length);
+            escreverEntrada(entradas, registro);
+            registros.add(registro);
+            posicao += tamanhoRegistro;
+        }
+        escreverTodos(ativo, fimAtivo, pendentes);
+        fimAtivo = posicao;
+        entradas.flip();
+        escreverTodos(indice, indice.size(), List.of(entradas));
+
+        List<ReferenciaExtrato> referencias = new ArrayList<>(registros.size());
+        List<IndiceTextualExtratos.Documento> documentos = new ArrayList<>(registros.size());
+        for (int i = 0; i < registros.size(); i++) {
+            Registro registro = registros.get(i);
+            indexar(registro);
+            referencias.add(registro.referencia);
+            documentos.add(IndiceTextualExtratos.Documento.de(registro.referencia.toString(), novos.get(i).texto()));
+        }
+        try {
+            textual.indexar(documentos);
+        } catch (IOException e) {
+            Log.warning("Índice textual de extratos não foi gravado (%s); será completado na próxima abertura",
+                    e.getMessage());
+        }
+        return referencias;
+    }
+
+    /**
+     * Lê o texto de um extrato pelo mapeamento do segmento.
+     *
+     * @throws IOException se o registro não existir ou estiver corrompido.
+     */
+    public synchronized String ler(ReferenciaExtrato referencia) throws IOException {
+        if (referencia != null && referencia.isMensal()) {
+            return new String(lerMensal(referencia), StandardCharsets.UTF_8);
+        }
+        ByteBuffer corpo = corpo(referencia);
+        byte[] texto = new byte[corpo.remaining()];
+        corpo.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escreve o texto de um extrato (UTF-8) direto do mapeamento do segmento,
+     * sem copiá-lo para o heap.
+     *
+     * @return bytes escritos.
+     * @throws IOException se o registro não existir, estiver corrompido ou a escrita falhar.
+     */
+    synchronized int transferir(ReferenciaExtrato referencia, WritableByteChannel destino) throws IOException {
+        ByteBuffer corpo = referencia != null && referencia.isMensal() ? ByteBuffer.wrap(lerMensal(referencia))
+                : corpo(referencia);
+        int tamanho = corpo.remaining();
+        while (corpo.hasRemaining()) {
+            destino.write(corpo);
+        }
+        return tamanho;
+    }
+
+    /**
+     * Lê um extrato a partir da referência guardada na entidade, aceitando
+     * também caminhos de arquivos avulsos gravados antes dos segmentos e
+     * referências de extratos que a compactação já moveu.
+     *
+     * @return texto do extrato, ou vazio se a referência não existir mais.
+     * @throws IOException se o extrato existir mas não puder ser lido.
+     */
+    public Optional<String> ler(String referencia) throws IOException {
+        Objects.requireNonNull(referencia, "referencia não pode ser nula");
+        Optional<String> realocada = realocacao(referencia);
+        if (realocada.isPresent()) {
+            return ler(realocada.get());
+        }
+        Optional<ReferenciaExtrato> segmento = ReferenciaExtrato.parse(referencia);
+        if (segmento.isPresent()) {
+            try {
+                return Optional.of(ler(segmento.get()));
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            }
+        }
+        Path avulso = Path.of(referencia);
+        return Files.isRegularFile(avulso) ? Optional.of(Files.readString(avulso, StandardCharsets.UTF_8))
+                : Optional.empty();
+    }
+
+    /**
+     * Referência atual de um extrato movido por uma compactação.
+     *
+     * @param referencia referência guardada na entidade.
+     * @return referência mensal, ou vazio se o extrato não foi movido.
+     */
+    public synchronized Optional<String> realocacao(String referencia) {
+        Objects.requireNonNull(referencia, "referencia não pode ser nula");
+        return Optional.ofNullable(realocacoes.get(chave(referencia)));
+    }
+
+    /**
+     * Extratos de um cliente em ordem de emissão.
+     *
+     * @param clienteId cliente consultado ou {@code null} para consumidor final.
+     */
+    public synchronized List<Registro> historico(UUID clienteId) {
+        List<Registro> registros = porCliente.get(clienteId);
+        return registros != null ? List.copyOf(registros) : List.of();
+    }
+
+    /**
+     * Extratos de um cliente emitidos no intervalo {@code [de, ate)}, localizados por busca binária.
+     *
+     * @param clienteId cliente consultado ou {@code null} para consumidor final.
+     */
+    public List<Registro> historico(UUID clienteId, LocalDateTime de, LocalDateTime ate) {
+        return historico(clienteId, de, ate, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Página dos extratos de um cliente emitidos no intervalo {@code [de, ate)},
+     * em ordem de emissão. Só a página é copiada.
+     *
+     * @param clienteId    cliente consultado ou {@code null} para consumidor final.
+     * @param deslocamento extratos do intervalo a pular.
+     * @param limite       máximo de extratos devolvidos.
+     */
+    public synchronized List<Registro> historico(UUID clienteId, LocalDateTime de, LocalDateTime ate,
+                                                 int deslocamento, int limite) {
+        Objects.requireNonNull(de, "de não pode ser nulo");
+        Objects.requireNonNull(ate, "ate não pode ser nulo");
+        validarPagina(deslocamento, limite);
+        List<Registro> registros = porCliente.get(clienteId);
+        if (registros == null || !de.isBefore(ate)) {
+            return List.of();
+        }
+        int inicio = inicioEm(registros, de);
+        int fim = inicioEm(registros, ate);
+        if (deslocamento >= fim - inicio) {
+            return List.of();
+        }
+        inicio += deslocamento;
+        return List.copyOf(registros.subList(inicio, inicio + Math.min(limite, fim - inicio)));
+    }
+
+    /**
+     * Os extratos mais recentes de um cliente, do mais novo para o mais antigo.
+     *
+     * @param clienteId  cliente consultado ou {@code null} para consumidor final.
+     * @param quantidade máximo de extratos devolvidos.
+     */
+    public synchronized List<Registro> ultimos(UUID clienteId, int quantidade) {
+        validarPagina(0, quantidade);
+        List<Registro> registros = porCliente.get(clienteId);
+        if (registros == null) {
+            return List.of();
+        }
+        List<Registro> recentes = new ArrayList<>(Math.min(quantidade, registros.size()));
+        for (int i = registros.size() - 1; i >= 0 && recentes.size() < quantidade; i--) {
+            recentes.add(registros.get(i));
+        }
+        return Collections.unmodifiableList(recentes);
+    }
+
+    /**
+     * @param clienteId cliente consultado ou {@code null} para consumidor final.
+     * @return quantidade de extratos do cliente no arquivo.
+     */
+    public synchronized int contar(UUID clienteId) {
+        List<Registro> registros = porCliente.get(clienteId);
+        return registros != null ? registros.size() : 0;
+    }
+
+    /**
+     * Busca extratos pelo texto, no índice invertido.
+     * <p>
+     * Palavras separadas por espaço precisam aparecer todas no extrato, sem
+     * diferenciar maiúsculas nem acentos; trechos entre aspas e palavras com
+     * pontuação interna ({@code 45,00}, o id de uma OS) precisam aparecer em
+     * sequência. Exemplo: {@code ana "forma de pagamento: pix" 45.00}.
+     * </p>
+     *
+     * @param consulta termos e frases procurados.
+     * @param limite   máximo de referências devolvidas.
+     * @return referências dos extratos encontrados, dos mais recentes para os mais antigos.
+     */
+    public List<String> buscar(String consulta, int limite) {
+        garantirAberto();
+        return textual.buscar(consulta, limite);
+    }
+
+    /**
+     * Reconstrói o índice textual a partir dos arquivos mensais, dos segmentos
+     * e dos extratos avulsos antigos do diretório, lendo e dividindo em termos
+     * cada fonte em paralelo. As anexações aguardam o fim da reconstrução.
+     *
+     * @return quantidade de extratos indexados.
+     * @throws IOException se uma fonte não puder ser lida ou o índice não puder ser gravado.
+     */
+    public synchronized int reconstruirIndiceTextual() throws IOException {
+        garantirAberto();
+        long inicio = System.nanoTime();
+        List<Callable<List<IndiceTextualExtratos.Documento>>> fontes = new ArrayList<>();
+        for (YearMonth mes : listarMensais()) {
+            fontes.add(() -> documentosDoMensal(mes));
+        }
+        for (Path avulso : listarAvulsos()) {
+            fontes.add(() -> List.of(IndiceTextualExtratos.Documento.de(avulso.toString(),
+                    Files.readString(avulso, StandardCharsets.UTF_8))));
+        }
+        for (int segmento : listarSegmentos().keySet()) {
+            long limite = segmento == numeroAtivo ? fimAtivo : Long.MAX_VALUE;
+            fontes.add(() -> documentosDoSegmento(segmento, limite));
+        }
+        List<IndiceTextualExtratos.Documento> documentos = new ArrayList<>();
+        try {
+            for (Future<List<IndiceTextualExtratos.Documento>> parte : ForkJoinPool.commonPool().invokeAll(fontes)) {
+                documentos.addAll(parte.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reconstrução do índice textual interrompida");
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            throw new IOException("Falha ao reconstruir o índice textual de extratos", causa);
+        }
+        textual.substituir(documentos);
+        Log.info("Índice textual de extratos reconstruído em %s: %d extrato(s) de %d fonte(s), %d termo(s), %d ms",
+                diretorio.toAbsolutePath(), textual.getDocumentos(), fontes.size(), textual.getTermos(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        return textual.getDocumentos();
+    }
+
+    /**
+     * Move para os arquivos mensais os extratos emitidos antes de {@code limite}.
+     * <p>
+     * Entram os segmentos fechados cujos extratos são todos anteriores ao
+     * limite (o segmento ativo nunca é compactado) e os arquivos avulsos
+     * antigos, cujo cliente e instante vêm do nome do arquivo; estes passam a
+     * fazer parte do histórico por cliente. A ordem das etapas garante que
+     * uma queda não perca extratos:
+     * </p>
+     * <ol>
+     *     <li>cada arquivo mensal é regravado de forma atômica com as entradas
+     *     antigas e as novas (a origem fica registrada na entrada, e repetir a
+     *     compactação reaproveita a entrada);</li>
+     *     <li>as realocações são anexadas a {@value #REALOCACOES} e
+     *     sincronizadas;</li>
+     *     <li>o índice é regravado de forma atômica e o índice textual recebe
+     *     as renomeações;</li>
+     *     <li>os segmentos e arquivos avulsos de origem são apagados.</li>
+     * </ol>
+     * <p>
+     * As entidades continuam com as referências antigas até que quem chamou
+     * aplique {@link Compactacao#realocar(String)}; enquanto isso
+     * {@link #ler(String)} as resolve pelo registro de realocações.
+     * </p>
+     *
+     * @param limite extratos emitidos a partir deste instante permanecem onde estão.
+     * @return referências movidas e arquivos economizados.
+     * @throws IOException se um arquivo não puder ser lido ou gravado.
+     */
+    public synchronized Compactacao compactar(LocalDateTime limite) throws IOException {
+        Objects.requireNonNull(limite, "limite não pode ser nulo");
+        garantirAberto();
+        long inicio = System.nanoTime();
+
+        Map<Integer, List<Registro>> porSegmento = new TreeMap<>();
+        for (List<Registro> registros : porCliente.values()) {
+            for (Registro registro : registros) {
+                int segmento = registro.referencia.getSegmento();
+                if (!registro.referencia.isMensal() && segmento < numeroAtivo) {
+                    porSegmento.computeIfAbsent(segmento, s -> new ArrayList<>()).add(registro);
+                }
+            }
+        }
+        porSegmento.values().removeIf(registros -> registros.stream()
+                .anyMatch(registro -> !registro.emitidoEm.isBefore(limite)));
+
+        Map<YearMonth, List<Compactavel>> porMes = new TreeMap<>();
+        List<Path> origens = new ArrayList<>();
+        long bytesAntes = 0;
+        for (Map.Entry<Integer, List<Registro>> segmento : porSegmento.entrySet()) {
+            Path arquivo = diretorio.resolve(ReferenciaExtrato.nomeSegmento(segmento.getKey()));
+            origens.add(arquivo);
+            bytesAntes += Files.size(arquivo);
+            for (Registro registro : segmento.getValue()) {
+                porMes.computeIfAbsent(YearMonth.from(registro.emitidoEm), m -> new ArrayList<>())
+                        .add(new Compactavel(registro.referencia.toString(), registro.clienteId, registro.emitidoEm,
+                                registro.tamanho, () -> lerBytes(registro.referencia)));
+            }
+        }
+        for (Path avulso : listarAvulsos()) {
+            String nome = avulso.getFileName().toString();
+            String[] partes = nome.substring(PREFIXO_AVULSO.length(), nome.length() - EXTENSAO_AVULSO.length())
+                    .split("_(?=\\d{14}$)");
+            LocalDateTime emitidoEm;
+            UUID clienteId;
+            try {
+                emitidoEm = LocalDateTime.parse(partes[partes.length - 1], TIMESTAMP_AVULSO);
+                clienteId = CONSUMIDOR_FINAL.equals(partes[0]) ? null : UUID.fromString(partes[0]);
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                Log.debug("Extrato avulso com nome fora do padrão mantido: %s", nome);
+                continue;
+            }
+            if (partes.length != 2 || !emitidoEm.isBefore(limite)) {
+                continue;
+            }
+            long tamanho = Files.size(avulso);
+            origens.add(avulso);
+            bytesAntes += tamanho;
+            porMes.computeIfAbsent(YearMonth.from(emitidoEm), m -> new ArrayList<>())
+                    .add(new Compactavel(nome, clienteId, emitidoEm, (int) tamanho, () -> Files.readAllBytes(avulso)));
+        }
+        if (porMes.isEmpty()) {
+            Log.debug("Nenhum extrato anterior a %s para compactar em %s", limite, diretorio.toAbsolutePath());
+            return new Compactacao(Map.of(), 0, 0, 0, 0, System.nanoTime() - inicio);
+        }
+
+        // 1. arquivos mensais
+        Map<String, Registro> movidos = new LinkedHashMap<>();
+        long bytesDepois = 0;
+        for (Map.Entry<YearMonth, List<Compactavel>> mes : porMes.entrySet()) {
+            Path arquivo = diretorio.resolve(ReferenciaExtrato.nomeMensal(mes.getKey()));
+            long anterior = Files.exists(arquivo) ? Files.size(arquivo) : 0;
+            List<Compactavel> itens = mes.getValue();
+            itens.sort(Comparator.comparing((Compactavel item) -> item.emitidoEm));
+            movidos.putAll(gravarMensal(mes.getKey(), itens));
+            bytesDepois += Files.size(arquivo) - anterior;
+        }
+
+        // 2. registro das realocações
+        Map<String, String> novas = new LinkedHashMap<>();
+        for (Map.Entry<String, Registro> movido : movidos.entrySet()) {
+            novas.put(movido.getKey(), movido.getValue().referencia.toString());
+        }
+        registrarRealocacoes(novas);
+
+        // 3. índices
+        for (List<Registro> registros : porCliente.values()) {
+            registros.replaceAll(registro -> {
+                Registro movido = movidos.remove(registro.referencia.toString());
+                return movido != null ? movido : registro;
+            });
+        }
+        for (Registro avulso : movidos.values()) {
+            indexar(avulso);
+        }
+        reescreverIndice();
+        Map<String, String> renomeacoes = new LinkedHashMap<>();
+        for (Map.Entry<String, String> nova : novas.entrySet()) {
+            renomeacoes.put(referenciaTextual(nova.getKey()), nova.getValue());
+        }
+        try {
+            textual.renomear(renomeacoes);
+        } catch (IOException e) {
+            Log.warning("Índice textual de extratos não foi atualizado (%s); será completado na próxima abertura",
+                    e.getMessage());
+        }
+
+        // 4. origens
+        for (int segmento : porSegmento.keySet()) {
+            mapeados.remove(segmento);
+        }
+        for (Path origem : origens) {
+            Files.deleteIfExists(origem);
+        }
+        ArquivoAtomico.sincronizarDiretorio(diretorio);
+
+        Compactacao compactacao = new Compactacao(novas, porMes.size(), origens.size(), bytesAntes, bytesDepois,
+                System.nanoTime() - inicio);
+        Log.info("Compactação de extratos em %s: %d extrato(s) anteriores a %s em %d arquivo(s) mensal(is), "
+                        + "%d arquivo(s) removido(s), %d -> %d bytes, %d ms", diretorio.toAbsolutePath(),
+                compactacao.getExtratos(), limite, compactacao.getMeses(), compactacao.getArquivosRemovidos(),
+                bytesAntes, bytesDepois, compactacao.getDuracao().toMillis());
+        return compactacao;
+    }
+
+    /**
+     * @return clientes com extratos no arquivo; {@code null} representa o consumidor final.
+     */
+    synchronized List<UUID> clientes() {
+        return new ArrayList<>(porCliente.keySet());
+    }
+
+    public synchronized int getTotal() {
+        return total;
+    }
+
+    public synchronized int getSegmentos() {
+        return numeroAtivo;
+    }
+
+    public Path getDiretorio() {
+        return diretorio;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        mapeados.clear();
+        try {
+            for (ArquivoMensalExtratos mensal : mensais.values()) {
+                mensal.close();
+            }
+            mensais.clear();
+            if (ativo != null) {
+                ativo.close();
+            }
+            if (textual != null) {
+                textual.close();
+            }
+        } finally {
+            indice.close();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ArquivoExtratos[" + diretorio + ", extratos=" + total + ", clientes=" + porCliente.size()
+                + ", segmentos=" + numeroAtivo + ", tamanhoSegmento=" + tamanhoSegmento + "]";
+    }
+
+    private void recuperar() throws IOException {
+        carregarRealocacoes();
+        TreeMap<Integer, Long> segmentos = listarSegmentos();
+        int descartados = descartarCompactados(segmentos);
+        Map<YearMonth, BitSet> indexadas = new HashMap<>();
+        int convertidos = 0;
+        long tamanhoIndice = indice.size();
+        long validos = 0;
+        int ultimoSegmento = 0;
+        long fimIndexado = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRADA * 1024);
+        long posicao = 0;
+        leitura:
+        while (posicao < tamanhoIndice) {
+            buffer.clear();
+            int lidos = indice.read(buffer, posicao);
+            if (lidos <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= ENTRADA) {
+                Registro registro = lerEntrada(buffer);
+                if (registro != null && segmentosCompactados.contains(registro.referencia.getSegmento())) {
+                    // queda entre o registro das realocações e a regravação do índice
+                    registro = realocado(registro);
+                    convertidos++;
+                }
+                if (registro != null && registro.referencia.isMensal()) {
+                    ArquivoMensalExtratos mensal = mensal(registro.referencia.getMes());
+                    if (mensal == null || mensal.entrada(registro.referencia.getOffset()) == null) {
+                        break leitura;
+                    }
+                    indexar(registro);
+                    indexadas.computeIfAbsent(registro.referencia.getMes(), m -> new BitSet())
+                            .set((int) registro.referencia.getOffset());
+                    validos += ENTRADA;
+                    continue;
+                }
+                Long tamanho = registro != null ? segmentos.get(registro.referencia.getSegmento()) : null;
+                if (tamanho == null || registro.referencia.getSegmento() < ultimoSegmento
+                        || registro.referencia.getOffset() + CABECALHO + registro.tamanho > tamanho) {
+                    break leitura;
+                }
+                long fim = registro.referencia.getOffset() + CABECALHO + registro.tamanho;
+                indexar(registro);
+                ultimoSegmento = registro.referencia.getSegmento();
+                fimIndexado = fim;
+                validos += ENTRADA;
+            }
+            int consumidos = lidos - buffer.remaining();
+            if (consumidos == 0) {
+                break;
+            }
+            posicao += consumidos;
+        }
+        if (validos < tamanhoIndice) {
+            Log.warning("Índice de extratos em %s com %d byte(s) inválidos no fim; truncando",
+                    diretorio.toAbsolutePath(), tamanhoIndice - validos);
+            indice.truncate(validos);
+        }
+
+        int reindexados = 0;
+        for (Map.Entry<Integer, Long> segmento : segmentos.tailMap(ultimoSegmento, true).entrySet()) {
+            long inicio = segmento.getKey() == ultimoSegmento ? fimIndexado : 0;
+            reindexados += reindexar(segmento.getKey(), inicio, segmento.getValue());
+        }
+        reindexados += reindexarMensais(indexadas);
+        if (convertidos > 0) {
+            reescreverIndice();
+        }
+        descartados += descartarAvulsosCompactados();
+        if (descartados > 0) {
+            Log.info("%d arquivo(s) de extratos já compactados removidos de %s", descartados,
+                    diretorio.toAbsolutePath());
+            ArquivoAtomico.sincronizarDiretorio(diretorio);
+        }
+        if (segmentos.isEmpty()) {
+            // números de segmentos compactados não são reutilizados: suas referências continuam realocadas
+            iniciarSegmento(segmentosCompactados.stream().mapToInt(Integer::intValue).max().orElse(0) + 1);
+        } else {
+            abrirSegmento(segmentos.lastKey());
+        }
+        Log.debug("Arquivo de extratos aberto em %s: %d extrato(s), %d segmento(s), %d reindexado(s)",
+                diretorio.toAbsolutePath(), total, numeroAtivo, reindexados);
+    }
+
+    /**
+     * Abre o índice textual; sem o arquivo, reconstrói tudo, e com ele indexa
+     * apenas os extratos que ficaram de fora (queda entre a gravação do
+     * segmento e a do índice textual).
+     */
+    private void abrirIndiceTextual() throws IOException {
+        Path caminho = diretorio.resolve(IndiceTextualExtratos.ARQUIVO);
+        boolean existia = Files.exists(caminho);
+        textual = IndiceTextualExtratos.abrir(caminho);
+        if (!existia) {
+            reconstruirIndiceTextual();
+            return;
+        }
+        if (!realocacoes.isEmpty()) {
+            Map<String, String> renomeacoes = new HashMap<>();
+            for (Map.Entry<String, String> realocacao : realocacoes.entrySet()) {
+                renomeacoes.put(referenciaTextual(realocacao.getKey()), realocacao.getValue());
+            }
+            textual.renomear(renomeacoes);
+        }
+        List<Registro> faltantes = new ArrayList<>();
+        for (List<Registro> registros : porCliente.values()) {
+            for (Registro registro : registros) {
+                if (!textual.contem(registro.referencia.toString())) {
+                    faltantes.add(registro);
+                }
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return;
+        }
+        faltantes.sort(Comparator.comparing(Registro::getEmitidoEm));
+        List<IndiceTextualExtratos.Documento> documentos = new ArrayList<>(faltantes.size());
+        for (Registro registro : faltantes) {
+            documentos.add(IndiceTextualExtratos.Documento.de(registro.referencia.toString(), ler(registro.referencia)));
+        }
+        textual.indexar(documentos);
+        Log.info("Índice textual de extratos em %s completado com %d extrato(s)", diretorio.toAbsolutePath(),
+                documentos.size());
+    }
+
+    /**
+     * Lê em sequência os registros íntegros de um segmento, até {@code limite}
+     * bytes, por um mapeamento próprio (usado em paralelo na reconstrução).
+     */
+    private List<IndiceTextualExtratos.Documento> documentosDoSegmento(int segmento, long limite) throws IOException {
+        Path arquivo = diretorio.resolve(ReferenciaExtrato.nomeSegmento(segmento));
+        List<IndiceTextualExtratos.Documento> documentos = new ArrayList<>();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = Math.min(canal.size(), limite);
+            MappedByteBuffer mapeado = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            int posicao = 0;
+            while (posicao + CABECALHO <= tamanho) {
+                mapeado.position(posicao);
+                int magico = mapeado.getInt();
+                int tamanhoTexto = mapeado.getInt();
+                int crc = mapeado.getInt();
+                if (magico != MAGICO || tamanhoTexto < 0 || posicao + CABECALHO + (long) tamanhoTexto > tamanho) {
+                    break;
+                }
+                byte[] texto = new byte[tamanhoTexto];
+                mapeado.position(posicao + CABECALHO);
+                mapeado.get(texto);
+                if (crc32(texto) != crc) {
+                    break;
+                }
+                documentos.add(IndiceTextualExtratos.Documento.de(ReferenciaExtrato.of(segmento, posicao).toString(),
+                        new String(texto, StandardCharsets.UTF_8)));
+                posicao += CABECALHO + tamanhoTexto;
+            }
+        }
+        return documentos;
+    }
+
+    /**
+     * Lê as entradas de um arquivo mensal cuja compactação foi concluída, por
+     * uma instância própria do arquivo (usado em paralelo na reconstrução).
+     */
+    private List<IndiceTextualExtratos.Documento> documentosDoMensal(YearMonth mes) throws IOException {
+        List<IndiceTextualExtratos.Documento> documentos = new ArrayList<>();
+        try (ArquivoMensalExtratos mensal = ArquivoMensalExtratos.abrir(
+                diretorio.resolve(ReferenciaExtrato.nomeMensal(mes)))) {
+            for (int numero = 1; numero <= mensal.getEntradas(); numero++) {
+                ReferenciaExtrato referencia = concluida(mes, numero, mensal.entrada(numero));
+                if (referencia != null) {
+                    documentos.add(IndiceTextualExtratos.Documento.de(referencia.toString(),
+                            new String(mensal.ler(numero), StandardCharsets.UTF_8)));
+                }
+            }
+        }
+        return documentos;
+    }
+
+    /**
+     * Regrava o arquivo do mês com as entradas existentes e as novas.
+     *
+     * @return registro mensal de cada origem, incluindo as que já estavam no arquivo.
+     */
+    private Map<String, Registro> gravarMensal(YearMonth mes, List<Compactavel> itens) throws IOException {
+        ArquivoMensalExtratos existente = mensal(mes);
+        Map<String, Integer> gravadas = new HashMap<>();
+        int ultima = existente != null ? existente.getEntradas() : 0;
+        for (int numero = 1; numero <= ultima; numero++) {
+            gravadas.put(existente.entrada(numero).getOrigem(), numero);
+        }
+        Map<String, Registro> movidos = new LinkedHashMap<>();
+        List<ArquivoMensalExtratos.Novo> novos = new ArrayList<>();
+        for (Compactavel item : itens) {
+            Integer numero = gravadas.get(item.origem);
+            if (numero == null) {
+                numero = ++ultima;
+                novos.add(new ArquivoMensalExtratos.Novo(item.origem, item.clienteId, millis(item.emitidoEm),
+                        item.conteudo));
+            }
+            movidos.put(item.origem, new Registro(item.clienteId, item.emitidoEm,
+                    ReferenciaExtrato.mensal(mes, numero), item.tamanho));
+        }
+        if (novos.isEmpty()) {
+            return movidos;
+        }
+        ArquivoMensalExtratos.gravar(diretorio.resolve(ReferenciaExtrato.nomeMensal(mes)), existente, novos);
+        if (existente != null) {
+            existente.close();
+            mensais.remove(mes);
+        }
+        return movidos;
+    }
+
+    /**
+     * Anexa as realocações ao registro em disco e o sincroniza antes de qualquer origem ser apagada.
+     */
+    private void registrarRealocacoes(Map<String, String> novas) throws IOException {
+        StringBuilder linhas = new StringBuilder();
+        for (Map.Entry<String, String> nova : novas.entrySet()) {
+            if (!nova.getValue().equals(realocacoes.get(nova.getKey()))) {
+                linhas.append(nova.getKey()).append('\t').append(nova.getValue()).append('\n');
+            }
+        }
+        if (linhas.length() > 0) {
+            try (FileChannel canal = FileChannel.open(diretorio.resolve(REALOCACOES), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                escreverTodos(canal, canal.size(),
+                        List.of(ByteBuffer.wrap(linhas.toString().getBytes(StandardCharsets.UTF_8))));
+                canal.force(true);
+            }
+        }
+        for (Map.Entry<String, String> nova : novas.entrySet()) {
+            lembrarRealocacao(nova.getKey(), nova.getValue());
+        }
+    }
+
+    private void carregarRealocacoes() throws IOException {
+        Path arquivo = diretorio.resolve(REALOCACOES);
+        if (!Files.exists(arquivo)) {
+            return;
+        }
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        int inicio = 0;
+        for (int i = 0; i < conteudo.length; i++) {
+            if (conteudo[i] == '\n') {
+                String linha = new String(conteudo, inicio, i - inicio, StandardCharsets.UTF_8);
+                int separador = linha.indexOf('\t');
+                if (separador > 0) {
+                    lembrarRealocacao(linha.substring(0, separador), linha.substring(separador + 1));
+                }
+                inicio = i + 1;
+            }
+        }
+        if (inicio < conteudo.length) {
+            Log.warning("Registro de realocações %s com %d byte(s) incompletos no fim; truncando",
+                    arquivo.toAbsolutePath(), conteudo.length - inicio);
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+                canal.truncate(inicio);
+            }
+        }
+    }
+
+    private void lembrarRealocacao(String antiga, String nova) {
+        realocacoes.put(antiga, nova);
+        ReferenciaExtrato.parse(antiga)
+                .filter(referencia -> !referencia.isMensal())
+                .ifPresent(referencia -> segmentosCompactados.add(referencia.getSegmento()));
+    }
+
+    /**
+     * Versão mensal de uma entrada do índice que aponta para um segmento já compactado.
+     */
+    private Registro realocado(Registro registro) {
+        String nova = realocacoes.get(registro.referencia.toString());
+        Optional<ReferenciaExtrato> referencia = nova != null ? ReferenciaExtrato.parse(nova) : Optional.empty();
+        return referencia.map(r -> new Registro(registro.clienteId, registro.emitidoEm, r, registro.tamanho))
+                .orElse(null);
+    }
+
+    /**
+     * Indexa as entradas mensais de compactações concluídas que faltam no índice.
+     */
+    private int reindexarMensais(Map<YearMonth, BitSet> indexadas) throws IOException {
+        int reindexados = 0;
+        for (YearMonth mes : listarMensais()) {
+            ArquivoMensalExtratos mensal = mensal(mes);
+            BitSet presentes = indexadas.getOrDefault(mes, new BitSet());
+            List<Registro> faltantes = new ArrayList<>();
+            for (int numero = presentes.nextClearBit(1); numero <= mensal.getEntradas();
+                 numero = presentes.nextClearBit(numero + 1)) {
+                ArquivoMensalExtratos.Entrada entrada = mensal.entrada(numero);
+                ReferenciaExtrato referencia = concluida(mes, numero, entrada);
+                if (referencia != null) {
+                    faltantes.add(new Registro(entrada.getClienteId(), instante(entrada.getEmitidoEm()), referencia,
+                            entrada.getTamanho()));
+                }
+            }
+            if (faltantes.isEmpty()) {
+                continue;
+            }
+            ByteBuffer entradas = ByteBuffer.allocate(ENTRADA * faltantes.size());
+            for (Registro registro : faltantes) {
+                escreverEntrada(entradas, registro);
+                indexar(registro);
+            }
+            entradas.flip();
+            escreverTodos(indice, indice.size(), List.of(entradas));
+            reindexados += faltantes.size();
+        }
+        return reindexados;
+    }
+
+    /**
+     * Apaga os segmentos cujos extratos já foram realocados (queda antes do fim de uma compactação).
+     */
+    private int descartarCompactados(TreeMap<Integer, Long> segmentos) throws IOException {
+        int descartados = 0;
+        for (int segmento : segmentosCompactados) {
+            if (segmentos.remove(segmento) != null) {
+                Files.deleteIfExists(diretorio.resolve(ReferenciaExtrato.nomeSegmento(segmento)));
+                descartados++;
+            }
+        }
+        return descartados;
+    }
+
+    private int descartarAvulsosCompactados() throws IOException {
+        int descartados = 0;
+        if (realocacoes.isEmpty()) {
+            return 0;
+        }
+        for (Path avulso : listarAvulsos()) {
+            if (realocacoes.containsKey(avulso.getFileName().toString())) {
+                Files.deleteIfExists(avulso);
+                descartados++;
+            }
+        }
+        return descartados;
+    }
+
+    /**
+     * Regrava o índice com os registros em memória, de forma atômica: os
+     * mensais primeiro, depois os de segmento na ordem do arquivo.
+     */
+    private void reescreverIndice() throws IOException {
+        List<Registro> todos = new ArrayList<>(total);
+        for (List<Registro> registros : porCliente.values()) {
+            todos.addAll(registros);
+        }
+        todos.sort(Comparator.comparing((Registro r) -> r.referencia.getMes(),
+                        Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(r -> r.referencia.getSegmento())
+                .thenComparingLong(r -> r.referencia.getOffset()));
+        Path destino = diretorio.resolve(INDICE);
+        ArquivoAtomico.substituir(destino, 0, temporario -> {
+            try (FileChannel novo = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer entradas = ByteBuffer.allocate(ENTRADA * 1024);
+                for (Registro registro : todos) {
+                    if (!entradas.hasRemaining()) {
+                        entradas.flip();
+                        escreverTodos(novo, novo.size(), List.of(entradas));
+                        entradas.clear();
+                    }
+                    escreverEntrada(entradas, registro);
+                }
+                entradas.flip();
+                escreverTodos(novo, novo.size(), List.of(entradas));
+            }
+        });
+        // o canal aberto aponta para o arquivo substituído
+        indice.close();
+        indice = FileChannel.open(destino, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Arquivo mensal aberto (mantido em cache para as leituras), ou {@code null} se não existir.
+     */
+    private ArquivoMensalExtratos mensal(YearMonth mes) throws IOException {
+        ArquivoMensalExtratos mensal = mensais.get(mes);
+        if (mensal == null) {
+            Path arquivo = diretorio.resolve(ReferenciaExtrato.nomeMensal(mes));
+            if (!Files.isRegularFile(arquivo)) {
+                return null;
+            }
+            mensal = ArquivoMensalExtratos.abrir(arquivo);
+            mensais.put(mes, mensal);
+        }
+        return mensal;
+    }
+
+    private byte[] lerMensal(ReferenciaExtrato referencia) throws IOException {
+        garantirAberto();
+        ArquivoMensalExtratos mensal = mensal(referencia.getMes());
+        if (mensal == null || mensal.entrada(referencia.getOffset()) == null) {
+            throw new NoSuchFileException(referencia.toString());
+        }
+        return mensal.ler(referencia.getOffset());
+    }
+
+    /**
+     * Referência da entrada se a compactação que a gravou foi concluída (a
+     * origem registrada na entrada aponta para ela), ou {@code null}.
+     */
+    private ReferenciaExtrato concluida(YearMonth mes, int numero, ArquivoMensalExtratos.Entrada entrada) {
+        ReferenciaExtrato referencia = ReferenciaExtrato.mensal(mes, numero);
+        return referencia.toString().equals(realocacoes.get(entrada.getOrigem())) ? referencia : null;
+    }
+
+    private byte[] lerBytes(ReferenciaExtrato referencia) throws IOException {
+        ByteBuffer corpo = corpo(referencia);
+        byte[] texto = new byte[corpo.remaining()];
+        corpo.get(texto);
+        return texto;
+    }
+
+    /**
+     * Chave usada pelo índice textual: a própria referência ou, para um
+     * extrato avulso, o caminho no diretório.
+     */
+    private String referenciaTextual(String chave) {
+        return ReferenciaExtrato.parse(chave).isPresent() ? chave : diretorio.resolve(chave).toString();
+    }
+
+    /**
+     * Chave de uma referência no registro de realocações: a própria
+     * referência ou, para um caminho de extrato avulso, o nome do arquivo.
+     */
+    private static String chave(String referencia) {
+        if (ReferenciaExtrato.parse(referencia).isPresent()) {
+            return referencia;
+        }
+        try {
+            Path nome = Path.of(referencia).getFileName();
+            return nome != null ? nome.toString() : referencia;
+        } catch (InvalidPathException e) {
+            return referencia;
+        }
+    }
+
+    /**
+     * Meses com arquivo compactado no diretório.
+     */
+    private List<YearMonth> listarMensais() throws IOException {
+        List<YearMonth> meses = new ArrayList<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                String nome = arquivo.getFileName().toString();
+                if (nome.startsWith(PREFIXO_MENSAL) && nome.endsWith(EXTENSAO_MENSAL)) {
+                    try {
+                        meses.add(YearMonth.parse(nome.substring(PREFIXO_MENSAL.length(),
+                                nome.length() - EXTENSAO_MENSAL.length())));
+                    } catch (DateTimeParseException e) {
+                        Log.debug("Arquivo ignorado no diretório de extratos: %s", nome);
+                    }
+                }
+            }
+        }
+        Collections.sort(meses);
+        return meses;
+    }
+
+    /**
+     * Extratos gravados como arquivos avulsos antes dos segmentos, em ordem de nome.
+     */
+    private List<Path> listarAvulsos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.filter(arquivo -> {
+                String nome = arquivo.getFileName().toString();
+                return nome.startsWith(PREFIXO_AVULSO) && nome.endsWith(EXTENSAO_AVULSO) && Files.isRegularFile(arquivo);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private TreeMap<Integer, Long> listarSegmentos() throws IOException {
+        TreeMap<Integer, Long> segmentos = new TreeMap<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                String nome = arquivo.getFileName().toString();
+                if (nome.startsWith(PREFIXO_SEGMENTO) && nome.endsWith(EXTENSAO_SEGMENTO)) {
+                    try {
+                        int numero = Integer.parseInt(nome.substring(PREFIXO_SEGMENTO.length(),
+                                nome.length() - EXTENSAO_SEGMENTO.length()));
+                        segmentos.put(numero, Files.size(arquivo));
+                    } catch (NumberFormatException e) {
+                        Log.debug("Arquivo ignorado no diretório de extratos: %s", nome);
+                    }
+                }
+            }
+        }
+        return segmentos;
+    }
+
+    /**
+     * Indexa os registros válidos de um segmento a partir de {@code inicio} e
+     * trunca o que sobrar depois do último registro íntegro.
+     */
+    private int reindexar(int segmento, long inicio, long tamanho) throws IOException {
+        Path arquivo = diretorio.resolve(ReferenciaExtrato.nomeSegmento(segmento));
+        int reindexados = 0;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long posicao = inicio;
+            ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+            ByteBuffer entradas = ByteBuffer.allocate(ENTRADA);
+            while (posicao + CABECALHO <= tamanho) {
+                cabecalho.clear();
+                lerTudo(canal, cabecalho, posicao);
+                cabecalho.flip();
+                int magico = cabecalho.getInt();
+                int tamanhoTexto = cabecalho.getInt();
+                int crc = cabecalho.getInt();
+                UUID cliente = cliente(cabecalho.getLong(), cabecalho.getLong());
+                long millis = cabecalho.getLong();
+                if (magico != MAGICO || tamanhoTexto < 0 || posicao + CABECALHO + tamanhoTexto > tamanho) {
+                    break;
+                }
+                ByteBuffer texto = ByteBuffer.allocate(tamanhoTexto);
+                lerTudo(canal, texto, posicao + CABECALHO);
+                if (crc32(texto.array()) != crc) {
+                    break;
+                }
+                Registro registro = new Registro(cliente, instante(millis), ReferenciaExtrato.of(segmento, posicao),
+                        tamanhoTexto);
+                entradas.clear();
+                escreverEntrada(entradas, registro);
+                entradas.flip();
+                escreverTodos(indice, indice.size(), List.of(entradas));
+                indexar(registro);
+                reindexados++;
+                posicao += CABECALHO + tamanhoTexto;
+            }
+            if (posicao < tamanho) {
+                Log.warning("Segmento %s com %d byte(s) incompletos no fim; truncando", arquivo.toAbsolutePath(),
+                        tamanho - posicao);
+                canal.truncate(posicao);
+            }
+        }
+        return reindexados;
+    }
+
+    private void iniciarSegmento(int numero) throws IOException {
+        if (ativo != null) {
+            ativo.close();
+        }
+        Path arquivo = diretorio.resolve(ReferenciaExtrato.nomeSegmento(numero));
+        ativo = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        numeroAtivo = numero;
+        fimAtivo = 0;
+        Log.debug("Novo segmento de extratos: %s", arquivo.toAbsolutePath());
+    }
+
+    private void abrirSegmento(int numero) throws IOException {
+        Path arquivo = diretorio.resolve(ReferenciaExtrato.nomeSegmento(numero));
+        ativo = FileChannel.open(arquivo, StandardOpenOption.WRITE);
+        numeroAtivo = numero;
+        fimAtivo = ativo.size();
+    }
+
+    /**
+     * Texto do registro, já conferido contra o CRC do cabeçalho.
+     */
+    private ByteBuffer corpo(ReferenciaExtrato referencia) throws IOException {
+        Objects.requireNonNull(referencia, "referencia não pode ser nula");
+        garantirAberto();
+        ByteBuffer cabecalho = mapear(referencia, CABECALHO);
+        if (cabecalho.getInt() != MAGICO) {
+            throw new IOException("Registro de extrato inválido em " + referencia);
+        }
+        int tamanho = cabecalho.getInt();
+        int crc = cabecalho.getInt();
+        ByteBuffer corpo = mapear(ReferenciaExtrato.of(referencia.getSegmento(), referencia.getOffset() + CABECALHO),
+                tamanho);
+        CRC32 calculado = new CRC32();
+        calculado.update(corpo.duplicate());
+        if ((int) calculado.getValue() != crc) {
+            throw new IOException("Extrato corrompido em " + referencia);
+        }
+        return corpo;
+    }
+
+    private ByteBuffer mapear(ReferenciaExtrato referencia, int tamanho) throws IOException {
+        long fim = referencia.getOffset() + tamanho;
+        MappedByteBuffer mapeado = mapeados.get(referencia.getSegmento());
+        if (mapeado == null || mapeado.capacity() < fim) {
+            Path arquivo = diretorio.resolve(ReferenciaExtrato.nomeSegmento(referencia.getSegmento()));
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                if (canal.size() < fim) {
+                    throw new IOException("Extrato além do fim do segmento: " + referencia);
+                }
+                mapeado = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            }
+            mapeados.put(referencia.getSegmento(), mapeado);
+        }
+        return mapeado.duplicate().position((int) referencia.getOffset()).limit((int) fim).slice();
+    }
+
+    private void indexar(Registro registro) {
+        List<Registro> registros = porCliente.computeIfAbsent(registro.clienteId, c -> new ArrayList<>());
+        int posicao = registros.size();
+        if (posicao > 0 && registros.get(posicao - 1).emitidoEm.isAfter(registro.emitidoEm)) {
+            posicao = inicioEm(registros, registro.emitidoEm.plusNanos(1));
+        }
+        registros.add(posicao, registro);
+        total++;
+    }
+
+    private static void validarPagina(int deslocamento, int limite) {
+        if (deslocamento < 0) {
+            throw new IllegalArgumentException("deslocamento não pode ser negativo");
+        }
+        if (limite <= 0) {
+            throw new IllegalArgumentException("limite deve ser positivo");
+        }
+    }
+
+    /**
+     * Primeira posição cujo instante de emissão não é anterior a {@code instante}.
+     */
+    private static int inicioEm(List<Registro> registros, LocalDateTime instante) {
+        int posicao = Collections.binarySearch(registros, new Registro(null, instante, null, 0),
+                Comparator.comparing(Registro::getEmitidoEm));
+        if (posicao < 0) {
+            return -posicao - 1;
+        }
+        while (posicao > 0 && !registros.get(posicao - 1).emitidoEm.isBefore(instante)) {
+            posicao--;
+        }
+        return posicao;
+    }
+
+    private static ByteBuffer cabecalho(UUID clienteId, long millis, byte[] texto) {
+        ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+        cabecalho.putInt(MAGICO);
+        cabecalho.putInt(texto.length);
+        cabecalho.putInt(crc32(texto));
+        cabecalho.putLong(clienteId != null ? clienteId.getMostSignificantBits() : 0L);
+        cabecalho.putLong(clienteId != null ? clienteId.getLeastSignificantBits() : 0L);
+        cabecalho.putLong(millis);
+        cabecalho.flip();
+        return cabecalho;
+    }
+
+    private static void escreverEntrada(ByteBuffer destino, Registro registro) {
+        destino.putLong(registro.clienteId != null ? registro.clienteId.getMostSignificantBits() : 0L);
+        destino.putLong(registro.clienteId != null ? registro.clienteId.getLeastSignificantBits() : 0L);
+        destino.putLong(millis(registro.emitidoEm));
+        YearMonth mes = registro.referencia.getMes();
+        // referência mensal: segmento negativo com o mês codificado como -(ano * 100 + mês)
+        destino.putInt(mes != null ? -(mes.getYear() * 100 + mes.getMonthValue()) : registro.referencia.getSegmento());
+        destino.putLong(registro.referencia.getOffset());
+        destino.putInt(registro.tamanho);
+    }
+
+    /**
+     * @return entrada lida, ou {@code null} se os valores forem inválidos.
+     */
+    private static Registro lerEntrada(ByteBuffer origem) {
+        UUID cliente = cliente(origem.getLong(), origem.getLong());
+        LocalDateTime emitidoEm = instante(origem.getLong());
+        int segmento = origem.getInt();
+        long offset = origem.getLong();
+        int tamanho = origem.getInt();
+        if (segmento < 0 && offset > 0 && tamanho >= 0 && -segmento % 100 >= 1 && -segmento % 100 <= 12) {
+            YearMonth mes = YearMonth.of(-segmento / 100, -segmento % 100);
+            return new Registro(cliente, emitidoEm, ReferenciaExtrato.mensal(mes, offset), tamanho);
+        }
+        if (segmento <= 0 || offset < 0 || tamanho < 0) {
+            return null;
+        }
+        return new Registro(cliente, emitidoEm, ReferenciaExtrato.of(segmento, offset), tamanho);
+    }
+
+    private static UUID cliente(long msb, long lsb) {
+        return msb == 0L && lsb == 0L ? null : new UUID(msb, lsb);
+    }
+
+    private static long millis(LocalDateTime instante) {
+        return instante.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime instante(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static int crc32(byte[] dados) {
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Grava os buffers a partir de {@code posicao} com escrita agrupada ({@code gathering write}).
+     */
+    private static void escreverTodos(FileChannel canal, long posicao, List<ByteBuffer> buffers) throws IOException {
+        ByteBuffer[] partes = buffers.toArray(new ByteBuffer[0]);
+        long restantes = 0;
+        for (ByteBuffer parte : partes) {
+            restantes += parte.remaining();
+        }
+        canal.position(posicao);
+        while (restantes > 0) {
+            restantes -= canal.write(partes);
+        }
+    }
+
+    private static void lerTudo(FileChannel canal, ByteBuffer destino, long posicao) throws IOException {
+        long atual = posicao;
+        while (destino.hasRemaining()) {
+            int lidos = canal.read(destino, atual);
+            if (lidos < 0) {
+                throw new IOException("Fim inesperado do segmento");
+            }
+            atual += lidos;
+        }
+    }
+
+    private void garantirAberto() {
+        if (fechado) {
+            throw new IllegalStateException("Arquivo de extratos fechado: " + diretorio);
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package br.ufvjm.barbearia.persist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Arquivo compactado com os extratos de um mês, gerado pela compactação do
+ * {@link ArquivoExtratos}.
+ * <p>
+ * Os textos são concatenados em blocos de até {@value #TAMANHO_BLOCO} bytes,
+ * cada um comprimido com {@link Deflater} de forma independente, o que
+ * aproveita a repetição entre extratos vizinhos sem obrigar a leitura a
+ * descomprimir o mês inteiro. O índice interno, no fim do arquivo, localiza
+ * cada extrato pelo número da entrada (a partir de 1).
+ * </p>
+ *
+ * <pre>
+ * cabeçalho : magic (int) | versão (int)
+ * blocos    : bytes deflate de cada bloco, em ordem
+ * índice    : quantidade de blocos; por bloco: offset, tamanho comprimido,
+ *             tamanho original e CRC32 do conteúdo original;
+ *             quantidade de entradas; por entrada: bloco, deslocamento e
+ *             tamanho no bloco, CRC32 do texto, emissão em milissegundos,
+ *             cliente (dois long, zeros para consumidor final) e referência
+ *             de origem (UTF)
+ * rodapé    : offset do índice (long) | magic (int)
+ * </pre>
+ *
+ * <p>
+ * O arquivo nunca é alterado no lugar: acrescentar extratos a um mês regrava
+ * o arquivo de forma atômica ({@link ArquivoAtomico}), copiando os blocos
+ * existentes sem descomprimi-los.
+ * </p>
+ */
+final class ArquivoMensalExtratos implements Closeable {
+
+    /** Assinatura "EXM1" gravada no início e no fim do arquivo. */
+    static final int MAGIC = 0x45584D31;
+    static final int TAMANHO_BLOCO = 64 * 1024;
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 8;
+    private static final int TAMANHO_RODAPE = 12;
+
+    private final Path arquivo;
+    private final FileChannel canal;
+    private final List<Bloco> blocos;
+    private final List<Entrada> entradas;
+    private int blocoEmCache = -1;
+    private byte[] conteudoEmCache;
+
+    private ArquivoMensalExtratos(Path arquivo, FileChannel canal, List<Bloco> blocos, List<Entrada> entradas) {
+        this.arquivo = arquivo;
+        this.canal = canal;
+        this.blocos = blocos;
+        this.entradas = entradas;
+    }
+
+    /**
+     * Posição e tamanhos de um bloco no arquivo.
+     */
+    private static final class Bloco {
+        private final long offset;
+        private final int comprimido;
+        private final int original;
+        private final int crc32;
+
+        Bloco(long offset, int comprimido, int original, int crc32) {
+            this.offset = offset;
+            this.comprimido = comprimido;
+            this.original = original;
+            this.crc32 = crc32;
+        }
+    }
+
+    /**
+     * Extrato guardado no arquivo.
+     */
+    static final class Entrada {
+        private final int bloco;
+        private final int deslocamento;
+        private final int tamanho;
+        private final int crc32;
+        private final long emitidoEm;
+        private final UUID clienteId;
+        private final String origem;
+
+        Entrada(int bloco, int deslocamento, int tamanho, int crc32, long emitidoEm, UUID clienteId, String origem) {
+            this.bloco = bloco;
+            this.deslocamento = deslocamento;
+            this.tamanho = tamanho;
+            this.crc32 = crc32;
+            this.emitidoEm = emitidoEm;
+            this.clienteId = clienteId;
+            this.origem = origem;
+        }
+
+        int getTamanho() {
+            return tamanho;
+        }
+
+        /**
+         * @return instante de emissão em milissegundos (UTC).
+         */
+        long getEmitidoEm() {
+            return emitidoEm;
+        }
+
+        UUID getClienteId() {
+            return clienteId;
+        }
+
+        /**
+         * @return referência que o extrato tinha antes da compactação.
+         */
+        String getOrigem() {
+            return origem;
+        }
+    }
+
+    /**
+     * Conteúdo de um extrato a acrescentar, lido só no momento da gravação.
+     */
+    @FunctionalInterface
+    interface Conteudo {
+        byte[] ler() throws IOException;
+    }
+
+    /**
+     * Extrato a acrescentar ao arquivo do mês.
+     */
+    static final class Novo {
+        private final String origem;
+        private final UUID clienteId;
+        private final long emitidoEm;
+        private final Conteudo conteudo;
+
+        Novo(String origem, UUID clienteId, long emitidoEm, Conteudo conteudo) {
+            this.origem = Objects.requireNonNull(origem, "origem não pode ser nula");
+            this.clienteId = clienteId;
+            this.emitidoEm = emitidoEm;
+            this.conteudo = Objects.requireNonNull(conteudo, "conteudo não pode ser nulo");
+        }
+    }
+
+    /**
+     * Abre o arquivo e carrega o índice interno.
+     *
+     * @throws IOException se o arquivo não puder ser lido ou não estiver no formato esperado.
+     */
+    static ArquivoMensalExtratos abrir(Path arquivo) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        try {
+            long tamanho = canal.size();
+            if (tamanho < TAMANHO_CABECALHO + TAMANHO_RODAPE) {
+                throw new IOException("Arquivo mensal de extratos truncado: " + arquivo);
+            }
+            ByteBuffer rodape = ByteBuffer.allocate(TAMANHO_RODAPE);
+            lerTudo(canal, rodape, tamanho - TAMANHO_RODAPE);
+            rodape.flip();
+            long offsetIndice = rodape.getLong();
+            if (rodape.getInt() != MAGIC || offsetIndice < TAMANHO_CABECALHO
+                    || offsetIndice > tamanho - TAMANHO_RODAPE) {
+                throw new IOException("Arquivo mensal de extratos inválido: " + arquivo);
+            }
+            DataInputStream indice = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(canal.position(offsetIndice))));
+            int quantidadeBlocos = indice.readInt();
+            List<Bloco> blocos = new ArrayList<>(quantidadeBlocos);
+            for (int i = 0; i < quantidadeBlocos; i++) {
+                blocos.add(new Bloco(indice.readLong(), indice.readInt(), indice.readInt(), indice.readInt()));
+            }
+            int quantidadeEntradas = indice.readInt();
+            List<Entrada> entradas = new ArrayList<>(quantidadeEntradas);
+            for (int i = 0; i < quantidadeEntradas; i++) {
+                int bloco = indice.readInt();
+                int deslocamento = indice.readInt();
+                int tamanhoTexto = indice.readInt();
+                int crc = indice.readInt();
+                long emitidoEm = indice.readLong();
+                long msb = indice.readLong();
+                long lsb = indice.readLong();
+                String origem = indice.readUTF();
+                if (bloco < 0 || bloco >= blocos.size() || deslocamento < 0 || tamanhoTexto < 0
+                        || (long) deslocamento + tamanhoTexto > blocos.get(bloco).original) {
+                    throw new IOException("Índice do arquivo mensal de extratos inválido: " + arquivo);
+                }
+                entradas.add(new Entrada(bloco, deslocamento, tamanhoTexto, crc, emitidoEm,
+                        msb == 0L && lsb == 0L ? null : new UUID(msb, lsb), origem));
+            }
+            return new ArquivoMensalExtratos(arquivo, canal, blocos, entradas);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Grava o arquivo do mês com as entradas de {@code existente} (copiadas
+     * sem descomprimir) seguidas das novas, de forma atômica.
+     *
+     * @param destino    caminho do arquivo do mês.
+     * @param existente  arquivo atual do mês, ou {@code null}.
+     * @param novos      extratos a acrescentar, na ordem das novas entradas.
+     */
+    static void gravar(Path destino, ArquivoMensalExtratos existente, List<Novo> novos) throws IOException {
+        Objects.requireNonNull(novos, "novos não pode ser nulo");
+        ArquivoAtomico.substituir(destino, 0, temporario -> {
+            try (Saida saida = new Saida(temporario)) {
+                if (existente != null) {
+                    existente.copiarPara(saida);
+                }
+                ByteArrayOutputStream bloco = new ByteArrayOutputStream(TAMANHO_BLOCO);
+                for (Novo novo : novos) {
+                    byte[] texto = novo.conteudo.ler();
+                    if (bloco.size() > 0 && bloco.size() + texto.length > TAMANHO_BLOCO) {
+                        saida.bloco(bloco.toByteArray());
+                        bloco.reset();
+                    }
+                    saida.entradas.add(new Entrada(saida.blocos.size(), bloco.size(), texto.length, crc32(texto),
+                            novo.emitidoEm, novo.clienteId, novo.origem));
+                    bloco.write(texto);
+                }
+                if (bloco.size() > 0) {
+                    saida.bloco(bloco.toByteArray());
+                }
+            }
+        });
+    }
+
+    /**
+     * @return quantidade de entradas; os números válidos vão de 1 até ela.
+     */
+    int getEntradas() {
+        return entradas.size();
+    }
+
+    /**
+     * @param numero número da entrada, a partir de 1.
+     * @return entrada, ou {@code null} se o número estiver fora do arquivo.
+     */
+    Entrada entrada(long numero) {
+        return numero >= 1 && numero <= entradas.size() ? entradas.get((int) (numero - 1)) : null;
+    }
+
+    /**
+     * Texto de uma entrada, descomprimindo o bloco dela (o último bloco lido
+     * fica em memória para leituras sequenciais).
+     *
+     * @throws IOException se a entrada não existir ou o conteúdo estiver corrompido.
+     */
+    synchronized byte[] ler(long numero) throws IOException {
+        Entrada entrada = entrada(numero);
+        if (entrada == null) {
+            throw new IOException("Entrada " + numero + " inexistente em " + arquivo);
+        }
+        byte[] conteudo = bloco(entrada.bloco);
+        byte[] texto = Arrays.copyOfRange(conteudo, entrada.deslocamento, entrada.deslocamento + entrada.tamanho);
+        if (crc32(texto) != entrada.crc32) {
+            throw new IOException("Extrato corrompido na entrada " + numero + " de " + arquivo);
+        }
+        return texto;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ArquivoMensalExtratos[" + arquivo + ", entradas=" + entradas.size() + ", blocos=" + blocos.size()
+                + "]";
+    }
+
+    private byte[] bloco(int numero) throws IOException {
+        if (numero == blocoEmCache) {
+            return conteudoEmCache;
+        }
+        Bloco bloco = blocos.get(numero);
+        ByteBuffer comprimido = ByteBuffer.allocate(bloco.comprimido);
+        lerTudo(canal, comprimido, bloco.offset);
+        byte[] original = new byte[bloco.original];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(comprimido.array());
+            int lidos = 0;
+            while (lidos < original.length && !inflater.finished()) {
+                int n = inflater.inflate(original, lidos, original.length - lidos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                lidos += n;
+            }
+            if (lidos != original.length) {
+                throw new IOException("Bloco " + numero + " truncado em " + arquivo);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloco " + numero + " corrompido em " + arquivo, e);
+        } finally {
+            inflater.end();
+        }
+        if (crc32(original) != bloco.crc32) {
+            throw new IOException("Bloco " + numero + " corrompido em " + arquivo);
+        }
+        blocoEmCache = numero;
+        conteudoEmCache = original;
+        return original;
+    }
+
+    private void copiarPara(Saida saida) throws IOException {
+        int primeiro = saida.blocos.size();
+        for (Bloco bloco : blocos) {
+            ByteBuffer comprimido = ByteBuffer.allocate(bloco.comprimido);
+            lerTudo(canal, comprimido, bloco.offset);
+            saida.blocoComprimido(comprimido.array(), bloco.original, bloco.crc32);
+        }
+        for (Entrada entrada : entradas) {
+            saida.entradas.add(new Entrada(primeiro + entrada.bloco, entrada.deslocamento, entrada.tamanho,
+                    entrada.crc32, entrada.emitidoEm, entrada.clienteId, entrada.origem));
+        }
+    }
+
+    private static int crc32(byte[] dados) {
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        return (int) crc.getValue();
+    }
+
+    private static void lerTudo(FileChannel canal, ByteBuffer destino, long posicao) throws IOException {
+        long atual = posicao;
+        while (destino.hasRemaining()) {
+            int lidos = canal.read(destino, atual);
+            if (lidos < 0) {
+                throw new IOException("Fim inesperado do arquivo mensal de extratos");
+            }
+            atual += lidos;
+        }
+    }
+
+    /**
+     * Escrita sequencial de um novo arquivo: blocos conforme chegam, índice e rodapé no fechamento.
+     */
+    private static final class Saida implements Closeable {
+        private final DataOutputStream dados;
+        private final List<Bloco> blocos = new ArrayList<>();
+        private final List<Entrada> entradas = new ArrayList<>();
+        private long posicao;
+
+        Saida(Path arquivo) throws IOException {
+            this.dados = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(arquivo)));
+            dados.writeInt(MAGIC);
+            dados.writeInt(VERSAO);
+            posicao = TAMANHO_CABECALHO;
+        }
+
+        void bloco(byte[] original) throws IOException {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+            try {
+                deflater.setInput(original);
+                deflater.finish();
+                byte[] saida = new byte[original.length + original.length / 1000 + 64];
+                int tamanho = 0;
+                while (!deflater.finished()) {
+                    if (tamanho == saida.length) {
+                        saida = Arrays.copyOf(saida, saida.length * 2);
+                    }
+                    tamanho += deflater.deflate(saida, tamanho, saida.length - tamanho);
+                }
+                blocoComprimido(Arrays.copyOf(saida, tamanho), original.length, crc32(original));
+            } finally {
+                deflater.end();
+            }
+        }
+
+        void blocoComprimido(byte[] comprimido, int original, int crc) throws IOException {
+            blocos.add(new Bloco(posicao, comprimido.length, original, crc));
+            dados.write(comprimido);
+            posicao += comprimido.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                long offsetIndice = posicao;
+                dados.writeInt(blocos.size());
+                for (Bloco bloco : blocos) {
+                    dados.writeLong(bloco.offset);
+                    dados.writeInt(bloco.comprimido);
+                    dados.writeInt(bloco.original);
+                    dados.writeInt(bloco.crc32);
+                }
+                dados.writeInt(entradas.size());
+                for (Entrada entrada : entradas) {
+                    dados.writeInt(entrada.bloco);
+                    dados.writeInt(entrada.deslocamento);
+                    dados.writeInt(entrada.tamanho);
+                    dados.writeInt(entrada.crc32);
+                    dados.writeLong(entrada.emitidoEm);
+                    dados.writeLong(entrada.clienteId != null ? entrada.clienteId.getMostSignificantBits() : 0L);
+                    dados.writeLong(entrada.clienteId != null ? entrada.clienteId.getLeastSignificantBits() : 0L);
+                    dados.writeUTF(entrada.origem);
+                }
+                dados.writeLong(offsetIndice);
+                dados.writeInt(MAGIC);
+            } finally {
+                dados.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,1140 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.persist.adapters.ModeloAdapterFactory;
+import br.ufvjm.barbearia.persist.adapters.ReferenciaAdapterFactory;
+import br.ufvjm.barbearia.value.Dinheiro;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Persistência de snapshots em formato binário compacto.
+ * <p>
+ * Alternativa ao {@link JsonStorage} para o snapshot carregado a cada
+ * inicialização. O mapeamento das entidades continua sendo feito pelos adapters
+ * reflexivos do {@link Gson} (inclusive as referências por {@code id} da
+ * {@link ReferenciaAdapterFactory}), mas a saída é um fluxo de valores
+ * marcados por tipo em vez de texto:
+ * </p>
+ * <ul>
+ *     <li>{@link Dinheiro} como centavos em {@code long} + código da moeda;</li>
+ *     <li>{@link LocalDate}, {@link LocalDateTime} e {@link YearMonth} como
+ *     números relativos à época;</li>
+ *     <li>UUIDs como dois {@code long};</li>
+ *     <li>nomes de campos como índices de um dicionário por coleção.</li>
+ * </ul>
+ *
+ * <p>
+ * Layout do arquivo:
+ * </p>
+ * <pre>
+ * cabeçalho : magic (int) | versão (int)
+ * blocos    : por coleção, elementos prefixados pelo tamanho (int + bytes)
+ * índice    : quantidade de blocos; por bloco: coleção, offset, tamanho,
+ *             total de elementos e dicionário de nomes
+ * rodapé    : offset do índice (long) | magic (int)
+ * </pre>
+ *
+ * <p>
+ * A leitura localiza o índice pelo rodapé e mapeia cada bloco com
+ * {@link FileChannel#map}, sem cópias intermediárias. Assim como no JSON, os
+ * elementos são entregues um a um a um {@link SnapshotSink}.
+ * </p>
+ *
+ * <pre>{@code
+ * BinarySnapshotStore.converterDeJson(Path.of("data/sistema.json"), Path.of("data/sistema.bin"));
+ * sistema.loadAll(Path.of("data/sistema.bin"));   // formato detectado pelo SnapshotFormato
+ * }</pre>
+ */
+public final class BinarySnapshotStore {
+
+    /** Assinatura "BBS1" gravada no início e no fim do arquivo. */
+    static final int MAGIC = 0x42425331;
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 8;
+    private static final int TAMANHO_RODAPE = 12;
+
+    // Marcadores de tipo dos valores codificados.
+    private static final byte NULO = 0;
+    private static final byte VERDADEIRO = 1;
+    private static final byte FALSO = 2;
+    private static final byte INTEIRO = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte DECIMAL_ESCALADO = 5;
+    private static final byte NUMERO_TEXTO = 6;
+    private static final byte TEXTO = 7;
+    private static final byte UUID_BINARIO = 8;
+    private static final byte INICIO_OBJETO = 9;
+    private static final byte FIM_OBJETO = 10;
+    private static final byte INICIO_LISTA = 11;
+    private static final byte FIM_LISTA = 12;
+    private static final byte NOME = 13;
+    private static final byte DINHEIRO = 14;
+    private static final byte DINHEIRO_TEXTO = 15;
+    private static final byte DATA = 16;
+    private static final byte DATA_HORA = 17;
+    private static final byte ANO_MES = 18;
+
+    private static final ReferenciaAdapterFactory REFERENCIAS = ReferenciasSnapshot.factory();
+    private static final Gson GSON = createGson();
+    private static final Map<ColecaoSnapshot, TypeAdapter<Object>> ADAPTERS_RAIZ = createAdaptersRaiz();
+    private static final BinarySnapshotStore DEBUG_VIEW = new BinarySnapshotStore();
+
+    private BinarySnapshotStore() {
+        // utilitário
+    }
+
+    private static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapter(Dinheiro.class, adapter(SaidaBinaria::valorDinheiro, EntradaBinaria::lerDinheiro))
+                .registerTypeAdapter(LocalDate.class, adapter(SaidaBinaria::valorData, EntradaBinaria::lerData))
+                .registerTypeAdapter(LocalDateTime.class,
+                        adapter(SaidaBinaria::valorDataHora, EntradaBinaria::lerDataHora))
+                .registerTypeAdapter(YearMonth.class, adapter(SaidaBinaria::valorAnoMes, EntradaBinaria::lerAnoMes))
+                .registerTypeAdapterFactory(new ModeloAdapterFactory())
+                .registerTypeAdapterFactory(REFERENCIAS)
+                .create();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<ColecaoSnapshot, TypeAdapter<Object>> createAdaptersRaiz() {
+        Map<ColecaoSnapshot, TypeAdapter<Object>> adapters = new EnumMap<>(ColecaoSnapshot.class);
+        for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+            adapters.put(colecao, (TypeAdapter<Object>) GSON.getDelegateAdapter(REFERENCIAS,
+                    TypeToken.get(colecao.getTipo())));
+        }
+        return adapters;
+    }
+
+    /**
+     * Grava o snapshot no formato binário.
+     *
+     * @param data snapshot a ser persistido.
+     * @param file arquivo de destino.
+     * @throws IOException se ocorrer erro de escrita.
+     */
+    public static void save(DataSnapshot data, Path file) throws IOException {
+        save(data, file, 0);
+    }
+
+    /**
+     * Grava o snapshot substituindo o arquivo de forma atômica e mantendo as
+     * últimas {@code geracoes} versões anteriores.
+     *
+     * @param data     snapshot a ser persistido.
+     * @param file     arquivo de destino.
+     * @param geracoes versões anteriores a preservar (0 desativa).
+     * @throws IOException se ocorrer erro de escrita; o arquivo anterior permanece intacto.
+     */
+    public static void save(DataSnapshot data, Path file, int geracoes) throws IOException {
+        Objects.requireNonNull(data, "data não pode ser nulo");
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        data.exigirCompleto();
+        ArquivoAtomico.substituir(file, geracoes, temporario -> escrever(data, temporario));
+    }
+
+    /**
+     * Serializa o snapshot em um temporário ao lado de {@code file}, para
+     * troca posterior ({@link GravacaoPreparada}).
+     */
+    static GravacaoPreparada preparar(DataSnapshot data, Path file) throws IOException {
+        Objects.requireNonNull(data, "data não pode ser nulo");
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        data.exigirCompleto();
+        return ArquivoAtomico.preparar(file, temporario -> escrever(data, temporario));
+    }
+
+    private static void escrever(DataSnapshot data, Path file) throws IOException {
+        try (Gravador gravador = abrirGravador(file)) {
+            for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+                gravador.iniciarColecao(colecao);
+                int total = 0;
+                for (Object elemento : data.elementos(colecao)) {
+                    gravador.aceitar(colecao, elemento);
+                    total++;
+                }
+                gravador.finalizarColecao(colecao, total);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Abre um gravador incremental: cada coleção é iniciada, recebe seus
+     * elementos e é finalizada; o índice é escrito no {@link Gravador#close()}.
+     *
+     * @param file arquivo de destino.
+     * @return gravador que também pode ser usado como {@link SnapshotSink}.
+     * @throws IOException se o arquivo não puder ser criado.
+     */
+    public static Gravador abrirGravador(Path file) throws IOException {
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        Path parent = file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new Gravador(file);
+    }
+
+    /**
+     * Carrega o snapshot completo em memória.
+     *
+     * @param file arquivo gerado por {@link #save(DataSnapshot, Path)}.
+     * @return snapshot lido ou vazio quando o arquivo não existe.
+     * @throws IOException se ocorrer erro de leitura.
+     */
+    public static DataSnapshot load(Path file) throws IOException {
+        DataSnapshot.Coletor coletor = DataSnapshot.coletor();
+        load(file, coletor);
+        return coletor.build();
+    }
+
+    /**
+     * Lê o snapshot entregando cada elemento ao {@code sink}. Blocos de
+     * coleções desconhecidas são ignorados.
+     *
+     * @param file arquivo binário de origem.
+     * @param sink destino dos elementos lidos.
+     * @throws IOException se ocorrer erro de leitura ou o conteúdo for inválido.
+     */
+    public static void load(Path file, SnapshotSink sink) throws IOException {
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        Objects.requireNonNull(sink, "sink não pode ser nulo");
+
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(file, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho == 0) {
+                return;
+            }
+            if (tamanho < TAMANHO_CABECALHO + TAMANHO_RODAPE) {
+                throw new IOException("Snapshot binário truncado: " + file);
+            }
+            List<Bloco> blocos = lerIndice(canal, tamanho, file);
+            ReferenciaAdapterFactory.Referencias referencias = new ReferenciaAdapterFactory.Referencias();
+            for (Bloco bloco : blocos) {
+                if (bloco.colecao != null) {
+                    lerBloco(canal, bloco, sink, referencias);
+                }
+            }
+        } catch (JsonParseException | IllegalStateException | IllegalArgumentException
+                 | BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot binário inválido em " + file, e);
+        }
+    }
+
+    /**
+     * Converte um snapshot JSON para o formato binário, em streaming.
+     *
+     * @param json    arquivo de origem no formato do {@link JsonStorage}.
+     * @param binario arquivo de destino.
+     * @throws IOException se a leitura ou a escrita falhar.
+     */
+    public static void converterDeJson(Path json, Path binario) throws IOException {
+        Objects.requireNonNull(json, "json não pode ser nulo");
+        ArquivoAtomico.substituir(binario, 0, temporario -> {
+            try (Gravador gravador = abrirGravador(temporario)) {
+                JsonStorage.load(json, gravador);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    /**
+     * Converte um snapshot binário de volta para JSON.
+     *
+     * @param binario arquivo de origem.
+     * @param json    arquivo de destino no formato do {@link JsonStorage}.
+     * @throws IOException se a leitura ou a escrita falhar.
+     */
+    public static void converterParaJson(Path binario, Path json) throws IOException {
+        JsonStorage.save(load(binario), json);
+    }
+
+    /**
+     * Verifica se o arquivo começa com a assinatura do formato binário.
+     */
+    static boolean possuiAssinatura(Path file) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) < Integer.BYTES) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] inicio = in.readNBytes(Integer.BYTES);
+            return ByteBuffer.wrap(inicio).getInt() == MAGIC;
+        }
+    }
+
+    public static String description() {
+        return DEBUG_VIEW.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "BinarySnapshotStore[snapshot binário v" + VERSAO + " com índice no rodapé e leitura via FileChannel.map]";
+    }
+
+    private static List<Bloco> lerIndice(FileChannel canal, long tamanho, Path file) throws IOException {
+        ByteBuffer cabecalho = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAMANHO_CABECALHO);
+        if (cabecalho.getInt() != MAGIC) {
+            throw new IOException("Arquivo não é um snapshot binário: " + file);
+        }
+        int versao = cabecalho.getInt();
+        if (versao != VERSAO) {
+            throw new IOException("Versão de snapshot binário não suportada (" + versao + "): " + file);
+        }
+        ByteBuffer rodape = canal.map(FileChannel.MapMode.READ_ONLY, tamanho - TAMANHO_RODAPE, TAMANHO_RODAPE);
+        long inicioIndice = rodape.getLong();
+        if (rodape.getInt() != MAGIC || inicioIndice < TAMANHO_CABECALHO
+                || inicioIndice > tamanho - TAMANHO_RODAPE) {
+            throw new IOException("Snapshot binário incompleto (rodapé ausente): " + file);
+        }
+        ByteBuffer indice = canal.map(FileChannel.MapMode.READ_ONLY, inicioIndice,
+                tamanho - TAMANHO_RODAPE - inicioIndice);
+        int quantidade = indice.getInt();
+        List<Bloco> blocos = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            int ordinal = indice.get() & 0xFF;
+            ColecaoSnapshot[] colecoes = ColecaoSnapshot.values();
+            Bloco bloco = new Bloco(ordinal < colecoes.length ? colecoes[ordinal] : null, indice.getLong());
+            bloco.tamanho = indice.getLong();
+            bloco.total = indice.getInt();
+            String[] nomes = new String[indice.getInt()];
+            for (int n = 0; n < nomes.length; n++) {
+                nomes[n] = lerTextoCurto(indice);
+            }
+            bloco.nomes = Arrays.asList(nomes);
+            if (bloco.offset < TAMANHO_CABECALHO || bloco.offset + bloco.tamanho > inicioIndice) {
+                throw new IOException("Índice do snapshot binário aponta para fora do arquivo: " + file);
+            }
+            blocos.add(bloco);
+        }
+        return blocos;
+    }
+
+    @SuppressWarnings("try")
+    private static void lerBloco(FileChannel canal, Bloco bloco, SnapshotSink sink,
+                                 ReferenciaAdapterFactory.Referencias referencias) throws IOException {
+        MappedByteBuffer dados = canal.map(FileChannel.MapMode.READ_ONLY, bloco.offset, bloco.tamanho);
+        EntradaBinaria entrada = new EntradaBinaria(bloco.nomes.toArray(new String[0]));
+        TypeAdapter<Object> adapter = ADAPTERS_RAIZ.get(bloco.colecao);
+        sink.iniciarColecao(bloco.colecao);
+        int total = 0;
+        for (int i = 0; i < bloco.total; i++) {
+            int tamanhoElemento = dados.getInt();
+            int inicio = dados.position();
+            entrada.reiniciar(dados.slice(inicio, tamanhoElemento));
+            Object elemento;
+            try (ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+                elemento = adapter.read(entrada);
+            }
+            dados.position(inicio + tamanhoElemento);
+            if (elemento != null) {
+                ReferenciasSnapshot.registrar(referencias, bloco.colecao, elemento);
+                sink.aceitar(bloco.colecao, elemento);
+                total++;
+            }
+        }
+        sink.finalizarColecao(bloco.colecao, total);
+    }
+
+    private static String lerTextoCurto(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static <T> TypeAdapter<T> adapter(Gravacao<T> gravacao, Leitura<T> leitura) {
+        return new TypeAdapter<T>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                if (value == null) {
+                    out.nullValue();
+                    return;
+                }
+                gravacao.gravar((SaidaBinaria) out, value);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                return leitura.ler((EntradaBinaria) in);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface Gravacao<T> {
+        void gravar(SaidaBinaria saida, T valor) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Leitura<T> {
+        T ler(EntradaBinaria entrada) throws IOException;
+    }
+
+    /**
+     * Posição e metadados de uma coleção dentro do arquivo.
+     */
+    private static final class Bloco {
+        private final ColecaoSnapshot colecao;
+        private final long offset;
+        private long tamanho;
+        private int total;
+        private List<String> nomes = List.of();
+
+        Bloco(ColecaoSnapshot colecao, long offset) {
+            this.colecao = colecao;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Gravador incremental do formato binário.
+     * <p>
+     * Implementa {@link SnapshotSink}, o que permite ligá-lo diretamente à
+     * leitura em streaming de outro formato (ver {@link #converterDeJson}).
+     * Falhas de escrita durante {@link #aceitar} são propagadas como
+     * {@link UncheckedIOException}.
+     * </p>
+     */
+    public static final class Gravador implements SnapshotSink, Closeable {
+
+        private final DataOutputStream out;
+        private final SaidaBinaria saida = new SaidaBinaria();
+        private final ReferenciaAdapterFactory.Referencias referencias = new ReferenciaAdapterFactory.Referencias();
+        private final List<Bloco> blocos = new ArrayList<>();
+        private long posicao;
+        private Bloco atual;
+        private boolean fechado;
+
+        private Gravador(Path file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSAO);
+            posicao = TAMANHO_CABECALHO;
+        }
+
+        @Override
+        public void iniciarColecao(ColecaoSnapshot colecao) {
+            Objects.requireNonNull(colecao, "colecao não pode ser nula");
+            if (atual != null) {
+                throw new IllegalStateException("Coleção " + atual.colecao + " ainda não foi finalizada");
+            }
+            atual = new Bloco(colecao, posicao);
+            saida.novoBloco();
+        }
+
+        @Override
+        @SuppressWarnings("try")
+        public void aceitar(ColecaoSnapshot colecao, Object elemento) {
+            if (atual == null || atual.colecao != colecao) {
+                throw new IllegalStateException("Coleção não iniciada: " + colecao);
+            }
+            if (elemento == null) {
+                return;
+            }
+            try {
+                saida.reiniciar();
+                try (ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+                    ADAPTERS_RAIZ.get(colecao).write(saida, elemento);
+                }
+                out.writeInt(saida.tamanho);
+                out.write(saida.buffer, 0, saida.tamanho);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao gravar elemento de " + colecao, e);
+            }
+            posicao += Integer.BYTES + saida.tamanho;
+            atual.total++;
+            ReferenciasSnapshot.registrar(referencias, colecao, elemento);
+        }
+
+        @Override
+        public void finalizarColecao(ColecaoSnapshot colecao, int total) {
+            if (atual == null || atual.colecao != colecao) {
+                throw new IllegalStateException("Coleção não iniciada: " + colecao);
+            }
+            atual.tamanho = posicao - atual.offset;
+            atual.nomes = saida.nomes();
+            blocos.add(atual);
+            atual = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fechado) {
+                return;
+            }
+            fechado = true;
+            try (DataOutputStream destino = out) {
+                if (atual != null) {
+                    finalizarColecao(atual.colecao, atual.total);
+                }
+                long inicioIndice = posicao;
+                destino.writeInt(blocos.size());
+                for (Bloco bloco : blocos) {
+                    destino.writeByte(bloco.colecao.ordinal());
+                    destino.writeLong(bloco.offset);
+                    destino.writeLong(bloco.tamanho);
+                    destino.writeInt(bloco.total);
+                    destino.writeInt(bloco.nomes.size());
+                    for (String nome : bloco.nomes) {
+                        byte[] bytes = nome.getBytes(StandardCharsets.UTF_8);
+                        destino.writeShort(bytes.length);
+                        destino.write(bytes);
+                    }
+                }
+                destino.writeLong(inicioIndice);
+                destino.writeInt(MAGIC);
+            }
+        }
+    }
+
+    /**
+     * {@link JsonWriter} que codifica os valores recebidos dos adapters do Gson
+     * em um buffer binário reutilizado a cada elemento.
+     */
+    private static final class SaidaBinaria extends JsonWriter {
+
+        private final Map<String, Integer> indiceNomes = new HashMap<>();
+        private final List<String> nomes = new ArrayList<>();
+        private byte[] buffer = new byte[512];
+        private int tamanho;
+        private String nomePendente;
+
+        SaidaBinaria() {
+            super(Writer.nullWriter());
+            setSerializeNulls(false);
+        }
+
+        void novoBloco() {
+            indiceNomes.clear();
+            nomes.clear();
+        }
+
+        void reiniciar() {
+            tamanho = 0;
+            nomePendente = null;
+        }
+
+        List<String> nomes() {
+            return List.copyOf(nomes);
+        }
+
+        @Override
+        public JsonWriter beginArray() {
+            return marcador(INICIO_LISTA);
+        }
+
+        @Override
+        public JsonWriter endArray() {
+            return marcador(FIM_LISTA);
+        }
+
+        @Override
+        public JsonWriter beginObject() {
+            return marcador(INICIO_OBJETO);
+        }
+
+        @Override
+        public JsonWriter endObject() {
+            return marcador(FIM_OBJETO);
+        }
+
+        @Override
+        public JsonWriter name(String name) {
+            Objects.requireNonNull(name, "name não pode ser nulo");
+            if (nomePendente != null) {
+                throw new IllegalStateException("Nome sem valor: " + nomePendente);
+            }
+            nomePendente = name;
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(String value) {
+            if (value == null) {
+                return nullValue();
+            }
+            gravarNomePendente();
+            if (!gravarUuid(value)) {
+                byteSimples(TEXTO);
+                texto(value);
+            }
+            return this;
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) {
+            throw new UnsupportedOperationException("JSON bruto não é suportado no formato binário");
+        }
+
+        @Override
+        public JsonWriter nullValue() {
+            if (nomePendente != null && !getSerializeNulls()) {
+                nomePendente = null;
+                return this;
+            }
+            return marcador(NULO);
+        }
+
+        @Override
+        public JsonWriter value(boolean value) {
+            return marcador(value ? VERDADEIRO : FALSO);
+        }
+
+        @Override
+        public JsonWriter value(Boolean value) {
+            return value == null ? nullValue() : value(value.booleanValue());
+        }
+
+        @Override
+        public JsonWriter value(float value) {
+            return value((double) value);
+        }
+
+        @Override
+        public JsonWriter value(double value) {
+            marcador(DECIMAL);
+            longFixo(Double.doubleToRawLongBits(value));
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(long value) {
+            marcador(INTEIRO);
+            zigZag(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Number value) {
+            if (value == null) {
+                return nullValue();
+            }
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                return value(value.longValue());
+            }
+            if (value instanceof Double || value instanceof Float) {
+                return value(value.doubleValue());
+            }
+            if (value instanceof BigDecimal) {
+                BigDecimal decimal = (BigDecimal) value;
+                BigInteger semEscala = decimal.unscaledValue();
+                if (semEscala.bitLength() < Long.SIZE) {
+                    marcador(DECIMAL_ESCALADO);
+                    zigZag(semEscala.longValue());
+                    zigZag(decimal.scale());
+                    return this;
+                }
+            }
+            marcador(NUMERO_TEXTO);
+            texto(value.toString());
+            return this;
+        }
+
+        void valorDinheiro(Dinheiro dinheiro) {
+            BigInteger centavos = dinheiro.getValor().unscaledValue();
+            if (dinheiro.getValor().scale() == 2 && centavos.bitLength() < Long.SIZE) {
+                marcador(DINHEIRO);
+                zigZag(centavos.longValue());
+            } else {
+                marcador(DINHEIRO_TEXTO);
+                texto(dinheiro.getValor().toPlainString());
+            }
+            texto(dinheiro.getMoeda().getCurrencyCode());
+        }
+
+        void valorData(LocalDate data) {
+            marcador(DATA);
+            zigZag(data.toEpochDay());
+        }
+
+        void valorDataHora(LocalDateTime dataHora) {
+            marcador(DATA_HORA);
+            zigZag(dataHora.toEpochSecond(ZoneOffset.UTC));
+            varLong(dataHora.getNano());
+        }
+
+        void valorAnoMes(YearMonth anoMes) {
+            marcador(ANO_MES);
+            zigZag(anoMes.getYear() * 12L + anoMes.getMonthValue() - 1);
+        }
+
+        @Override
+        public void flush() {
+            // buffer em memória
+        }
+
+        @Override
+        public void close() {
+            // buffer em memória
+        }
+
+        private JsonWriter marcador(byte marcador) {
+            gravarNomePendente();
+            byteSimples(marcador);
+            return this;
+        }
+
+        private void gravarNomePendente() {
+            if (nomePendente == null) {
+                return;
+            }
+            Integer indice = indiceNomes.get(nomePendente);
+            if (indice == null) {
+                indice = nomes.size();
+                nomes.add(nomePendente);
+                indiceNomes.put(nomePendente, indice);
+            }
+            nomePendente = null;
+            byteSimples(NOME);
+            varLong(indice);
+        }
+
+        /**
+         * Grava como dois {@code long} textos no formato canônico de
+         * {@link java.util.UUID#toString()}, garantindo a volta exata.
+         */
+        private boolean gravarUuid(String valor) {
+            if (valor.length() != 36 || valor.charAt(8) != '-' || valor.charAt(13) != '-'
+                    || valor.charAt(18) != '-' || valor.charAt(23) != '-') {
+                return false;
+            }
+            long mais = 0;
+            long menos = 0;
+            int digitos = 0;
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                if (c == '-') {
+                    continue;
+                }
+                // Apenas dígitos ASCII e letras minúsculas voltam idênticos em UUID#toString().
+                int hex = c <= 'f' ? Character.digit(c, 16) : -1;
+                if (hex < 0 || (c >= 'A' && c <= 'F')) {
+                    return false;
+                }
+                if (digitos < 16) {
+                    mais = (mais << 4) | hex;
+                } else {
+                    menos = (menos << 4) | hex;
+                }
+                digitos++;
+            }
+            if (digitos != 32) {
+                return false;
+            }
+            byteSimples(UUID_BINARIO);
+            longFixo(mais);
+            longFixo(menos);
+            return true;
+        }
+
+        private void texto(String valor) {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            varLong(bytes.length);
+            garantir(bytes.length);
+            System.arraycopy(bytes, 0, buffer, tamanho, bytes.length);
+            tamanho += bytes.length;
+        }
+
+        private void zigZag(long valor) {
+            varLong((valor << 1) ^ (valor >> 63));
+        }
+
+        private void varLong(long valor) {
+            garantir(10);
+            long restante = valor;
+            while ((restante & ~0x7FL) != 0) {
+                buffer[tamanho++] = (byte) ((restante & 0x7F) | 0x80);
+                restante >>>= 7;
+            }
+            buffer[tamanho++] = (byte) restante;
+        }
+
+        private void longFixo(long valor) {
+            garantir(Long.BYTES);
+            for (int deslocamento = 56; deslocamento >= 0; deslocamento -= 8) {
+                buffer[tamanho++] = (byte) (valor >>> deslocamento);
+            }
+        }
+
+        private void byteSimples(byte valor) {
+            garantir(1);
+            buffer[tamanho++] = valor;
+        }
+
+        private void garantir(int adicionais) {
+            if (tamanho + adicionais > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, tamanho + adicionais));
+            }
+        }
+    }
+
+    /**
+     * {@link JsonReader} que expõe aos adapters do Gson os valores de um
+     * elemento codificado pela {@link SaidaBinaria}.
+     */
+    private static final class EntradaBinaria extends JsonReader {
+
+        private final String[] nomes;
+        private ByteBuffer dados;
+
+        EntradaBinaria(String[] nomes) {
+            super(Reader.nullReader());
+            this.nomes = nomes;
+        }
+
+        void reiniciar(ByteBuffer elemento) {
+            this.dados = elemento;
+        }
+
+        @Override
+        public JsonToken peek() {
+            if (!dados.hasRemaining()) {
+                return JsonToken.END_DOCUMENT;
+            }
+            byte marcador = dados.get(dados.position());
+            switch (marcador) {
+                case NULO:
+                    return JsonToken.NULL;
+                case VERDADEIRO:
+                case FALSO:
+                    return JsonToken.BOOLEAN;
+                case INTEIRO:
+                case DECIMAL:
+                case DECIMAL_ESCALADO:
+                case NUMERO_TEXTO:
+                    return JsonToken.NUMBER;
+                case TEXTO:
+                case UUID_BINARIO:
+                case DINHEIRO:
+                case DINHEIRO_TEXTO:
+                case DATA:
+                case DATA_HORA:
+                case ANO_MES:
+                    return JsonToken.STRING;
+                case INICIO_OBJETO:
+                    return JsonToken.BEGIN_OBJECT;
+                case FIM_OBJETO:
+                    return JsonToken.END_OBJECT;
+                case INICIO_LISTA:
+                    return JsonToken.BEGIN_ARRAY;
+                case FIM_LISTA:
+                    return JsonToken.END_ARRAY;
+                case NOME:
+                    return JsonToken.NAME;
+                default:
+                    throw new IllegalStateException("Marcador desconhecido no snapshot binário: " + marcador);
+            }
+        }
+
+        @Override
+        public void beginArray() {
+            esperar(INICIO_LISTA);
+        }
+
+        @Override
+        public void endArray() {
+            esperar(FIM_LISTA);
+        }
+
+        @Override
+        public void beginObject() {
+            esperar(INICIO_OBJETO);
+        }
+
+        @Override
+        public void endObject() {
+            esperar(FIM_OBJETO);
+        }
+
+        @Override
+        public boolean hasNext() {
+            JsonToken token = peek();
+            return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+        }
+
+        @Override
+        public String nextName() {
+            esperar(NOME);
+            return nomes[(int) varLong()];
+        }
+
+        @Override
+        public String nextString() {
+            byte marcador = dados.get();
+            switch (marcador) {
+                case TEXTO:
+                case NUMERO_TEXTO:
+                    return texto();
+                case UUID_BINARIO:
+                    return new UUID(dados.getLong(), dados.getLong()).toString();
+                case INTEIRO:
+                    return Long.toString(zigZag());
+                case DECIMAL:
+                    return Double.toString(Double.longBitsToDouble(dados.getLong()));
+                case DECIMAL_ESCALADO:
+                    return decimalEscalado().toString();
+                case DATA:
+                case DATA_HORA:
+                case ANO_MES:
+                case DINHEIRO:
+                case DINHEIRO_TEXTO:
+                    dados.position(dados.position() - 1);
+                    return valorComposto(marcador);
+                default:
+                    throw inesperado("STRING", marcador);
+            }
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            byte marcador = dados.get();
+            if (marcador == VERDADEIRO) {
+                return true;
+            }
+            if (marcador == FALSO) {
+                return false;
+            }
+            throw inesperado("BOOLEAN", marcador);
+        }
+
+        @Override
+        public void nextNull() {
+            esperar(NULO);
+        }
+
+        @Override
+        public double nextDouble() {
+            byte marcador = dados.get(dados.position());
+            if (marcador == DECIMAL) {
+                dados.get();
+                return Double.longBitsToDouble(dados.getLong());
+            }
+            if (marcador == INTEIRO) {
+                dados.get();
+                return zigZag();
+            }
+            return Double.parseDouble(nextString());
+        }
+
+        @Override
+        public long nextLong() {
+            byte marcador = dados.get(dados.position());
+            if (marcador == INTEIRO) {
+                dados.get();
+                return zigZag();
+            }
+            return new BigDecimal(nextString()).longValueExact();
+        }
+
+        @Override
+        public int nextInt() {
+            long valor = nextLong();
+            if ((int) valor != valor) {
+                throw new NumberFormatException("Valor fora do intervalo de int: " + valor);
+            }
+            return (int) valor;
+        }
+
+        @Override
+        public void skipValue() {
+            byte marcador = dados.get();
+            switch (marcador) {
+                case NULO:
+                case VERDADEIRO:
+                case FALSO:
+                    return;
+                case INTEIRO:
+                case DATA:
+                case ANO_MES:
+                    varLong();
+                    return;
+                case DECIMAL:
+                    dados.getLong();
+                    return;
+                case DECIMAL_ESCALADO:
+                case DATA_HORA:
+                    varLong();
+                    varLong();
+                    return;
+                case NUMERO_TEXTO:
+                case TEXTO:
+                    texto();
+                    return;
+                case UUID_BINARIO:
+                    dados.position(dados.position() + 2 * Long.BYTES);
+                    return;
+                case DINHEIRO:
+                    varLong();
+                    texto();
+                    return;
+                case DINHEIRO_TEXTO:
+                    texto();
+                    texto();
+                    return;
+                case NOME:
+                    varLong();
+                    return;
+                case INICIO_OBJETO:
+                case INICIO_LISTA:
+                    while (hasNext()) {
+                        skipValue();
+                    }
+                    dados.get();
+                    return;
+                default:
+                    throw inesperado("valor", marcador);
+            }
+        }
+
+        Dinheiro lerDinheiro() {
+            byte marcador = dados.get();
+            BigDecimal valor;
+            if (marcador == DINHEIRO) {
+                valor = BigDecimal.valueOf(zigZag(), 2);
+            } else if (marcador == DINHEIRO_TEXTO) {
+                valor = new BigDecimal(texto());
+            } else {
+                throw inesperado("Dinheiro", marcador);
+            }
+            return Dinheiro.of(valor, Currency.getInstance(texto()));
+        }
+
+        LocalDate lerData() {
+            esperar(DATA);
+            return LocalDate.ofEpochDay(zigZag());
+        }
+
+        LocalDateTime lerDataHora() {
+            esperar(DATA_HORA);
+            long segundos = zigZag();
+            return LocalDateTime.ofEpochSecond(segundos, (int) varLong(), ZoneOffset.UTC);
+        }
+
+        YearMonth lerAnoMes() {
+            esperar(ANO_MES);
+            long meses = zigZag();
+            return YearMonth.of((int) Math.floorDiv(meses, 12), Math.floorMod(meses, 12) + 1);
+        }
+
+        @Override
+        public String getPath() {
+            return "$";
+        }
+
+        @Override
+        public String getPreviousPath() {
+            return "$";
+        }
+
+        @Override
+        public void close() {
+            // buffer mapeado liberado pelo canal
+        }
+
+        @Override
+        public String toString() {
+            return "EntradaBinaria[posição " + (dados != null ? dados.position() : 0) + "]";
+        }
+
+        private String valorComposto(byte marcador) {
+            switch (marcador) {
+                case DATA:
+                    return lerData().toString();
+                case DATA_HORA:
+                    return lerDataHora().toString();
+                case ANO_MES:
+                    return lerAnoMes().toString();
+                default:
+                    Dinheiro dinheiro = lerDinheiro();
+                    return dinheiro.getValor().toPlainString() + " " + dinheiro.getMoeda().getCurrencyCode();
+            }
+        }
+
+        private void esperar(byte marcador) {
+            byte lido = dados.get();
+            if (lido != marcador) {
+                throw inesperado("marcador " + marcador, lido);
+            }
+        }
+
+        private IllegalStateException inesperado(String esperado, byte lido) {
+            return new IllegalStateException("Esperado " + esperado + " mas foi encontrado marcador " + lido
+                    + " na posição " + (dados.position() - 1));
+        }
+
+        private BigDecimal decimalEscalado() {
+            long semEscala = zigZag();
+            return BigDecimal.valueOf(semEscala, (int) zigZag());
+        }
+
+        private String texto() {
+            int tamanho = (int) varLong();
+            byte[] bytes = new byte[tamanho];
+            dados.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private long zigZag() {
+            long valor = varLong();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+
+        private long varLong() {
+            long resultado = 0;
+            for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+                byte b = dados.get();
+                resultado |= (long) (b & 0x7F) << deslocamento;
+                if ((b & 0x80) == 0) {
+                    return resultado;
+                }
+            }
+            throw new IllegalStateException("Inteiro variável malformado no snapshot binário");
+        }
+    }
+}
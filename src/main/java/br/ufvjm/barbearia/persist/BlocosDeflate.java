@@ -0,0 +1,531 @@
+package br.ufvjm.barbearia.persist;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Contêiner de blocos comprimidos com {@link Deflater}, usado pelo snapshot
+ * JSON compactado de {@link JsonStorage}.
+ * <p>
+ * O conteúdo é dividido em seções (uma por {@link ColecaoSnapshot}) e cada
+ * seção em blocos de até {@value #TAMANHO_BLOCO} bytes descomprimidos. Os
+ * blocos são independentes entre si, o que permite comprimi-los e
+ * descomprimi-los em paralelo e ler apenas as seções desejadas.
+ * </p>
+ *
+ * <pre>
+ * cabeçalho : magic (int) | versão (int)
+ * blocos    : bytes deflate de cada bloco, em ordem
+ * índice    : quantidade de blocos; por bloco: coleção, offset, tamanho
+ *             comprimido, tamanho original e CRC32 do conteúdo original
+ * rodapé    : offset do índice (long) | magic (int)
+ * </pre>
+ *
+ * <p>
+ * Tanto a escrita quanto a leitura mantêm em memória apenas os blocos em
+ * andamento (no máximo {@link #EM_VOO} por vez), independentemente do tamanho
+ * do snapshot.
+ * </p>
+ */
+final class BlocosDeflate {
+
+    /** Assinatura "JSZ1" gravada no início e no fim do arquivo. */
+    static final int MAGIC = 0x4A535A31;
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 8;
+    private static final int TAMANHO_RODAPE = 12;
+    private static final int TAMANHO_ENTRADA_INDICE = Integer.BYTES + Long.BYTES + 3 * Integer.BYTES;
+    static final int TAMANHO_BLOCO = 256 * 1024;
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    /** Blocos comprimidos ou descomprimidos simultaneamente. */
+    static final int EM_VOO = 2 * THREADS + 1;
+    private static final ExecutorService EXECUTOR = criarExecutor();
+
+    private BlocosDeflate() {
+        // utilitário
+    }
+
+    private static ExecutorService criarExecutor() {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(THREADS, r -> {
+            Thread thread = new Thread(r, "snapshot-deflate-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Posição e tamanhos de um bloco no arquivo.
+     */
+    static final class Bloco {
+        private final ColecaoSnapshot colecao;
+        private final long offset;
+        private final int comprimido;
+        private final int original;
+        private final int crc32;
+
+        Bloco(ColecaoSnapshot colecao, long offset, int comprimido, int original, int crc32) {
+            this.colecao = colecao;
+            this.offset = offset;
+            this.comprimido = comprimido;
+            this.original = original;
+            this.crc32 = crc32;
+        }
+
+        ColecaoSnapshot getColecao() {
+            return colecao;
+        }
+
+        int getComprimido() {
+            return comprimido;
+        }
+
+        int getOriginal() {
+            return original;
+        }
+    }
+
+    static Escritor criar(Path arquivo) throws IOException {
+        return new Escritor(arquivo);
+    }
+
+    static Leitor abrir(Path arquivo) throws IOException {
+        return new Leitor(arquivo);
+    }
+
+    static boolean possuiAssinatura(Path arquivo) throws IOException {
+        if (!Files.isRegularFile(arquivo) || Files.size(arquivo) < Integer.BYTES) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(arquivo)) {
+            return ByteBuffer.wrap(in.readNBytes(Integer.BYTES)).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Escreve as seções em sequência. Cada bloco completo é entregue ao pool
+     * de compressão; os resultados são gravados no arquivo na ordem original.
+     */
+    static final class Escritor implements Closeable {
+        private final DataOutputStream saida;
+        private final ArrayDeque<Future<Comprimido>> pendentes = new ArrayDeque<>();
+        private final List<Bloco> indice = new ArrayList<>();
+        private long posicao;
+        private long bytesOriginais;
+        private Secao secaoAberta;
+
+        private Escritor(Path arquivo) throws IOException {
+            this.saida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(arquivo)));
+            saida.writeInt(MAGIC);
+            saida.writeInt(VERSAO);
+            posicao = TAMANHO_CABECALHO;
+        }
+
+        /**
+         * Abre a seção de uma coleção. O fluxo devolvido deve ser fechado antes
+         * de abrir a próxima seção; fechá-lo não fecha o contêiner.
+         */
+        OutputStream abrirSecao(ColecaoSnapshot colecao) {
+            Objects.requireNonNull(colecao, "colecao não pode ser nula");
+            if (secaoAberta != null) {
+                throw new IllegalStateException("Seção " + secaoAberta.colecao + " ainda aberta");
+            }
+            secaoAberta = new Secao(colecao);
+            return secaoAberta;
+        }
+
+        long getBytesOriginais() {
+            return bytesOriginais;
+        }
+
+        long getBytesGravados() {
+            return posicao;
+        }
+
+        int getBlocos() {
+            return indice.size();
+        }
+
+        private void enviar(ColecaoSnapshot colecao, byte[] dados, int tamanho) throws IOException {
+            byte[] copia = Arrays.copyOf(dados, tamanho);
+            pendentes.add(EXECUTOR.submit(() -> Comprimido.de(colecao, copia)));
+            bytesOriginais += tamanho;
+            while (pendentes.size() >= EM_VOO) {
+                gravarProximo();
+            }
+        }
+
+        private void gravarProximo() throws IOException {
+            Comprimido bloco = aguardar(pendentes.poll());
+            saida.write(bloco.dados);
+            indice.add(new Bloco(bloco.colecao, posicao, bloco.dados.length, bloco.original, bloco.crc32));
+            posicao += bloco.dados.length;
+        }
+
+        /**
+         * Grava os blocos restantes, o índice e o rodapé.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (secaoAberta != null) {
+                    throw new IllegalStateException("Seção " + secaoAberta.colecao + " não foi fechada");
+                }
+                while (!pendentes.isEmpty()) {
+                    gravarProximo();
+                }
+                long offsetIndice = posicao;
+                saida.writeInt(indice.size());
+                for (Bloco bloco : indice) {
+                    saida.writeInt(bloco.colecao.ordinal());
+                    saida.writeLong(bloco.offset);
+                    saida.writeInt(bloco.comprimido);
+                    saida.writeInt(bloco.original);
+                    saida.writeInt(bloco.crc32);
+                }
+                saida.writeLong(offsetIndice);
+                saida.writeInt(MAGIC);
+                posicao += Integer.BYTES + (long) indice.size() * TAMANHO_ENTRADA_INDICE + TAMANHO_RODAPE;
+            } finally {
+                pendentes.forEach(tarefa -> tarefa.cancel(false));
+                saida.close();
+            }
+        }
+
+        private final class Secao extends OutputStream {
+            private final ColecaoSnapshot colecao;
+            private final byte[] buffer = new byte[TAMANHO_BLOCO];
+            private int usado;
+
+            private Secao(ColecaoSnapshot colecao) {
+                this.colecao = colecao;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                if (usado == buffer.length) {
+                    esvaziar();
+                }
+                buffer[usado++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                Objects.checkFromIndexSize(off, len, b.length);
+                while (len > 0) {
+                    if (usado == buffer.length) {
+                        esvaziar();
+                    }
+                    int parte = Math.min(len, buffer.length - usado);
+                    System.arraycopy(b, off, buffer, usado, parte);
+                    usado += parte;
+                    off += parte;
+                    len -= parte;
+                }
+            }
+
+            private void esvaziar() throws IOException {
+                if (usado > 0) {
+                    enviar(colecao, buffer, usado);
+                    usado = 0;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (secaoAberta != this) {
+                    return;
+                }
+                esvaziar();
+                secaoAberta = null;
+            }
+        }
+    }
+
+    private static final class Comprimido {
+        private final ColecaoSnapshot colecao;
+        private final byte[] dados;
+        private final int original;
+        private final int crc32;
+
+        private Comprimido(ColecaoSnapshot colecao, byte[] dados, int original, int crc32) {
+            this.colecao = colecao;
+            this.dados = dados;
+            this.original = original;
+            this.crc32 = crc32;
+        }
+
+        static Comprimido de(ColecaoSnapshot colecao, byte[] original) {
+            CRC32 crc = new CRC32();
+            crc.update(original);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setInput(original);
+                deflater.finish();
+                byte[] saida = new byte[original.length + original.length / 1000 + 64];
+                int tamanho = 0;
+                while (!deflater.finished()) {
+                    if (tamanho == saida.length) {
+                        saida = Arrays.copyOf(saida, saida.length * 2);
+                    }
+                    tamanho += deflater.deflate(saida, tamanho, saida.length - tamanho);
+                }
+                return new Comprimido(colecao, Arrays.copyOf(saida, tamanho), original.length,
+                        (int) crc.getValue());
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Lê o índice do arquivo e abre fluxos sobre os blocos de uma ou mais
+     * seções, descomprimindo os blocos seguintes em paralelo enquanto o atual é
+     * consumido.
+     */
+    static final class Leitor implements Closeable {
+        private final Path arquivo;
+        private final FileChannel canal;
+        private final List<Bloco> blocos;
+
+        private Leitor(Path arquivo) throws IOException {
+            this.arquivo = arquivo;
+            this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+            try {
+                this.blocos = lerIndice();
+            } catch (IOException | RuntimeException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        private List<Bloco> lerIndice() throws IOException {
+            long tamanho = canal.size();
+            if (tamanho < TAMANHO_CABECALHO + Integer.BYTES + TAMANHO_RODAPE) {
+                throw new IOException("Snapshot compactado truncado: " + arquivo);
+            }
+            ByteBuffer cabecalho = lerExato(0, TAMANHO_CABECALHO);
+            if (cabecalho.getInt() != MAGIC) {
+                throw new IOException("Assinatura inválida em " + arquivo);
+            }
+            int versao = cabecalho.getInt();
+            if (versao != VERSAO) {
+                throw new IOException("Versão de snapshot compactado não suportada: " + versao);
+            }
+            ByteBuffer rodape = lerExato(tamanho - TAMANHO_RODAPE, TAMANHO_RODAPE);
+            long offsetIndice = rodape.getLong();
+            if (rodape.getInt() != MAGIC || offsetIndice < TAMANHO_CABECALHO
+                    || offsetIndice > tamanho - TAMANHO_RODAPE - Integer.BYTES) {
+                throw new IOException("Rodapé inválido em " + arquivo + " (arquivo incompleto?)");
+            }
+            ByteBuffer indice = lerExato(offsetIndice, (int) (tamanho - TAMANHO_RODAPE - offsetIndice));
+            int quantidade = indice.getInt();
+            if (quantidade < 0 || indice.remaining() != (long) quantidade * TAMANHO_ENTRADA_INDICE) {
+                throw new IOException("Índice de blocos inválido em " + arquivo);
+            }
+            ColecaoSnapshot[] colecoes = ColecaoSnapshot.values();
+            List<Bloco> lidos = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                int ordinal = indice.getInt();
+                Bloco bloco = new Bloco(ordinal >= 0 && ordinal < colecoes.length ? colecoes[ordinal] : null,
+                        indice.getLong(), indice.getInt(), indice.getInt(), indice.getInt());
+                if (bloco.colecao == null || bloco.offset < TAMANHO_CABECALHO || bloco.comprimido < 0
+                        || bloco.original < 0 || bloco.original > TAMANHO_BLOCO
+                        || bloco.offset + bloco.comprimido > offsetIndice) {
+                    throw new IOException("Bloco " + i + " inválido no índice de " + arquivo);
+                }
+                lidos.add(bloco);
+            }
+            return Collections.unmodifiableList(lidos);
+        }
+
+        List<Bloco> getBlocos() {
+            return blocos;
+        }
+
+        /**
+         * Fluxo sequencial com as seções pedidas, na ordem em que foram
+         * gravadas. Seções são separadas por {@link Sequencia#proximaSecao()}.
+         */
+        Sequencia ler(Set<ColecaoSnapshot> colecoes) {
+            List<Bloco> selecionados = new ArrayList<>();
+            for (Bloco bloco : blocos) {
+                if (colecoes.contains(bloco.colecao)) {
+                    selecionados.add(bloco);
+                }
+            }
+            return new Sequencia(selecionados);
+        }
+
+        private ByteBuffer lerExato(long offset, int tamanho) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Fim inesperado de " + arquivo);
+                }
+            }
+            return buffer.flip();
+        }
+
+        private byte[] descomprimir(Bloco bloco) throws IOException {
+            ByteBuffer comprimido = lerExato(bloco.offset, bloco.comprimido);
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(comprimido);
+                byte[] original = new byte[bloco.original];
+                int lidos = 0;
+                while (lidos < original.length && !inflater.finished()) {
+                    int n = inflater.inflate(original, lidos, original.length - lidos);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    lidos += n;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(original, 0, lidos);
+                if (lidos != bloco.original || (int) crc.getValue() != bloco.crc32) {
+                    throw new IOException("Checksum divergente no bloco em " + bloco.offset + " de " + arquivo);
+                }
+                return original;
+            } catch (DataFormatException e) {
+                throw new IOException("Bloco corrompido em " + bloco.offset + " de " + arquivo, e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+
+        /**
+         * Consome os blocos selecionados em ordem, mantendo até {@link #EM_VOO}
+         * descompressões adiantadas no pool.
+         */
+        final class Sequencia {
+            private final List<Bloco> selecionados;
+            private final ArrayDeque<Future<byte[]>> adiantados = new ArrayDeque<>();
+            private int proximoAgendado;
+            private int proximoConsumido;
+
+            private Sequencia(List<Bloco> selecionados) {
+                this.selecionados = selecionados;
+            }
+
+            /**
+             * @return coleção da próxima seção ou {@code null} se não houver mais blocos.
+             */
+            ColecaoSnapshot proximaColecao() {
+                return proximoConsumido < selecionados.size() ? selecionados.get(proximoConsumido).colecao : null;
+            }
+
+            /**
+             * Fluxo com os blocos consecutivos da próxima seção.
+             */
+            InputStream proximaSecao() {
+                ColecaoSnapshot colecao = proximaColecao();
+                if (colecao == null) {
+                    throw new IllegalStateException("Não há mais seções em " + arquivo);
+                }
+                return new InputStream() {
+                    private byte[] atual = new byte[0];
+                    private int posicao;
+
+                    @Override
+                    public int read() throws IOException {
+                        return preparar() ? atual[posicao++] & 0xFF : -1;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        Objects.checkFromIndexSize(off, len, b.length);
+                        if (len == 0) {
+                            return 0;
+                        }
+                        if (!preparar()) {
+                            return -1;
+                        }
+                        int parte = Math.min(len, atual.length - posicao);
+                        System.arraycopy(atual, posicao, b, off, parte);
+                        posicao += parte;
+                        return parte;
+                    }
+
+                    private boolean preparar() throws IOException {
+                        while (posicao == atual.length) {
+                            if (proximaColecao() != colecao) {
+                                return false;
+                            }
+                            atual = proximoBloco();
+                            posicao = 0;
+                        }
+                        return true;
+                    }
+                };
+            }
+
+            private byte[] proximoBloco() throws IOException {
+                while (proximoAgendado < selecionados.size() && adiantados.size() < EM_VOO) {
+                    Bloco bloco = selecionados.get(proximoAgendado++);
+                    adiantados.add(EXECUTOR.submit(() -> descomprimir(bloco)));
+                }
+                proximoConsumido++;
+                return aguardar(adiantados.poll());
+            }
+
+            void cancelar() {
+                adiantados.forEach(tarefa -> tarefa.cancel(false));
+                adiantados.clear();
+            }
+        }
+    }
+
+    private static <T> T aguardar(Future<T> tarefa) throws IOException {
+        try {
+            return tarefa.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido durante a compressão do snapshot", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            if (causa instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) causa).getCause();
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new IOException("Falha na compressão do snapshot", causa);
+        }
+    }
+}
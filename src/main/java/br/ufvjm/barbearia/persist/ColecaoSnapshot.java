@@ -0,0 +1,260 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.CaixaDiario;
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.model.ConsumoDeProduto;
+import br.ufvjm.barbearia.model.ContaAtendimento;
+import br.ufvjm.barbearia.model.Despesa;
+import br.ufvjm.barbearia.model.ItemContaProduto;
+import br.ufvjm.barbearia.model.ItemDeServico;
+import br.ufvjm.barbearia.model.ItemRecebimento;
+import br.ufvjm.barbearia.model.ItemVenda;
+import br.ufvjm.barbearia.model.Produto;
+import br.ufvjm.barbearia.model.RecebimentoFornecedor;
+import br.ufvjm.barbearia.model.Servico;
+import br.ufvjm.barbearia.model.Usuario;
+import br.ufvjm.barbearia.model.Venda;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+/**
+ * Coleções que compõem um {@link DataSnapshot}, na ordem em que são gravadas.
+ * <p>
+ * A chave de cada constante coincide com o nome do campo serializado pelo
+ * Gson, o que mantém compatível o layout dos arquivos JSON já existentes. A
+ * ordem das constantes também é relevante: coleções referenciadas (clientes,
+ * usuários, catálogo) aparecem antes das que as referenciam (agendamentos,
+ * vendas, contas e caixas).
+ * </p>
+ */
+public enum ColecaoSnapshot {
+    CLIENTES("clientes", Cliente.class),
+    USUARIOS("usuarios", Usuario.class),
+    SERVICOS("servicos", Servico.class),
+    PRODUTOS("produtos", Produto.class),
+    AGENDAMENTOS("agendamentos", Agendamento.class),
+    VENDAS("vendas", Venda.class),
+    CONTAS("contas", ContaAtendimento.class),
+    DESPESAS("despesas", Despesa.class),
+    RECEBIMENTOS("recebimentos", RecebimentoFornecedor.class),
+    CAIXAS("caixas", CaixaDiario.class);
+
+    private final String chave;
+    private final Class<?> tipo;
+
+    ColecaoSnapshot(String chave, Class<?> tipo) {
+        this.chave = chave;
+        this.tipo = tipo;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    public Class<?> getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtém a chave lógica de um elemento da coleção: o {@code id} das
+     * entidades ou a data, no caso do {@link CaixaDiario}.
+     *
+     * @param elemento instância do tipo da coleção.
+     * @return representação textual da chave.
+     */
+    public String chaveDe(Object elemento) {
+        Object valor = tipo.cast(Objects.requireNonNull(elemento, "elemento não pode ser nulo"));
+        switch (this) {
+            case CLIENTES:
+                return ((Cliente) valor).getId().toString();
+            case USUARIOS:
+                return ((Usuario) valor).getId().toString();
+            case SERVICOS:
+                return ((Servico) valor).getId().toString();
+            case PRODUTOS:
+                return ((Produto) valor).getId().toString();
+            case AGENDAMENTOS:
+                return ((Agendamento) valor).getId().toString();
+            case VENDAS:
+                return ((Venda) valor).getId().toString();
+            case CONTAS:
+                return ((ContaAtendimento) valor).getId().toString();
+            case DESPESAS:
+                return ((Despesa) valor).getId().toString();
+            case RECEBIMENTOS:
+                return ((RecebimentoFornecedor) valor).getId().toString();
+            case CAIXAS:
+                return ((CaixaDiario) valor).getData().toString();
+            default:
+                throw new IllegalStateException("Coleção sem chave definida: " + this);
+        }
+    }
+
+    /**
+     * Indica se a coleção cresce com o histórico da barbearia (vendas, contas e
+     * caixas) e pode ser particionada por competência.
+     */
+    public boolean isHistorica() {
+        return this == VENDAS || this == CONTAS || this == CAIXAS;
+    }
+
+    /**
+     * Competência (mês) de um elemento de coleção histórica: a data da venda,
+     * o início do agendamento da conta ou a data do caixa.
+     *
+     * @param elemento instância do tipo da coleção.
+     * @return mês ao qual o elemento pertence.
+     * @throws IllegalStateException se a coleção não for histórica.
+     */
+    public YearMonth competenciaDe(Object elemento) {
+        Object valor = tipo.cast(Objects.requireNonNull(elemento, "elemento não pode ser nulo"));
+        switch (this) {
+            case VENDAS:
+                return YearMonth.from(((Venda) valor).getDataHora());
+            case CONTAS:
+                return YearMonth.from(((ContaAtendimento) valor).getAgendamento().getInicio());
+            case CAIXAS:
+                return YearMonth.from(((CaixaDiario) valor).getData());
+            default:
+                throw new IllegalStateException("Coleção não particionada por competência: " + this);
+        }
+    }
+
+    /**
+     * Coleções cujas entidades aparecem dentro dos elementos desta coleção e,
+     * portanto, precisam estar carregadas antes dela para que as referências
+     * sejam resolvidas.
+     *
+     * @return conjunto (possivelmente vazio) de dependências diretas.
+     */
+    public Set<ColecaoSnapshot> getDependencias() {
+        switch (this) {
+            case AGENDAMENTOS:
+                return EnumSet.of(CLIENTES, USUARIOS, SERVICOS, PRODUTOS);
+            case VENDAS:
+                return EnumSet.of(CLIENTES, PRODUTOS);
+            case RECEBIMENTOS:
+                return EnumSet.of(PRODUTOS);
+            case CONTAS:
+                return EnumSet.of(AGENDAMENTOS, SERVICOS, PRODUTOS);
+            case CAIXAS:
+                return EnumSet.of(VENDAS, CONTAS);
+            default:
+                return EnumSet.noneOf(ColecaoSnapshot.class);
+        }
+    }
+
+    /**
+     * Verifica se o elemento referencia diretamente alguma entidade (das
+     * coleções de {@link #getDependencias()}) que satisfaça o critério.
+     *
+     * @param elemento instância do tipo da coleção.
+     * @param criterio recebe a coleção e a entidade de cada referência não nula.
+     * @return {@code true} na primeira referência aceita pelo critério.
+     */
+    public boolean possuiReferencia(Object elemento, BiPredicate<ColecaoSnapshot, Object> criterio) {
+        Object valor = tipo.cast(Objects.requireNonNull(elemento, "elemento não pode ser nulo"));
+        Objects.requireNonNull(criterio, "criterio não pode ser nulo");
+        switch (this) {
+            case AGENDAMENTOS: {
+                Agendamento agendamento = (Agendamento) valor;
+                return testar(CLIENTES, agendamento.getCliente(), criterio)
+                        || testar(USUARIOS, agendamento.getBarbeiro(), criterio)
+                        || referenciaServicos(agendamento.getItens(), criterio);
+            }
+            case VENDAS: {
+                Venda venda = (Venda) valor;
+                if (testar(CLIENTES, venda.getCliente(), criterio)) {
+                    return true;
+                }
+                for (ItemVenda item : venda.getItens()) {
+                    if (testar(PRODUTOS, item.getProduto(), criterio)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case RECEBIMENTOS:
+                for (ItemRecebimento item : ((RecebimentoFornecedor) valor).getItens()) {
+                    if (testar(PRODUTOS, item.getProduto(), criterio)) {
+                        return true;
+                    }
+                }
+                return false;
+            case CONTAS: {
+                ContaAtendimento conta = (ContaAtendimento) valor;
+                if (testar(AGENDAMENTOS, conta.getAgendamento(), criterio)) {
+                    return true;
+                }
+                for (ItemContaProduto item : conta.getProdutosFaturados()) {
+                    if (testar(PRODUTOS, item.getProduto(), criterio)) {
+                        return true;
+                    }
+                }
+                return referenciaServicos(conta.getServicosAdicionais(), criterio);
+            }
+            case CAIXAS: {
+                CaixaDiario caixa = (CaixaDiario) valor;
+                for (Venda venda : caixa.getVendas()) {
+                    if (testar(VENDAS, venda, criterio)) {
+                        return true;
+                    }
+                }
+                for (ContaAtendimento conta : caixa.getContas()) {
+                    if (testar(CONTAS, conta, criterio)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Localiza a coleção pela chave usada no JSON.
+     *
+     * @param chave nome do campo no arquivo.
+     * @return coleção correspondente ou vazio quando a chave é desconhecida.
+     */
+    public static Optional<ColecaoSnapshot> porChave(String chave) {
+        for (ColecaoSnapshot colecao : values()) {
+            if (colecao.chave.equals(chave)) {
+                return Optional.of(colecao);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean referenciaServicos(List<ItemDeServico> itens,
+                                              BiPredicate<ColecaoSnapshot, Object> criterio) {
+        for (ItemDeServico item : itens) {
+            if (testar(SERVICOS, item.getServico(), criterio)) {
+                return true;
+            }
+            for (ConsumoDeProduto consumo : item.getConsumos()) {
+                if (testar(PRODUTOS, consumo.getProduto(), criterio)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean testar(ColecaoSnapshot colecao, Object entidade,
+                                  BiPredicate<ColecaoSnapshot, Object> criterio) {
+        return entidade != null && criterio.test(colecao, entidade);
+    }
+
+    @Override
+    public String toString() {
+        return chave;
+    }
+}
@@ -0,0 +1,144 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.util.Log;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Compacta periodicamente, em segundo plano, os extratos mais antigos que a
+ * retenção configurada ({@link ArquivoExtratos#compactar(LocalDateTime)}).
+ * <p>
+ * A compactação roda em uma thread dedicada; o resultado é entregue a uma
+ * ação informada em {@link #agendar(ArquivoExtratos, Consumer)}, que deve
+ * apenas encaminhá-lo à thread dona das entidades para que as referências
+ * sejam trocadas lá. Falhas são registradas no log e a próxima execução
+ * tenta de novo.
+ * </p>
+ *
+ * <pre>{@code
+ * try (CompactadorExtratos compactador = new CompactadorExtratos(Duration.ofDays(90), Duration.ofHours(6))) {
+ *     sistema.configurarCompactacaoExtratos(compactador);
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class CompactadorExtratos implements Closeable {
+
+    private final Duration retencao;
+    private final Duration intervalo;
+    private final ScheduledExecutorService executor;
+    private volatile ArquivoExtratos arquivo;
+    private volatile Consumer<ArquivoExtratos.Compactacao> aoConcluir;
+    private boolean agendado;
+
+    /**
+     * @param retencao  idade a partir da qual um extrato é compactado.
+     * @param intervalo tempo entre duas compactações.
+     */
+    public CompactadorExtratos(Duration retencao, Duration intervalo) {
+        Objects.requireNonNull(retencao, "retencao não pode ser nula");
+        Objects.requireNonNull(intervalo, "intervalo não pode ser nulo");
+        if (retencao.isNegative()) {
+            throw new IllegalArgumentException("retencao não pode ser negativa");
+        }
+        if (intervalo.isZero() || intervalo.isNegative()) {
+            throw new IllegalArgumentException("intervalo deve ser positivo");
+        }
+        this.retencao = retencao;
+        this.intervalo = intervalo;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "extrato-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Passa a compactar o arquivo informado a cada intervalo. Uma nova chamada
+     * troca o arquivo e a ação a partir da próxima execução.
+     *
+     * @param arquivo    arquivo de extratos a compactar.
+     * @param aoConcluir ação executada na thread do compactador com o resultado de cada compactação.
+     */
+    public synchronized void agendar(ArquivoExtratos arquivo, Consumer<ArquivoExtratos.Compactacao> aoConcluir) {
+        this.arquivo = Objects.requireNonNull(arquivo, "arquivo não pode ser nulo");
+        this.aoConcluir = Objects.requireNonNull(aoConcluir, "aoConcluir não pode ser nulo");
+        if (!agendado) {
+            long milis = intervalo.toMillis();
+            executor.scheduleWithFixedDelay(this::compactarSilenciosamente, milis, milis, TimeUnit.MILLISECONDS);
+            agendado = true;
+        }
+    }
+
+    /**
+     * Antecipa uma compactação na thread do compactador.
+     *
+     * @return futuro concluído com o resultado, já entregue à ação agendada, ou com a falha ocorrida.
+     * @throws IllegalStateException se nenhum arquivo foi agendado.
+     */
+    public CompletableFuture<ArquivoExtratos.Compactacao> compactarAgora() {
+        if (arquivo == null) {
+            throw new IllegalStateException("Nenhum arquivo de extratos agendado para compactação");
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return compactar();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    public Duration getRetencao() {
+        return retencao;
+    }
+
+    public Duration getIntervalo() {
+        return intervalo;
+    }
+
+    /**
+     * Aguarda a compactação em andamento e encerra a thread.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                Log.warning("Compactação de extratos ainda em andamento após o encerramento");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompactadorExtratos[retencao=" + retencao + ", intervalo=" + intervalo + "]";
+    }
+
+    private ArquivoExtratos.Compactacao compactar() throws IOException {
+        ArquivoExtratos.Compactacao compactacao = arquivo.compactar(LocalDateTime.now().minus(retencao));
+        if (compactacao.getExtratos() > 0) {
+            aoConcluir.accept(compactacao);
+        }
+        return compactacao;
+    }
+
+    private void compactarSilenciosamente() {
+        try {
+            compactar();
+        } catch (IOException | RuntimeException e) {
+            Log.error("Falha ao compactar extratos em " + arquivo.getDiretorio(), e);
+        }
+    }
+}
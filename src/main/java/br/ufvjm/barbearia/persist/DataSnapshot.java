@@ -10,8 +10,16 @@ import br.ufvjm.barbearia.model.RecebimentoFornecedor;
 import br.ufvjm.barbearia.model.Servico;
 import br.ufvjm.barbearia.model.Usuario;
 import br.ufvjm.barbearia.model.Venda;
+import java.nio.file.Path;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Representa um snapshot completo do estado das entidades persistidas pelo sistema.
@@ -28,6 +36,8 @@ public class DataSnapshot {
     private final List<Despesa> despesas;
     private final List<RecebimentoFornecedor> recebimentos;
     private final List<CaixaDiario> caixas;
+    private ParticoesHistoricas historicoPendente;
+    private Map<ColecaoSnapshot, Set<YearMonth>> particoesPendentes = Map.of();
 
     public DataSnapshot() {
         this(null, null, null, null, null, null, null, null, null, null);
@@ -61,6 +71,16 @@ public class DataSnapshot {
         return new Builder();
     }
 
+    /**
+     * Cria um {@link SnapshotSink} que acumula os elementos recebidos e monta
+     * um {@link DataSnapshot} ao final da leitura.
+     *
+     * @return coletor vazio.
+     */
+    public static Coletor coletor() {
+        return new Coletor();
+    }
+
     public List<Cliente> getClientes() {
         return List.copyOf(clientes);
     }
@@ -101,6 +121,43 @@ public class DataSnapshot {
         return List.copyOf(caixas);
     }
 
+    /**
+     * Partições históricas (vendas, contas e caixas de meses anteriores) que
+     * ainda não foram lidas. Presente apenas em snapshots abertos sob demanda
+     * com {@link DiretorioSnapshot#loadSobDemanda(Path, YearMonth)}; as listas
+     * deste snapshot contêm somente os meses já carregados.
+     *
+     * @return partições pendentes, se houver.
+     */
+    public Optional<ParticoesHistoricas> getHistoricoPendente() {
+        return particoesPendentes.isEmpty() ? Optional.empty() : Optional.of(historicoPendente);
+    }
+
+    /**
+     * Partições (coleção e competência) que não estavam carregadas no momento
+     * em que o snapshot foi montado.
+     */
+    Map<ColecaoSnapshot, Set<YearMonth>> particoesPendentes() {
+        return particoesPendentes;
+    }
+
+    /**
+     * Garante que o snapshot contém todo o histórico antes de ser gravado em
+     * um formato que não preserva partições não carregadas.
+     */
+    void exigirCompleto() {
+        if (!particoesPendentes.isEmpty()) {
+            throw new IllegalArgumentException("Snapshot com partições não carregadas "
+                    + particoesPendentes + " só pode ser gravado no diretório de origem");
+        }
+    }
+
+    DataSnapshot comHistoricoPendente(ParticoesHistoricas historico) {
+        this.historicoPendente = historico;
+        this.particoesPendentes = historico != null ? historico.particoesPendentes() : Map.of();
+        return this;
+    }
+
     @Override
     public String toString() {
         return String.format(
@@ -118,6 +175,37 @@ public class DataSnapshot {
         );
     }
 
+    /**
+     * Visão somente leitura da coleção, sem cópia, usada pelos gravadores em
+     * streaming.
+     */
+    List<?> elementos(ColecaoSnapshot colecao) {
+        switch (Objects.requireNonNull(colecao, "colecao não pode ser nula")) {
+            case CLIENTES:
+                return Collections.unmodifiableList(clientes);
+            case USUARIOS:
+                return Collections.unmodifiableList(usuarios);
+            case SERVICOS:
+                return Collections.unmodifiableList(servicos);
+            case PRODUTOS:
+                return Collections.unmodifiableList(produtos);
+            case AGENDAMENTOS:
+                return Collections.unmodifiableList(agendamentos);
+            case VENDAS:
+                return Collections.unmodifiableList(vendas);
+            case CONTAS:
+                return Collections.unmodifiableList(contas);
+            case DESPESAS:
+                return Collections.unmodifiableList(despesas);
+            case RECEBIMENTOS:
+                return Collections.unmodifiableList(recebimentos);
+            case CAIXAS:
+                return Collections.unmodifiableList(caixas);
+            default:
+                throw new IllegalArgumentException("Coleção desconhecida: " + colecao);
+        }
+    }
+
     private static <T> List<T> copyList(List<T> source) {
         return source != null ? new ArrayList<>(source) : new ArrayList<>();
     }
@@ -137,6 +225,7 @@ public class DataSnapshot {
         private List<Despesa> despesas = List.of();
         private List<RecebimentoFornecedor> recebimentos = List.of();
         private List<CaixaDiario> caixas = List.of();
+        private ParticoesHistoricas historicoPendente;
 
         private Builder() {
         }
@@ -191,8 +280,18 @@ public class DataSnapshot {
             return this;
         }
 
+        /**
+         * Associa as partições históricas ainda não lidas, preservadas ao
+         * gravar no mesmo diretório de origem. As competências pendentes são
+         * fixadas no {@link #build()}.
+         */
+        public Builder withHistoricoPendente(ParticoesHistoricas historicoPendente) {
+            this.historicoPendente = historicoPendente;
+            return this;
+        }
+
         public DataSnapshot build() {
-            return new DataSnapshot(
+            DataSnapshot snapshot = new DataSnapshot(
                     clientes,
                     usuarios,
                     servicos,
@@ -204,6 +303,44 @@ public class DataSnapshot {
                     recebimentos,
                     caixas
             );
+            return snapshot.comHistoricoPendente(historicoPendente);
+        }
+    }
+
+    /**
+     * {@link SnapshotSink} que agrupa os elementos por coleção para montar um
+     * {@link DataSnapshot} completo.
+     */
+    public static final class Coletor implements SnapshotSink {
+        private final Map<ColecaoSnapshot, List<Object>> elementos = new EnumMap<>(ColecaoSnapshot.class);
+
+        private Coletor() {
+        }
+
+        @Override
+        public void aceitar(ColecaoSnapshot colecao, Object elemento) {
+            elementos.computeIfAbsent(colecao, c -> new ArrayList<>())
+                    .add(colecao.getTipo().cast(elemento));
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> List<T> lista(ColecaoSnapshot colecao) {
+            return (List<T>) elementos.getOrDefault(colecao, List.of());
+        }
+
+        public DataSnapshot build() {
+            return new DataSnapshot(
+                    lista(ColecaoSnapshot.CLIENTES),
+                    lista(ColecaoSnapshot.USUARIOS),
+                    lista(ColecaoSnapshot.SERVICOS),
+                    lista(ColecaoSnapshot.PRODUTOS),
+                    lista(ColecaoSnapshot.AGENDAMENTOS),
+                    lista(ColecaoSnapshot.VENDAS),
+                    lista(ColecaoSnapshot.CONTAS),
+                    lista(ColecaoSnapshot.DESPESAS),
+                    lista(ColecaoSnapshot.RECEBIMENTOS),
+                    lista(ColecaoSnapshot.CAIXAS)
+            );
         }
     }
 }
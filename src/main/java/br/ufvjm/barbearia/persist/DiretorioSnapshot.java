@@ -0,0 +1,770 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.model.CaixaDiario;
+import br.ufvjm.barbearia.model.ContaAtendimento;
+import br.ufvjm.barbearia.model.Venda;
+import br.ufvjm.barbearia.persist.adapters.ReferenciaAdapterFactory;
+import br.ufvjm.barbearia.util.Log;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot distribuído em um diretório: um arquivo JSON por coleção (ou por
+ * competência, nas coleções históricas) e um manifesto ({@value #MANIFESTO})
+ * com a versão, o tamanho e o CRC32 de cada um.
+ * <p>
+ * Cada arquivo de coleção tem o mesmo layout de um snapshot de
+ * {@link JsonStorage} contendo apenas aquela coleção. As coleções são gravadas
+ * e lidas em paralelo; na leitura, são processadas em ondas que respeitam
+ * {@link ColecaoSnapshot#getDependencias()}, para que as referências por
+ * {@code id} já estejam resolvíveis quando uma coleção dependente é lida.
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>Uma partição só é regravada quando o conteúdo serializado difere do
+ *     registrado no manifesto (tamanho e CRC32); caso contrário o arquivo
+ *     existente é mantido.</li>
+ *     <li>Arquivos novos recebem o número da geração no nome
+ *     ({@code clientes.7.json}) e nunca sobrescrevem os atuais. O manifesto é
+ *     trocado de forma atômica por último e só então os arquivos que deixaram de
+ *     ser referenciados são removidos: uma queda em qualquer ponto deixa o
+ *     diretório consistente com o manifesto anterior.</li>
+ *     <li>Na leitura, cada arquivo tem tamanho e CRC32 conferidos; divergências
+ *     resultam em {@link IOException}.</li>
+ *     <li>O {@link SnapshotSink} recebe as coleções na ordem de
+ *     {@link ColecaoSnapshot}, sempre a partir da thread que chamou
+ *     {@link #load(Path, SnapshotSink)}.</li>
+ *     <li>As coleções históricas ({@link ColecaoSnapshot#isHistorica()}) são
+ *     particionadas por competência ({@code vendas.2025-01.7.json}). Com
+ *     {@link #abrir(Path, YearMonth, SnapshotSink)} apenas o mês ativo é lido; os
+ *     demais ficam em {@link ParticoesHistoricas} até serem pedidos, e uma nova
+ *     gravação no mesmo diretório preserva as partições não carregadas.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * DiretorioSnapshot.save(snapshot, Path.of("data/sistema"));
+ * DataSnapshot lido = DiretorioSnapshot.load(Path.of("data/sistema"));
+ * DataSnapshot recente = DiretorioSnapshot.loadSobDemanda(Path.of("data/sistema"), YearMonth.now());
+ * }</pre>
+ */
+public final class DiretorioSnapshot {
+
+    static final String MANIFESTO = "manifesto.json";
+    private static final int VERSAO_MANIFESTO = 2;
+    private static final String EXTENSAO = ".json";
+
+    private static final ExecutorService EXECUTOR = criarExecutor();
+    private static final DiretorioSnapshot DEBUG_VIEW = new DiretorioSnapshot();
+    private static final AtomicLong SEQUENCIA_TEMPORARIOS = new AtomicLong();
+    private static final Set<Path> EM_PREPARO = ConcurrentHashMap.newKeySet();
+
+    private DiretorioSnapshot() {
+        // utilitário
+    }
+
+    private static ExecutorService criarExecutor() {
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                ColecaoSnapshot.values().length));
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "snapshot-colecao-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Grava o snapshot no diretório, regravando apenas as partições alteradas.
+     * <p>
+     * Se o snapshot tiver partições pendentes (aberto sob demanda), o destino
+     * precisa ser o diretório de origem: essas partições são mantidas como estão.
+     * </p>
+     *
+     * @param data      snapshot a ser persistido.
+     * @param diretorio diretório de destino (criado se necessário).
+     * @throws IOException se alguma partição ou o manifesto não puderem ser gravados;
+     *                     nesse caso o manifesto anterior continua válido.
+     */
+    public static void save(DataSnapshot data, Path diretorio) throws IOException {
+        preparar(data, diretorio).concluir(0);
+    }
+
+    /**
+     * Primeira etapa de {@link #save(DataSnapshot, Path)}: serializa cada
+     * partição, em paralelo, em um temporário do diretório. O manifesto só é
+     * lido na conclusão, que compara tamanho e CRC32 com as partições atuais e
+     * troca apenas as que mudaram.
+     */
+    static GravacaoPreparada preparar(DataSnapshot data, Path diretorio) throws IOException {
+        Objects.requireNonNull(data, "data não pode ser nulo");
+        Objects.requireNonNull(diretorio, "diretorio não pode ser nulo");
+        Map<ColecaoSnapshot, Set<YearMonth>> preservadas = data.particoesPendentes();
+        if (!preservadas.isEmpty() && !mesmoDiretorio(data.getHistoricoPendente().get().getDiretorio(), diretorio)) {
+            data.exigirCompleto();
+        }
+        Files.createDirectories(diretorio);
+        ReferenciaAdapterFactory.Referencias referencias = ReferenciasSnapshot.de(data);
+
+        List<Future<ParticaoPreparada>> tarefas = new ArrayList<>();
+        for (Particao particao : particionar(data, preservadas)) {
+            tarefas.add(EXECUTOR.submit(() -> serializarParticao(diretorio, particao, referencias)));
+        }
+        Preparado preparado = new Preparado(diretorio, preservadas);
+        Exception falha = null;
+        for (Future<ParticaoPreparada> tarefa : tarefas) {
+            try {
+                preparado.particoes.add(aguardar(tarefa, diretorio));
+            } catch (IOException | RuntimeException e) {
+                if (falha == null) {
+                    falha = e;
+                } else {
+                    falha.addSuppressed(e);
+                }
+            }
+        }
+        if (falha != null) {
+            preparado.descartar();
+            if (falha instanceof IOException) {
+                throw (IOException) falha;
+            }
+            throw (RuntimeException) falha;
+        }
+        return preparado;
+    }
+
+    /**
+     * Carrega o snapshot completo em memória.
+     *
+     * @param diretorio diretório gravado por {@link #save(DataSnapshot, Path)}.
+     * @return snapshot lido ou vazio quando não há manifesto.
+     * @throws IOException se ocorrer erro de leitura ou de integridade.
+     */
+    public static DataSnapshot load(Path diretorio) throws IOException {
+        DataSnapshot.Coletor coletor = DataSnapshot.coletor();
+        load(diretorio, coletor);
+        return coletor.build();
+    }
+
+    /**
+     * Lê as coleções em paralelo e as entrega ao {@code sink} na ordem de
+     * {@link ColecaoSnapshot}; as partições de uma coleção histórica são
+     * entregues em ordem cronológica.
+     *
+     * @param diretorio diretório de origem.
+     * @param sink      destino dos elementos lidos.
+     * @throws IOException se ocorrer erro de leitura ou de integridade.
+     */
+    public static void load(Path diretorio, SnapshotSink sink) throws IOException {
+        Objects.requireNonNull(diretorio, "diretorio não pode ser nulo");
+        Objects.requireNonNull(sink, "sink não pode ser nulo");
+
+        Manifesto manifesto = lerManifesto(diretorio);
+        if (manifesto == null) {
+            return;
+        }
+        ReferenciaAdapterFactory.Referencias referencias = new ReferenciaAdapterFactory.Referencias();
+        entregar(lerEntradas(diretorio, manifesto.colecoes, referencias), sink);
+    }
+
+    /**
+     * Abre o snapshot sob demanda, devolvendo um {@link DataSnapshot} com as
+     * coleções não históricas completas e as históricas restritas ao
+     * {@code periodoAtivo}. As demais competências ficam disponíveis em
+     * {@link DataSnapshot#getHistoricoPendente()}.
+     *
+     * @param diretorio    diretório de origem.
+     * @param periodoAtivo competência lida imediatamente.
+     * @return snapshot parcial.
+     * @throws IOException se ocorrer erro de leitura ou de integridade.
+     */
+    public static DataSnapshot loadSobDemanda(Path diretorio, YearMonth periodoAtivo) throws IOException {
+        DataSnapshot.Coletor coletor = DataSnapshot.coletor();
+        ParticoesHistoricas historico = abrir(diretorio, periodoAtivo, coletor);
+        return coletor.build().comHistoricoPendente(historico);
+    }
+
+    /**
+     * Versão em streaming de {@link #loadSobDemanda(Path, YearMonth)}.
+     *
+     * @param diretorio    diretório de origem.
+     * @param periodoAtivo competência lida imediatamente.
+     * @param sink         destino dos elementos lidos agora.
+     * @return partições ainda não lidas (possivelmente nenhuma).
+     * @throws IOException se ocorrer erro de leitura ou de integridade.
+     */
+    public static ParticoesHistoricas abrir(Path diretorio, YearMonth periodoAtivo, SnapshotSink sink)
+            throws IOException {
+        Objects.requireNonNull(diretorio, "diretorio não pode ser nulo");
+        Objects.requireNonNull(periodoAtivo, "periodoAtivo não pode ser nulo");
+        Objects.requireNonNull(sink, "sink não pode ser nulo");
+
+        ReferenciaAdapterFactory.Referencias referencias = new ReferenciaAdapterFactory.Referencias();
+        NavigableMap<YearMonth, List<Entrada>> particionadas = new TreeMap<>();
+        Manifesto manifesto = lerManifesto(diretorio);
+        if (manifesto == null) {
+            return new ParticoesHistoricas(diretorio, particionadas, referencias);
+        }
+        List<Entrada> fixas = new ArrayList<>();
+        for (Entrada entrada : manifesto.colecoes) {
+            YearMonth competencia = entrada.getCompetencia();
+            if (competencia == null) {
+                fixas.add(entrada);
+            } else {
+                particionadas.computeIfAbsent(competencia, c -> new ArrayList<>()).add(entrada);
+            }
+        }
+        entregar(lerEntradas(diretorio, fixas, referencias), sink);
+        ParticoesHistoricas historico = new ParticoesHistoricas(diretorio, particionadas, referencias);
+        historico.carregar(periodoAtivo, sink);
+        Log.info("Snapshot %s aberto sob demanda em %s; %d competência(s) pendente(s)",
+                diretorio.toAbsolutePath(), periodoAtivo, historico.getPendentes().size());
+        return historico;
+    }
+
+    /**
+     * Lê as entradas informadas em paralelo, respeitando as ondas de
+     * dependência entre coleções.
+     */
+    static Map<Entrada, List<Object>> lerEntradas(Path diretorio, List<Entrada> entradas,
+                                                  ReferenciaAdapterFactory.Referencias referencias)
+            throws IOException {
+        Map<Entrada, List<Object>> lidas = new LinkedHashMap<>();
+        for (Set<ColecaoSnapshot> onda : ondas()) {
+            Map<Entrada, Future<List<Object>>> tarefas = new LinkedHashMap<>();
+            for (Entrada entrada : entradas) {
+                if (onda.contains(entrada.getColecao())) {
+                    tarefas.put(entrada, EXECUTOR.submit(() -> lerEntrada(diretorio, entrada, referencias)));
+                }
+            }
+            for (Map.Entry<Entrada, Future<List<Object>>> tarefa : tarefas.entrySet()) {
+                lidas.put(tarefa.getKey(), aguardar(tarefa.getValue(), diretorio.resolve(tarefa.getKey().arquivo)));
+            }
+        }
+        return lidas;
+    }
+
+    /**
+     * Entrega as partições lidas ao sink, coleção por coleção, na ordem de
+     * {@link ColecaoSnapshot} e, dentro de cada coleção, por competência.
+     */
+    static void entregar(Map<Entrada, List<Object>> lidas, SnapshotSink sink) {
+        for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+            List<Entrada> particoes = new ArrayList<>();
+            for (Entrada entrada : lidas.keySet()) {
+                if (entrada.getColecao() == colecao) {
+                    particoes.add(entrada);
+                }
+            }
+            if (particoes.isEmpty()) {
+                continue;
+            }
+            particoes.sort(Comparator.comparing(Entrada::getCompetencia, Comparator.nullsFirst(Comparator.naturalOrder())));
+            sink.iniciarColecao(colecao);
+            int total = 0;
+            for (Entrada particao : particoes) {
+                for (Object elemento : lidas.get(particao)) {
+                    sink.aceitar(colecao, elemento);
+                    total++;
+                }
+            }
+            sink.finalizarColecao(colecao, total);
+        }
+    }
+
+    public static String description() {
+        return DEBUG_VIEW.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "DiretorioSnapshot[um arquivo JSON por coleção ou competência, manifesto com CRC32, leitura paralela e sob demanda]";
+    }
+
+    /**
+     * Agrupa as coleções em ondas: cada onda depende apenas das anteriores.
+     */
+    static List<Set<ColecaoSnapshot>> ondas() {
+        Map<ColecaoSnapshot, Integer> nivel = new EnumMap<>(ColecaoSnapshot.class);
+        List<Set<ColecaoSnapshot>> ondas = new ArrayList<>();
+        for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+            int onda = 0;
+            for (ColecaoSnapshot dependencia : colecao.getDependencias()) {
+                Integer anterior = nivel.get(dependencia);
+                if (anterior == null) {
+                    throw new IllegalStateException("Dependência fora de ordem: " + colecao + " -> " + dependencia);
+                }
+                onda = Math.max(onda, anterior + 1);
+            }
+            nivel.put(colecao, onda);
+            while (ondas.size() <= onda) {
+                ondas.add(EnumSet.noneOf(ColecaoSnapshot.class));
+            }
+            ondas.get(onda).add(colecao);
+        }
+        return ondas;
+    }
+
+    /**
+     * Divide o snapshot em partições: uma por coleção comum e uma por
+     * competência nas coleções históricas.
+     */
+    private static List<Particao> particionar(DataSnapshot data,
+                                              Map<ColecaoSnapshot, Set<YearMonth>> preservadas) {
+        List<Particao> particoes = new ArrayList<>();
+        for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+            List<?> elementos = data.elementos(colecao);
+            if (!colecao.isHistorica()) {
+                particoes.add(new Particao(colecao, null, new ArrayList<>(elementos)));
+                continue;
+            }
+            Set<YearMonth> naoCarregadas = preservadas.getOrDefault(colecao, Set.of());
+            Map<YearMonth, Particao> porCompetencia = new TreeMap<>();
+            for (Object elemento : elementos) {
+                YearMonth competencia = colecao.competenciaDe(elemento);
+                if (naoCarregadas.contains(competencia)) {
+                    throw new IllegalArgumentException("Elemento de " + colecao + " em competência não carregada: "
+                            + competencia);
+                }
+                Particao particao = porCompetencia.computeIfAbsent(competencia,
+                        c -> new Particao(colecao, c, new ArrayList<>()));
+                particao.elementos.add(elemento);
+                if (colecao == ColecaoSnapshot.CAIXAS) {
+                    registrarDependencias(particao, (CaixaDiario) elemento);
+                }
+            }
+            particoes.addAll(porCompetencia.values());
+        }
+        return particoes;
+    }
+
+    /**
+     * Um caixa referencia vendas e contas, que podem pertencer a outras
+     * competências; elas precisam ser lidas junto com a partição do caixa.
+     */
+    private static void registrarDependencias(Particao particao, CaixaDiario caixa) {
+        for (Venda venda : caixa.getVendas()) {
+            particao.adicionarDependencia(ColecaoSnapshot.VENDAS.competenciaDe(venda));
+        }
+        for (ContaAtendimento conta : caixa.getContas()) {
+            particao.adicionarDependencia(ColecaoSnapshot.CONTAS.competenciaDe(conta));
+        }
+    }
+
+    @SuppressWarnings("try")
+    private static ParticaoPreparada serializarParticao(Path diretorio, Particao particao,
+                                                        ReferenciaAdapterFactory.Referencias referencias)
+            throws IOException {
+        ColecaoSnapshot colecao = particao.colecao;
+        Path temporario = diretorio.resolve("." + nomeBase(particao.colecao, particao.competencia) + "."
+                + SEQUENCIA_TEMPORARIOS.incrementAndGet() + EXTENSAO + ".tmp").toAbsolutePath().normalize();
+        EM_PREPARO.add(temporario);
+        CRC32 crc = new CRC32();
+        boolean escrito = false;
+        try {
+            try (OutputStream arquivo = Files.newOutputStream(temporario);
+                 CheckedOutputStream checado = new CheckedOutputStream(new BufferedOutputStream(arquivo), crc);
+                 Writer writer = new OutputStreamWriter(checado, StandardCharsets.UTF_8);
+                 JsonWriter out = JsonStorage.gson().newJsonWriter(writer);
+                 ReferenciaAdapterFactory.Escopo escopo = ReferenciasSnapshot.factory().ativar(referencias)) {
+                out.beginObject();
+                EsquemaSnapshot.escreverCabecalho(out);
+                JsonStorage.escreverColecao(out, colecao, particao.elementos);
+                out.endObject();
+            }
+            ParticaoPreparada preparada = new ParticaoPreparada(colecao, particao.competencia, temporario,
+                    Files.size(temporario), crc.getValue(), particao.elementos.size(), particao.dependencias);
+            escrito = true;
+            return preparada;
+        } finally {
+            if (!escrito) {
+                EM_PREPARO.remove(temporario);
+                ArquivoAtomico.descartar(temporario);
+            }
+        }
+    }
+
+    private static String nomeBase(ColecaoSnapshot colecao, YearMonth competencia) {
+        return colecao.getChave() + (competencia != null ? "." + competencia : "");
+    }
+
+    @SuppressWarnings("try")
+    private static List<Object> lerEntrada(Path diretorio, Entrada entrada,
+                                           ReferenciaAdapterFactory.Referencias referencias) throws IOException {
+        ColecaoSnapshot colecao = entrada.getColecao();
+        Path arquivo = diretorio.resolve(entrada.arquivo);
+        if (!Files.isRegularFile(arquivo)) {
+            throw new IOException("Arquivo da coleção " + colecao + " ausente: " + arquivo);
+        }
+        List<Object> elementos = new ArrayList<>(Math.max(entrada.total, 0));
+        SnapshotSink destino = (c, elemento) -> elementos.add(elemento);
+        CRC32 crc = new CRC32();
+        long bytes;
+        try (InputStream origem = Files.newInputStream(arquivo);
+             CheckedInputStream checado = new CheckedInputStream(origem, crc);
+             Reader reader = new BufferedReader(new InputStreamReader(checado, StandardCharsets.UTF_8));
+             JsonReader in = JsonStorage.gson().newJsonReader(reader);
+             ReferenciaAdapterFactory.Escopo escopo = ReferenciasSnapshot.factory().ativar(referencias)) {
+            EsquemaSnapshot.Leitura esquema = new EsquemaSnapshot.Leitura();
+            in.beginObject();
+            while (in.hasNext()) {
+                String nome = in.nextName();
+                if (EsquemaSnapshot.CAMPO_VERSAO.equals(nome)) {
+                    esquema.lerCabecalho(in);
+                } else if (colecao.getChave().equals(nome)) {
+                    JsonStorage.lerColecao(in, colecao, destino, referencias, esquema.migrador());
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            checado.transferTo(OutputStream.nullOutputStream());
+            bytes = Files.size(arquivo);
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Coleção " + colecao + " inválida em " + arquivo, e);
+        }
+        if (bytes != entrada.bytes || crc.getValue() != entrada.crc32) {
+            throw new IOException("Checksum divergente para a coleção " + colecao + " em " + arquivo);
+        }
+        return elementos;
+    }
+
+    private static <T> T aguardar(Future<T> tarefa, Path origem) throws IOException {
+        try {
+            return tarefa.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido ao processar " + origem, e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            if (causa instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) causa).getCause();
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new IOException("Falha ao processar " + origem, causa);
+        }
+    }
+
+    private static boolean mesmoDiretorio(Path a, Path b) {
+        return a.toAbsolutePath().normalize().equals(b.toAbsolutePath().normalize());
+    }
+
+    private static Manifesto lerManifesto(Path diretorio) throws IOException {
+        Path arquivo = diretorio.resolve(MANIFESTO);
+        if (!Files.isRegularFile(arquivo)) {
+            return null;
+        }
+        Manifesto manifesto;
+        try {
+            manifesto = JsonStorage.gson().fromJson(Files.readString(arquivo, StandardCharsets.UTF_8), Manifesto.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Manifesto inválido em " + arquivo, e);
+        }
+        if (manifesto == null || manifesto.colecoes == null) {
+            throw new IOException("Manifesto inválido em " + arquivo);
+        }
+        if (manifesto.versao > VERSAO_MANIFESTO) {
+            throw new IOException("Versão de manifesto não suportada: " + manifesto.versao);
+        }
+        for (Entrada entrada : manifesto.colecoes) {
+            if (entrada.arquivo == null || ColecaoSnapshot.porChave(entrada.colecao).isEmpty()) {
+                throw new IOException("Entrada inválida no manifesto " + arquivo + ": " + entrada.colecao);
+            }
+        }
+        return manifesto;
+    }
+
+    /**
+     * Remove arquivos de coleção de gerações anteriores e temporários esquecidos
+     * por gravações interrompidas. Temporários de gravações ainda preparadas
+     * neste processo são mantidos.
+     */
+    private static void removerNaoReferenciados(Path diretorio, Manifesto manifesto) throws IOException {
+        Set<String> referenciados = new HashSet<>();
+        for (Entrada entrada : manifesto.colecoes) {
+            referenciados.add(entrada.arquivo);
+        }
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio)) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                if (nome.equals(MANIFESTO) || referenciados.contains(nome) || !ehArquivoDeColecao(nome)
+                        || EM_PREPARO.contains(arquivo.toAbsolutePath().normalize())) {
+                    continue;
+                }
+                Files.deleteIfExists(arquivo);
+                Log.debug("Arquivo de coleção obsoleto removido: %s", arquivo);
+            }
+        }
+    }
+
+    private static boolean ehArquivoDeColecao(String nome) {
+        String base = nome.startsWith(".") ? nome.substring(1) : nome;
+        for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+            if (base.startsWith(colecao.getChave() + ".")
+                    && (base.endsWith(EXTENSAO) || base.endsWith(EXTENSAO + ".tmp"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Manifesto {
+        private int versao = VERSAO_MANIFESTO;
+        private long geracao;
+        private List<Entrada> colecoes = new ArrayList<>();
+
+        Manifesto(long geracao) {
+            this.geracao = geracao;
+        }
+
+        Entrada entrada(ColecaoSnapshot colecao, YearMonth competencia) {
+            String chaveCompetencia = competencia != null ? competencia.toString() : null;
+            for (Entrada entrada : colecoes) {
+                if (colecao.getChave().equals(entrada.colecao)
+                        && Objects.equals(chaveCompetencia, entrada.competencia)) {
+                    return entrada;
+                }
+            }
+            return null;
+        }
+
+        Set<String> arquivos() {
+            Set<String> arquivos = new HashSet<>();
+            for (Entrada entrada : colecoes) {
+                arquivos.add(entrada.arquivo);
+            }
+            return arquivos;
+        }
+    }
+
+    /**
+     * Arquivo de uma coleção (ou de uma competência dela) registrado no manifesto.
+     */
+    static final class Entrada {
+        private String colecao;
+        private String competencia;
+        private String arquivo;
+        private long versao;
+        private long bytes;
+        private long crc32;
+        private int total;
+        private List<String> dependencias;
+
+        Entrada(ColecaoSnapshot colecao, YearMonth competencia, String arquivo, long versao, long bytes,
+                long crc32, int total, Set<YearMonth> dependencias) {
+            this.colecao = colecao.getChave();
+            this.competencia = competencia != null ? competencia.toString() : null;
+            this.arquivo = arquivo;
+            this.versao = versao;
+            this.bytes = bytes;
+            this.crc32 = crc32;
+            this.total = total;
+            if (!dependencias.isEmpty()) {
+                this.dependencias = new ArrayList<>();
+                dependencias.forEach(d -> this.dependencias.add(d.toString()));
+            }
+        }
+
+        ColecaoSnapshot getColecao() {
+            return ColecaoSnapshot.porChave(colecao)
+                    .orElseThrow(() -> new IllegalStateException("Coleção desconhecida: " + colecao));
+        }
+
+        YearMonth getCompetencia() {
+            return competencia != null ? YearMonth.parse(competencia) : null;
+        }
+
+        /**
+         * Outras competências que precisam ser lidas junto com esta partição.
+         */
+        Set<YearMonth> getDependencias() {
+            Set<YearMonth> resultado = new TreeSet<>();
+            if (dependencias != null) {
+                dependencias.forEach(d -> resultado.add(YearMonth.parse(d)));
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Partições serializadas, aguardando a troca do manifesto.
+     */
+    private static final class Preparado implements GravacaoPreparada {
+        private final Path diretorio;
+        private final Map<ColecaoSnapshot, Set<YearMonth>> preservadas;
+        private final List<ParticaoPreparada> particoes = new ArrayList<>();
+
+        Preparado(Path diretorio, Map<ColecaoSnapshot, Set<YearMonth>> preservadas) {
+            this.diretorio = diretorio;
+            this.preservadas = preservadas;
+        }
+
+        /**
+         * As gerações não se aplicam ao diretório: o manifesto garante a troca
+         * atômica e apenas a versão atual é mantida.
+         */
+        @Override
+        public void concluir(int geracoes) throws IOException {
+            try {
+                trocar();
+            } finally {
+                descartar();
+            }
+        }
+
+        @Override
+        public void descartar() {
+            for (ParticaoPreparada particao : particoes) {
+                EM_PREPARO.remove(particao.temporario);
+                ArquivoAtomico.descartar(particao.temporario);
+            }
+        }
+
+        private void trocar() throws IOException {
+            Manifesto anterior = lerManifesto(diretorio);
+            if (anterior == null && !preservadas.isEmpty()) {
+                throw new IOException("Manifesto ausente em " + diretorio
+                        + "; competências pendentes não podem ser preservadas");
+            }
+            long geracao = anterior != null ? anterior.geracao + 1 : 1;
+            Manifesto novo = new Manifesto(geracao);
+            List<ParticaoPreparada> alteradas = new ArrayList<>();
+            List<Future<Void>> sincronizacoes = new ArrayList<>();
+            for (ParticaoPreparada particao : particoes) {
+                Entrada existente = anterior != null ? anterior.entrada(particao.colecao, particao.competencia) : null;
+                if (particao.mesmoConteudo(existente, diretorio)) {
+                    novo.colecoes.add(existente);
+                } else {
+                    alteradas.add(particao);
+                    sincronizacoes.add(EXECUTOR.submit(() -> {
+                        ArquivoAtomico.sincronizarArquivo(particao.temporario);
+                        return null;
+                    }));
+                }
+            }
+            for (Future<Void> sincronizacao : sincronizacoes) {
+                aguardar(sincronizacao, diretorio);
+            }
+            for (ParticaoPreparada particao : alteradas) {
+                String nome = nomeBase(particao.colecao, particao.competencia) + "." + geracao + EXTENSAO;
+                ArquivoAtomico.mover(particao.temporario, diretorio.resolve(nome));
+                novo.colecoes.add(new Entrada(particao.colecao, particao.competencia, nome, geracao, particao.bytes,
+                        particao.crc32, particao.total, particao.dependencias));
+            }
+            if (anterior != null) {
+                for (Entrada entrada : anterior.colecoes) {
+                    YearMonth competencia = entrada.getCompetencia();
+                    if (competencia != null
+                            && preservadas.getOrDefault(entrada.getColecao(), Set.of()).contains(competencia)) {
+                        novo.colecoes.add(entrada);
+                    }
+                }
+            }
+
+            if (anterior == null || !alteradas.isEmpty() || !novo.arquivos().equals(anterior.arquivos())) {
+                ArquivoAtomico.sincronizarDiretorio(diretorio);
+                ArquivoAtomico.substituir(diretorio.resolve(MANIFESTO), 0, temporario ->
+                        Files.writeString(temporario, JsonStorage.gson().toJson(novo), StandardCharsets.UTF_8));
+                removerNaoReferenciados(diretorio, novo);
+            }
+            Log.info("Snapshot em diretório %s: %d de %d partições regravadas", diretorio.toAbsolutePath(),
+                    alteradas.size(), novo.colecoes.size());
+        }
+    }
+
+    /**
+     * Partição já serializada em um temporário, com o tamanho e o CRC32 que
+     * decidem se ela substitui a registrada no manifesto.
+     */
+    private static final class ParticaoPreparada {
+        private final ColecaoSnapshot colecao;
+        private final YearMonth competencia;
+        private final Path temporario;
+        private final long bytes;
+        private final long crc32;
+        private final int total;
+        private final Set<YearMonth> dependencias;
+
+        ParticaoPreparada(ColecaoSnapshot colecao, YearMonth competencia, Path temporario, long bytes, long crc32,
+                          int total, Set<YearMonth> dependencias) {
+            this.colecao = colecao;
+            this.competencia = competencia;
+            this.temporario = temporario;
+            this.bytes = bytes;
+            this.crc32 = crc32;
+            this.total = total;
+            this.dependencias = dependencias;
+        }
+
+        boolean mesmoConteudo(Entrada existente, Path diretorio) {
+            return existente != null && existente.bytes == bytes && existente.crc32 == crc32
+                    && existente.getDependencias().equals(dependencias)
+                    && Files.isRegularFile(diretorio.resolve(existente.arquivo));
+        }
+    }
+
+    private static final class Particao {
+        private final ColecaoSnapshot colecao;
+        private final YearMonth competencia;
+        private final List<Object> elementos;
+        private final Set<YearMonth> dependencias = new TreeSet<>();
+
+        Particao(ColecaoSnapshot colecao, YearMonth competencia, List<Object> elementos) {
+            this.colecao = colecao;
+            this.competencia = competencia;
+            this.elementos = elementos;
+        }
+
+        void adicionarDependencia(YearMonth outra) {
+            if (!outra.equals(competencia)) {
+                dependencias.add(outra);
+            }
+        }
+    }
+}
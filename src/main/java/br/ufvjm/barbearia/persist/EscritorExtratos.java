@@ -0,0 +1,313 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.util.Log;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Grava extratos em segundo plano, fora do caminho das transações.
+ * <p>
+ * Quem chama entrega o texto do extrato e recebe um {@link CompletableFuture}
+ * com a referência gravada; a escrita acontece em uma thread dedicada, que
+ * consome a fila em lotes e anexa cada lote ao {@link ArquivoExtratos} de
+ * destino. O instante de emissão é definido no envio.
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>A fila é limitada. Com a fila cheia, o envio aguarda até a espera
+ *     máxima configurada; esgotado o prazo, o extrato é gravado na própria
+ *     thread de quem chama (contrapressão explícita, registrada no log), e
+ *     nunca descartado.</li>
+ *     <li>Extratos consecutivos para o mesmo arquivo são anexados juntos
+ *     ({@link ArquivoExtratos#anexar(List)}), com uma escrita por segmento e
+ *     uma no índice, na ordem de chegada.</li>
+ *     <li>Uma falha de escrita conclui com a exceção apenas os futuros do
+ *     grupo anexado naquela chamada; os demais seguem normalmente.</li>
+ *     <li>{@link #descarregar()} aguarda tudo o que já foi enviado. Um gancho
+ *     de desligamento da JVM descarrega a fila caso {@link #close()} não
+ *     tenha sido chamado.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * try (EscritorExtratos escritor = new EscritorExtratos()) {
+ *     escritor.enviar(arquivo, cliente, texto, LocalDateTime.now())
+ *             .thenAccept(referencia -> Log.info("Extrato em %s", referencia));
+ * }
+ * }</pre>
+ */
+public final class EscritorExtratos implements Closeable {
+
+    public static final int CAPACIDADE_PADRAO = 1024;
+    public static final int LOTE_PADRAO = 64;
+    public static final Duration ESPERA_PADRAO = Duration.ofMillis(50);
+
+    private final BlockingQueue<Pedido> fila;
+    private final int capacidade;
+    private final int lote;
+    private final long esperaNanos;
+    private final Thread escritor;
+    private final Thread ganchoDesligamento;
+    private final AtomicLong gravados = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+    private final AtomicLong sincronos = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+    private volatile boolean fechado;
+
+    public EscritorExtratos() {
+        this(CAPACIDADE_PADRAO, LOTE_PADRAO, ESPERA_PADRAO);
+    }
+
+    /**
+     * @param capacidade   extratos aguardando gravação antes de aplicar contrapressão.
+     * @param lote         máximo de extratos gravados a cada despertar da thread.
+     * @param esperaMaxima quanto um envio aguarda vaga na fila antes de gravar na thread de quem chama.
+     */
+    public EscritorExtratos(int capacidade, int lote, Duration esperaMaxima) {
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("capacidade deve ser positiva");
+        }
+        if (lote <= 0) {
+            throw new IllegalArgumentException("lote deve ser positivo");
+        }
+        Objects.requireNonNull(esperaMaxima, "esperaMaxima não pode ser nula");
+        if (esperaMaxima.isNegative()) {
+            throw new IllegalArgumentException("esperaMaxima não pode ser negativa");
+        }
+        this.capacidade = capacidade;
+        this.lote = lote;
+        this.esperaNanos = esperaMaxima.toNanos();
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.escritor = new Thread(this::executar, "extrato-writer");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+        this.ganchoDesligamento = new Thread(this::close, "extrato-writer-shutdown");
+        Runtime.getRuntime().addShutdownHook(ganchoDesligamento);
+    }
+
+    /**
+     * Enfileira a gravação de um extrato.
+     *
+     * @param destino   arquivo de extratos que receberá o texto.
+     * @param cliente   cliente associado ao extrato ou {@code null} para consumidor final.
+     * @param extrato   conteúdo textual do extrato.
+     * @param emitidoEm instante de emissão do extrato.
+     * @return futuro concluído com a referência gravada ou com a falha de escrita.
+     * @throws IllegalStateException se o escritor já foi encerrado.
+     */
+    public CompletableFuture<ReferenciaExtrato> enviar(ArquivoExtratos destino, Cliente cliente, String extrato,
+                                                       LocalDateTime emitidoEm) {
+        return enviar(destino, new ArquivoExtratos.NovoExtrato(cliente, extrato, emitidoEm));
+    }
+
+    /**
+     * Enfileira a gravação de um extrato já codificado em UTF-8.
+     *
+     * @param destino   arquivo de extratos que receberá o texto.
+     * @param cliente   cliente associado ao extrato ou {@code null} para consumidor final.
+     * @param utf8      conteúdo do extrato em UTF-8; não deve ser alterado depois do envio.
+     * @param emitidoEm instante de emissão do extrato.
+     * @return futuro concluído com a referência gravada ou com a falha de escrita.
+     * @throws IllegalStateException se o escritor já foi encerrado.
+     */
+    public CompletableFuture<ReferenciaExtrato> enviar(ArquivoExtratos destino, Cliente cliente, byte[] utf8,
+                                                       LocalDateTime emitidoEm) {
+        return enviar(destino, new ArquivoExtratos.NovoExtrato(cliente, utf8, emitidoEm));
+    }
+
+    private CompletableFuture<ReferenciaExtrato> enviar(ArquivoExtratos destino, ArquivoExtratos.NovoExtrato novo) {
+        Objects.requireNonNull(destino, "destino não pode ser nulo");
+        if (fechado) {
+            throw new IllegalStateException("Escritor de extratos encerrado");
+        }
+        Pedido pedido = new Pedido(destino, novo);
+        boolean enfileirado;
+        try {
+            enfileirado = fila.offer(pedido, esperaNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            enfileirado = false;
+        }
+        if (!enfileirado) {
+            sincronos.incrementAndGet();
+            Log.warning("Fila de extratos cheia (%d); gravando na thread chamadora", capacidade);
+            gravar(List.of(pedido));
+        }
+        return pedido.futuro;
+    }
+
+    /**
+     * Aguarda a gravação de todos os extratos enviados até aqui.
+     */
+    public void descarregar() {
+        if (!escritor.isAlive()) {
+            return;
+        }
+        Pedido marcador = Pedido.marcador();
+        try {
+            fila.put(marcador);
+            marcador.concluido.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return extratos aguardando gravação.
+     */
+    public int getPendentes() {
+        return fila.size();
+    }
+
+    /**
+     * Recusa novos envios, grava os extratos pendentes e encerra a thread de escrita.
+     */
+    @Override
+    public void close() {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        try {
+            Runtime.getRuntime().removeShutdownHook(ganchoDesligamento);
+        } catch (IllegalStateException e) {
+            // desligamento da JVM em andamento: este é o próprio gancho
+        }
+        try {
+            fila.put(Pedido.fim());
+            escritor.join(TimeUnit.MINUTES.toMillis(1));
+            if (escritor.isAlive()) {
+                Log.warning("Gravação de extratos ainda em andamento após o encerramento");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.debug("%s encerrado", this);
+    }
+
+    @Override
+    public String toString() {
+        return "EscritorExtratos[capacidade=" + capacidade + ", lote=" + lote + ", pendentes=" + fila.size()
+                + ", gravados=" + gravados.get() + ", falhas=" + falhas.get()
+                + ", síncronos=" + sincronos.get() + ", lotes=" + lotes.get() + "]";
+    }
+
+    private void executar() {
+        List<Pedido> pedidos = new ArrayList<>(lote);
+        boolean ativo = true;
+        while (ativo) {
+            try {
+                pedidos.add(fila.take());
+            } catch (InterruptedException e) {
+                Log.warning("Thread de extratos interrompida com %d extrato(s) na fila", fila.size());
+                return;
+            }
+            fila.drainTo(pedidos, lote - 1);
+            ativo = gravarLote(pedidos);
+            pedidos.clear();
+        }
+    }
+
+    /**
+     * @return {@code false} quando o lote contém o pedido de encerramento.
+     */
+    private boolean gravarLote(List<Pedido> pedidos) {
+        List<Pedido> grupo = new ArrayList<>();
+        int gravadosNoLote = 0;
+        boolean ativo = true;
+        for (Pedido pedido : pedidos) {
+            if (pedido.destino != null && (grupo.isEmpty() || grupo.get(0).destino == pedido.destino)) {
+                grupo.add(pedido);
+                continue;
+            }
+            gravadosNoLote += gravar(grupo);
+            grupo.clear();
+            if (pedido.destino != null) {
+                grupo.add(pedido);
+            } else if (pedido.concluido != null) {
+                pedido.concluido.countDown();
+            } else {
+                ativo = false;
+            }
+        }
+        gravadosNoLote += gravar(grupo);
+        if (gravadosNoLote > 0) {
+            lotes.incrementAndGet();
+            Log.debug("Lote de %d extrato(s) gravado; %d na fila", gravadosNoLote, fila.size());
+        }
+        return ativo;
+    }
+
+    /**
+     * Anexa, de uma vez, pedidos consecutivos para o mesmo destino.
+     *
+     * @return quantidade de extratos gravados.
+     */
+    private int gravar(List<Pedido> grupo) {
+        if (grupo.isEmpty()) {
+            return 0;
+        }
+        List<ArquivoExtratos.NovoExtrato> novos = new ArrayList<>(grupo.size());
+        for (Pedido pedido : grupo) {
+            novos.add(pedido.novo);
+        }
+        try {
+            List<ReferenciaExtrato> referencias = grupo.get(0).destino.anexar(novos);
+            gravados.addAndGet(grupo.size());
+            for (int i = 0; i < grupo.size(); i++) {
+                grupo.get(i).futuro.complete(referencias.get(i));
+            }
+            return grupo.size();
+        } catch (IOException | RuntimeException e) {
+            falhas.addAndGet(grupo.size());
+            Log.error("Falha ao gravar " + grupo.size() + " extrato(s) em " + grupo.get(0).destino.getDiretorio(), e);
+            for (Pedido pedido : grupo) {
+                pedido.futuro.completeExceptionally(e);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Item da fila: um extrato, um marcador de descarga ou o pedido de encerramento.
+     */
+    private static final class Pedido {
+
+        private final ArquivoExtratos destino;
+        private final ArquivoExtratos.NovoExtrato novo;
+        private final CountDownLatch concluido;
+        private final CompletableFuture<ReferenciaExtrato> futuro = new CompletableFuture<>();
+
+        Pedido(ArquivoExtratos destino, ArquivoExtratos.NovoExtrato novo) {
+            this(destino, novo, null);
+        }
+
+        private Pedido(ArquivoExtratos destino, ArquivoExtratos.NovoExtrato novo, CountDownLatch concluido) {
+            this.destino = destino;
+            this.novo = novo;
+            this.concluido = concluido;
+        }
+
+        static Pedido marcador() {
+            return new Pedido(null, null, new CountDownLatch(1));
+        }
+
+        static Pedido fim() {
+            return new Pedido(null, null, null);
+        }
+    }
+}
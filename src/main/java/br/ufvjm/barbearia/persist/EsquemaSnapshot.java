@@ -0,0 +1,517 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.util.Log;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Versão do esquema dos snapshots JSON e migrações entre versões.
+ * <p>
+ * Todo documento gravado por {@link JsonStorage} começa com o campo
+ * {@value #CAMPO_VERSAO}. Documentos sem o campo são tratados como versão 1, o
+ * formato original. Quando o modelo muda de forma incompatível, a versão atual
+ * é incrementada e um {@link Migracao} que converte um registro da versão
+ * anterior é acrescentado a {@link #MIGRACOES}.
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>As migrações trabalham registro a registro: cada elemento de uma
+ *     coleção é lido como árvore JSON, passa pelas migrações em ordem e só
+ *     então é convertido ou regravado. O pico de memória é o do maior
+ *     registro, mais as chaves das entidades já migradas.</li>
+ *     <li>Na leitura ({@link JsonStorage#load(Path, SnapshotSink)}) arquivos
+ *     antigos são migrados em memória, sem alterar o arquivo. Para atualizar o
+ *     arquivo em uma única passada use {@link #migrar(Path, Path, int)}.</li>
+ *     <li>Arquivos de uma versão mais nova que {@link #VERSAO_ATUAL} são
+ *     recusados, em vez de terem campos descartados silenciosamente.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * int origem = EsquemaSnapshot.migrar(Path.of("data/sistema.json"), Path.of("data/sistema.json"), 1);
+ * }</pre>
+ */
+public final class EsquemaSnapshot {
+
+    /**
+     * Versão gravada nos snapshots novos.
+     */
+    public static final int VERSAO_ATUAL = 3;
+    static final String CAMPO_VERSAO = "versaoEsquema";
+    static final int VERSAO_SEM_CABECALHO = 1;
+
+    /**
+     * Migrações indexadas pela versão de origem: a posição {@code i} converte
+     * registros da versão {@code i + 1} para a {@code i + 2}.
+     */
+    private static final List<Migracao> MIGRACOES = List.of(new ReferenciasPorId(), new TotalDeExtratos());
+    private static final EsquemaSnapshot DEBUG_VIEW = new EsquemaSnapshot();
+
+    static {
+        for (int i = 0; i < MIGRACOES.size(); i++) {
+            if (MIGRACOES.get(i).getVersaoOrigem() != i + 1) {
+                throw new IllegalStateException("Migração fora de ordem: " + MIGRACOES.get(i));
+            }
+        }
+        if (MIGRACOES.size() != VERSAO_ATUAL - 1) {
+            throw new IllegalStateException("Migrações não cobrem até a versão " + VERSAO_ATUAL);
+        }
+    }
+
+    private EsquemaSnapshot() {
+        // utilitário
+    }
+
+    /**
+     * Passo que converte um registro da versão {@link #getVersaoOrigem()} para a seguinte.
+     */
+    public interface Migracao {
+
+        int getVersaoOrigem();
+
+        String getDescricao();
+
+        /**
+         * Converte o registro no lugar.
+         *
+         * @param colecao  coleção do registro.
+         * @param registro elemento de topo da coleção.
+         * @param contexto entidades já migradas no mesmo snapshot.
+         */
+        void migrar(ColecaoSnapshot colecao, JsonObject registro, Contexto contexto);
+    }
+
+    /**
+     * Chaves das entidades de topo já migradas, por coleção. Permite que uma
+     * migração saiba se uma entidade também estará gravada na própria coleção.
+     */
+    public static final class Contexto {
+
+        private final Map<ColecaoSnapshot, Set<String>> chaves = new EnumMap<>(ColecaoSnapshot.class);
+
+        public boolean conhece(ColecaoSnapshot colecao, String chave) {
+            Set<String> conhecidas = chaves.get(colecao);
+            return conhecidas != null && conhecidas.contains(chave);
+        }
+
+        void registrar(ColecaoSnapshot colecao, JsonObject registro) {
+            if (!ReferenciasSnapshot.referenciavel(colecao)) {
+                return;
+            }
+            JsonElement id = registro.get("id");
+            if (id != null && id.isJsonPrimitive()) {
+                chaves.computeIfAbsent(colecao, c -> new HashSet<>()).add(id.getAsString());
+            }
+        }
+    }
+
+    /**
+     * Aplica, em sequência, as migrações de uma versão de origem até a atual.
+     * Não é seguro para uso concorrente.
+     */
+    static final class Migrador {
+
+        private final int origem;
+        private final List<Migracao> passos;
+        private final Contexto contexto;
+
+        Migrador(int origem, Contexto contexto) {
+            this.origem = origem;
+            this.passos = MIGRACOES.subList(origem - 1, MIGRACOES.size());
+            this.contexto = contexto;
+        }
+
+        JsonElement migrar(ColecaoSnapshot colecao, JsonElement registro) {
+            if (!registro.isJsonObject()) {
+                return registro;
+            }
+            JsonObject objeto = registro.getAsJsonObject();
+            for (Migracao passo : passos) {
+                passo.migrar(colecao, objeto, contexto);
+            }
+            contexto.registrar(colecao, objeto);
+            return objeto;
+        }
+    }
+
+    /**
+     * Estado da leitura de um snapshot, que pode ser composto por vários
+     * documentos (as seções de um snapshot compactado). O contexto de
+     * migração é compartilhado entre eles.
+     */
+    static final class Leitura {
+
+        private final Contexto contexto = new Contexto();
+        private int versao = VERSAO_SEM_CABECALHO;
+        private int menorVersao = VERSAO_ATUAL;
+        private Migrador migrador;
+
+        void iniciarDocumento() {
+            versao = VERSAO_SEM_CABECALHO;
+        }
+
+        void lerCabecalho(JsonReader in) throws IOException {
+            versao = lerVersao(in);
+        }
+
+        /**
+         * @return migrador do documento atual ou {@code null} quando ele já está na versão atual.
+         */
+        Migrador migrador() {
+            if (versao == VERSAO_ATUAL) {
+                return null;
+            }
+            menorVersao = Math.min(menorVersao, versao);
+            if (migrador == null || migrador.origem != versao) {
+                migrador = new Migrador(versao, contexto);
+            }
+            return migrador;
+        }
+
+        /**
+         * @return menor versão entre os documentos que tiveram coleções lidas.
+         */
+        int getMenorVersao() {
+            return menorVersao;
+        }
+    }
+
+    /**
+     * Lê o valor do campo {@value #CAMPO_VERSAO}, recusando versões desconhecidas.
+     */
+    static int lerVersao(JsonReader in) throws IOException {
+        int versao = in.nextInt();
+        if (versao < VERSAO_SEM_CABECALHO) {
+            throw new JsonParseException("Versão de esquema inválida: " + versao);
+        }
+        if (versao > VERSAO_ATUAL) {
+            throw new JsonParseException("Esquema de snapshot v" + versao
+                    + " é mais novo que o suportado (v" + VERSAO_ATUAL + ")");
+        }
+        return versao;
+    }
+
+    /**
+     * Grava o cabeçalho de versão no objeto aberto em {@code out}.
+     */
+    static void escreverCabecalho(JsonWriter out) throws IOException {
+        out.name(CAMPO_VERSAO).value(VERSAO_ATUAL);
+    }
+
+    /**
+     * Lê apenas o cabeçalho de um snapshot JSON.
+     *
+     * @param file snapshot JSON.
+     * @return versão do esquema; {@value #VERSAO_SEM_CABECALHO} quando o documento não tem cabeçalho.
+     * @throws IOException se o arquivo não puder ser lido ou a versão for desconhecida.
+     */
+    public static int versao(Path file) throws IOException {
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             JsonReader in = JsonStorage.gson().newJsonReader(reader)) {
+            if (JsonStorage.documentoVazio(in) || in.peek() != JsonToken.BEGIN_OBJECT) {
+                return VERSAO_SEM_CABECALHO;
+            }
+            in.beginObject();
+            if (in.hasNext() && CAMPO_VERSAO.equals(in.nextName())) {
+                return lerVersao(in);
+            }
+            return VERSAO_SEM_CABECALHO;
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Cabeçalho inválido em " + file, e);
+        }
+    }
+
+    /**
+     * Regrava um snapshot JSON na versão atual em uma única passada, lendo e
+     * gravando um registro por vez. {@code origem} e {@code destino} podem ser
+     * o mesmo arquivo: a troca é atômica ({@link ArquivoAtomico}).
+     * <p>
+     * Campos de topo desconhecidos são copiados sem alteração.
+     * </p>
+     *
+     * @param origem   snapshot JSON em qualquer versão suportada.
+     * @param destino  arquivo a ser gravado.
+     * @param geracoes versões anteriores do destino a preservar (0 desativa).
+     * @return versão de origem do snapshot.
+     * @throws IOException se a leitura ou a escrita falharem; o destino permanece intacto.
+     */
+    public static int migrar(Path origem, Path destino, int geracoes) throws IOException {
+        Objects.requireNonNull(origem, "origem não pode ser nula");
+        Objects.requireNonNull(destino, "destino não pode ser nulo");
+        if (!Files.isRegularFile(origem)) {
+            throw new NoSuchFileException(origem.toString());
+        }
+        if (SnapshotFormato.detectar(origem) != SnapshotFormato.JSON) {
+            throw new IOException("Migração em streaming disponível apenas para snapshots JSON: " + origem);
+        }
+
+        long inicio = System.nanoTime();
+        int[] versao = {VERSAO_SEM_CABECALHO};
+        int[] registros = {0};
+        ArquivoAtomico.substituir(destino, geracoes, temporario -> {
+            versao[0] = VERSAO_SEM_CABECALHO;
+            registros[0] = 0;
+            try (BufferedReader reader = Files.newBufferedReader(origem, StandardCharsets.UTF_8);
+                 JsonReader in = JsonStorage.gson().newJsonReader(reader);
+                 BufferedWriter writer = Files.newBufferedWriter(temporario, StandardCharsets.UTF_8);
+                 JsonWriter out = JsonStorage.gson().newJsonWriter(writer)) {
+                registros[0] = copiarMigrando(in, out, versao);
+            } catch (JsonParseException | IllegalStateException e) {
+                throw new IOException("Snapshot inválido em " + origem, e);
+            }
+        });
+        Log.info("Snapshot %s migrado do esquema v%d para v%d em %s: %d registro(s), %d bytes, %d ms",
+                origem.toAbsolutePath(), versao[0], VERSAO_ATUAL, destino.toAbsolutePath(), registros[0],
+                Files.size(destino), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        return versao[0];
+    }
+
+    private static int copiarMigrando(JsonReader in, JsonWriter out, int[] versao) throws IOException {
+        List<String> desconhecidos = new ArrayList<>();
+        Migrador migrador = null;
+        int registros = 0;
+        out.beginObject();
+        escreverCabecalho(out);
+        if (JsonStorage.documentoVazio(in)) {
+            out.endObject();
+            return 0;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            String nome = in.nextName();
+            if (CAMPO_VERSAO.equals(nome)) {
+                versao[0] = lerVersao(in);
+                continue;
+            }
+            ColecaoSnapshot colecao = ColecaoSnapshot.porChave(nome).orElse(null);
+            if (colecao == null || in.peek() != JsonToken.BEGIN_ARRAY) {
+                desconhecidos.add(nome);
+                out.name(nome);
+                JsonStorage.gson().toJson(JsonParser.parseReader(in), out);
+                continue;
+            }
+            if (migrador == null && versao[0] < VERSAO_ATUAL) {
+                migrador = new Migrador(versao[0], new Contexto());
+            }
+            out.name(nome);
+            out.beginArray();
+            in.beginArray();
+            while (in.hasNext()) {
+                JsonElement registro = JsonParser.parseReader(in);
+                JsonStorage.gson().toJson(migrador != null ? migrador.migrar(colecao, registro) : registro, out);
+                registros++;
+            }
+            in.endArray();
+            out.endArray();
+        }
+        in.endObject();
+        out.endObject();
+        if (!desconhecidos.isEmpty()) {
+            Log.debug("Campos copiados sem migração: %s", desconhecidos);
+        }
+        return registros;
+    }
+
+    public static String description() {
+        return DEBUG_VIEW.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "EsquemaSnapshot[versão atual v" + VERSAO_ATUAL + ", " + MIGRACOES.size()
+                + " migração(ões) registro a registro]";
+    }
+
+    /**
+     * v1 → v2: entidades aninhadas que também estão gravadas na própria
+     * coleção passam a ser referências pelo {@code id}, como grava
+     * {@link br.ufvjm.barbearia.persist.adapters.ReferenciaAdapterFactory}.
+     * Entidades que não aparecem na própria coleção continuam embutidas, e as
+     * que já são referências permanecem como estão.
+     */
+    private static final class ReferenciasPorId implements Migracao {
+
+        @Override
+        public int getVersaoOrigem() {
+            return 1;
+        }
+
+        @Override
+        public String getDescricao() {
+            return "entidades aninhadas gravadas como referência por id";
+        }
+
+        @Override
+        public void migrar(ColecaoSnapshot colecao, JsonObject registro, Contexto contexto) {
+            switch (colecao) {
+                case AGENDAMENTOS:
+                    referenciar(registro, "cliente", ColecaoSnapshot.CLIENTES, contexto);
+                    referenciar(registro, "barbeiro", ColecaoSnapshot.USUARIOS, contexto);
+                    itensServico(registro, "itens", contexto);
+                    break;
+                case VENDAS:
+                    referenciar(registro, "cliente", ColecaoSnapshot.CLIENTES, contexto);
+                    itensProduto(registro, "itens", contexto);
+                    break;
+                case RECEBIMENTOS:
+                    itensProduto(registro, "itens", contexto);
+                    break;
+                case CONTAS:
+                    referenciar(registro, "agendamento", ColecaoSnapshot.AGENDAMENTOS, contexto);
+                    itensProduto(registro, "produtosFaturados", contexto);
+                    itensServico(registro, "servicosAdicionais", contexto);
+                    break;
+                case CAIXAS:
+                    referenciarTodos(registro, "vendas", ColecaoSnapshot.VENDAS, contexto);
+                    referenciarTodos(registro, "contas", ColecaoSnapshot.CONTAS, contexto);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void itensServico(JsonObject registro, String campo, Contexto contexto) {
+            for (JsonObject item : objetos(registro, campo)) {
+                referenciar(item, "servico", ColecaoSnapshot.SERVICOS, contexto);
+                itensProduto(item, "consumos", contexto);
+            }
+        }
+
+        private void itensProduto(JsonObject registro, String campo, Contexto contexto) {
+            for (JsonObject item : objetos(registro, campo)) {
+                referenciar(item, "produto", ColecaoSnapshot.PRODUTOS, contexto);
+            }
+        }
+
+        private void referenciar(JsonObject registro, String campo, ColecaoSnapshot alvo, Contexto contexto) {
+            JsonElement valor = registro.get(campo);
+            if (valor != null) {
+                registro.add(campo, referencia(valor, alvo, contexto));
+            }
+        }
+
+        private void referenciarTodos(JsonObject registro, String campo, ColecaoSnapshot alvo, Contexto contexto) {
+            JsonElement valor = registro.get(campo);
+            if (valor == null || !valor.isJsonArray()) {
+                return;
+            }
+            JsonArray lista = valor.getAsJsonArray();
+            for (int i = 0; i < lista.size(); i++) {
+                lista.set(i, referencia(lista.get(i), alvo, contexto));
+            }
+        }
+
+        /**
+         * Substitui uma entidade embutida pela sua chave quando ela é
+         * conhecida; caso contrário migra o próprio objeto embutido.
+         */
+        private JsonElement referencia(JsonElement valor, ColecaoSnapshot alvo, Contexto contexto) {
+            if (!valor.isJsonObject()) {
+                return valor;
+            }
+            JsonObject embutido = valor.getAsJsonObject();
+            JsonElement id = embutido.get("id");
+            if (id != null && id.isJsonPrimitive() && contexto.conhece(alvo, id.getAsString())) {
+                return new JsonPrimitive(id.getAsString());
+            }
+            migrar(alvo, embutido, contexto);
+            return embutido;
+        }
+
+        private static List<JsonObject> objetos(JsonObject registro, String campo) {
+            JsonElement valor = registro.get(campo);
+            if (valor == null || !valor.isJsonArray()) {
+                return List.of();
+            }
+            List<JsonObject> objetos = new ArrayList<>();
+            for (JsonElement elemento : valor.getAsJsonArray()) {
+                if (elemento.isJsonObject()) {
+                    objetos.add(elemento.getAsJsonObject());
+                }
+            }
+            return objetos;
+        }
+
+        @Override
+        public String toString() {
+            return "Migracao[v1 -> v2: " + getDescricao() + "]";
+        }
+    }
+
+    /**
+     * v2 → v3: o cliente deixa de gravar a lista {@code extratosGerados} e
+     * passa a gravar apenas {@code totalExtratos}; o histórico vem do índice
+     * do {@link ArquivoExtratos}. Clientes embutidos em outros registros são
+     * convertidos também.
+     */
+    private static final class TotalDeExtratos implements Migracao {
+
+        private static final String LISTA = "extratosGerados";
+        private static final String TOTAL = "totalExtratos";
+
+        @Override
+        public int getVersaoOrigem() {
+            return 2;
+        }
+
+        @Override
+        public String getDescricao() {
+            return "lista de extratos do cliente substituída pelo total";
+        }
+
+        @Override
+        public void migrar(ColecaoSnapshot colecao, JsonObject registro, Contexto contexto) {
+            converter(registro);
+        }
+
+        private void converter(JsonElement elemento) {
+            if (elemento.isJsonArray()) {
+                for (JsonElement item : elemento.getAsJsonArray()) {
+                    converter(item);
+                }
+                return;
+            }
+            if (!elemento.isJsonObject()) {
+                return;
+            }
+            JsonObject objeto = elemento.getAsJsonObject();
+            JsonElement lista = objeto.remove(LISTA);
+            if (lista != null) {
+                objeto.addProperty(TOTAL, lista.isJsonArray() ? lista.getAsJsonArray().size() : 0);
+            }
+            for (Map.Entry<String, JsonElement> campo : objeto.entrySet()) {
+                converter(campo.getValue());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Migracao[v2 -> v3: " + getDescricao() + "]";
+        }
+    }
+}
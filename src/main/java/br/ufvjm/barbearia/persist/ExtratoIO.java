@@ -1,21 +1,59 @@
 package br.ufvjm.barbearia.persist;
 
 import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.util.Log;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
- * Utilitário para gravação de extratos financeiros relacionados a um cliente.
+ * Utilitário para gravação e exportação de extratos financeiros.
+ * <p>
+ * Grava um arquivo de texto por extrato. O {@link br.ufvjm.barbearia.system.Sistema}
+ * passou a anexar os extratos em segmentos ({@link ArquivoExtratos}); este
+ * formato segue disponível para exportações avulsas, e os arquivos já gerados
+ * continuam legíveis por {@link ArquivoExtratos#ler(String)}.
+ * </p>
+ *
+ * <p>
+ * Para auditoria, {@link #exportarCliente(ArquivoExtratos, UUID, Path)} e
+ * {@link #exportarMes(ArquivoExtratos, YearMonth, Path)} geram um ZIP com os
+ * extratos de um cliente ou de um mês:
+ * </p>
+ * <ul>
+ *     <li>Os extratos são escolhidos pelo índice do arquivo (busca binária por
+ *     cliente e período), sem listar diretórios nem interpretar nomes.</li>
+ *     <li>Cada texto vai do mapeamento do segmento direto para o
+ *     {@link ZipOutputStream}; o índice é percorrido em páginas, então a
+ *     memória usada não depende da quantidade de extratos.</li>
+ *     <li>No ZIP, os extratos ficam em uma pasta por cliente
+ *     ({@code consumidor_final} para vendas sem cliente), com a data de
+ *     emissão como data da entrada.</li>
+ * </ul>
  */
 public final class ExtratoIO {
 
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int PAGINA_EXPORTACAO = 1024;
+    private static final String PASTA_CONSUMIDOR_FINAL = "consumidor_final";
     private static final ExtratoIO DEBUG_VIEW = new ExtratoIO();
 
     private ExtratoIO() {
@@ -32,12 +70,28 @@ public final class ExtratoIO {
      * @throws IOException se ocorrer erro de escrita.
      */
     public static Path saveExtrato(Cliente cliente, String extrato, Path dir) throws IOException {
+        return saveExtrato(cliente, extrato, dir, LocalDateTime.now());
+    }
+
+    /**
+     * Persiste o extrato usando o instante de emissão informado no nome do arquivo.
+     *
+     * @param cliente   cliente associado ao extrato ou {@code null} para consumidor final.
+     * @param extrato   conteúdo textual do extrato.
+     * @param dir       diretório base onde o arquivo será criado.
+     * @param emitidoEm instante de emissão do extrato.
+     * @return caminho do arquivo criado.
+     * @throws IOException se ocorrer erro de escrita.
+     */
+    public static Path saveExtrato(Cliente cliente, String extrato, Path dir, LocalDateTime emitidoEm)
+            throws IOException {
         Objects.requireNonNull(extrato, "extrato não pode ser nulo");
         Objects.requireNonNull(dir, "dir não pode ser nulo");
+        Objects.requireNonNull(emitidoEm, "emitidoEm não pode ser nulo");
 
         Files.createDirectories(dir);
 
-        String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+        String timestamp = emitidoEm.format(TIMESTAMP_FORMAT);
         String identificador = cliente != null ? cliente.getId().toString() : "consumidor_final";
         String fileName = String.format("extrato_%s_%s.txt", identificador, timestamp);
         Path file = dir.resolve(fileName);
@@ -48,12 +102,169 @@ public final class ExtratoIO {
         return file;
     }
 
+    /**
+     * Resultado de uma exportação.
+     */
+    public static final class Exportacao {
+
+        private final int extratos;
+        private final long bytes;
+        private final long nanos;
+
+        private Exportacao(int extratos, long bytes, long nanos) {
+            this.extratos = extratos;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public int getExtratos() {
+            return extratos;
+        }
+
+        /**
+         * @return bytes de texto exportados, antes da compressão.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public Duration getDuracao() {
+            return Duration.ofNanos(nanos);
+        }
+
+        /**
+         * @return extratos exportados por segundo.
+         */
+        public double getVazao() {
+            return nanos > 0 ? extratos * 1e9 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "Exportacao[extratos=%d, bytes=%d, %d ms, %.1f extratos/s]",
+                    extratos, bytes, TimeUnit.NANOSECONDS.toMillis(nanos), getVazao());
+        }
+    }
+
+    /**
+     * Exporta todos os extratos de um cliente para um arquivo ZIP, substituído de forma atômica.
+     *
+     * @param arquivo   arquivo de extratos consultado.
+     * @param clienteId cliente ou {@code null} para os extratos de consumidor final.
+     * @param zip       arquivo ZIP a gerar.
+     * @return quantidade, volume e duração da exportação.
+     * @throws IOException se a leitura de um extrato ou a escrita do ZIP falharem; o destino permanece intacto.
+     */
+    public static Exportacao exportarCliente(ArquivoExtratos arquivo, UUID clienteId, Path zip) throws IOException {
+        Objects.requireNonNull(zip, "zip não pode ser nulo");
+        Exportacao[] resultado = new Exportacao[1];
+        ArquivoAtomico.substituir(zip, 0, temporario -> {
+            try (OutputStream saida = Files.newOutputStream(temporario)) {
+                resultado[0] = exportarCliente(arquivo, clienteId, saida);
+            }
+        });
+        return resultado[0];
+    }
+
+    /**
+     * Exporta todos os extratos de um cliente como ZIP no fluxo informado,
+     * que não é fechado.
+     *
+     * @param clienteId cliente ou {@code null} para os extratos de consumidor final.
+     */
+    public static Exportacao exportarCliente(ArquivoExtratos arquivo, UUID clienteId, OutputStream saida)
+            throws IOException {
+        Objects.requireNonNull(arquivo, "arquivo não pode ser nulo");
+        String descricao = "cliente " + (clienteId != null ? clienteId : PASTA_CONSUMIDOR_FINAL);
+        return exportar(arquivo, Collections.singletonList(clienteId), LocalDateTime.MIN, LocalDateTime.MAX,
+                saida, descricao);
+    }
+
+    /**
+     * Exporta os extratos emitidos em um mês, de todos os clientes, para um
+     * arquivo ZIP substituído de forma atômica.
+     *
+     * @param arquivo arquivo de extratos consultado.
+     * @param mes     mês de emissão.
+     * @param zip     arquivo ZIP a gerar.
+     * @return quantidade, volume e duração da exportação.
+     * @throws IOException se a leitura de um extrato ou a escrita do ZIP falharem; o destino permanece intacto.
+     */
+    public static Exportacao exportarMes(ArquivoExtratos arquivo, YearMonth mes, Path zip) throws IOException {
+        Objects.requireNonNull(zip, "zip não pode ser nulo");
+        Exportacao[] resultado = new Exportacao[1];
+        ArquivoAtomico.substituir(zip, 0, temporario -> {
+            try (OutputStream saida = Files.newOutputStream(temporario)) {
+                resultado[0] = exportarMes(arquivo, mes, saida);
+            }
+        });
+        return resultado[0];
+    }
+
+    /**
+     * Exporta os extratos emitidos em um mês como ZIP no fluxo informado, que não é fechado.
+     */
+    public static Exportacao exportarMes(ArquivoExtratos arquivo, YearMonth mes, OutputStream saida)
+            throws IOException {
+        Objects.requireNonNull(arquivo, "arquivo não pode ser nulo");
+        Objects.requireNonNull(mes, "mes não pode ser nulo");
+        return exportar(arquivo, arquivo.clientes(), mes.atDay(1).atStartOfDay(),
+                mes.plusMonths(1).atDay(1).atStartOfDay(), saida, "mês " + mes);
+    }
+
+    private static Exportacao exportar(ArquivoExtratos arquivo, List<UUID> clientes, LocalDateTime de,
+                                       LocalDateTime ate, OutputStream saida, String descricao) throws IOException {
+        Objects.requireNonNull(saida, "saida não pode ser nula");
+        long inicio = System.nanoTime();
+        int extratos = 0;
+        long bytes = 0;
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(saida));
+        WritableByteChannel canal = Channels.newChannel(zip);
+        for (UUID cliente : clientes) {
+            String pasta = cliente != null ? cliente.toString() : PASTA_CONSUMIDOR_FINAL;
+            int deslocamento = 0;
+            List<ArquivoExtratos.Registro> pagina;
+            do {
+                pagina = arquivo.historico(cliente, de, ate, deslocamento, PAGINA_EXPORTACAO);
+                for (ArquivoExtratos.Registro registro : pagina) {
+                    ZipEntry entrada = new ZipEntry(nomeEntrada(pasta, registro));
+                    entrada.setTimeLocal(registro.getEmitidoEm());
+                    zip.putNextEntry(entrada);
+                    bytes += arquivo.transferir(registro.getReferencia(), canal);
+                    zip.closeEntry();
+                    extratos++;
+                }
+                deslocamento += pagina.size();
+            } while (pagina.size() == PAGINA_EXPORTACAO);
+        }
+        zip.finish();
+        zip.flush();
+
+        Exportacao exportacao = new Exportacao(extratos, bytes, System.nanoTime() - inicio);
+        double segundos = exportacao.getDuracao().toNanos() / 1e9;
+        Log.info("Exportação de extratos (%s): %d extrato(s), %d bytes em %d ms (%.1f extratos/s, %.1f MB/s)",
+                descricao, extratos, bytes, exportacao.getDuracao().toMillis(), exportacao.getVazao(),
+                segundos > 0 ? bytes / segundos / (1024 * 1024) : 0.0);
+        return exportacao;
+    }
+
+    private static String nomeEntrada(String pasta, ArquivoExtratos.Registro registro) {
+        ReferenciaExtrato referencia = registro.getReferencia();
+        String emitidoEm = registro.getEmitidoEm().format(TIMESTAMP_FORMAT);
+        if (referencia.isMensal()) {
+            return String.format("%s/extrato_%s_%s-%d.txt", pasta, emitidoEm, referencia.getMes(),
+                    referencia.getOffset());
+        }
+        return String.format("%s/extrato_%s_%06d-%d.txt", pasta, emitidoEm, referencia.getSegmento(),
+                referencia.getOffset());
+    }
+
     public static String description() {
         return DEBUG_VIEW.toString();
     }
 
     @Override
     public String toString() {
-        return "ExtratoIO[utilitário para salvar extratos com timestamp yyyyMMddHHmmss]";
+        return "ExtratoIO[utilitário para salvar extratos com timestamp yyyyMMddHHmmss e exportá-los em ZIP]";
     }
 }
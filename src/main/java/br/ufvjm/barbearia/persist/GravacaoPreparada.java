@@ -0,0 +1,31 @@
+package br.ufvjm.barbearia.persist;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Snapshot já serializado em arquivos temporários ao lado do destino,
+ * aguardando a troca.
+ * <p>
+ * A preparação ({@link SnapshotFormato#preparar(DataSnapshot, Path)}) é a
+ * única etapa que lê as entidades; a conclusão apenas sincroniza com o disco,
+ * preserva as gerações e troca os arquivos, e por isso pode rodar em outra
+ * thread enquanto o sistema continua sendo alterado.
+ * </p>
+ */
+interface GravacaoPreparada {
+
+    /**
+     * Sincroniza os temporários com o disco e os coloca no lugar do destino.
+     * Em caso de falha, os temporários são removidos e o destino permanece
+     * com o conteúdo anterior.
+     *
+     * @param geracoes versões anteriores a preservar (0 desativa).
+     */
+    void concluir(int geracoes) throws IOException;
+
+    /**
+     * Remove os temporários de uma gravação que não será concluída.
+     */
+    void descartar();
+}
@@ -0,0 +1,490 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.util.Log;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Índice invertido do texto dos extratos, com posições, para busca por
+ * termos e frases.
+ * <p>
+ * Mantido pelo {@link ArquivoExtratos}, que o atualiza a cada anexação e o
+ * grava no mesmo diretório ({@value #ARQUIVO}). Cada documento é identificado
+ * pela referência guardada nas entidades (segmento e deslocamento, ou o
+ * caminho de um extrato avulso antigo).
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>Termos são sequências de letras e dígitos, em minúsculas e sem
+ *     acentos. Pontuação separa termos: {@code BRL 45.00} gera {@code brl},
+ *     {@code 45} e {@code 00}.</li>
+ *     <li>Na consulta, palavras separadas por espaço precisam aparecer todas
+ *     no extrato; trechos entre aspas, e palavras com pontuação interna (um
+ *     valor como {@code 45,00}, um id de OS, {@code CARTAO_DEBITO}), precisam
+ *     aparecer em sequência.</li>
+ *     <li>O arquivo é um log somente-anexação com um registro por documento
+ *     (referência e termos na ordem do texto), protegido por CRC32. Um
+ *     registro incompleto no fim é truncado na abertura; documentos que
+ *     ficarem de fora são reindexados pelo {@link ArquivoExtratos}.</li>
+ *     <li>Quando a compactação muda a referência de um extrato, o log recebe
+ *     um registro de renomeação ({@link #renomear(Map)}) em vez de o
+ *     documento ser reindexado.</li>
+ * </ul>
+ */
+final class IndiceTextualExtratos implements Closeable {
+
+    static final String ARQUIVO = "busca.idx";
+
+    private static final int MAGICO = 0x42555331;
+    private static final int MAGICO_RENOMEACAO = 0x42555352;
+    private static final int CABECALHO = 4 + 4 + 4;
+
+    private final Path arquivo;
+    private FileChannel canal;
+    private final List<String> referencias = new ArrayList<>();
+    private final Map<String, Integer> documentos = new HashMap<>();
+    private final Map<String, Postagens> termos = new HashMap<>();
+
+    private IndiceTextualExtratos(Path arquivo, FileChannel canal) {
+        this.arquivo = arquivo;
+        this.canal = canal;
+    }
+
+    /**
+     * Texto de um extrato já dividido em termos, pronto para ser indexado.
+     */
+    static final class Documento {
+
+        private final String referencia;
+        private final List<String> termos;
+
+        private Documento(String referencia, List<String> termos) {
+            this.referencia = referencia;
+            this.termos = termos;
+        }
+
+        static Documento de(String referencia, String texto) {
+            Objects.requireNonNull(referencia, "referencia não pode ser nula");
+            return new Documento(referencia, termos(Objects.requireNonNull(texto, "texto não pode ser nulo")));
+        }
+
+        String getReferencia() {
+            return referencia;
+        }
+    }
+
+    /**
+     * Documentos em que um termo aparece, em ordem crescente, com as posições
+     * do termo em cada um.
+     */
+    private static final class Postagens {
+
+        private int[] documentos = new int[2];
+        private int[][] posicoes = new int[2][];
+        private int tamanho;
+
+        void adicionar(int documento, int[] emPosicoes) {
+            if (tamanho == documentos.length) {
+                documentos = Arrays.copyOf(documentos, tamanho * 2);
+                posicoes = Arrays.copyOf(posicoes, tamanho * 2);
+            }
+            documentos[tamanho] = documento;
+            posicoes[tamanho] = emPosicoes;
+            tamanho++;
+        }
+
+        /**
+         * @return posições do termo no documento, ou {@code null} se ele não aparece.
+         */
+        int[] posicoes(int documento) {
+            int indice = Arrays.binarySearch(documentos, 0, tamanho, documento);
+            return indice >= 0 ? posicoes[indice] : null;
+        }
+    }
+
+    /**
+     * Abre o índice, carregando o log e truncando um registro incompleto no fim.
+     */
+    static IndiceTextualExtratos abrir(Path arquivo) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        IndiceTextualExtratos indice = new IndiceTextualExtratos(arquivo, canal);
+        try {
+            indice.carregar();
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        return indice;
+    }
+
+    synchronized boolean contem(String referencia) {
+        return documentos.containsKey(referencia);
+    }
+
+    synchronized int getDocumentos() {
+        return documentos.size();
+    }
+
+    synchronized int getTermos() {
+        return termos.size();
+    }
+
+    /**
+     * Acrescenta documentos ao índice em memória e ao log, com uma única escrita.
+     * Documentos já indexados são ignorados.
+     *
+     * @throws IOException se a gravação do log falhar; o índice em memória já
+     *                     contém os documentos, e eles são reindexados na próxima abertura.
+     */
+    synchronized void indexar(List<Documento> novos) throws IOException {
+        ByteArrayOutputStream registros = new ByteArrayOutputStream();
+        for (Documento documento : novos) {
+            if (adicionar(documento)) {
+                escreverRegistro(registros, documento);
+            }
+        }
+        if (registros.size() > 0) {
+            escreverTudo(canal, registros.toByteArray(), canal.size());
+        }
+    }
+
+    /**
+     * Troca a referência de documentos já indexados, sem reindexar o texto.
+     * Referências ausentes são ignoradas; se a nova referência já estiver
+     * indexada, o documento antigo apenas deixa de aparecer nas buscas.
+     *
+     * @param novas referência nova de cada referência antiga.
+     * @return documentos renomeados ou descartados.
+     * @throws IOException se a gravação do log falhar.
+     */
+    synchronized int renomear(Map<String, String> novas) throws IOException {
+        Objects.requireNonNull(novas, "novas não pode ser nulo");
+        ByteArrayOutputStream registros = new ByteArrayOutputStream();
+        int renomeados = 0;
+        for (Map.Entry<String, String> nova : novas.entrySet()) {
+            if (trocar(nova.getKey(), nova.getValue())) {
+                ByteArrayOutputStream corpo = new ByteArrayOutputStream();
+                DataOutputStream dados = new DataOutputStream(corpo);
+                dados.writeUTF(nova.getKey());
+                dados.writeUTF(nova.getValue());
+                dados.flush();
+                escreverRegistro(registros, MAGICO_RENOMEACAO, corpo);
+                renomeados++;
+            }
+        }
+        if (registros.size() > 0) {
+            escreverTudo(canal, registros.toByteArray(), canal.size());
+        }
+        return renomeados;
+    }
+
+    /**
+     * Troca todo o conteúdo do índice pelos documentos informados, regravando o log de forma atômica.
+     */
+    synchronized void substituir(List<Documento> todos) throws IOException {
+        ArquivoAtomico.substituir(arquivo, 0, temporario -> {
+            try (FileChannel novo = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteArrayOutputStream registros = new ByteArrayOutputStream();
+                for (Documento documento : todos) {
+                    escreverRegistro(registros, documento);
+                    if (registros.size() >= 1 << 20) {
+                        escreverTudo(novo, registros.toByteArray(), novo.position());
+                        registros.reset();
+                    }
+                }
+                escreverTudo(novo, registros.toByteArray(), novo.position());
+            }
+        });
+        // o canal aberto aponta para o arquivo substituído
+        canal.close();
+        referencias.clear();
+        documentos.clear();
+        termos.clear();
+        for (Documento documento : todos) {
+            adicionar(documento);
+        }
+        canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Busca extratos que contêm todos os termos e frases da consulta.
+     *
+     * @param consulta palavras e trechos entre aspas.
+     * @param limite   máximo de referências devolvidas.
+     * @return referências, das mais recentes para as mais antigas.
+     */
+    synchronized List<String> buscar(String consulta, int limite) {
+        Objects.requireNonNull(consulta, "consulta não pode ser nula");
+        if (limite <= 0) {
+            throw new IllegalArgumentException("limite deve ser positivo");
+        }
+        List<List<String>> clausulas = clausulas(consulta);
+        if (clausulas.isEmpty()) {
+            return List.of();
+        }
+        List<List<Postagens>> postagens = new ArrayList<>(clausulas.size());
+        Postagens menor = null;
+        for (List<String> clausula : clausulas) {
+            List<Postagens> daClausula = new ArrayList<>(clausula.size());
+            for (String termo : clausula) {
+                Postagens doTermo = termos.get(termo);
+                if (doTermo == null) {
+                    return List.of();
+                }
+                daClausula.add(doTermo);
+                if (menor == null || doTermo.tamanho < menor.tamanho) {
+                    menor = doTermo;
+                }
+            }
+            postagens.add(daClausula);
+        }
+
+        List<String> encontrados = new ArrayList<>();
+        for (int i = menor.tamanho - 1; i >= 0 && encontrados.size() < limite; i--) {
+            int documento = menor.documentos[i];
+            if (referencias.get(documento) != null && contemTodas(postagens, documento)) {
+                encontrados.add(referencias.get(documento));
+            }
+        }
+        return encontrados;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        canal.close();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "IndiceTextualExtratos[" + arquivo + ", documentos=" + documentos.size() + ", termos="
+                + termos.size() + "]";
+    }
+
+    /**
+     * Divide o texto em termos: sequências de letras e dígitos, em minúsculas e sem acentos.
+     */
+    static List<String> termos(String texto) {
+        String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        List<String> termos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        for (int i = 0; i < decomposto.length(); i++) {
+            char c = decomposto.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                atual.append(Character.toLowerCase(c));
+            } else if (atual.length() > 0) {
+                termos.add(atual.toString());
+                atual.setLength(0);
+            }
+        }
+        if (atual.length() > 0) {
+            termos.add(atual.toString());
+        }
+        return termos;
+    }
+
+    /**
+     * Cada cláusula é uma sequência de termos que deve aparecer em ordem; uma
+     * cláusula de um termo só exige a presença dele.
+     */
+    private static List<List<String>> clausulas(String consulta) {
+        List<List<String>> clausulas = new ArrayList<>();
+        String[] partes = consulta.split("\"", -1);
+        for (int i = 0; i < partes.length; i++) {
+            if (i % 2 == 1) {
+                adicionarClausula(clausulas, termos(partes[i]));
+                continue;
+            }
+            for (String palavra : partes[i].trim().split("\\s+")) {
+                adicionarClausula(clausulas, termos(palavra));
+            }
+        }
+        return clausulas;
+    }
+
+    private static void adicionarClausula(List<List<String>> clausulas, List<String> termos) {
+        if (!termos.isEmpty()) {
+            clausulas.add(termos);
+        }
+    }
+
+    private static boolean contemTodas(List<List<Postagens>> clausulas, int documento) {
+        for (List<Postagens> clausula : clausulas) {
+            int[] primeiras = clausula.get(0).posicoes(documento);
+            if (primeiras == null) {
+                return false;
+            }
+            boolean encontrada = false;
+            for (int inicio : primeiras) {
+                if (emSequencia(clausula, documento, inicio)) {
+                    encontrada = true;
+                    break;
+                }
+            }
+            if (!encontrada) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean emSequencia(List<Postagens> clausula, int documento, int inicio) {
+        for (int deslocamento = 1; deslocamento < clausula.size(); deslocamento++) {
+            int[] posicoes = clausula.get(deslocamento).posicoes(documento);
+            if (posicoes == null || Arrays.binarySearch(posicoes, inicio + deslocamento) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean adicionar(Documento documento) {
+        if (documentos.containsKey(documento.referencia)) {
+            return false;
+        }
+        int id = referencias.size();
+        referencias.add(documento.referencia);
+        documentos.put(documento.referencia, id);
+        Map<String, List<Integer>> porTermo = new LinkedHashMap<>();
+        for (int posicao = 0; posicao < documento.termos.size(); posicao++) {
+            porTermo.computeIfAbsent(documento.termos.get(posicao), t -> new ArrayList<>()).add(posicao);
+        }
+        for (Map.Entry<String, List<Integer>> termo : porTermo.entrySet()) {
+            int[] posicoes = termo.getValue().stream().mapToInt(Integer::intValue).toArray();
+            termos.computeIfAbsent(termo.getKey(), t -> new Postagens()).adicionar(id, posicoes);
+        }
+        return true;
+    }
+
+    private boolean trocar(String antiga, String nova) {
+        Integer id = documentos.get(antiga);
+        if (id == null || antiga.equals(nova)) {
+            return false;
+        }
+        documentos.remove(antiga);
+        if (documentos.containsKey(nova)) {
+            referencias.set(id, null);
+        } else {
+            documentos.put(nova, id);
+            referencias.set(id, nova);
+        }
+        return true;
+    }
+
+    private void carregar() throws IOException {
+        long tamanho = canal.size();
+        long validos = 0;
+        InputStream entrada = new BufferedInputStream(Channels.newInputStream(canal.position(0)));
+        DataInputStream dados = new DataInputStream(entrada);
+        byte[] corpo = new byte[0];
+        while (validos + CABECALHO <= tamanho) {
+            int magico;
+            int comprimento;
+            int crc;
+            try {
+                magico = dados.readInt();
+                comprimento = dados.readInt();
+                crc = dados.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            if ((magico != MAGICO && magico != MAGICO_RENOMEACAO) || comprimento < 0
+                    || validos + CABECALHO + comprimento > tamanho) {
+                break;
+            }
+            if (corpo.length < comprimento) {
+                corpo = new byte[comprimento];
+            }
+            dados.readFully(corpo, 0, comprimento);
+            CRC32 calculado = new CRC32();
+            calculado.update(corpo, 0, comprimento);
+            if ((int) calculado.getValue() != crc) {
+                break;
+            }
+            if (magico == MAGICO) {
+                adicionar(lerDocumento(corpo, comprimento));
+            } else {
+                DataInputStream renomeacao = new DataInputStream(new ByteArrayInputStream(corpo, 0, comprimento));
+                trocar(renomeacao.readUTF(), renomeacao.readUTF());
+            }
+            validos += CABECALHO + comprimento;
+        }
+        if (validos < tamanho) {
+            Log.warning("Índice textual de extratos %s com %d byte(s) inválidos no fim; truncando",
+                    arquivo.toAbsolutePath(), tamanho - validos);
+            canal.truncate(validos);
+        }
+    }
+
+    private static Documento lerDocumento(byte[] corpo, int comprimento) throws IOException {
+        DataInputStream dados = new DataInputStream(new ByteArrayInputStream(corpo, 0, comprimento));
+        String referencia = dados.readUTF();
+        int quantidade = dados.readInt();
+        List<String> termos = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            termos.add(dados.readUTF());
+        }
+        return new Documento(referencia, termos);
+    }
+
+    private static void escreverTudo(FileChannel destino, byte[] dados, long posicao) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(dados);
+        long atual = posicao;
+        while (buffer.hasRemaining()) {
+            atual += destino.write(buffer, atual);
+        }
+        destino.position(atual);
+    }
+
+    private static void escreverRegistro(ByteArrayOutputStream destino, Documento documento) throws IOException {
+        ByteArrayOutputStream corpo = new ByteArrayOutputStream();
+        DataOutputStream dados = new DataOutputStream(corpo);
+        dados.writeUTF(documento.referencia);
+        dados.writeInt(documento.termos.size());
+        for (String termo : documento.termos) {
+            dados.writeUTF(termo);
+        }
+        dados.flush();
+        escreverRegistro(destino, MAGICO, corpo);
+    }
+
+    private static void escreverRegistro(ByteArrayOutputStream destino, int magico, ByteArrayOutputStream corpo)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(corpo.toByteArray());
+        DataOutputStream cabecalho = new DataOutputStream(destino);
+        cabecalho.writeInt(magico);
+        cabecalho.writeInt(corpo.size());
+        cabecalho.writeInt((int) crc.getValue());
+        cabecalho.flush();
+        corpo.writeTo(destino);
+    }
+}
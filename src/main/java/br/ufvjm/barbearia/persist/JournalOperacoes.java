@@ -0,0 +1,527 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.persist.adapters.ReferenciaAdapterFactory;
+import br.ufvjm.barbearia.util.Log;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Journal de operações (write-ahead log) do {@link br.ufvjm.barbearia.system.Sistema}.
+ * <p>
+ * Cada operação que altera o estado do sistema acrescenta ao final do arquivo
+ * uma ou mais linhas JSON compactas com o estado resultante das entidades
+ * afetadas ({@link RegistroJournal}). Em vez de regravar o snapshot inteiro a
+ * cada alteração, a escrita passa a ser um pequeno append sequencial; na
+ * inicialização, o sistema carrega o último snapshot e reaplica o restante do
+ * journal.
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>Os registros de uma mesma operação são gravados em um único append.</li>
+ *     <li>A sincronização com o disco ({@code fsync}) segue a
+ *     {@link Configuracao}: a cada operação, em grupos de N operações e/ou após
+ *     um intervalo máximo, ou apenas no fechamento.</li>
+ *     <li>Ao abrir o arquivo, uma linha final incompleta (queda durante a
+ *     escrita) é descartada.</li>
+ *     <li>{@link #truncarAte(long)} implementa o checkpoint: remove os registros
+ *     já cobertos por um snapshot gravado com sucesso.</li>
+ *     <li>Com um cadastro definido ({@link #usarCadastro(BiFunction)}), as
+ *     entidades aninhadas já cadastradas são gravadas apenas pela chave, como
+ *     nos snapshots, e o replay as resolve para as instâncias carregadas.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * JournalOperacoes journal = JournalOperacoes.abrir(Path.of("data/sistema.journal"),
+ *         JournalOperacoes.Configuracao.emGrupo(8, Duration.ofMillis(200)));
+ * sistema.configurarJournal(journal);
+ * sistema.loadAll(Path.of("data/sistema.json"));   // snapshot + replay do journal
+ * }</pre>
+ */
+public final class JournalOperacoes implements Closeable {
+
+    private static final String CAMPO_SEQUENCIA = "seq";
+    private static final String CAMPO_TIPO = "op";
+    private static final String CAMPO_COLECAO = "colecao";
+    private static final String CAMPO_CHAVE = "chave";
+    private static final String CAMPO_DADOS = "dados";
+    private static final ReferenciaAdapterFactory REFERENCIAS = ReferenciasSnapshot.factory();
+
+    private final Path arquivo;
+    private final Configuracao configuracao;
+    private final ScheduledExecutorService sincronizador;
+    private ReferenciaAdapterFactory.Referencias cadastro;
+    private FileChannel canal;
+    private long sequencia;
+    private int operacoesPendentes;
+    private boolean fechado;
+
+    private JournalOperacoes(Path arquivo, Configuracao configuracao) {
+        this.arquivo = arquivo;
+        this.configuracao = configuracao;
+        this.sincronizador = configuracao.intervaloMaximo.isZero() ? null : criarSincronizador();
+    }
+
+    /**
+     * Abre (ou cria) o journal, descartando uma eventual linha final incompleta.
+     *
+     * @param arquivo      caminho do arquivo de journal.
+     * @param configuracao política de sincronização com o disco.
+     * @return journal pronto para receber registros.
+     * @throws IOException se o arquivo não puder ser aberto.
+     */
+    public static JournalOperacoes abrir(Path arquivo, Configuracao configuracao) throws IOException {
+        Objects.requireNonNull(arquivo, "arquivo não pode ser nulo");
+        Objects.requireNonNull(configuracao, "configuracao não pode ser nula");
+        Path parent = arquivo.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        JournalOperacoes journal = new JournalOperacoes(arquivo, configuracao);
+        journal.recuperar();
+        journal.canal = abrirCanal(arquivo);
+        if (journal.sincronizador != null) {
+            long intervalo = configuracao.intervaloMaximo.toMillis();
+            journal.sincronizador.scheduleWithFixedDelay(journal::sincronizarSilenciosamente,
+                    intervalo, intervalo, TimeUnit.MILLISECONDS);
+        }
+        return journal;
+    }
+
+    /**
+     * Define onde consultar as entidades já cadastradas no sistema.
+     * <p>
+     * A partir desta chamada, uma entidade aninhada (o cliente de um
+     * agendamento, o agendamento de uma conta) que conste do cadastro é
+     * gravada apenas pela chave. Toda entidade cadastrada deve estar no
+     * snapshot ou em um registro anterior do journal, para que o replay
+     * consiga resolvê-la.
+     * </p>
+     *
+     * @param cadastro devolve a entidade cadastrada com o tipo e a chave
+     *                 informados, ou {@code null}; é chamado na thread que registra.
+     */
+    public synchronized void usarCadastro(BiFunction<Class<?>, String, Object> cadastro) {
+        this.cadastro = ReferenciaAdapterFactory.Referencias.consultando(cadastro);
+    }
+
+    /**
+     * Acrescenta os registros de uma operação em um único append.
+     *
+     * @param registros registros da operação, na ordem em que devem ser reaplicados.
+     * @return número de sequência do último registro gravado.
+     * @throws IOException se a escrita ou a sincronização falhar.
+     */
+    @SuppressWarnings("try")
+    public synchronized long registrar(RegistroJournal... registros) throws IOException {
+        Objects.requireNonNull(registros, "registros não pode ser nulo");
+        garantirAberto();
+        if (registros.length == 0) {
+            return sequencia;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * registros.length);
+        long proxima = sequencia;
+        try (Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+             ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(
+                     cadastro != null ? cadastro : new ReferenciaAdapterFactory.Referencias())) {
+            for (RegistroJournal registro : registros) {
+                escreverLinha(writer, Objects.requireNonNull(registro, "registro não pode ser nulo"), ++proxima);
+            }
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            canal.write(bytes);
+        }
+        sequencia = proxima;
+        operacoesPendentes++;
+        if (operacoesPendentes >= configuracao.operacoesPorGrupo) {
+            sincronizar();
+        }
+        return sequencia;
+    }
+
+    /**
+     * Força a gravação em disco dos registros ainda não sincronizados.
+     *
+     * @throws IOException se o {@code fsync} falhar.
+     */
+    public synchronized void sincronizar() throws IOException {
+        garantirAberto();
+        if (operacoesPendentes > 0) {
+            canal.force(false);
+            operacoesPendentes = 0;
+        }
+    }
+
+    /**
+     * Reaplica, em ordem, todos os registros presentes no journal.
+     * <p>
+     * As referências de cada registro são resolvidas para as entidades do
+     * estado base ou de registros anteriores. Ao final, as entidades que
+     * ainda apontam para uma versão substituída por um registro posterior (os
+     * agendamentos de um cliente regravado, por exemplo) são entregues
+     * novamente, religadas às versões finais.
+     * </p>
+     *
+     * @param estadoBase entidades já carregadas do snapshot e dos deltas.
+     * @param destino    consumidor que aplica cada registro ao estado em memória.
+     * @throws IOException se o arquivo não puder ser lido ou contiver registros inválidos.
+     */
+    @SuppressWarnings("try")
+    public synchronized void reproduzir(DataSnapshot estadoBase, Consumer<RegistroJournal> destino)
+            throws IOException {
+        Objects.requireNonNull(estadoBase, "estadoBase não pode ser nulo");
+        Objects.requireNonNull(destino, "destino não pode ser nulo");
+        garantirAberto();
+        ReferenciaAdapterFactory.Referencias referencias = ReferenciasSnapshot.de(estadoBase);
+        Map<ColecaoSnapshot, Map<String, Object>> reaplicados = new EnumMap<>(ColecaoSnapshot.class);
+        int total = 0;
+        int religados;
+        try (BufferedReader reader = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8);
+             ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                if (linha.isBlank()) {
+                    continue;
+                }
+                RegistroJournal registro = lerLinha(linha);
+                ReferenciasSnapshot.registrar(referencias, registro.getColecao(), registro.getEntidade());
+                reaplicados.computeIfAbsent(registro.getColecao(), c -> new LinkedHashMap<>())
+                        .put(registro.getChave(), registro.getEntidade());
+                destino.accept(registro);
+                total++;
+            }
+            religados = religar(estadoBase, reaplicados, referencias, destino);
+        } catch (JsonParseException | IllegalArgumentException e) {
+            throw new IOException("Registro inválido no journal " + arquivo, e);
+        }
+        Log.info("Journal %s reaplicado: %d registro(s), %d entidade(s) religada(s)", arquivo, total, religados);
+    }
+
+    /**
+     * Checkpoint: descarta os registros com sequência menor ou igual a
+     * {@code sequenciaCoberta}, já refletidos em um snapshot persistido.
+     * <p>
+     * Registros posteriores (gravados enquanto o snapshot era produzido) são
+     * preservados em um novo arquivo, que substitui o atual de forma atômica.
+     * </p>
+     *
+     * @param sequenciaCoberta última sequência incluída no snapshot.
+     * @throws IOException se o arquivo não puder ser reescrito.
+     */
+    public synchronized void truncarAte(long sequenciaCoberta) throws IOException {
+        garantirAberto();
+        sincronizar();
+        if (sequenciaCoberta >= sequencia) {
+            canal.truncate(0);
+            canal.force(true);
+            return;
+        }
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (BufferedReader reader = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8);
+             FileChannel destino = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                if (linha.isBlank() || lerSequencia(linha) <= sequenciaCoberta) {
+                    continue;
+                }
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(linha + '\n');
+                while (bytes.hasRemaining()) {
+                    destino.write(bytes);
+                }
+            }
+            destino.force(true);
+        }
+        canal.close();
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        canal = abrirCanal(arquivo);
+    }
+
+    /**
+     * @return sequência do último registro gravado nesta sessão.
+     */
+    public synchronized long ultimaSequencia() {
+        return sequencia;
+    }
+
+    /**
+     * @return {@code true} quando não há registros pendentes de checkpoint.
+     * @throws IOException se o tamanho do arquivo não puder ser obtido.
+     */
+    public synchronized boolean vazio() throws IOException {
+        garantirAberto();
+        return canal.size() == 0;
+    }
+
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (fechado) {
+            return;
+        }
+        try {
+            sincronizar();
+        } finally {
+            fechado = true;
+            if (sincronizador != null) {
+                sincronizador.shutdownNow();
+            }
+            canal.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JournalOperacoes[" + arquivo + ", " + configuracao + "]";
+    }
+
+    private void escreverLinha(Writer writer, RegistroJournal registro, long numero) throws IOException {
+        JsonWriter out = new JsonWriter(writer);
+        out.setSerializeNulls(false);
+        out.beginObject();
+        out.name(CAMPO_SEQUENCIA).value(numero);
+        out.name(CAMPO_TIPO).value(registro.getTipo().name());
+        out.name(CAMPO_COLECAO).value(registro.getColecao().getChave());
+        out.name(CAMPO_CHAVE).value(registro.getChave());
+        if (registro.getTipo() == RegistroJournal.Tipo.GRAVACAO) {
+            out.name(CAMPO_DADOS);
+            JsonStorage.adapterRaiz(registro.getColecao()).write(out, registro.getEntidade());
+        }
+        out.endObject();
+        out.flush();
+        writer.write('\n');
+    }
+
+    private RegistroJournal lerLinha(String linha) {
+        JsonObject json = JsonParser.parseString(linha).getAsJsonObject();
+        long numero = json.get(CAMPO_SEQUENCIA).getAsLong();
+        RegistroJournal.Tipo tipo = RegistroJournal.Tipo.valueOf(json.get(CAMPO_TIPO).getAsString());
+        String chaveColecao = json.get(CAMPO_COLECAO).getAsString();
+        ColecaoSnapshot colecao = ColecaoSnapshot.porChave(chaveColecao)
+                .orElseThrow(() -> new IllegalArgumentException("Coleção desconhecida no journal: " + chaveColecao));
+        String chave = json.get(CAMPO_CHAVE).getAsString();
+        if (tipo == RegistroJournal.Tipo.REMOCAO) {
+            return RegistroJournal.remocao(colecao, chave).comSequencia(numero);
+        }
+        JsonElement dados = json.get(CAMPO_DADOS);
+        Object entidade = JsonStorage.adapterRaiz(colecao).fromJsonTree(dados);
+        return RegistroJournal.gravacao(colecao, entidade).comSequencia(numero);
+    }
+
+    /**
+     * Regrava, em ordem de dependência, as entidades que referenciam uma
+     * versão diferente da registrada em {@code referencias}. Cada entidade
+     * afetada é serializada com referências e lida de volta, o que a liga às
+     * versões finais; as religadas são registradas para que as coleções
+     * seguintes (contas, caixas) também apontem para elas.
+     *
+     * @return quantidade de entidades religadas.
+     */
+    private static int religar(DataSnapshot estadoBase, Map<ColecaoSnapshot, Map<String, Object>> reaplicados,
+                               ReferenciaAdapterFactory.Referencias referencias,
+                               Consumer<RegistroJournal> destino) {
+        Set<ColecaoSnapshot> alteradas = EnumSet.noneOf(ColecaoSnapshot.class);
+        reaplicados.keySet().stream().filter(ReferenciasSnapshot::referenciavel).forEach(alteradas::add);
+        int total = 0;
+        for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+            if (Collections.disjoint(colecao.getDependencias(), alteradas)) {
+                continue;
+            }
+            Map<String, Object> daColecao = reaplicados.getOrDefault(colecao, Map.of());
+            List<Object> candidatas = new ArrayList<>();
+            for (Object elemento : estadoBase.elementos(colecao)) {
+                if (!daColecao.containsKey(colecao.chaveDe(elemento))) {
+                    candidatas.add(elemento);
+                }
+            }
+            daColecao.values().stream().filter(Objects::nonNull).forEach(candidatas::add);
+            TypeAdapter<Object> adapter = JsonStorage.adapterRaiz(colecao);
+            for (Object elemento : candidatas) {
+                boolean desatualizada = colecao.possuiReferencia(elemento, (dependencia, entidade) -> {
+                    Object atual = referencias.resolver(dependencia.getTipo(), dependencia.chaveDe(entidade));
+                    return atual != null && atual != entidade;
+                });
+                if (!desatualizada) {
+                    continue;
+                }
+                Object religada = adapter.fromJsonTree(adapter.toJsonTree(elemento));
+                ReferenciasSnapshot.registrar(referencias, colecao, religada);
+                destino.accept(RegistroJournal.gravacao(colecao, religada));
+                alteradas.add(colecao);
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private static long lerSequencia(String linha) {
+        return JsonParser.parseString(linha).getAsJsonObject().get(CAMPO_SEQUENCIA).getAsLong();
+    }
+
+    /**
+     * Percorre o arquivo existente para descobrir a última sequência válida e
+     * descarta bytes após a última linha completa.
+     */
+    private void recuperar() throws IOException {
+        if (!Files.exists(arquivo)) {
+            return;
+        }
+        long tamanhoValido = 0;
+        long posicao = 0;
+        ByteArrayOutputStream linha = new ByteArrayOutputStream();
+        try (InputStream in = new java.io.BufferedInputStream(Files.newInputStream(arquivo))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                posicao++;
+                if (b != '\n') {
+                    linha.write(b);
+                    continue;
+                }
+                String conteudo = linha.toString(StandardCharsets.UTF_8);
+                linha.reset();
+                if (!conteudo.isBlank()) {
+                    try {
+                        sequencia = Math.max(sequencia, lerSequencia(conteudo));
+                    } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+                        break;
+                    }
+                }
+                tamanhoValido = posicao;
+            }
+        }
+        long tamanhoAtual = Files.size(arquivo);
+        if (tamanhoValido < tamanhoAtual) {
+            Log.warning("Journal %s: descartando %d byte(s) de registro incompleto",
+                    arquivo, tamanhoAtual - tamanhoValido);
+            try (FileChannel ajuste = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+                ajuste.truncate(tamanhoValido);
+                ajuste.force(true);
+            }
+        }
+    }
+
+    private static FileChannel abrirCanal(Path arquivo) throws IOException {
+        return FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private void garantirAberto() {
+        if (fechado) {
+            throw new IllegalStateException("Journal já foi fechado: " + arquivo);
+        }
+    }
+
+    private void sincronizarSilenciosamente() {
+        try {
+            synchronized (this) {
+                if (!fechado) {
+                    sincronizar();
+                }
+            }
+        } catch (IOException e) {
+            Log.error("Falha ao sincronizar journal " + arquivo, e);
+        }
+    }
+
+    private static ScheduledExecutorService criarSincronizador() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Política de sincronização (group commit) do journal.
+     */
+    public static final class Configuracao {
+
+        private final int operacoesPorGrupo;
+        private final Duration intervaloMaximo;
+
+        private Configuracao(int operacoesPorGrupo, Duration intervaloMaximo) {
+            if (operacoesPorGrupo <= 0) {
+                throw new IllegalArgumentException("operacoesPorGrupo deve ser positivo");
+            }
+            Objects.requireNonNull(intervaloMaximo, "intervaloMaximo não pode ser nulo");
+            if (intervaloMaximo.isNegative()) {
+                throw new IllegalArgumentException("intervaloMaximo não pode ser negativo");
+            }
+            this.operacoesPorGrupo = operacoesPorGrupo;
+            this.intervaloMaximo = intervaloMaximo;
+        }
+
+        /**
+         * Executa {@code fsync} ao final de cada operação (maior durabilidade).
+         */
+        public static Configuracao sincronizarSempre() {
+            return new Configuracao(1, Duration.ZERO);
+        }
+
+        /**
+         * Agrupa o {@code fsync}: sincroniza a cada {@code operacoesPorGrupo}
+         * operações ou, no máximo, após {@code intervaloMaximo}.
+         *
+         * @param operacoesPorGrupo quantidade de operações por sincronização.
+         * @param intervaloMaximo   atraso máximo tolerado; {@link Duration#ZERO} desativa o limite de tempo.
+         */
+        public static Configuracao emGrupo(int operacoesPorGrupo, Duration intervaloMaximo) {
+            return new Configuracao(operacoesPorGrupo, intervaloMaximo);
+        }
+
+        /**
+         * Delega a sincronização ao sistema operacional; o {@code fsync} só
+         * ocorre em checkpoints e no fechamento.
+         */
+        public static Configuracao semSincronizacao() {
+            return new Configuracao(Integer.MAX_VALUE, Duration.ZERO);
+        }
+
+        @Override
+        public String toString() {
+            return "Configuracao{"
+                    + "operacoesPorGrupo=" + (operacoesPorGrupo == Integer.MAX_VALUE ? "∞" : operacoesPorGrupo)
+                    + ", intervaloMaximo=" + intervaloMaximo
+                    + '}';
+        }
+    }
+}
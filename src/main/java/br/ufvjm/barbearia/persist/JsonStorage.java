@@ -3,20 +3,42 @@ package br.ufvjm.barbearia.persist;
 import br.ufvjm.barbearia.persist.adapters.DinheiroAdapter;
 import br.ufvjm.barbearia.persist.adapters.LocalDateAdapter;
 import br.ufvjm.barbearia.persist.adapters.LocalDateTimeAdapter;
+import br.ufvjm.barbearia.persist.adapters.ModeloAdapterFactory;
+import br.ufvjm.barbearia.persist.adapters.ReferenciaAdapterFactory;
 import br.ufvjm.barbearia.persist.adapters.YearMonthAdapter;
+import br.ufvjm.barbearia.util.Log;
 import br.ufvjm.barbearia.value.Dinheiro;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utilitário responsável por persistir e recuperar snapshots do sistema em arquivos JSON.
@@ -31,11 +53,32 @@ import java.util.Objects;
  * Regras e cuidados adotados:
  * </p>
  * <ul>
- *     <li>Cria diretórios automaticamente antes de salvar.</li>
+ *     <li>Cria diretórios automaticamente antes de salvar e substitui o arquivo
+ *     de forma atômica ({@link ArquivoAtomico}), preservando opcionalmente
+ *     gerações anteriores.</li>
  *     <li>Ao carregar, retorna snapshot vazio caso o arquivo não exista ou não
  *     possua conteúdo válido.</li>
  *     <li>Utiliza {@link StandardCharsets#UTF_8} para evitar problemas de
  *     acentuação.</li>
+ *     <li>Grava e lê cada coleção elemento a elemento com {@link JsonWriter} e
+ *     {@link JsonReader}: o pico de memória da operação é limitado pela maior
+ *     entidade, e não pelo tamanho do arquivo.</li>
+ *     <li>Cada entidade é gravada por completo apenas na sua coleção; dentro de
+ *     outras entidades ela aparece como referência pelo {@code id} (ver
+ *     {@link ReferenciaAdapterFactory}). Na leitura as referências são
+ *     resolvidas para a mesma instância, e arquivos antigos, com entidades
+ *     embutidas, continuam legíveis.</li>
+ *     <li>As classes do modelo são convertidas pelos adapters escritos à mão
+ *     de {@link ModeloAdapterFactory}, sem reflexão; o JSON gerado é o mesmo
+ *     que o adapter reflexivo do Gson produzia.</li>
+ *     <li>Opcionalmente, o snapshot é gravado compactado
+ *     ({@link #saveCompactado(DataSnapshot, Path, int)}): cada coleção vira
+ *     um documento JSON sem indentação, dividido em blocos deflate
+ *     comprimidos e descomprimidos em paralelo ({@link BlocosDeflate}). O
+ *     índice de blocos permite ler apenas as coleções desejadas.</li>
+ *     <li>Todo documento começa com a versão do esquema
+ *     ({@link EsquemaSnapshot}); documentos de versões anteriores são migrados
+ *     registro a registro durante a leitura.</li>
  * </ul>
  *
  * <p>
@@ -45,12 +88,17 @@ import java.util.Objects;
  * Path arquivo = Path.of("data/sistema.json");
  * sistema.saveAll(arquivo);      // delega para JsonStorage.save
  * sistema.loadAll(arquivo);      // delega para JsonStorage.load
+ *
+ * // leitura incremental, sem montar o snapshot completo
+ * JsonStorage.load(arquivo, (colecao, elemento) -> processar(colecao, elemento));
  * }
  * </pre>
  */
 public final class JsonStorage {
 
+    private static final ReferenciaAdapterFactory REFERENCIAS = ReferenciasSnapshot.factory();
     private static final Gson GSON = createGson();
+    private static final Map<ColecaoSnapshot, TypeAdapter<Object>> ADAPTERS_RAIZ = createAdaptersRaiz();
     private static final JsonStorage DEBUG_VIEW = new JsonStorage();
 
     private JsonStorage() {
@@ -63,35 +111,414 @@ public final class JsonStorage {
                 .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
                 .registerTypeAdapter(YearMonth.class, new YearMonthAdapter())
                 .registerTypeAdapter(Dinheiro.class, new DinheiroAdapter())
+                .registerTypeAdapterFactory(new ModeloAdapterFactory())
+                .registerTypeAdapterFactory(REFERENCIAS)
                 .setPrettyPrinting();
         return builder.create();
     }
 
+    /**
+     * Adapters usados para os elementos de topo de cada coleção: ignoram a
+     * fábrica de referências apenas no primeiro nível, para que a própria
+     * entidade seja gravada por completo.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<ColecaoSnapshot, TypeAdapter<Object>> createAdaptersRaiz() {
+        Map<ColecaoSnapshot, TypeAdapter<Object>> adapters = new EnumMap<>(ColecaoSnapshot.class);
+        for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+            adapters.put(colecao, (TypeAdapter<Object>) GSON.getDelegateAdapter(REFERENCIAS,
+                    TypeToken.get(colecao.getTipo())));
+        }
+        return adapters;
+    }
+
+    /**
+     * Instância configurada com os adapters do projeto, compartilhada com os
+     * demais componentes de persistência do pacote.
+     */
+    static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * Adapter de um elemento de topo da coleção: grava a entidade por completo
+     * e usa referências apenas nas entidades aninhadas.
+     */
+    static TypeAdapter<Object> adapterRaiz(ColecaoSnapshot colecao) {
+        return ADAPTERS_RAIZ.get(colecao);
+    }
+
+    /**
+     * Grava o snapshot coleção por coleção, serializando um elemento por vez.
+     *
+     * @param data snapshot a ser persistido.
+     * @param file arquivo de destino.
+     * @throws IOException se ocorrer erro de escrita.
+     */
     public static void save(DataSnapshot data, Path file) throws IOException {
+        save(data, file, 0);
+    }
+
+    /**
+     * Grava o snapshot substituindo o arquivo de forma atômica e mantendo as
+     * últimas {@code geracoes} versões anteriores.
+     *
+     * @param data     snapshot a ser persistido.
+     * @param file     arquivo de destino.
+     * @param geracoes versões anteriores a preservar (0 desativa).
+     * @throws IOException se ocorrer erro de escrita; o arquivo anterior permanece intacto.
+     */
+    public static void save(DataSnapshot data, Path file, int geracoes) throws IOException {
+        Objects.requireNonNull(data, "data não pode ser nulo");
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        data.exigirCompleto();
+        ArquivoAtomico.substituir(file, geracoes, temporario -> escrever(data, temporario));
+    }
+
+    /**
+     * Serializa o snapshot em um temporário ao lado de {@code file}, para
+     * troca posterior ({@link GravacaoPreparada}).
+     */
+    static GravacaoPreparada preparar(DataSnapshot data, Path file) throws IOException {
         Objects.requireNonNull(data, "data não pode ser nulo");
         Objects.requireNonNull(file, "file não pode ser nulo");
+        data.exigirCompleto();
+        return ArquivoAtomico.preparar(file, temporario -> escrever(data, temporario));
+    }
 
-        Path parent = file.getParent();
-        if (parent != null) {
-            Files.createDirectories(parent);
+    @SuppressWarnings("try")
+    private static void escrever(DataSnapshot data, Path file) throws IOException {
+        ReferenciaAdapterFactory.Referencias referencias = ReferenciasSnapshot.de(data);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             JsonWriter out = GSON.newJsonWriter(writer);
+             ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+            out.beginObject();
+            EsquemaSnapshot.escreverCabecalho(out);
+            for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+                escreverColecao(out, colecao, data.elementos(colecao));
+            }
+            out.endObject();
         }
+    }
 
-        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
-            GSON.toJson(data, writer);
+    /**
+     * Grava uma coleção como campo do objeto aberto em {@code out}. Deve ser
+     * chamado com as referências do snapshot ativas na thread atual.
+     */
+    static void escreverColecao(JsonWriter out, ColecaoSnapshot colecao, Iterable<?> elementos)
+            throws IOException {
+        TypeAdapter<Object> adapter = ADAPTERS_RAIZ.get(colecao);
+        out.name(colecao.getChave());
+        out.beginArray();
+        for (Object elemento : elementos) {
+            adapter.write(out, elemento);
         }
+        out.endArray();
     }
 
+    /**
+     * Carrega o snapshot completo em memória.
+     *
+     * @param file arquivo JSON gerado por {@link #save(DataSnapshot, Path)}.
+     * @return snapshot lido ou vazio quando o arquivo não existe.
+     * @throws IOException se ocorrer erro de leitura.
+     */
     public static DataSnapshot load(Path file) throws IOException {
+        DataSnapshot.Coletor coletor = DataSnapshot.coletor();
+        load(file, coletor);
+        return coletor.build();
+    }
+
+    /**
+     * Lê o snapshot em modo streaming, entregando cada elemento ao
+     * {@code sink} assim que é desserializado.
+     * <p>
+     * Chaves desconhecidas e coleções nulas são ignoradas, e documentos de
+     * versões anteriores do esquema são migrados registro a registro
+     * ({@link EsquemaSnapshot}), de modo que arquivos produzidos por versões
+     * anteriores continuam legíveis. Quando o arquivo não existe ou está vazio,
+     * nenhum elemento é entregue.
+     * </p>
+     *
+     * @param file arquivo JSON de origem.
+     * @param sink destino dos elementos lidos.
+     * @throws IOException se ocorrer erro de leitura ou o conteúdo for inválido.
+     */
+    @SuppressWarnings("try")
+    public static void load(Path file, SnapshotSink sink) throws IOException {
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        Objects.requireNonNull(sink, "sink não pode ser nulo");
+
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        ReferenciaAdapterFactory.Referencias referencias = new ReferenciaAdapterFactory.Referencias();
+        EsquemaSnapshot.Leitura esquema = new EsquemaSnapshot.Leitura();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             JsonReader in = GSON.newJsonReader(reader);
+             ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+            if (documentoVazio(in)) {
+                return;
+            }
+            lerDocumento(in, sink, referencias, esquema);
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Snapshot inválido em " + file, e);
+        }
+        registrarMigracao(file, esquema);
+    }
+
+    private static void lerDocumento(JsonReader in, SnapshotSink sink,
+                                     ReferenciaAdapterFactory.Referencias referencias,
+                                     EsquemaSnapshot.Leitura esquema) throws IOException {
+        esquema.iniciarDocumento();
+        in.beginObject();
+        while (in.hasNext()) {
+            String nome = in.nextName();
+            if (EsquemaSnapshot.CAMPO_VERSAO.equals(nome)) {
+                esquema.lerCabecalho(in);
+                continue;
+            }
+            ColecaoSnapshot colecao = ColecaoSnapshot.porChave(nome).orElse(null);
+            if (colecao == null || in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+            lerColecao(in, colecao, sink, referencias, esquema.migrador());
+        }
+        in.endObject();
+    }
+
+    private static void registrarMigracao(Path file, EsquemaSnapshot.Leitura esquema) {
+        if (esquema.getMenorVersao() < EsquemaSnapshot.VERSAO_ATUAL) {
+            Log.info("Snapshot %s no esquema v%d migrado em memória para v%d; "
+                    + "grave-o novamente para atualizar o arquivo", file.toAbsolutePath(), esquema.getMenorVersao(), EsquemaSnapshot.VERSAO_ATUAL);
+        }
+    }
+
+    static boolean documentoVazio(JsonReader in) throws IOException {
+        JsonToken inicio;
+        try {
+            inicio = in.peek();
+        } catch (EOFException e) {
+            return true;
+        }
+        if (inicio == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return inicio == JsonToken.END_DOCUMENT;
+    }
+
+    /**
+     * Lê o array de uma coleção, registrando cada elemento em {@code referencias}
+     * antes de entregá-lo ao {@code sink}.
+     */
+    static void lerColecao(JsonReader in, ColecaoSnapshot colecao, SnapshotSink sink,
+                           ReferenciaAdapterFactory.Referencias referencias) throws IOException {
+        lerColecao(in, colecao, sink, referencias, null);
+    }
+
+    /**
+     * Variante que passa cada registro pelo {@code migrador} antes de convertê-lo,
+     * para documentos de versões anteriores do esquema.
+     */
+    static void lerColecao(JsonReader in, ColecaoSnapshot colecao, SnapshotSink sink,
+                           ReferenciaAdapterFactory.Referencias referencias,
+                           EsquemaSnapshot.Migrador migrador) throws IOException {
+        TypeAdapter<Object> adapter = ADAPTERS_RAIZ.get(colecao);
+        sink.iniciarColecao(colecao);
+        int total = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            Object elemento = migrador == null
+                    ? adapter.read(in)
+                    : adapter.fromJsonTree(migrador.migrar(colecao, JsonParser.parseReader(in)));
+            if (elemento != null) {
+                ReferenciasSnapshot.registrar(referencias, colecao, elemento);
+                sink.aceitar(colecao, elemento);
+                total++;
+            }
+        }
+        in.endArray();
+        sink.finalizarColecao(colecao, total);
+    }
+
+    /**
+     * Grava o snapshot no formato compactado, substituindo o arquivo de forma
+     * atômica e mantendo as últimas {@code geracoes} versões anteriores.
+     * <p>
+     * A serialização continua em streaming: os bytes JSON de cada coleção são
+     * acumulados em blocos de tamanho fixo, comprimidos no pool de
+     * {@link BlocosDeflate} enquanto os seguintes são produzidos. A razão de
+     * compressão e a vazão são registradas no log.
+     * </p>
+     *
+     * @param data     snapshot a ser persistido.
+     * @param file     arquivo de destino.
+     * @param geracoes versões anteriores a preservar (0 desativa).
+     * @throws IOException se ocorrer erro de escrita; o arquivo anterior permanece intacto.
+     */
+    public static void saveCompactado(DataSnapshot data, Path file, int geracoes) throws IOException {
+        Objects.requireNonNull(data, "data não pode ser nulo");
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        data.exigirCompleto();
+        ArquivoAtomico.substituir(file, geracoes, temporario -> escreverCompactado(data, temporario, file));
+    }
+
+    /**
+     * Serializa o snapshot compactado em um temporário ao lado de
+     * {@code file}, para troca posterior ({@link GravacaoPreparada}).
+     */
+    static GravacaoPreparada prepararCompactado(DataSnapshot data, Path file) throws IOException {
+        Objects.requireNonNull(data, "data não pode ser nulo");
         Objects.requireNonNull(file, "file não pode ser nulo");
+        data.exigirCompleto();
+        return ArquivoAtomico.preparar(file, temporario -> escreverCompactado(data, temporario, file));
+    }
+
+    @SuppressWarnings("try")
+    private static void escreverCompactado(DataSnapshot data, Path file, Path destino) throws IOException {
+        ReferenciaAdapterFactory.Referencias referencias = ReferenciasSnapshot.de(data);
+        long inicio = System.nanoTime();
+        BlocosDeflate.Escritor container = BlocosDeflate.criar(file);
+        try (container;
+             ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+            for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(container.abrirSecao(colecao),
+                        StandardCharsets.UTF_8));
+                     JsonWriter out = GSON.newJsonWriter(writer)) {
+                    out.setIndent("");
+                    out.beginObject();
+                    EsquemaSnapshot.escreverCabecalho(out);
+                    escreverColecao(out, colecao, data.elementos(colecao));
+                    out.endObject();
+                }
+            }
+        }
+        registrarVazao("gravado", destino, container.getBytesOriginais(), container.getBytesGravados(),
+                container.getBlocos(), System.nanoTime() - inicio);
+    }
+
+    /**
+     * Lê um snapshot compactado por completo.
+     *
+     * @param file arquivo gerado por {@link #saveCompactado(DataSnapshot, Path, int)}.
+     * @param sink destino dos elementos lidos.
+     * @throws IOException se ocorrer erro de leitura ou algum bloco estiver corrompido.
+     */
+    public static void loadCompactado(Path file, SnapshotSink sink) throws IOException {
+        loadCompactado(file, EnumSet.allOf(ColecaoSnapshot.class), sink);
+    }
+
+    /**
+     * Lê apenas as coleções pedidas de um snapshot compactado, usando o índice
+     * de blocos para pular as demais. As coleções das quais elas dependem
+     * ({@link ColecaoSnapshot#getDependencias()}) também são lidas, para que as
+     * referências por {@code id} sejam resolvidas, mas não são entregues ao
+     * {@code sink}.
+     *
+     * @param file     arquivo gerado por {@link #saveCompactado(DataSnapshot, Path, int)}.
+     * @param colecoes coleções a entregar.
+     * @param sink     destino dos elementos lidos.
+     * @throws IOException se ocorrer erro de leitura ou algum bloco estiver corrompido.
+     */
+    @SuppressWarnings("try")
+    public static void loadCompactado(Path file, Set<ColecaoSnapshot> colecoes, SnapshotSink sink)
+            throws IOException {
+        Objects.requireNonNull(file, "file não pode ser nulo");
+        Objects.requireNonNull(colecoes, "colecoes não pode ser nulo");
+        Objects.requireNonNull(sink, "sink não pode ser nulo");
 
         if (!Files.exists(file)) {
-            return new DataSnapshot();
+            return;
+        }
+
+        Set<ColecaoSnapshot> necessarias = comDependencias(colecoes);
+        SnapshotSink filtrado = colecoes.containsAll(necessarias) ? sink : filtrar(sink, colecoes);
+        ReferenciaAdapterFactory.Referencias referencias = new ReferenciaAdapterFactory.Referencias();
+        EsquemaSnapshot.Leitura esquema = new EsquemaSnapshot.Leitura();
+        long inicio = System.nanoTime();
+        long originais = 0;
+        long comprimidos = 0;
+        int blocos = 0;
+        try (BlocosDeflate.Leitor leitor = BlocosDeflate.abrir(file);
+             ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+            for (BlocosDeflate.Bloco bloco : leitor.getBlocos()) {
+                if (necessarias.contains(bloco.getColecao())) {
+                    originais += bloco.getOriginal();
+                    comprimidos += bloco.getComprimido();
+                    blocos++;
+                }
+            }
+            BlocosDeflate.Leitor.Sequencia sequencia = leitor.ler(necessarias);
+            try {
+                while (sequencia.proximaColecao() != null) {
+                    try (Reader reader = new BufferedReader(new InputStreamReader(sequencia.proximaSecao(),
+                            StandardCharsets.UTF_8));
+                         JsonReader in = GSON.newJsonReader(reader)) {
+                        lerDocumento(in, filtrado, referencias, esquema);
+                    }
+                }
+            } finally {
+                sequencia.cancelar();
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Snapshot compactado inválido em " + file, e);
         }
+        registrarVazao("lido", file, originais, comprimidos, blocos, System.nanoTime() - inicio);
+        registrarMigracao(file, esquema);
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            DataSnapshot snapshot = GSON.fromJson(reader, DataSnapshot.class);
-            return snapshot != null ? snapshot : new DataSnapshot();
+    private static Set<ColecaoSnapshot> comDependencias(Set<ColecaoSnapshot> colecoes) {
+        Set<ColecaoSnapshot> resultado = EnumSet.noneOf(ColecaoSnapshot.class);
+        Deque<ColecaoSnapshot> aVisitar = new ArrayDeque<>(colecoes);
+        while (!aVisitar.isEmpty()) {
+            ColecaoSnapshot colecao = aVisitar.pop();
+            if (resultado.add(colecao)) {
+                aVisitar.addAll(colecao.getDependencias());
+            }
         }
+        return resultado;
+    }
+
+    private static SnapshotSink filtrar(SnapshotSink sink, Set<ColecaoSnapshot> colecoes) {
+        return new SnapshotSink() {
+            @Override
+            public void aceitar(ColecaoSnapshot colecao, Object elemento) {
+                if (colecoes.contains(colecao)) {
+                    sink.aceitar(colecao, elemento);
+                }
+            }
+
+            @Override
+            public void iniciarColecao(ColecaoSnapshot colecao) {
+                if (colecoes.contains(colecao)) {
+                    sink.iniciarColecao(colecao);
+                }
+            }
+
+            @Override
+            public void finalizarColecao(ColecaoSnapshot colecao, int total) {
+                if (colecoes.contains(colecao)) {
+                    sink.finalizarColecao(colecao, total);
+                }
+            }
+        };
+    }
+
+    private static void registrarVazao(String operacao, Path file, long originais, long comprimidos, int blocos,
+                                       long nanos) {
+        double segundos = Math.max(nanos, 1) / 1e9;
+        Log.info("Snapshot compactado %s em %s: %d -> %d bytes (razão %.2f) em %d bloco(s), %d ms, %.1f MB/s",
+                operacao, file.toAbsolutePath(), originais, comprimidos,
+                comprimidos == 0 ? 0.0 : (double) originais / comprimidos, blocos,
+                TimeUnit.NANOSECONDS.toMillis(nanos), originais / segundos / (1024 * 1024));
+    }
+
+    static boolean possuiAssinaturaCompactada(Path file) throws IOException {
+        return BlocosDeflate.possuiAssinatura(file);
     }
 
     public static String description() {
@@ -100,6 +527,6 @@ public final class JsonStorage {
 
     @Override
     public String toString() {
-        return "JsonStorage[persistência JSON com Gson (adapters: LocalDateTime, LocalDate, YearMonth, Dinheiro)]";
+        return "JsonStorage[persistência JSON em streaming com Gson (adapters: LocalDateTime, LocalDate, YearMonth, Dinheiro, referências por id; esquema v" + EsquemaSnapshot.VERSAO_ATUAL + "; contêiner compactado opcional)]";
     }
 }
@@ -0,0 +1,149 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.persist.adapters.ReferenciaAdapterFactory;
+import br.ufvjm.barbearia.util.Log;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Partições mensais de vendas, contas e caixas ainda não lidas de um
+ * {@link DiretorioSnapshot} aberto sob demanda.
+ * <p>
+ * Cada chamada a {@link #carregar(YearMonth, SnapshotSink)} lê apenas os
+ * arquivos da competência pedida, mais as vendas e contas de outros meses
+ * referenciadas pelos caixas dela, e entrega os elementos ao sink informado.
+ * As entidades já carregadas continuam registradas para resolução de
+ * referências, de modo que as instâncias lidas depois compartilham os mesmos
+ * clientes, produtos e agendamentos.
+ * </p>
+ *
+ * <pre>{@code
+ * DataSnapshot atual = DiretorioSnapshot.loadSobDemanda(dir, YearMonth.now());
+ * atual.getHistoricoPendente().ifPresent(historico ->
+ *         historico.carregar(YearMonth.of(2024, 12), coletor));
+ * }</pre>
+ */
+public final class ParticoesHistoricas {
+
+    private final Path diretorio;
+    private final NavigableMap<YearMonth, List<DiretorioSnapshot.Entrada>> pendentes;
+    private final ReferenciaAdapterFactory.Referencias referencias;
+
+    ParticoesHistoricas(Path diretorio, NavigableMap<YearMonth, List<DiretorioSnapshot.Entrada>> pendentes,
+                        ReferenciaAdapterFactory.Referencias referencias) {
+        this.diretorio = Objects.requireNonNull(diretorio, "diretorio não pode ser nulo");
+        this.pendentes = Objects.requireNonNull(pendentes, "pendentes não pode ser nulo");
+        this.referencias = Objects.requireNonNull(referencias, "referencias não pode ser nulo");
+    }
+
+    public Path getDiretorio() {
+        return diretorio;
+    }
+
+    /**
+     * @return competências com alguma partição ainda não lida, em ordem cronológica.
+     */
+    public synchronized Set<YearMonth> getPendentes() {
+        return Collections.unmodifiableSet(new TreeSet<>(pendentes.keySet()));
+    }
+
+    /**
+     * Partições ainda não lidas, por coleção. Uma competência pode estar
+     * parcialmente carregada quando apenas as vendas ou contas dela foram
+     * lidas como dependência de um caixa.
+     */
+    synchronized Map<ColecaoSnapshot, Set<YearMonth>> particoesPendentes() {
+        Map<ColecaoSnapshot, Set<YearMonth>> resultado = new EnumMap<>(ColecaoSnapshot.class);
+        pendentes.forEach((competencia, entradas) -> {
+            for (DiretorioSnapshot.Entrada entrada : entradas) {
+                resultado.computeIfAbsent(entrada.getColecao(), c -> new TreeSet<>()).add(competencia);
+            }
+        });
+        return resultado;
+    }
+
+    public synchronized boolean isCarregada(YearMonth competencia) {
+        return !pendentes.containsKey(Objects.requireNonNull(competencia, "competencia não pode ser nula"));
+    }
+
+    /**
+     * Lê as partições da competência, caso ainda estejam pendentes.
+     *
+     * @param competencia mês desejado.
+     * @param sink        destino dos elementos lidos.
+     * @throws IOException se algum arquivo não puder ser lido ou estiver corrompido;
+     *                     nesse caso a competência continua pendente.
+     */
+    public synchronized void carregar(YearMonth competencia, SnapshotSink sink) throws IOException {
+        Objects.requireNonNull(competencia, "competencia não pode ser nula");
+        Objects.requireNonNull(sink, "sink não pode ser nulo");
+        carregarFecho(List.of(competencia), sink);
+    }
+
+    /**
+     * Lê todas as competências pendentes.
+     *
+     * @param sink destino dos elementos lidos.
+     * @throws IOException se algum arquivo não puder ser lido ou estiver corrompido.
+     */
+    public synchronized void carregarTodas(SnapshotSink sink) throws IOException {
+        Objects.requireNonNull(sink, "sink não pode ser nulo");
+        carregarFecho(new ArrayList<>(pendentes.keySet()), sink);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ParticoesHistoricas[" + diretorio + ", pendentes=" + pendentes.keySet() + "]";
+    }
+
+    /**
+     * Carrega as partições das competências pedidas e, para os caixas entre
+     * elas, as vendas e contas de outras competências que eles referenciam.
+     * Tudo é lido em uma única passagem, para que as referências sejam
+     * resolvidas independentemente da ordem.
+     */
+    private void carregarFecho(Collection<YearMonth> competencias, SnapshotSink sink) throws IOException {
+        Set<DiretorioSnapshot.Entrada> entradas = new LinkedHashSet<>();
+        for (YearMonth competencia : competencias) {
+            entradas.addAll(pendentes.getOrDefault(competencia, List.of()));
+        }
+        List<DiretorioSnapshot.Entrada> dependencias = new ArrayList<>();
+        for (DiretorioSnapshot.Entrada entrada : entradas) {
+            for (YearMonth outra : entrada.getDependencias()) {
+                for (DiretorioSnapshot.Entrada candidata : pendentes.getOrDefault(outra, List.of())) {
+                    if (candidata.getColecao() != ColecaoSnapshot.CAIXAS) {
+                        dependencias.add(candidata);
+                    }
+                }
+            }
+        }
+        entradas.addAll(dependencias);
+        if (entradas.isEmpty()) {
+            return;
+        }
+        Map<DiretorioSnapshot.Entrada, List<Object>> lidas =
+                DiretorioSnapshot.lerEntradas(diretorio, new ArrayList<>(entradas), referencias);
+        for (DiretorioSnapshot.Entrada entrada : entradas) {
+            YearMonth competencia = entrada.getCompetencia();
+            List<DiretorioSnapshot.Entrada> restantes = pendentes.get(competencia);
+            restantes.remove(entrada);
+            if (restantes.isEmpty()) {
+                pendentes.remove(competencia);
+            }
+        }
+        DiretorioSnapshot.entregar(lidas, sink);
+        Log.debug("Partições carregadas de %s: %d (pendentes: %s)", diretorio, entradas.size(), pendentes.keySet());
+    }
+}
@@ -0,0 +1,141 @@
+package br.ufvjm.barbearia.persist;
+
+import java.time.DateTimeException;
+import java.time.YearMonth;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Posição de um extrato no {@link ArquivoExtratos}: número do segmento e
+ * deslocamento do registro dentro dele ou, depois da compactação, mês do
+ * arquivo mensal e número da entrada nele.
+ * <p>
+ * É guardada nas entidades como texto ({@code segmento-000003.dat#40960} ou
+ * {@code extratos-2025-03.arq#17}), o mesmo campo que antes recebia o caminho
+ * de um arquivo avulso; por isso {@link #parse(String)} devolve vazio para
+ * referências antigas.
+ * </p>
+ */
+public final class ReferenciaExtrato {
+
+    private static final Pattern FORMATO = Pattern.compile("segmento-(\\d{6,})\\.dat#(\\d+)");
+    private static final Pattern FORMATO_MENSAL = Pattern.compile("extratos-(\\d{4})-(\\d{2})\\.arq#(\\d+)");
+
+    private final int segmento;
+    private final long offset;
+    private final YearMonth mes;
+
+    private ReferenciaExtrato(int segmento, long offset, YearMonth mes) {
+        this.segmento = segmento;
+        this.offset = offset;
+        this.mes = mes;
+    }
+
+    public static ReferenciaExtrato of(int segmento, long offset) {
+        if (segmento <= 0) {
+            throw new IllegalArgumentException("segmento deve ser positivo");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset não pode ser negativo");
+        }
+        return new ReferenciaExtrato(segmento, offset, null);
+    }
+
+    /**
+     * Referência de um extrato compactado no arquivo mensal.
+     *
+     * @param mes     mês de emissão do extrato.
+     * @param entrada número da entrada no arquivo do mês, a partir de 1.
+     */
+    public static ReferenciaExtrato mensal(YearMonth mes, long entrada) {
+        Objects.requireNonNull(mes, "mes não pode ser nulo");
+        if (mes.getYear() < 0 || mes.getYear() > 9999) {
+            throw new IllegalArgumentException("mes fora do intervalo suportado: " + mes);
+        }
+        if (entrada <= 0) {
+            throw new IllegalArgumentException("entrada deve ser positiva");
+        }
+        return new ReferenciaExtrato(0, entrada, mes);
+    }
+
+    /**
+     * Interpreta uma referência gravada nas entidades.
+     *
+     * @param referencia texto produzido por {@link #toString()} ou caminho de um extrato antigo.
+     * @return referência de segmento ou mensal, ou vazio quando o texto não está nesses formatos.
+     */
+    public static Optional<ReferenciaExtrato> parse(String referencia) {
+        Objects.requireNonNull(referencia, "referencia não pode ser nula");
+        try {
+            Matcher matcher = FORMATO.matcher(referencia);
+            if (matcher.matches()) {
+                return Optional.of(of(Integer.parseInt(matcher.group(1)), Long.parseLong(matcher.group(2))));
+            }
+            matcher = FORMATO_MENSAL.matcher(referencia);
+            if (matcher.matches()) {
+                YearMonth mes = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                return Optional.of(mensal(mes, Long.parseLong(matcher.group(3))));
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            return Optional.empty();
+        }
+        return Optional.empty();
+    }
+
+    static String nomeSegmento(int segmento) {
+        return String.format("segmento-%06d.dat", segmento);
+    }
+
+    static String nomeMensal(YearMonth mes) {
+        return String.format("extratos-%04d-%02d.arq", mes.getYear(), mes.getMonthValue());
+    }
+
+    /**
+     * @return número do segmento, ou {@code 0} para uma referência mensal.
+     */
+    public int getSegmento() {
+        return segmento;
+    }
+
+    /**
+     * @return deslocamento no segmento ou, para uma referência mensal, número da entrada.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public boolean isMensal() {
+        return mes != null;
+    }
+
+    /**
+     * @return mês do arquivo compactado, ou {@code null} para uma referência de segmento.
+     */
+    public YearMonth getMes() {
+        return mes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReferenciaExtrato)) {
+            return false;
+        }
+        ReferenciaExtrato that = (ReferenciaExtrato) o;
+        return segmento == that.segmento && offset == that.offset && Objects.equals(mes, that.mes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(segmento, offset, mes);
+    }
+
+    @Override
+    public String toString() {
+        return (mes != null ? nomeMensal(mes) : nomeSegmento(segmento)) + "#" + offset;
+    }
+}
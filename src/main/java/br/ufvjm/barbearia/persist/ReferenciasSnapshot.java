@@ -0,0 +1,74 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.persist.adapters.ReferenciaAdapterFactory;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Configuração de referências compartilhada pelos formatos de snapshot.
+ * <p>
+ * Define quais coleções podem ser referenciadas por {@code id} dentro de outras
+ * entidades e mantém a única {@link ReferenciaAdapterFactory} registrada nas
+ * instâncias de {@link com.google.gson.Gson} do pacote.
+ * </p>
+ */
+final class ReferenciasSnapshot {
+
+    /**
+     * Coleções cujas entidades aparecem dentro de outras e podem ser gravadas como referência.
+     */
+    private static final Set<ColecaoSnapshot> REFERENCIAVEIS = EnumSet.of(
+            ColecaoSnapshot.CLIENTES, ColecaoSnapshot.USUARIOS, ColecaoSnapshot.SERVICOS,
+            ColecaoSnapshot.PRODUTOS, ColecaoSnapshot.AGENDAMENTOS, ColecaoSnapshot.VENDAS,
+            ColecaoSnapshot.CONTAS);
+    private static final ReferenciaAdapterFactory FACTORY = criarFactory();
+
+    private ReferenciasSnapshot() {
+        // utilitário
+    }
+
+    static ReferenciaAdapterFactory factory() {
+        return FACTORY;
+    }
+
+    /**
+     * Indica se as entidades da coleção podem aparecer como referência dentro de outras.
+     */
+    static boolean referenciavel(ColecaoSnapshot colecao) {
+        return REFERENCIAVEIS.contains(colecao);
+    }
+
+    /**
+     * Registra uma entidade de topo, caso a sua coleção seja referenciável.
+     */
+    static void registrar(ReferenciaAdapterFactory.Referencias referencias, ColecaoSnapshot colecao,
+                          Object elemento) {
+        if (elemento != null && REFERENCIAVEIS.contains(colecao)) {
+            referencias.registrar(colecao.getTipo(), colecao.chaveDe(elemento), elemento);
+        }
+    }
+
+    /**
+     * Monta o registro com todas as entidades de topo de um snapshot.
+     */
+    static ReferenciaAdapterFactory.Referencias de(DataSnapshot data) {
+        ReferenciaAdapterFactory.Referencias referencias = new ReferenciaAdapterFactory.Referencias();
+        for (ColecaoSnapshot colecao : REFERENCIAVEIS) {
+            for (Object elemento : data.elementos(colecao)) {
+                registrar(referencias, colecao, elemento);
+            }
+        }
+        return referencias;
+    }
+
+    private static ReferenciaAdapterFactory criarFactory() {
+        Map<Class<?>, Function<Object, String>> chaves = new LinkedHashMap<>();
+        for (ColecaoSnapshot colecao : REFERENCIAVEIS) {
+            chaves.put(colecao.getTipo(), colecao::chaveDe);
+        }
+        return new ReferenciaAdapterFactory(chaves);
+    }
+}
@@ -0,0 +1,101 @@
+package br.ufvjm.barbearia.persist;
+
+import java.util.Objects;
+
+/**
+ * Registro individual do {@link JournalOperacoes}.
+ * <p>
+ * Cada registro descreve o estado resultante de uma entidade após uma operação
+ * do sistema: uma gravação carrega a entidade completa e uma remoção carrega
+ * apenas a chave. Por representarem estado (e não a operação em si), os
+ * registros podem ser reaplicados quantas vezes for necessário sem efeitos
+ * colaterais, como a geração repetida de extratos.
+ * </p>
+ */
+public final class RegistroJournal {
+
+    /**
+     * Natureza da alteração registrada.
+     */
+    public enum Tipo {
+        GRAVACAO, REMOCAO
+    }
+
+    private final long sequencia;
+    private final Tipo tipo;
+    private final ColecaoSnapshot colecao;
+    private final String chave;
+    private final Object entidade;
+
+    private RegistroJournal(long sequencia, Tipo tipo, ColecaoSnapshot colecao, String chave, Object entidade) {
+        this.sequencia = sequencia;
+        this.tipo = Objects.requireNonNull(tipo, "tipo não pode ser nulo");
+        this.colecao = Objects.requireNonNull(colecao, "colecao não pode ser nula");
+        this.chave = Objects.requireNonNull(chave, "chave não pode ser nula");
+        this.entidade = entidade;
+    }
+
+    /**
+     * Cria o registro de inclusão ou atualização de uma entidade.
+     *
+     * @param colecao  coleção de destino.
+     * @param entidade estado atual da entidade.
+     * @return registro ainda sem número de sequência.
+     */
+    public static RegistroJournal gravacao(ColecaoSnapshot colecao, Object entidade) {
+        Objects.requireNonNull(colecao, "colecao não pode ser nula");
+        Objects.requireNonNull(entidade, "entidade não pode ser nula");
+        return new RegistroJournal(0, Tipo.GRAVACAO, colecao, colecao.chaveDe(entidade), entidade);
+    }
+
+    /**
+     * Cria o registro de remoção de uma entidade.
+     *
+     * @param colecao coleção de origem.
+     * @param chave   chave lógica da entidade removida (ver {@link ColecaoSnapshot#chaveDe(Object)}).
+     * @return registro ainda sem número de sequência.
+     */
+    public static RegistroJournal remocao(ColecaoSnapshot colecao, Object chave) {
+        Objects.requireNonNull(chave, "chave não pode ser nula");
+        return new RegistroJournal(0, Tipo.REMOCAO, colecao, chave.toString(), null);
+    }
+
+    RegistroJournal comSequencia(long novaSequencia) {
+        return new RegistroJournal(novaSequencia, tipo, colecao, chave, entidade);
+    }
+
+    public long getSequencia() {
+        return sequencia;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public ColecaoSnapshot getColecao() {
+        return colecao;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    /**
+     * Entidade gravada; {@code null} para registros de remoção.
+     *
+     * @return instância do tipo {@link ColecaoSnapshot#getTipo()}.
+     */
+    public Object getEntidade() {
+        return entidade;
+    }
+
+    @Override
+    public String toString() {
+        return "RegistroJournal{"
+                + "sequencia=" + sequencia
+                + ", tipo=" + tipo
+                + ", colecao=" + colecao
+                + ", chave='" + chave + '\''
+                + '}';
+    }
+}
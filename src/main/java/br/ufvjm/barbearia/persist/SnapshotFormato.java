@@ -0,0 +1,133 @@
+package br.ufvjm.barbearia.persist;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Formatos de arquivo suportados para o snapshot do sistema.
+ * <p>
+ * Arquivos existentes são identificados pela assinatura dos formatos binário e
+ * JSON compactado, e diretórios existentes são tratados como
+ * {@link DiretorioSnapshot}. Caminhos novos são classificados pela extensão:
+ * {@code .bin} para binário, {@code .jsonz} para JSON compactado, nenhuma
+ * extensão para diretório e qualquer outra para JSON. Assim,
+ * {@link br.ufvjm.barbearia.system.Sistema} troca de formato apenas mudando o
+ * caminho informado.
+ * </p>
+ */
+public enum SnapshotFormato {
+    JSON,
+    JSON_COMPACTADO,
+    BINARIO,
+    DIRETORIO;
+
+    private static final String EXTENSAO_BINARIA = ".bin";
+    private static final String EXTENSAO_COMPACTADA = ".jsonz";
+
+    /**
+     * Detecta o formato a ser usado para o caminho informado.
+     *
+     * @param arquivo snapshot existente ou destino de uma nova gravação.
+     * @return formato correspondente.
+     * @throws IOException se o arquivo existir e não puder ser lido.
+     */
+    public static SnapshotFormato detectar(Path arquivo) throws IOException {
+        Objects.requireNonNull(arquivo, "arquivo não pode ser nulo");
+        if (Files.isDirectory(arquivo)) {
+            return DIRETORIO;
+        }
+        if (Files.isRegularFile(arquivo) && Files.size(arquivo) > 0) {
+            if (BinarySnapshotStore.possuiAssinatura(arquivo)) {
+                return BINARIO;
+            }
+            return JsonStorage.possuiAssinaturaCompactada(arquivo) ? JSON_COMPACTADO : JSON;
+        }
+        String nome = arquivo.getFileName() != null ? arquivo.getFileName().toString() : "";
+        String minusculo = nome.toLowerCase(Locale.ROOT);
+        if (minusculo.endsWith(EXTENSAO_BINARIA)) {
+            return BINARIO;
+        }
+        if (minusculo.endsWith(EXTENSAO_COMPACTADA)) {
+            return JSON_COMPACTADO;
+        }
+        return nome.isEmpty() || nome.indexOf('.') >= 0 ? JSON : DIRETORIO;
+    }
+
+    public void salvar(DataSnapshot data, Path arquivo) throws IOException {
+        salvar(data, arquivo, 0);
+    }
+
+    /**
+     * Grava o snapshot de forma atômica mantendo {@code geracoes} versões
+     * anteriores. No formato {@link #DIRETORIO} as gerações não se aplicam: o
+     * manifesto garante a troca atômica e apenas a versão atual é mantida.
+     */
+    public void salvar(DataSnapshot data, Path arquivo, int geracoes) throws IOException {
+        switch (this) {
+            case BINARIO:
+                BinarySnapshotStore.save(data, arquivo, geracoes);
+                break;
+            case DIRETORIO:
+                DiretorioSnapshot.save(data, arquivo);
+                break;
+            case JSON_COMPACTADO:
+                JsonStorage.saveCompactado(data, arquivo, geracoes);
+                break;
+            case JSON:
+            default:
+                JsonStorage.save(data, arquivo, geracoes);
+        }
+    }
+
+    /**
+     * Serializa o snapshot sem trocar o destino; a troca fica para
+     * {@link GravacaoPreparada#concluir(int)}, que não lê as entidades.
+     */
+    GravacaoPreparada preparar(DataSnapshot data, Path arquivo) throws IOException {
+        switch (this) {
+            case BINARIO:
+                return BinarySnapshotStore.preparar(data, arquivo);
+            case DIRETORIO:
+                return DiretorioSnapshot.preparar(data, arquivo);
+            case JSON_COMPACTADO:
+                return JsonStorage.prepararCompactado(data, arquivo);
+            case JSON:
+            default:
+                return JsonStorage.preparar(data, arquivo);
+        }
+    }
+
+    public void carregar(Path arquivo, SnapshotSink sink) throws IOException {
+        switch (this) {
+            case BINARIO:
+                BinarySnapshotStore.load(arquivo, sink);
+                break;
+            case DIRETORIO:
+                DiretorioSnapshot.load(arquivo, sink);
+                break;
+            case JSON_COMPACTADO:
+                JsonStorage.loadCompactado(arquivo, sink);
+                break;
+            case JSON:
+            default:
+                JsonStorage.load(arquivo, sink);
+        }
+    }
+
+    public String descricao() {
+        switch (this) {
+            case BINARIO:
+                return BinarySnapshotStore.description();
+            case DIRETORIO:
+                return DiretorioSnapshot.description();
+            case JSON_COMPACTADO:
+                return JsonStorage.description();
+            case JSON:
+            default:
+                return JsonStorage.description();
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package br.ufvjm.barbearia.persist;
+
+import br.ufvjm.barbearia.persist.adapters.ReferenciaAdapterFactory;
+import br.ufvjm.barbearia.util.Log;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Snapshots incrementais: arquivos delta com apenas as entidades incluídas,
+ * alteradas ou removidas desde a última gravação completa (a base).
+ * <p>
+ * Cada delta é um documento JSON compacto gravado ao lado da base
+ * ({@code sistema.json.delta.1}, {@code sistema.json.delta.2}, ...) com os
+ * mesmos registros do {@link JournalOperacoes}: uma gravação carrega o estado
+ * atual da entidade e uma remoção apenas a chave. Na leitura, a base é
+ * carregada normalmente e os deltas são reaplicados em ordem, de modo que o
+ * custo de uma gravação passa a ser proporcional às alterações do período, e
+ * não ao histórico inteiro.
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>Cada delta registra a assinatura da base sobre a qual foi produzido
+ *     (tamanho e data de modificação do arquivo, ou do manifesto no caso de
+ *     um {@link DiretorioSnapshot}). Deltas de uma base anterior, que
+ *     sobraram de uma compactação interrompida, são reconhecidos e
+ *     ignorados.</li>
+ *     <li>Uma alteração é propagada às entidades que referenciam a alterada (o
+ *     caixa de uma conta fechada, as contas de um agendamento editado). Assim,
+ *     na leitura, as referências voltam a apontar para a instância atual, como
+ *     em um snapshot completo.</li>
+ *     <li>Os registros são gravados na ordem de {@link ColecaoSnapshot}; uma
+ *     entidade nova é gravada antes das que a referenciam.</li>
+ *     <li>Os deltas são gravados com {@link ArquivoAtomico} e nunca
+ *     sobrescrevem um delta existente. A compactação (uma nova base seguida de
+ *     {@link #descartarDeltas(Path)}) fica a cargo de quem grava.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * SnapshotIncremental.Alteracoes alteracoes = new SnapshotIncremental.Alteracoes();
+ * alteracoes.registrar(RegistroJournal.gravacao(ColecaoSnapshot.CLIENTES, cliente));
+ * SnapshotIncremental.salvarDelta(base, assinatura, estadoAtual, alteracoes);
+ *
+ * SnapshotIncremental.reproduzir(base, estadoBase, registro -> aplicar(registro));
+ * }</pre>
+ */
+public final class SnapshotIncremental {
+
+    private static final String SUFIXO_DELTA = ".delta.";
+    private static final int VERSAO = 1;
+    private static final String CAMPO_VERSAO = "versao";
+    private static final String CAMPO_BASE = "base";
+    private static final String CAMPO_NUMERO = "numero";
+    private static final String CAMPO_REGISTROS = "registros";
+    private static final String CAMPO_TIPO = "op";
+    private static final String CAMPO_COLECAO = "colecao";
+    private static final String CAMPO_CHAVE = "chave";
+    private static final String CAMPO_DADOS = "dados";
+    private static final ReferenciaAdapterFactory REFERENCIAS = ReferenciasSnapshot.factory();
+    private static final SnapshotIncremental DEBUG_VIEW = new SnapshotIncremental();
+
+    private SnapshotIncremental() {
+        // utilitário
+    }
+
+    /**
+     * Identifica a versão atual da base. Muda a cada substituição do arquivo
+     * (ou do manifesto, para diretórios).
+     *
+     * @param base snapshot completo.
+     * @return assinatura da base ou {@code null} quando ela não existe.
+     * @throws IOException se os atributos do arquivo não puderem ser lidos.
+     */
+    public static String assinatura(Path base) throws IOException {
+        Objects.requireNonNull(base, "base não pode ser nula");
+        Path alvo = Files.isDirectory(base) ? base.resolve(DiretorioSnapshot.MANIFESTO) : base;
+        if (!Files.isRegularFile(alvo)) {
+            return null;
+        }
+        BasicFileAttributes atributos = Files.readAttributes(alvo, BasicFileAttributes.class);
+        return atributos.size() + "-" + atributos.lastModifiedTime().to(TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Lista os deltas existentes ao lado da base, em ordem de gravação,
+     * independentemente da base a que pertencem.
+     *
+     * @param base snapshot completo.
+     * @return arquivos delta, do mais antigo para o mais recente.
+     * @throws IOException se o diretório não puder ser listado.
+     */
+    public static List<Path> deltas(Path base) throws IOException {
+        Objects.requireNonNull(base, "base não pode ser nula");
+        Path absoluta = base.toAbsolutePath();
+        Path diretorio = absoluta.getParent();
+        if (diretorio == null || absoluta.getFileName() == null || !Files.isDirectory(diretorio)) {
+            return List.of();
+        }
+        String prefixo = absoluta.getFileName() + SUFIXO_DELTA;
+        List<Path> encontrados = new ArrayList<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.filter(arquivo -> numeroDelta(arquivo, prefixo) > 0).forEach(encontrados::add);
+        }
+        encontrados.sort(Comparator.comparingLong(arquivo -> numeroDelta(arquivo, prefixo)));
+        return encontrados;
+    }
+
+    /**
+     * Grava um novo delta com as alterações registradas, propagadas às
+     * entidades que as referenciam.
+     *
+     * @param base           snapshot completo ao qual o delta se aplica.
+     * @param assinaturaBase assinatura da base obtida quando ela foi gravada ou lida.
+     * @param estadoAtual    estado completo do sistema, usado para propagar as
+     *                       alterações e resolver referências.
+     * @param alteracoes     entidades alteradas desde a base ou o último delta.
+     * @return arquivo delta gravado.
+     * @throws IOException se o delta não puder ser gravado; nenhum arquivo é alterado.
+     */
+    public static Path salvarDelta(Path base, String assinaturaBase, DataSnapshot estadoAtual,
+                                   Alteracoes alteracoes) throws IOException {
+        Objects.requireNonNull(base, "base não pode ser nula");
+        Objects.requireNonNull(assinaturaBase, "assinaturaBase não pode ser nula");
+        Objects.requireNonNull(estadoAtual, "estadoAtual não pode ser nulo");
+        Objects.requireNonNull(alteracoes, "alteracoes não pode ser nulo");
+        long inicio = System.nanoTime();
+        Map<ColecaoSnapshot, Map<String, Object>> registros = alteracoes.copia();
+        int diretos = contar(registros);
+        propagar(registros, estadoAtual);
+        int total = contar(registros);
+
+        List<Path> existentes = deltas(base);
+        Path absoluta = base.toAbsolutePath();
+        long numero = existentes.isEmpty() ? 1
+                : numeroDelta(existentes.get(existentes.size() - 1), absoluta.getFileName() + SUFIXO_DELTA) + 1;
+        Path delta = absoluta.resolveSibling(absoluta.getFileName() + SUFIXO_DELTA + numero);
+        ArquivoAtomico.substituir(delta, 0,
+                temporario -> escrever(temporario, assinaturaBase, numero, registros, estadoAtual));
+
+        long duracao = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        Log.info("Delta %s gravado: %d registro(s), %d por referência, %d bytes em %d ms",
+                delta, total, total - diretos, Files.size(delta), duracao);
+        return delta;
+    }
+
+    /**
+     * Reaplica, em ordem, os deltas produzidos sobre a versão atual da base.
+     *
+     * @param base       snapshot completo já carregado.
+     * @param estadoBase entidades lidas da base, usadas para resolver referências.
+     * @param destino    consumidor que aplica cada registro ao estado em memória.
+     * @return quantidade de deltas aplicados.
+     * @throws IOException se algum delta da base atual não puder ser lido.
+     */
+    public static int reproduzir(Path base, DataSnapshot estadoBase, Consumer<RegistroJournal> destino)
+            throws IOException {
+        Objects.requireNonNull(base, "base não pode ser nula");
+        Objects.requireNonNull(estadoBase, "estadoBase não pode ser nulo");
+        Objects.requireNonNull(destino, "destino não pode ser nulo");
+        List<Path> arquivos = deltas(base);
+        String assinaturaBase = assinatura(base);
+        if (arquivos.isEmpty() || assinaturaBase == null) {
+            return 0;
+        }
+        ReferenciaAdapterFactory.Referencias referencias = ReferenciasSnapshot.de(estadoBase);
+        int aplicados = 0;
+        int registros = 0;
+        for (Path delta : arquivos) {
+            int lidos = ler(delta, assinaturaBase, referencias, destino);
+            if (lidos < 0) {
+                Log.warning("Delta %s ignorado: produzido sobre outra versão de %s", delta, base);
+                continue;
+            }
+            aplicados++;
+            registros += lidos;
+        }
+        Log.info("Deltas de %s reaplicados: %d arquivo(s), %d registro(s)", base, aplicados, registros);
+        return aplicados;
+    }
+
+    /**
+     * Remove todos os deltas da base; usado após a gravação de uma nova base.
+     *
+     * @param base snapshot completo.
+     * @throws IOException se algum delta não puder ser removido.
+     */
+    public static void descartarDeltas(Path base) throws IOException {
+        List<Path> arquivos = deltas(base);
+        for (Path delta : arquivos) {
+            Files.deleteIfExists(delta);
+        }
+        if (!arquivos.isEmpty()) {
+            Log.debug("Deltas descartados de %s: %d", base, arquivos.size());
+        }
+    }
+
+    public static String description() {
+        return DEBUG_VIEW.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotIncremental[deltas JSON sobre uma base completa, propagação de referências e assinatura da base]";
+    }
+
+    /**
+     * Acrescenta as entidades que referenciam alguma entidade alterada. As
+     * coleções são percorridas em ordem de dependência, o que cobre também as
+     * referências indiretas (cliente, agendamento, conta, caixa).
+     */
+    private static void propagar(Map<ColecaoSnapshot, Map<String, Object>> registros, DataSnapshot estadoAtual) {
+        for (ColecaoSnapshot colecao : ColecaoSnapshot.values()) {
+            boolean dependenciaAlterada = false;
+            for (ColecaoSnapshot dependencia : colecao.getDependencias()) {
+                dependenciaAlterada |= registros.containsKey(dependencia);
+            }
+            if (!dependenciaAlterada) {
+                continue;
+            }
+            for (Object elemento : estadoAtual.elementos(colecao)) {
+                String chave = colecao.chaveDe(elemento);
+                Map<String, Object> daColecao = registros.get(colecao);
+                if (daColecao != null && daColecao.containsKey(chave)) {
+                    continue;
+                }
+                boolean afetado = colecao.possuiReferencia(elemento, (dependencia, entidade) -> {
+                    Map<String, Object> alteradas = registros.get(dependencia);
+                    return alteradas != null && alteradas.containsKey(dependencia.chaveDe(entidade));
+                });
+                if (afetado) {
+                    registros.computeIfAbsent(colecao, c -> new LinkedHashMap<>()).put(chave, elemento);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    private static void escrever(Path arquivo, String assinaturaBase, long numero,
+                                 Map<ColecaoSnapshot, Map<String, Object>> registros,
+                                 DataSnapshot estadoAtual) throws IOException {
+        ReferenciaAdapterFactory.Referencias referencias = ReferenciasSnapshot.de(estadoAtual);
+        try (BufferedWriter writer = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8);
+             JsonWriter out = new JsonWriter(writer);
+             ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+            out.beginObject();
+            out.name(CAMPO_VERSAO).value(VERSAO);
+            out.name(CAMPO_BASE).value(assinaturaBase);
+            out.name(CAMPO_NUMERO).value(numero);
+            out.name(CAMPO_REGISTROS);
+            out.beginArray();
+            for (Map.Entry<ColecaoSnapshot, Map<String, Object>> porColecao : registros.entrySet()) {
+                ColecaoSnapshot colecao = porColecao.getKey();
+                TypeAdapter<Object> adapter = JsonStorage.adapterRaiz(colecao);
+                for (Map.Entry<String, Object> registro : porColecao.getValue().entrySet()) {
+                    boolean removido = registro.getValue() == null;
+                    out.beginObject();
+                    out.name(CAMPO_TIPO).value((removido ? RegistroJournal.Tipo.REMOCAO
+                            : RegistroJournal.Tipo.GRAVACAO).name());
+                    out.name(CAMPO_COLECAO).value(colecao.getChave());
+                    out.name(CAMPO_CHAVE).value(registro.getKey());
+                    if (!removido) {
+                        out.name(CAMPO_DADOS);
+                        adapter.write(out, registro.getValue());
+                    }
+                    out.endObject();
+                }
+            }
+            out.endArray();
+            out.endObject();
+        }
+    }
+
+    /**
+     * Lê um delta e entrega os seus registros.
+     *
+     * @return quantidade de registros lidos ou {@code -1} se o delta pertence a outra base.
+     */
+    @SuppressWarnings("try")
+    private static int ler(Path delta, String assinaturaBase, ReferenciaAdapterFactory.Referencias referencias,
+                           Consumer<RegistroJournal> destino) throws IOException {
+        int total = 0;
+        try (BufferedReader reader = Files.newBufferedReader(delta, StandardCharsets.UTF_8);
+             JsonReader in = new JsonReader(reader);
+             ReferenciaAdapterFactory.Escopo escopo = REFERENCIAS.ativar(referencias)) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String nome = in.nextName();
+                switch (nome) {
+                    case CAMPO_VERSAO:
+                        int versao = in.nextInt();
+                        if (versao > VERSAO) {
+                            throw new IOException("Versão de delta não suportada em " + delta + ": " + versao);
+                        }
+                        break;
+                    case CAMPO_BASE:
+                        if (!assinaturaBase.equals(in.nextString())) {
+                            return -1;
+                        }
+                        break;
+                    case CAMPO_REGISTROS:
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            RegistroJournal registro = lerRegistro(in);
+                            if (registro.getTipo() == RegistroJournal.Tipo.GRAVACAO) {
+                                ReferenciasSnapshot.registrar(referencias, registro.getColecao(),
+                                        registro.getEntidade());
+                            }
+                            destino.accept(registro);
+                            total++;
+                        }
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+        } catch (JsonParseException | IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("Delta inválido: " + delta, e);
+        }
+        return total;
+    }
+
+    private static RegistroJournal lerRegistro(JsonReader in) throws IOException {
+        RegistroJournal.Tipo tipo = null;
+        ColecaoSnapshot colecao = null;
+        String chave = null;
+        Object entidade = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String nome = in.nextName();
+            switch (nome) {
+                case CAMPO_TIPO:
+                    tipo = RegistroJournal.Tipo.valueOf(in.nextString());
+                    break;
+                case CAMPO_COLECAO:
+                    String chaveColecao = in.nextString();
+                    colecao = ColecaoSnapshot.porChave(chaveColecao)
+                            .orElseThrow(() -> new JsonParseException("Coleção desconhecida no delta: " + chaveColecao));
+                    break;
+                case CAMPO_CHAVE:
+                    chave = in.nextString();
+                    break;
+                case CAMPO_DADOS:
+                    if (colecao == null) {
+                        throw new JsonParseException("Dados antes da coleção em " + in.getPath());
+                    }
+                    entidade = in.peek() == JsonToken.NULL ? null : JsonStorage.adapterRaiz(colecao).read(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (tipo == null || colecao == null || chave == null) {
+            throw new JsonParseException("Registro incompleto no delta em " + in.getPath());
+        }
+        return tipo == RegistroJournal.Tipo.REMOCAO
+                ? RegistroJournal.remocao(colecao, chave)
+                : RegistroJournal.gravacao(colecao, Objects.requireNonNull(entidade, "dados não pode ser nulo"));
+    }
+
+    private static long numeroDelta(Path arquivo, String prefixo) {
+        String nome = arquivo.getFileName().toString();
+        if (!nome.startsWith(prefixo) || nome.length() == prefixo.length()) {
+            return -1;
+        }
+        String sufixo = nome.substring(prefixo.length());
+        for (int i = 0; i < sufixo.length(); i++) {
+            if (!Character.isDigit(sufixo.charAt(i))) {
+                return -1;
+            }
+        }
+        try {
+            return Long.parseLong(sufixo);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int contar(Map<ColecaoSnapshot, Map<String, Object>> registros) {
+        int total = 0;
+        for (Map<String, Object> porChave : registros.values()) {
+            total += porChave.size();
+        }
+        return total;
+    }
+
+    /**
+     * Entidades alteradas desde a última gravação, por coleção e chave.
+     * <p>
+     * Guarda a instância atual de cada entidade gravada e {@code null} para as
+     * removidas; registrar a mesma chave novamente substitui o estado anterior.
+     * </p>
+     */
+    public static final class Alteracoes {
+
+        private final Map<ColecaoSnapshot, Map<String, Object>> porColecao = new EnumMap<>(ColecaoSnapshot.class);
+
+        public synchronized void registrar(RegistroJournal... registros) {
+            Objects.requireNonNull(registros, "registros não pode ser nulo");
+            for (RegistroJournal registro : registros) {
+                Objects.requireNonNull(registro, "registro não pode ser nulo");
+                porColecao.computeIfAbsent(registro.getColecao(), c -> new LinkedHashMap<>())
+                        .put(registro.getChave(), registro.getEntidade());
+            }
+        }
+
+        public synchronized int tamanho() {
+            return contar(porColecao);
+        }
+
+        public synchronized boolean isVazia() {
+            return porColecao.isEmpty();
+        }
+
+        synchronized Map<ColecaoSnapshot, Map<String, Object>> copia() {
+            Map<ColecaoSnapshot, Map<String, Object>> copia = new EnumMap<>(ColecaoSnapshot.class);
+            porColecao.forEach((colecao, porChave) -> copia.put(colecao, new LinkedHashMap<>(porChave)));
+            return copia;
+        }
+
+        @Override
+        public synchronized String toString() {
+            Map<ColecaoSnapshot, Integer> tamanhos = new EnumMap<>(ColecaoSnapshot.class);
+            porColecao.forEach((colecao, porChave) -> tamanhos.put(colecao, porChave.size()));
+            return "Alteracoes" + tamanhos;
+        }
+    }
+}
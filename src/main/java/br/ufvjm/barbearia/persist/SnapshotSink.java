@@ -0,0 +1,45 @@
+package br.ufvjm.barbearia.persist;
+
+/**
+ * Destino dos elementos lidos de um snapshot em modo streaming.
+ * <p>
+ * Cada elemento é entregue assim que é desserializado, sem que o documento
+ * completo precise ser mantido em memória. Os métodos de início e fim de
+ * coleção são opcionais e permitem ao consumidor preparar ou consolidar
+ * estruturas por coleção.
+ * </p>
+ *
+ * <pre>{@code
+ * JsonStorage.load(arquivo, (colecao, elemento) -> destino.get(colecao).add(elemento));
+ * }</pre>
+ */
+@FunctionalInterface
+public interface SnapshotSink {
+
+    /**
+     * Recebe um elemento já desserializado.
+     *
+     * @param colecao  coleção de origem do elemento.
+     * @param elemento instância do tipo {@link ColecaoSnapshot#getTipo()}.
+     */
+    void aceitar(ColecaoSnapshot colecao, Object elemento);
+
+    /**
+     * Notifica o início da leitura de uma coleção.
+     *
+     * @param colecao coleção que começará a ser entregue.
+     */
+    default void iniciarColecao(ColecaoSnapshot colecao) {
+        // opcional
+    }
+
+    /**
+     * Notifica o término da leitura de uma coleção.
+     *
+     * @param colecao coleção concluída.
+     * @param total   quantidade de elementos entregues.
+     */
+    default void finalizarColecao(ColecaoSnapshot colecao, int total) {
+        // opcional
+    }
+}
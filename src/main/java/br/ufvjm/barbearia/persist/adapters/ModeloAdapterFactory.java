@@ -0,0 +1,1610 @@
+package br.ufvjm.barbearia.persist.adapters;
+
+import br.ufvjm.barbearia.enums.CategoriaDespesa;
+import br.ufvjm.barbearia.enums.FormaPagamento;
+import br.ufvjm.barbearia.enums.ModoConsumoProduto;
+import br.ufvjm.barbearia.enums.Papel;
+import br.ufvjm.barbearia.enums.StatusAtendimento;
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.CaixaDiario;
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.model.ConsumoDeProduto;
+import br.ufvjm.barbearia.model.ContaAtendimento;
+import br.ufvjm.barbearia.model.Despesa;
+import br.ufvjm.barbearia.model.Estacao;
+import br.ufvjm.barbearia.model.ItemContaProduto;
+import br.ufvjm.barbearia.model.ItemDeServico;
+import br.ufvjm.barbearia.model.ItemRecebimento;
+import br.ufvjm.barbearia.model.ItemVenda;
+import br.ufvjm.barbearia.model.Produto;
+import br.ufvjm.barbearia.model.RecebimentoFornecedor;
+import br.ufvjm.barbearia.model.Servico;
+import br.ufvjm.barbearia.model.Usuario;
+import br.ufvjm.barbearia.model.Venda;
+import br.ufvjm.barbearia.value.CpfHash;
+import br.ufvjm.barbearia.value.Dinheiro;
+import br.ufvjm.barbearia.value.Email;
+import br.ufvjm.barbearia.value.Endereco;
+import br.ufvjm.barbearia.value.Quantidade;
+import br.ufvjm.barbearia.value.Telefone;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Fábrica com adapters escritos à mão para as classes de {@code model} e
+ * {@code value} persistidas nos snapshots.
+ * <p>
+ * Substitui o adapter reflexivo do {@link Gson}: os campos são gravados na
+ * mesma ordem e com os mesmos nomes que a reflexão produzia (campos da classe e
+ * depois os da superclasse, nulos omitidos), de modo que os arquivos continuam
+ * idênticos byte a byte. Na leitura, as instâncias são criadas pelos
+ * construtores e fábricas públicas ({@code reidratar}) das próprias classes, sem
+ * acesso reflexivo a campos nem alocação via {@code Unsafe}.
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>Tipos aninhados ({@link Dinheiro}, datas, entidades referenciadas,
+ *     listas) são obtidos do próprio {@link Gson}, preservando os adapters
+ *     específicos de cada formato e as referências da
+ *     {@link ReferenciaAdapterFactory}.</li>
+ *     <li>A fábrica deve ser registrada antes da {@link ReferenciaAdapterFactory}
+ *     no {@link com.google.gson.GsonBuilder}, para que seja o delegate usado por
+ *     ela ao gravar uma entidade por completo.</li>
+ *     <li>Apenas as classes exatas são atendidas; subclasses continuam com o
+ *     adapter reflexivo.</li>
+ *     <li>Campos desconhecidos são ignorados. Valores que violem as regras dos
+ *     construtores resultam em {@link JsonParseException}.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * Gson gson = new GsonBuilder()
+ *         .registerTypeAdapter(Dinheiro.class, new DinheiroAdapter())
+ *         .registerTypeAdapterFactory(new ModeloAdapterFactory())
+ *         .registerTypeAdapterFactory(referencias)
+ *         .create();
+ * }</pre>
+ */
+public final class ModeloAdapterFactory implements TypeAdapterFactory {
+
+    private static final Map<Class<?>, Function<Gson, TypeAdapter<?>>> ADAPTERS = Map.ofEntries(
+            Map.entry(Cliente.class, ClienteAdapter::new),
+            Map.entry(Usuario.class, UsuarioAdapter::new),
+            Map.entry(Servico.class, ServicoAdapter::new),
+            Map.entry(Produto.class, ProdutoAdapter::new),
+            Map.entry(Agendamento.class, AgendamentoAdapter::new),
+            Map.entry(ItemDeServico.class, ItemDeServicoAdapter::new),
+            Map.entry(ConsumoDeProduto.class, ConsumoDeProdutoAdapter::new),
+            Map.entry(Venda.class, VendaAdapter::new),
+            Map.entry(ItemVenda.class, ItemVendaAdapter::new),
+            Map.entry(ContaAtendimento.class, ContaAtendimentoAdapter::new),
+            Map.entry(ItemContaProduto.class, ItemContaProdutoAdapter::new),
+            Map.entry(ContaAtendimento.AjusteConta.class, AjusteContaAdapter::new),
+            Map.entry(ContaAtendimento.CancelamentoRegistro.class, CancelamentoRegistroAdapter::new),
+            Map.entry(Despesa.class, DespesaAdapter::new),
+            Map.entry(RecebimentoFornecedor.class, RecebimentoFornecedorAdapter::new),
+            Map.entry(ItemRecebimento.class, ItemRecebimentoAdapter::new),
+            Map.entry(CaixaDiario.class, CaixaDiarioAdapter::new),
+            Map.entry(CaixaDiario.MovimentoCaixa.class, MovimentoCaixaAdapter::new),
+            Map.entry(Estacao.class, gson -> new EstacaoAdapter()),
+            Map.entry(CpfHash.class, gson -> new CpfHashAdapter()),
+            Map.entry(Email.class, gson -> new EmailAdapter()),
+            Map.entry(Endereco.class, gson -> new EnderecoAdapter()),
+            Map.entry(Quantidade.class, gson -> new QuantidadeAdapter()),
+            Map.entry(Telefone.class, gson -> new TelefoneAdapter()));
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Function<Gson, TypeAdapter<?>> fabrica = ADAPTERS.get(type.getRawType());
+        return fabrica != null ? (TypeAdapter<T>) fabrica.apply(gson) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "ModeloAdapterFactory[adapters sem reflexão para " + ADAPTERS.size() + " tipo(s)]";
+    }
+
+    /**
+     * Base dos adapters: trata {@code null}, abre e fecha o objeto e converte
+     * violações das regras do modelo em {@link JsonParseException}.
+     */
+    private abstract static class AdapterObjeto<T> extends TypeAdapter<T> {
+
+        private final String nome;
+
+        AdapterObjeto(Class<T> tipo) {
+            this.nome = tipo.getSimpleName();
+        }
+
+        @Override
+        public final void write(JsonWriter out, T valor) throws IOException {
+            if (valor == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            escreverCampos(out, valor);
+            out.endObject();
+        }
+
+        @Override
+        public final T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            in.beginObject();
+            T lido;
+            try {
+                lido = lerCampos(in);
+            } catch (NullPointerException | IllegalArgumentException e) {
+                throw new JsonParseException(nome + " inválido: " + e.getMessage(), e);
+            }
+            in.endObject();
+            return lido;
+        }
+
+        abstract void escreverCampos(JsonWriter out, T valor) throws IOException;
+
+        /**
+         * Lê os campos do objeto já aberto (sem consumir o fim) e constrói a instância.
+         */
+        abstract T lerCampos(JsonReader in) throws IOException;
+
+        @Override
+        public String toString() {
+            return nome + "Adapter";
+        }
+    }
+
+    private static final class ClienteAdapter extends AdapterObjeto<Cliente> {
+        private final TypeAdapter<CpfHash> cpf;
+        private final TypeAdapter<Endereco> endereco;
+        private final TypeAdapter<Telefone> telefone;
+        private final TypeAdapter<Email> email;
+
+        ClienteAdapter(Gson gson) {
+            super(Cliente.class);
+            this.cpf = gson.getAdapter(CpfHash.class);
+            this.endereco = gson.getAdapter(Endereco.class);
+            this.telefone = gson.getAdapter(Telefone.class);
+            this.email = gson.getAdapter(Email.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Cliente valor) throws IOException {
+            objeto(out, "cpf", cpf, valor.getCpf());
+            inteiro(out, "totalExtratos", valor.getTotalExtratos());
+            logico(out, "ativo", valor.isAtivo());
+            uuid(out, "id", valor.getId());
+            texto(out, "nome", valor.getNome());
+            objeto(out, "endereco", endereco, valor.getEndereco());
+            objeto(out, "telefone", telefone, valor.getTelefone());
+            objeto(out, "email", email, valor.getEmail());
+        }
+
+        @Override
+        Cliente lerCampos(JsonReader in) throws IOException {
+            CpfHash cpfLido = null;
+            int totalExtratos = 0;
+            boolean ativo = false;
+            UUID id = null;
+            String nome = null;
+            Endereco enderecoLido = null;
+            Telefone telefoneLido = null;
+            Email emailLido = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "cpf":
+                        cpfLido = cpf.read(in);
+                        break;
+                    case "totalExtratos":
+                        totalExtratos = lerInteiro(in, totalExtratos);
+                        break;
+                    case "extratosGerados":
+                        // formato anterior à v3 (snapshots binários e journals antigos)
+                        List<String> extratos = lerListaTexto(in);
+                        totalExtratos = extratos != null ? extratos.size() : totalExtratos;
+                        break;
+                    case "ativo":
+                        ativo = lerLogico(in, ativo);
+                        break;
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "nome":
+                        nome = lerTexto(in);
+                        break;
+                    case "endereco":
+                        enderecoLido = endereco.read(in);
+                        break;
+                    case "telefone":
+                        telefoneLido = telefone.read(in);
+                        break;
+                    case "email":
+                        emailLido = email.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            Cliente cliente = new Cliente(id, nome, enderecoLido, telefoneLido, emailLido, cpfLido, ativo);
+            cliente.registrarExtratos(totalExtratos);
+            return cliente;
+        }
+    }
+
+    private static final class UsuarioAdapter extends AdapterObjeto<Usuario> {
+        private final TypeAdapter<Endereco> endereco;
+        private final TypeAdapter<Telefone> telefone;
+        private final TypeAdapter<Email> email;
+
+        UsuarioAdapter(Gson gson) {
+            super(Usuario.class);
+            this.endereco = gson.getAdapter(Endereco.class);
+            this.telefone = gson.getAdapter(Telefone.class);
+            this.email = gson.getAdapter(Email.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Usuario valor) throws IOException {
+            enumerado(out, "papel", valor.getPapel());
+            texto(out, "login", valor.getLogin());
+            texto(out, "senhaHash", valor.getSenhaHash());
+            logico(out, "ativo", valor.isAtivo());
+            uuid(out, "id", valor.getId());
+            texto(out, "nome", valor.getNome());
+            objeto(out, "endereco", endereco, valor.getEndereco());
+            objeto(out, "telefone", telefone, valor.getTelefone());
+            objeto(out, "email", email, valor.getEmail());
+        }
+
+        @Override
+        Usuario lerCampos(JsonReader in) throws IOException {
+            Papel papel = null;
+            String login = null;
+            String senhaHash = null;
+            boolean ativo = false;
+            UUID id = null;
+            String nome = null;
+            Endereco enderecoLido = null;
+            Telefone telefoneLido = null;
+            Email emailLido = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "papel":
+                        papel = lerEnum(in, Papel.class);
+                        break;
+                    case "login":
+                        login = lerTexto(in);
+                        break;
+                    case "senhaHash":
+                        senhaHash = lerTexto(in);
+                        break;
+                    case "ativo":
+                        ativo = lerLogico(in, ativo);
+                        break;
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "nome":
+                        nome = lerTexto(in);
+                        break;
+                    case "endereco":
+                        enderecoLido = endereco.read(in);
+                        break;
+                    case "telefone":
+                        telefoneLido = telefone.read(in);
+                        break;
+                    case "email":
+                        emailLido = email.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new Usuario(id, nome, enderecoLido, telefoneLido, emailLido, papel, login, senhaHash, ativo);
+        }
+    }
+
+    private static final class ServicoAdapter extends AdapterObjeto<Servico> {
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        ServicoAdapter(Gson gson) {
+            super(Servico.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Servico valor) throws IOException {
+            uuid(out, "id", valor.getId());
+            texto(out, "nome", valor.getNome());
+            objeto(out, "preco", dinheiro, valor.getPreco());
+            inteiro(out, "duracaoMin", valor.getDuracaoMin());
+            logico(out, "requerLavagem", valor.isRequerLavagem());
+        }
+
+        @Override
+        Servico lerCampos(JsonReader in) throws IOException {
+            UUID id = null;
+            String nome = null;
+            Dinheiro preco = null;
+            int duracaoMin = 0;
+            boolean requerLavagem = false;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "nome":
+                        nome = lerTexto(in);
+                        break;
+                    case "preco":
+                        preco = dinheiro.read(in);
+                        break;
+                    case "duracaoMin":
+                        duracaoMin = lerInteiro(in, duracaoMin);
+                        break;
+                    case "requerLavagem":
+                        requerLavagem = lerLogico(in, requerLavagem);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return Servico.reidratar(id, nome, preco, duracaoMin, requerLavagem);
+        }
+    }
+
+    private static final class ProdutoAdapter extends AdapterObjeto<Produto> {
+        private final TypeAdapter<Quantidade> quantidade;
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        ProdutoAdapter(Gson gson) {
+            super(Produto.class);
+            this.quantidade = gson.getAdapter(Quantidade.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Produto valor) throws IOException {
+            uuid(out, "id", valor.getId());
+            texto(out, "nome", valor.getNome());
+            texto(out, "sku", valor.getSku());
+            objeto(out, "estoqueAtual", quantidade, valor.getEstoqueAtual());
+            objeto(out, "estoqueMinimo", quantidade, valor.getEstoqueMinimo());
+            objeto(out, "precoVenda", dinheiro, valor.getPrecoVenda());
+            objeto(out, "custoMedio", dinheiro, valor.getCustoMedio());
+        }
+
+        @Override
+        Produto lerCampos(JsonReader in) throws IOException {
+            UUID id = null;
+            String nome = null;
+            String sku = null;
+            Quantidade estoqueAtual = null;
+            Quantidade estoqueMinimo = null;
+            Dinheiro precoVenda = null;
+            Dinheiro custoMedio = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "nome":
+                        nome = lerTexto(in);
+                        break;
+                    case "sku":
+                        sku = lerTexto(in);
+                        break;
+                    case "estoqueAtual":
+                        estoqueAtual = quantidade.read(in);
+                        break;
+                    case "estoqueMinimo":
+                        estoqueMinimo = quantidade.read(in);
+                        break;
+                    case "precoVenda":
+                        precoVenda = dinheiro.read(in);
+                        break;
+                    case "custoMedio":
+                        custoMedio = dinheiro.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new Produto(id, nome, sku, estoqueAtual, estoqueMinimo, precoVenda, custoMedio);
+        }
+    }
+
+    private static final class AgendamentoAdapter extends AdapterObjeto<Agendamento> {
+        private final TypeAdapter<Cliente> cliente;
+        private final TypeAdapter<Usuario> usuario;
+        private final TypeAdapter<Estacao> estacao;
+        private final TypeAdapter<LocalDateTime> dataHora;
+        private final TypeAdapter<ItemDeServico> item;
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        AgendamentoAdapter(Gson gson) {
+            super(Agendamento.class);
+            this.cliente = gson.getAdapter(Cliente.class);
+            this.usuario = gson.getAdapter(Usuario.class);
+            this.estacao = gson.getAdapter(Estacao.class);
+            this.dataHora = gson.getAdapter(LocalDateTime.class);
+            this.item = gson.getAdapter(ItemDeServico.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Agendamento valor) throws IOException {
+            uuid(out, "id", valor.getId());
+            objeto(out, "cliente", cliente, valor.getCliente());
+            objeto(out, "barbeiro", usuario, valor.getBarbeiro());
+            objeto(out, "estacao", estacao, valor.getEstacao());
+            objeto(out, "inicio", dataHora, valor.getInicio());
+            objeto(out, "fim", dataHora, valor.getFim());
+            lista(out, "itens", item, valor.getItens());
+            enumerado(out, "status", valor.getStatus());
+            objeto(out, "sinal", dinheiro, valor.getSinal());
+            objeto(out, "extratoCancelamentoGeradoEm", dataHora, valor.getExtratoCancelamentoGeradoEm());
+            texto(out, "referenciaExtratoCancelamento", valor.getReferenciaExtratoCancelamento());
+        }
+
+        @Override
+        Agendamento lerCampos(JsonReader in) throws IOException {
+            UUID id = null;
+            Cliente clienteLido = null;
+            Usuario barbeiro = null;
+            Estacao estacaoLida = null;
+            LocalDateTime inicio = null;
+            LocalDateTime fim = null;
+            List<ItemDeServico> itens = null;
+            StatusAtendimento status = null;
+            Dinheiro sinal = null;
+            LocalDateTime extratoGeradoEm = null;
+            String referenciaExtrato = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "cliente":
+                        clienteLido = cliente.read(in);
+                        break;
+                    case "barbeiro":
+                        barbeiro = usuario.read(in);
+                        break;
+                    case "estacao":
+                        estacaoLida = estacao.read(in);
+                        break;
+                    case "inicio":
+                        inicio = dataHora.read(in);
+                        break;
+                    case "fim":
+                        fim = dataHora.read(in);
+                        break;
+                    case "itens":
+                        itens = lerLista(in, item);
+                        break;
+                    case "status":
+                        status = lerEnum(in, StatusAtendimento.class);
+                        break;
+                    case "sinal":
+                        sinal = dinheiro.read(in);
+                        break;
+                    case "extratoCancelamentoGeradoEm":
+                        extratoGeradoEm = dataHora.read(in);
+                        break;
+                    case "referenciaExtratoCancelamento":
+                        referenciaExtrato = lerTexto(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return Agendamento.reidratar(id, clienteLido, barbeiro, estacaoLida, inicio, fim, itens, status, sinal,
+                    extratoGeradoEm, referenciaExtrato);
+        }
+    }
+
+    private static final class ItemDeServicoAdapter extends AdapterObjeto<ItemDeServico> {
+        private final TypeAdapter<Servico> servico;
+        private final TypeAdapter<Dinheiro> dinheiro;
+        private final TypeAdapter<ConsumoDeProduto> consumo;
+
+        ItemDeServicoAdapter(Gson gson) {
+            super(ItemDeServico.class);
+            this.servico = gson.getAdapter(Servico.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+            this.consumo = gson.getAdapter(ConsumoDeProduto.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, ItemDeServico valor) throws IOException {
+            objeto(out, "servico", servico, valor.getServico());
+            objeto(out, "preco", dinheiro, valor.getPreco());
+            inteiro(out, "duracaoMin", valor.getDuracaoMin());
+            lista(out, "consumos", consumo, valor.getConsumos());
+        }
+
+        @Override
+        ItemDeServico lerCampos(JsonReader in) throws IOException {
+            Servico servicoLido = null;
+            Dinheiro preco = null;
+            int duracaoMin = 0;
+            List<ConsumoDeProduto> consumos = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "servico":
+                        servicoLido = servico.read(in);
+                        break;
+                    case "preco":
+                        preco = dinheiro.read(in);
+                        break;
+                    case "duracaoMin":
+                        duracaoMin = lerInteiro(in, duracaoMin);
+                        break;
+                    case "consumos":
+                        consumos = lerLista(in, consumo);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            ItemDeServico item = new ItemDeServico(servicoLido, preco, duracaoMin);
+            if (consumos != null) {
+                consumos.forEach(item::registrarConsumo);
+            }
+            return item;
+        }
+    }
+
+    private static final class ConsumoDeProdutoAdapter extends AdapterObjeto<ConsumoDeProduto> {
+        private final TypeAdapter<Produto> produto;
+        private final TypeAdapter<Quantidade> quantidade;
+
+        ConsumoDeProdutoAdapter(Gson gson) {
+            super(ConsumoDeProduto.class);
+            this.produto = gson.getAdapter(Produto.class);
+            this.quantidade = gson.getAdapter(Quantidade.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, ConsumoDeProduto valor) throws IOException {
+            objeto(out, "produto", produto, valor.getProduto());
+            objeto(out, "quantidade", quantidade, valor.getQuantidade());
+            enumerado(out, "modo", valor.getModo());
+        }
+
+        @Override
+        ConsumoDeProduto lerCampos(JsonReader in) throws IOException {
+            Produto produtoLido = null;
+            Quantidade quantidadeLida = null;
+            ModoConsumoProduto modo = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "produto":
+                        produtoLido = produto.read(in);
+                        break;
+                    case "quantidade":
+                        quantidadeLida = quantidade.read(in);
+                        break;
+                    case "modo":
+                        modo = lerEnum(in, ModoConsumoProduto.class);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new ConsumoDeProduto(produtoLido, quantidadeLida, modo);
+        }
+    }
+
+    private static final class VendaAdapter extends AdapterObjeto<Venda> {
+        private final TypeAdapter<Cliente> cliente;
+        private final TypeAdapter<LocalDateTime> dataHora;
+        private final TypeAdapter<ItemVenda> item;
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        VendaAdapter(Gson gson) {
+            super(Venda.class);
+            this.cliente = gson.getAdapter(Cliente.class);
+            this.dataHora = gson.getAdapter(LocalDateTime.class);
+            this.item = gson.getAdapter(ItemVenda.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Venda valor) throws IOException {
+            uuid(out, "id", valor.getId());
+            objeto(out, "cliente", cliente, valor.getCliente());
+            objeto(out, "dataHora", dataHora, valor.getDataHora());
+            lista(out, "itens", item, valor.getItens());
+            enumerado(out, "formaPagamento", valor.getFormaPagamento());
+            objeto(out, "desconto", dinheiro, valor.getDesconto());
+            objeto(out, "total", dinheiro, valor.isTotalCalculado() ? valor.getTotal() : null);
+            objeto(out, "extratoGeradoEm", dataHora, valor.getExtratoGeradoEm());
+            texto(out, "referenciaExtrato", valor.getReferenciaExtrato());
+        }
+
+        @Override
+        Venda lerCampos(JsonReader in) throws IOException {
+            UUID id = null;
+            Cliente clienteLido = null;
+            LocalDateTime momento = null;
+            List<ItemVenda> itens = null;
+            FormaPagamento formaPagamento = null;
+            Dinheiro desconto = null;
+            Dinheiro total = null;
+            LocalDateTime extratoGeradoEm = null;
+            String referenciaExtrato = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "cliente":
+                        clienteLido = cliente.read(in);
+                        break;
+                    case "dataHora":
+                        momento = dataHora.read(in);
+                        break;
+                    case "itens":
+                        itens = lerLista(in, item);
+                        break;
+                    case "formaPagamento":
+                        formaPagamento = lerEnum(in, FormaPagamento.class);
+                        break;
+                    case "desconto":
+                        desconto = dinheiro.read(in);
+                        break;
+                    case "total":
+                        total = dinheiro.read(in);
+                        break;
+                    case "extratoGeradoEm":
+                        extratoGeradoEm = dataHora.read(in);
+                        break;
+                    case "referenciaExtrato":
+                        referenciaExtrato = lerTexto(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return Venda.reidratar(id, clienteLido, momento, itens, formaPagamento, desconto, total,
+                    extratoGeradoEm, referenciaExtrato);
+        }
+    }
+
+    private static final class ItemVendaAdapter extends AdapterObjeto<ItemVenda> {
+        private final TypeAdapter<Produto> produto;
+        private final TypeAdapter<Quantidade> quantidade;
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        ItemVendaAdapter(Gson gson) {
+            super(ItemVenda.class);
+            this.produto = gson.getAdapter(Produto.class);
+            this.quantidade = gson.getAdapter(Quantidade.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, ItemVenda valor) throws IOException {
+            objeto(out, "produto", produto, valor.getProduto());
+            objeto(out, "quantidade", quantidade, valor.getQuantidade());
+            objeto(out, "precoUnitario", dinheiro, valor.getPrecoUnitario());
+        }
+
+        @Override
+        ItemVenda lerCampos(JsonReader in) throws IOException {
+            Produto produtoLido = null;
+            Quantidade quantidadeLida = null;
+            Dinheiro precoUnitario = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "produto":
+                        produtoLido = produto.read(in);
+                        break;
+                    case "quantidade":
+                        quantidadeLida = quantidade.read(in);
+                        break;
+                    case "precoUnitario":
+                        precoUnitario = dinheiro.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new ItemVenda(produtoLido, quantidadeLida, precoUnitario);
+        }
+    }
+
+    private static final class ContaAtendimentoAdapter extends AdapterObjeto<ContaAtendimento> {
+        private final TypeAdapter<Agendamento> agendamento;
+        private final TypeAdapter<ItemContaProduto> produto;
+        private final TypeAdapter<ItemDeServico> servico;
+        private final TypeAdapter<ContaAtendimento.AjusteConta> ajuste;
+        private final TypeAdapter<Dinheiro> dinheiro;
+        private final TypeAdapter<ContaAtendimento.CancelamentoRegistro> cancelamento;
+        private final TypeAdapter<LocalDateTime> dataHora;
+
+        ContaAtendimentoAdapter(Gson gson) {
+            super(ContaAtendimento.class);
+            this.agendamento = gson.getAdapter(Agendamento.class);
+            this.produto = gson.getAdapter(ItemContaProduto.class);
+            this.servico = gson.getAdapter(ItemDeServico.class);
+            this.ajuste = gson.getAdapter(ContaAtendimento.AjusteConta.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+            this.cancelamento = gson.getAdapter(ContaAtendimento.CancelamentoRegistro.class);
+            this.dataHora = gson.getAdapter(LocalDateTime.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, ContaAtendimento valor) throws IOException {
+            uuid(out, "id", valor.getId());
+            objeto(out, "agendamento", agendamento, valor.getAgendamento());
+            lista(out, "produtosFaturados", produto, valor.getProdutosFaturados());
+            lista(out, "servicosAdicionais", servico, valor.getServicosAdicionais());
+            lista(out, "ajustes", ajuste, valor.getAjustes());
+            objeto(out, "desconto", dinheiro, valor.getDesconto());
+            objeto(out, "total", dinheiro, valor.isTotalCalculado() ? valor.getTotal() : null);
+            enumerado(out, "formaPagamento", valor.isLiquidada() ? valor.getFormaPagamento() : null);
+            objeto(out, "cancelamentoRegistro", cancelamento, valor.getCancelamentoRegistro());
+            logico(out, "fechada", valor.isFechada());
+            objeto(out, "extratoServicoGeradoEm", dataHora, valor.getExtratoServicoGeradoEm());
+            texto(out, "referenciaExtratoServico", valor.getReferenciaExtratoServico());
+        }
+
+        @Override
+        ContaAtendimento lerCampos(JsonReader in) throws IOException {
+            UUID id = null;
+            Agendamento agendamentoLido = null;
+            List<ItemContaProduto> produtos = null;
+            List<ItemDeServico> servicos = null;
+            List<ContaAtendimento.AjusteConta> ajustes = null;
+            Dinheiro desconto = null;
+            Dinheiro total = null;
+            FormaPagamento formaPagamento = null;
+            ContaAtendimento.CancelamentoRegistro cancelamentoLido = null;
+            boolean fechada = false;
+            LocalDateTime extratoGeradoEm = null;
+            String referenciaExtrato = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "agendamento":
+                        agendamentoLido = agendamento.read(in);
+                        break;
+                    case "produtosFaturados":
+                        produtos = lerLista(in, produto);
+                        break;
+                    case "servicosAdicionais":
+                        servicos = lerLista(in, servico);
+                        break;
+                    case "ajustes":
+                        ajustes = lerLista(in, ajuste);
+                        break;
+                    case "desconto":
+                        desconto = dinheiro.read(in);
+                        break;
+                    case "total":
+                        total = dinheiro.read(in);
+                        break;
+                    case "formaPagamento":
+                        formaPagamento = lerEnum(in, FormaPagamento.class);
+                        break;
+                    case "cancelamentoRegistro":
+                        cancelamentoLido = cancelamento.read(in);
+                        break;
+                    case "fechada":
+                        fechada = lerLogico(in, fechada);
+                        break;
+                    case "extratoServicoGeradoEm":
+                        extratoGeradoEm = dataHora.read(in);
+                        break;
+                    case "referenciaExtratoServico":
+                        referenciaExtrato = lerTexto(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return ContaAtendimento.reidratar(id, agendamentoLido, produtos, servicos, ajustes, desconto, total,
+                    formaPagamento, cancelamentoLido, fechada, extratoGeradoEm, referenciaExtrato);
+        }
+    }
+
+    private static final class ItemContaProdutoAdapter extends AdapterObjeto<ItemContaProduto> {
+        private final TypeAdapter<Produto> produto;
+        private final TypeAdapter<Quantidade> quantidade;
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        ItemContaProdutoAdapter(Gson gson) {
+            super(ItemContaProduto.class);
+            this.produto = gson.getAdapter(Produto.class);
+            this.quantidade = gson.getAdapter(Quantidade.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, ItemContaProduto valor) throws IOException {
+            objeto(out, "produto", produto, valor.getProduto());
+            objeto(out, "quantidade", quantidade, valor.getQuantidade());
+            objeto(out, "precoUnitario", dinheiro, valor.getPrecoUnitario());
+        }
+
+        @Override
+        ItemContaProduto lerCampos(JsonReader in) throws IOException {
+            Produto produtoLido = null;
+            Quantidade quantidadeLida = null;
+            Dinheiro precoUnitario = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "produto":
+                        produtoLido = produto.read(in);
+                        break;
+                    case "quantidade":
+                        quantidadeLida = quantidade.read(in);
+                        break;
+                    case "precoUnitario":
+                        precoUnitario = dinheiro.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new ItemContaProduto(produtoLido, quantidadeLida, precoUnitario);
+        }
+    }
+
+    private static final class AjusteContaAdapter extends AdapterObjeto<ContaAtendimento.AjusteConta> {
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        AjusteContaAdapter(Gson gson) {
+            super(ContaAtendimento.AjusteConta.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, ContaAtendimento.AjusteConta valor) throws IOException {
+            enumerado(out, "tipo", valor.getTipo());
+            texto(out, "descricao", valor.getDescricao());
+            objeto(out, "valor", dinheiro, valor.getValor());
+        }
+
+        @Override
+        ContaAtendimento.AjusteConta lerCampos(JsonReader in) throws IOException {
+            ContaAtendimento.AjusteConta.Tipo tipo = null;
+            String descricao = null;
+            Dinheiro valor = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "tipo":
+                        tipo = lerEnum(in, ContaAtendimento.AjusteConta.Tipo.class);
+                        break;
+                    case "descricao":
+                        descricao = lerTexto(in);
+                        break;
+                    case "valor":
+                        valor = dinheiro.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            if (tipo == null) {
+                throw new JsonParseException("AjusteConta sem tipo");
+            }
+            return tipo == ContaAtendimento.AjusteConta.Tipo.CREDITO
+                    ? ContaAtendimento.AjusteConta.credito(descricao, valor)
+                    : ContaAtendimento.AjusteConta.debito(descricao, valor);
+        }
+    }
+
+    private static final class CancelamentoRegistroAdapter
+            extends AdapterObjeto<ContaAtendimento.CancelamentoRegistro> {
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        CancelamentoRegistroAdapter(Gson gson) {
+            super(ContaAtendimento.CancelamentoRegistro.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, ContaAtendimento.CancelamentoRegistro valor) throws IOException {
+            decimal(out, "percentualRetencao", valor.getPercentualRetencao());
+            objeto(out, "valorRetencao", dinheiro, valor.getValorRetencao());
+            objeto(out, "valorReembolso", dinheiro, valor.getValorReembolso());
+            objeto(out, "totalServicos", dinheiro, valor.getTotalServicos());
+        }
+
+        @Override
+        ContaAtendimento.CancelamentoRegistro lerCampos(JsonReader in) throws IOException {
+            BigDecimal percentual = null;
+            Dinheiro retencao = null;
+            Dinheiro reembolso = null;
+            Dinheiro totalServicos = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "percentualRetencao":
+                        percentual = lerDecimal(in);
+                        break;
+                    case "valorRetencao":
+                        retencao = dinheiro.read(in);
+                        break;
+                    case "valorReembolso":
+                        reembolso = dinheiro.read(in);
+                        break;
+                    case "totalServicos":
+                        totalServicos = dinheiro.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return ContaAtendimento.CancelamentoRegistro.reidratar(percentual, retencao, reembolso, totalServicos);
+        }
+    }
+
+    private static final class DespesaAdapter extends AdapterObjeto<Despesa> {
+        private final TypeAdapter<Dinheiro> dinheiro;
+        private final TypeAdapter<YearMonth> anoMes;
+        private final TypeAdapter<LocalDate> data;
+
+        DespesaAdapter(Gson gson) {
+            super(Despesa.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+            this.anoMes = gson.getAdapter(YearMonth.class);
+            this.data = gson.getAdapter(LocalDate.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Despesa valor) throws IOException {
+            uuid(out, "id", valor.getId());
+            enumerado(out, "categoria", valor.getCategoria());
+            texto(out, "descricao", valor.getDescricao());
+            objeto(out, "valor", dinheiro, valor.getValor());
+            objeto(out, "competencia", anoMes, valor.getCompetencia());
+            objeto(out, "dataPagamento", data, valor.getDataPagamento());
+        }
+
+        @Override
+        Despesa lerCampos(JsonReader in) throws IOException {
+            UUID id = null;
+            CategoriaDespesa categoria = null;
+            String descricao = null;
+            Dinheiro valor = null;
+            YearMonth competencia = null;
+            LocalDate dataPagamento = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "categoria":
+                        categoria = lerEnum(in, CategoriaDespesa.class);
+                        break;
+                    case "descricao":
+                        descricao = lerTexto(in);
+                        break;
+                    case "valor":
+                        valor = dinheiro.read(in);
+                        break;
+                    case "competencia":
+                        competencia = anoMes.read(in);
+                        break;
+                    case "dataPagamento":
+                        dataPagamento = data.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new Despesa(id, categoria, descricao, valor, competencia, dataPagamento);
+        }
+    }
+
+    private static final class RecebimentoFornecedorAdapter extends AdapterObjeto<RecebimentoFornecedor> {
+        private final TypeAdapter<LocalDateTime> dataHora;
+        private final TypeAdapter<ItemRecebimento> item;
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        RecebimentoFornecedorAdapter(Gson gson) {
+            super(RecebimentoFornecedor.class);
+            this.dataHora = gson.getAdapter(LocalDateTime.class);
+            this.item = gson.getAdapter(ItemRecebimento.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, RecebimentoFornecedor valor) throws IOException {
+            uuid(out, "id", valor.getId());
+            texto(out, "fornecedor", valor.getFornecedor());
+            objeto(out, "dataHora", dataHora, valor.getDataHora());
+            texto(out, "numeroNF", valor.getNumeroNF());
+            lista(out, "itens", item, valor.getItens());
+            objeto(out, "total", dinheiro, valor.isTotalCalculado() ? valor.getTotal() : null);
+            objeto(out, "pagamentoEfetuado", dinheiro,
+                    valor.isPagamentoRegistrado() ? valor.getPagamentoEfetuado() : null);
+        }
+
+        @Override
+        RecebimentoFornecedor lerCampos(JsonReader in) throws IOException {
+            UUID id = null;
+            String fornecedor = null;
+            LocalDateTime momento = null;
+            String numeroNF = null;
+            List<ItemRecebimento> itens = null;
+            Dinheiro total = null;
+            Dinheiro pagamentoEfetuado = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = lerUuid(in);
+                        break;
+                    case "fornecedor":
+                        fornecedor = lerTexto(in);
+                        break;
+                    case "dataHora":
+                        momento = dataHora.read(in);
+                        break;
+                    case "numeroNF":
+                        numeroNF = lerTexto(in);
+                        break;
+                    case "itens":
+                        itens = lerLista(in, item);
+                        break;
+                    case "total":
+                        total = dinheiro.read(in);
+                        break;
+                    case "pagamentoEfetuado":
+                        pagamentoEfetuado = dinheiro.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return RecebimentoFornecedor.reidratar(id, fornecedor, momento, numeroNF, itens, total,
+                    pagamentoEfetuado);
+        }
+    }
+
+    private static final class ItemRecebimentoAdapter extends AdapterObjeto<ItemRecebimento> {
+        private final TypeAdapter<Produto> produto;
+        private final TypeAdapter<Quantidade> quantidade;
+        private final TypeAdapter<Dinheiro> dinheiro;
+
+        ItemRecebimentoAdapter(Gson gson) {
+            super(ItemRecebimento.class);
+            this.produto = gson.getAdapter(Produto.class);
+            this.quantidade = gson.getAdapter(Quantidade.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, ItemRecebimento valor) throws IOException {
+            objeto(out, "produto", produto, valor.getProduto());
+            objeto(out, "quantidade", quantidade, valor.getQuantidade());
+            objeto(out, "custoUnitario", dinheiro, valor.getCustoUnitario());
+        }
+
+        @Override
+        ItemRecebimento lerCampos(JsonReader in) throws IOException {
+            Produto produtoLido = null;
+            Quantidade quantidadeLida = null;
+            Dinheiro custoUnitario = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "produto":
+                        produtoLido = produto.read(in);
+                        break;
+                    case "quantidade":
+                        quantidadeLida = quantidade.read(in);
+                        break;
+                    case "custoUnitario":
+                        custoUnitario = dinheiro.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new ItemRecebimento(produtoLido, quantidadeLida, custoUnitario);
+        }
+    }
+
+    private static final class CaixaDiarioAdapter extends AdapterObjeto<CaixaDiario> {
+        private final TypeAdapter<LocalDate> data;
+        private final TypeAdapter<Dinheiro> dinheiro;
+        private final TypeAdapter<Venda> venda;
+        private final TypeAdapter<ContaAtendimento> conta;
+        private final TypeAdapter<CaixaDiario.MovimentoCaixa> movimento;
+
+        CaixaDiarioAdapter(Gson gson) {
+            super(CaixaDiario.class);
+            this.data = gson.getAdapter(LocalDate.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+            this.venda = gson.getAdapter(Venda.class);
+            this.conta = gson.getAdapter(ContaAtendimento.class);
+            this.movimento = gson.getAdapter(CaixaDiario.MovimentoCaixa.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, CaixaDiario valor) throws IOException {
+            objeto(out, "data", data, valor.getData());
+            objeto(out, "saldoAbertura", dinheiro, valor.getSaldoAbertura());
+            objeto(out, "entradas", dinheiro, valor.getEntradasAcumuladas());
+            objeto(out, "saidas", dinheiro, valor.getSaidasAcumuladas());
+            objeto(out, "saldoFechamento", dinheiro, valor.isConsolidado() ? valor.getSaldoFechamento() : null);
+            lista(out, "vendas", venda, valor.getVendas());
+            lista(out, "contas", conta, valor.getContas());
+            lista(out, "movimentos", movimento, valor.getMovimentos());
+        }
+
+        @Override
+        CaixaDiario lerCampos(JsonReader in) throws IOException {
+            LocalDate dia = null;
+            Dinheiro saldoAbertura = null;
+            Dinheiro entradas = null;
+            Dinheiro saidas = null;
+            Dinheiro saldoFechamento = null;
+            List<Venda> vendas = null;
+            List<ContaAtendimento> contas = null;
+            List<CaixaDiario.MovimentoCaixa> movimentos = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "data":
+                        dia = data.read(in);
+                        break;
+                    case "saldoAbertura":
+                        saldoAbertura = dinheiro.read(in);
+                        break;
+                    case "entradas":
+                        entradas = dinheiro.read(in);
+                        break;
+                    case "saidas":
+                        saidas = dinheiro.read(in);
+                        break;
+                    case "saldoFechamento":
+                        saldoFechamento = dinheiro.read(in);
+                        break;
+                    case "vendas":
+                        vendas = lerLista(in, venda);
+                        break;
+                    case "contas":
+                        contas = lerLista(in, conta);
+                        break;
+                    case "movimentos":
+                        movimentos = lerLista(in, movimento);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return CaixaDiario.reidratar(dia, saldoAbertura, entradas, saidas, saldoFechamento, vendas, contas,
+                    movimentos);
+        }
+    }
+
+    private static final class MovimentoCaixaAdapter extends AdapterObjeto<CaixaDiario.MovimentoCaixa> {
+        private final TypeAdapter<Dinheiro> dinheiro;
+        private final TypeAdapter<LocalDateTime> dataHora;
+
+        MovimentoCaixaAdapter(Gson gson) {
+            super(CaixaDiario.MovimentoCaixa.class);
+            this.dinheiro = gson.getAdapter(Dinheiro.class);
+            this.dataHora = gson.getAdapter(LocalDateTime.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, CaixaDiario.MovimentoCaixa valor) throws IOException {
+            enumerado(out, "tipo", valor.getTipo());
+            objeto(out, "valor", dinheiro, valor.getValor());
+            texto(out, "motivo", valor.getMotivo());
+            objeto(out, "dataHora", dataHora, valor.getDataHora());
+        }
+
+        @Override
+        CaixaDiario.MovimentoCaixa lerCampos(JsonReader in) throws IOException {
+            CaixaDiario.MovimentoCaixa.Tipo tipo = null;
+            Dinheiro valor = null;
+            String motivo = null;
+            LocalDateTime momento = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "tipo":
+                        tipo = lerEnum(in, CaixaDiario.MovimentoCaixa.Tipo.class);
+                        break;
+                    case "valor":
+                        valor = dinheiro.read(in);
+                        break;
+                    case "motivo":
+                        motivo = lerTexto(in);
+                        break;
+                    case "dataHora":
+                        momento = dataHora.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return CaixaDiario.MovimentoCaixa.reidratar(tipo, valor, motivo, momento);
+        }
+    }
+
+    private static final class EstacaoAdapter extends AdapterObjeto<Estacao> {
+
+        EstacaoAdapter() {
+            super(Estacao.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Estacao valor) throws IOException {
+            inteiro(out, "numero", valor.getNumero());
+            logico(out, "possuiLavagem", valor.isPossuiLavagem());
+        }
+
+        @Override
+        Estacao lerCampos(JsonReader in) throws IOException {
+            int numero = 0;
+            boolean possuiLavagem = false;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "numero":
+                        numero = lerInteiro(in, numero);
+                        break;
+                    case "possuiLavagem":
+                        possuiLavagem = lerLogico(in, possuiLavagem);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new Estacao(numero, possuiLavagem);
+        }
+    }
+
+    private static final class CpfHashAdapter extends AdapterObjeto<CpfHash> {
+
+        CpfHashAdapter() {
+            super(CpfHash.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, CpfHash valor) throws IOException {
+            texto(out, "hash", valor.getHash());
+            texto(out, "mascara", valor.getMascara());
+        }
+
+        @Override
+        CpfHash lerCampos(JsonReader in) throws IOException {
+            String hash = null;
+            String mascara = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "hash":
+                        hash = lerTexto(in);
+                        break;
+                    case "mascara":
+                        mascara = lerTexto(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return CpfHash.reidratar(hash, mascara);
+        }
+    }
+
+    private static final class EmailAdapter extends AdapterObjeto<Email> {
+
+        EmailAdapter() {
+            super(Email.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Email valor) throws IOException {
+            texto(out, "valor", valor.getValor());
+        }
+
+        @Override
+        Email lerCampos(JsonReader in) throws IOException {
+            String valor = null;
+            while (in.hasNext()) {
+                if ("valor".equals(in.nextName())) {
+                    valor = lerTexto(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            return Email.of(valor);
+        }
+    }
+
+    private static final class EnderecoAdapter extends AdapterObjeto<Endereco> {
+
+        EnderecoAdapter() {
+            super(Endereco.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Endereco valor) throws IOException {
+            texto(out, "logradouro", valor.getLogradouro());
+            texto(out, "numero", valor.getNumero());
+            texto(out, "complemento", valor.getComplemento());
+            texto(out, "bairro", valor.getBairro());
+            texto(out, "cidade", valor.getCidade());
+            texto(out, "estado", valor.getEstado());
+            texto(out, "cep", valor.getCep());
+        }
+
+        @Override
+        Endereco lerCampos(JsonReader in) throws IOException {
+            Endereco.Builder builder = Endereco.builder();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "logradouro":
+                        builder.logradouro(lerTexto(in));
+                        break;
+                    case "numero":
+                        builder.numero(lerTexto(in));
+                        break;
+                    case "complemento":
+                        builder.complemento(lerTexto(in));
+                        break;
+                    case "bairro":
+                        builder.bairro(lerTexto(in));
+                        break;
+                    case "cidade":
+                        builder.cidade(lerTexto(in));
+                        break;
+                    case "estado":
+                        builder.estado(lerTexto(in));
+                        break;
+                    case "cep":
+                        builder.cep(lerTexto(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    private static final class QuantidadeAdapter extends AdapterObjeto<Quantidade> {
+
+        QuantidadeAdapter() {
+            super(Quantidade.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Quantidade valor) throws IOException {
+            decimal(out, "valor", valor.getValor());
+            texto(out, "unidade", valor.getUnidade());
+        }
+
+        @Override
+        Quantidade lerCampos(JsonReader in) throws IOException {
+            BigDecimal valor = null;
+            String unidade = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "valor":
+                        valor = lerDecimal(in);
+                        break;
+                    case "unidade":
+                        unidade = lerTexto(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return Quantidade.of(valor, unidade);
+        }
+    }
+
+    private static final class TelefoneAdapter extends AdapterObjeto<Telefone> {
+
+        TelefoneAdapter() {
+            super(Telefone.class);
+        }
+
+        @Override
+        void escreverCampos(JsonWriter out, Telefone valor) throws IOException {
+            texto(out, "ddd", valor.getDdd());
+            texto(out, "numero", valor.getNumero());
+        }
+
+        @Override
+        Telefone lerCampos(JsonReader in) throws IOException {
+            String ddd = null;
+            String numero = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "ddd":
+                        ddd = lerTexto(in);
+                        break;
+                    case "numero":
+                        numero = lerTexto(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            if (ddd == null || numero == null) {
+                throw new JsonParseException("Telefone sem ddd ou número");
+            }
+            return Telefone.of(ddd + numero);
+        }
+    }
+
+    // Escrita: as mesmas chamadas de JsonWriter feitas pelos adapters internos do Gson.
+
+    private static void texto(JsonWriter out, String nome, String valor) throws IOException {
+        out.name(nome).value(valor);
+    }
+
+    private static void uuid(JsonWriter out, String nome, UUID valor) throws IOException {
+        out.name(nome).value(valor != null ? valor.toString() : null);
+    }
+
+    private static void inteiro(JsonWriter out, String nome, int valor) throws IOException {
+        out.name(nome).value((long) valor);
+    }
+
+    private static void logico(JsonWriter out, String nome, boolean valor) throws IOException {
+        out.name(nome).value(Boolean.valueOf(valor));
+    }
+
+    private static void decimal(JsonWriter out, String nome, BigDecimal valor) throws IOException {
+        out.name(nome).value(valor);
+    }
+
+    private static void enumerado(JsonWriter out, String nome, Enum<?> valor) throws IOException {
+        out.name(nome).value(valor != null ? valor.name() : null);
+    }
+
+    private static <V> void objeto(JsonWriter out, String nome, TypeAdapter<V> adapter, V valor)
+            throws IOException {
+        out.name(nome);
+        adapter.write(out, valor);
+    }
+
+    private static <V> void lista(JsonWriter out, String nome, TypeAdapter<V> adapter, List<V> valores)
+            throws IOException {
+        out.name(nome);
+        if (valores == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (V valor : valores) {
+            adapter.write(out, valor);
+        }
+        out.endArray();
+    }
+
+    // Leitura: aceita os mesmos tokens que os adapters internos do Gson.
+
+    private static String lerTexto(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+    }
+
+    private static UUID lerUuid(JsonReader in) throws IOException {
+        String texto = lerTexto(in);
+        if (texto == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(texto);
+        } catch (IllegalArgumentException e) {
+            throw new JsonSyntaxException("UUID inválido: " + texto, e);
+        }
+    }
+
+    private static int lerInteiro(JsonReader in, int atual) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return atual;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static boolean lerLogico(JsonReader in, boolean atual) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return atual;
+        }
+        return token == JsonToken.STRING ? Boolean.parseBoolean(in.nextString()) : in.nextBoolean();
+    }
+
+    private static BigDecimal lerDecimal(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String texto = in.nextString();
+        try {
+            return new BigDecimal(texto);
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException("Decimal inválido: " + texto, e);
+        }
+    }
+
+    private static <E extends Enum<E>> E lerEnum(JsonReader in, Class<E> tipo) throws IOException {
+        String texto = lerTexto(in);
+        if (texto == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(tipo, texto);
+        } catch (IllegalArgumentException e) {
+            for (E constante : tipo.getEnumConstants()) {
+                if (constante.toString().equals(texto)) {
+                    return constante;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static List<String> lerListaTexto(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> valores = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            valores.add(lerTexto(in));
+        }
+        in.endArray();
+        return valores;
+    }
+
+    private static <V> List<V> lerLista(JsonReader in, TypeAdapter<V> adapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<V> valores = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            valores.add(adapter.read(in));
+        }
+        in.endArray();
+        return valores;
+    }
+}
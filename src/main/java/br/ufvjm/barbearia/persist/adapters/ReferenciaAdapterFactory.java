@@ -0,0 +1,270 @@
+package br.ufvjm.barbearia.persist.adapters;
+
+import br.ufvjm.barbearia.model.Estacao;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Fábrica de adapters que grava entidades aninhadas como referências por chave.
+ * <p>
+ * Em um snapshot, cada entidade já é gravada uma vez na sua própria coleção.
+ * Quando a mesma entidade aparece dentro de outra (o cliente de um
+ * agendamento, o agendamento de uma conta, as contas de um caixa), este adapter
+ * escreve apenas a chave ({@code "id"}) e, na leitura, devolve a instância já
+ * carregada, de modo que o grafo reidratado volta a compartilhar objetos.
+ * </p>
+ *
+ * <p>
+ * Regras adotadas:
+ * </p>
+ * <ul>
+ *     <li>As referências só são usadas enquanto um {@link Referencias} estiver
+ *     ativo na thread ({@link #ativar(Referencias)}); fora disso as entidades
+ *     são gravadas por completo, como no formato original.</li>
+ *     <li>Só vira referência a entidade cuja chave está registrada, ou seja,
+ *     que também será gravada na sua coleção; as demais continuam embutidas.</li>
+ *     <li>Na leitura são aceitas referências e objetos embutidos. Um objeto
+ *     embutido cuja chave já foi carregada é substituído pela instância
+ *     registrada, o que também deduplica arquivos gravados no formato antigo.</li>
+ *     <li>{@link Estacao} é sempre gravada pelo número e resolvida para
+ *     {@link Estacao#ESTACOES}.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * ReferenciaAdapterFactory.Referencias refs = new ReferenciaAdapterFactory.Referencias();
+ * try (ReferenciaAdapterFactory.Escopo escopo = factory.ativar(refs)) {
+ *     // grava/lê as coleções, registrando cada entidade de topo em refs
+ * }
+ * }</pre>
+ */
+public final class ReferenciaAdapterFactory implements TypeAdapterFactory {
+
+    private final Map<Class<?>, Function<Object, String>> chaves;
+    private final ThreadLocal<Referencias> ativas = new ThreadLocal<>();
+
+    /**
+     * @param chaves tipos referenciáveis e a função que extrai a chave de cada instância.
+     */
+    public ReferenciaAdapterFactory(Map<Class<?>, Function<Object, String>> chaves) {
+        Objects.requireNonNull(chaves, "chaves não pode ser nulo");
+        this.chaves = new LinkedHashMap<>(chaves);
+    }
+
+    /**
+     * Ativa o registro de referências para a thread atual até o fechamento do escopo.
+     *
+     * @param referencias entidades de topo da operação em andamento.
+     * @return escopo que restaura o estado anterior ao ser fechado.
+     */
+    public Escopo ativar(Referencias referencias) {
+        Objects.requireNonNull(referencias, "referencias não pode ser nulo");
+        Referencias anterior = ativas.get();
+        ativas.set(referencias);
+        return () -> {
+            if (anterior == null) {
+                ativas.remove();
+            } else {
+                ativas.set(anterior);
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> tipo = type.getRawType();
+        if (tipo == Estacao.class) {
+            return (TypeAdapter<T>) new EstacaoAdapter((TypeAdapter<Estacao>) gson.getDelegateAdapter(this, type));
+        }
+        Function<Object, String> chave = chaves.get(tipo);
+        if (chave == null) {
+            return null;
+        }
+        return new ReferenciaAdapter<>(tipo, chave, gson.getDelegateAdapter(this, type));
+    }
+
+    @Override
+    public String toString() {
+        return "ReferenciaAdapterFactory[referências por chave para " + chaves.size() + " tipo(s) e Estacao]";
+    }
+
+    /**
+     * Escopo de ativação das referências; não lança exceções verificadas.
+     */
+    @FunctionalInterface
+    public interface Escopo extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Entidades de topo conhecidas em uma operação de gravação ou leitura, por tipo e chave.
+     * <p>
+     * Pode ser compartilhado entre threads que gravam ou leem coleções distintas
+     * do mesmo snapshot.
+     * </p>
+     */
+    public static final class Referencias {
+
+        private final Map<Class<?>, Map<String, Object>> porTipo = new ConcurrentHashMap<>();
+        private final BiFunction<Class<?>, String, Object> consulta;
+
+        public Referencias() {
+            this((tipo, chave) -> null);
+        }
+
+        private Referencias(BiFunction<Class<?>, String, Object> consulta) {
+            this.consulta = consulta;
+        }
+
+        /**
+         * Registro que, além das entidades registradas, resolve as chaves em
+         * uma fonte externa, como as coleções em memória do sistema.
+         *
+         * @param consulta devolve a entidade com o tipo e a chave informados, ou {@code null}.
+         */
+        public static Referencias consultando(BiFunction<Class<?>, String, Object> consulta) {
+            return new Referencias(Objects.requireNonNull(consulta, "consulta não pode ser nula"));
+        }
+
+        public void registrar(Class<?> tipo, String chave, Object entidade) {
+            Objects.requireNonNull(tipo, "tipo não pode ser nulo");
+            Objects.requireNonNull(chave, "chave não pode ser nula");
+            Objects.requireNonNull(entidade, "entidade não pode ser nula");
+            porTipo.computeIfAbsent(tipo, t -> new ConcurrentHashMap<>()).put(chave, entidade);
+        }
+
+        public Object resolver(Class<?> tipo, String chave) {
+            Map<String, Object> entidades = porTipo.get(tipo);
+            Object registrada = entidades != null ? entidades.get(chave) : null;
+            return registrada != null ? registrada : consulta.apply(tipo, chave);
+        }
+
+        public boolean contem(Class<?> tipo, String chave) {
+            return resolver(tipo, chave) != null;
+        }
+    }
+
+    private final class ReferenciaAdapter<T> extends TypeAdapter<T> {
+
+        private final Class<? super T> tipo;
+        private final Function<Object, String> chave;
+        private final TypeAdapter<T> delegate;
+
+        ReferenciaAdapter(Class<? super T> tipo, Function<Object, String> chave, TypeAdapter<T> delegate) {
+            this.tipo = tipo;
+            this.chave = chave;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            Referencias referencias = ativas.get();
+            if (referencias != null) {
+                String valorChave = chave.apply(value);
+                if (referencias.contem(tipo, valorChave)) {
+                    out.value(valorChave);
+                    return;
+                }
+            }
+            delegate.write(out, value);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Referencias referencias = ativas.get();
+            if (token == JsonToken.STRING) {
+                String valorChave = in.nextString();
+                Object existente = referencias != null ? referencias.resolver(tipo, valorChave) : null;
+                if (existente == null) {
+                    throw new JsonParseException("Referência não resolvida para "
+                            + tipo.getSimpleName() + ": " + valorChave);
+                }
+                return (T) existente;
+            }
+            T lido = delegate.read(in);
+            if (referencias != null && lido != null) {
+                Object existente = referencias.resolver(tipo, chave.apply(lido));
+                if (existente != null) {
+                    return (T) existente;
+                }
+            }
+            return lido;
+        }
+    }
+
+    private static final class EstacaoAdapter extends TypeAdapter<Estacao> {
+
+        private final TypeAdapter<Estacao> delegate;
+
+        EstacaoAdapter(TypeAdapter<Estacao> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(JsonWriter out, Estacao value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            if (compartilhada(value) != null) {
+                out.value(value.getNumero());
+                return;
+            }
+            delegate.write(out, value);
+        }
+
+        @Override
+        public Estacao read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (token == JsonToken.NUMBER) {
+                int numero = in.nextInt();
+                for (Estacao estacao : Estacao.ESTACOES) {
+                    if (estacao.getNumero() == numero) {
+                        return estacao;
+                    }
+                }
+                throw new JsonParseException("Estação inexistente: " + numero);
+            }
+            Estacao lida = delegate.read(in);
+            Estacao existente = compartilhada(lida);
+            return existente != null ? existente : lida;
+        }
+
+        private static Estacao compartilhada(Estacao estacao) {
+            for (Estacao candidata : Estacao.ESTACOES) {
+                if (candidata.equals(estacao)) {
+                    return candidata;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package br.ufvjm.barbearia.system;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Árvore de intervalos semiabertos {@code [inicio, fim)}.
+ * <p>
+ * É uma AVL ordenada por {@code (inicio, sequência de inserção)} em que cada
+ * nó guarda o maior fim da sua subárvore. Com isso, inserção e remoção custam
+ * O(log n) e a busca dos intervalos que cruzam uma janela custa
+ * O(log n + k), podando as subárvores que terminam antes da janela ou começam
+ * depois dela. Intervalos que apenas se encostam ({@code fim == inicio}) não
+ * se sobrepõem.
+ * </p>
+ *
+ * @param <T> valor associado a cada intervalo; usado como chave de remoção.
+ */
+final class ArvoreIntervalos<T> {
+
+    private final Map<T, No<T>> nos = new HashMap<>();
+    private No<T> raiz;
+    private long sequencia;
+
+    /**
+     * Insere o intervalo do valor, substituindo o anterior se já houver.
+     */
+    void inserir(T valor, LocalDateTime inicio, LocalDateTime fim) {
+        Objects.requireNonNull(valor, "valor não pode ser nulo");
+        Objects.requireNonNull(inicio, "inicio não pode ser nulo");
+        Objects.requireNonNull(fim, "fim não pode ser nulo");
+        if (fim.isBefore(inicio)) {
+            throw new IllegalArgumentException("fim não pode ser anterior ao início");
+        }
+        remover(valor);
+        No<T> no = new No<>(valor, inicio, fim, sequencia++);
+        raiz = inserir(raiz, no);
+        nos.put(valor, no);
+    }
+
+    /**
+     * @return {@code false} se o valor não estava na árvore.
+     */
+    boolean remover(T valor) {
+        No<T> no = nos.remove(valor);
+        if (no == null) {
+            return false;
+        }
+        raiz = remover(raiz, no);
+        return true;
+    }
+
+    /**
+     * @return valores cujos intervalos cruzam {@code [inicio, fim)}, em ordem de início.
+     */
+    List<T> sobrepostos(LocalDateTime inicio, LocalDateTime fim) {
+        Objects.requireNonNull(inicio, "inicio não pode ser nulo");
+        Objects.requireNonNull(fim, "fim não pode ser nulo");
+        List<T> resultado = new ArrayList<>();
+        coletar(raiz, inicio, fim, resultado);
+        return resultado;
+    }
+
+    /**
+     * @return valores cujos intervalos contêm o instante.
+     */
+    List<T> em(LocalDateTime instante) {
+        Objects.requireNonNull(instante, "instante não pode ser nulo");
+        return sobrepostos(instante, instante.plusNanos(1));
+    }
+
+    int size() {
+        return nos.size();
+    }
+
+    /**
+     * @return raiz da árvore, para conferência das invariantes nos testes.
+     */
+    No<T> raiz() {
+        return raiz;
+    }
+
+    private static <T> void coletar(No<T> no, LocalDateTime inicio, LocalDateTime fim, List<T> destino) {
+        if (no == null || !no.maiorFim.isAfter(inicio)) {
+            return;
+        }
+        coletar(no.esquerda, inicio, fim, destino);
+        if (!no.inicio.isBefore(fim)) {
+            return;
+        }
+        if (no.fim.isAfter(inicio)) {
+            destino.add(no.valor);
+        }
+        coletar(no.direita, inicio, fim, destino);
+    }
+
+    private static <T> No<T> inserir(No<T> atual, No<T> novo) {
+        if (atual == null) {
+            return novo;
+        }
+        if (novo.compareTo(atual) < 0) {
+            atual.esquerda = inserir(atual.esquerda, novo);
+        } else {
+            atual.direita = inserir(atual.direita, novo);
+        }
+        return balancear(atual);
+    }
+
+    private static <T> No<T> remover(No<T> atual, No<T> alvo) {
+        if (atual == null) {
+            throw new IllegalStateException("Intervalo indexado não encontrado na árvore");
+        }
+        int comparacao = alvo.compareTo(atual);
+        if (comparacao < 0) {
+            atual.esquerda = remover(atual.esquerda, alvo);
+        } else if (comparacao > 0) {
+            atual.direita = remover(atual.direita, alvo);
+        } else {
+            if (atual.esquerda == null) {
+                return atual.direita;
+            }
+            if (atual.direita == null) {
+                return atual.esquerda;
+            }
+            No<T> sucessor = minimo(atual.direita);
+            sucessor.direita = removerMinimo(atual.direita);
+            sucessor.esquerda = atual.esquerda;
+            return balancear(sucessor);
+        }
+        return balancear(atual);
+    }
+
+    private static <T> No<T> minimo(No<T> no) {
+        while (no.esquerda != null) {
+            no = no.esquerda;
+        }
+        return no;
+    }
+
+    private static <T> No<T> removerMinimo(No<T> no) {
+        if (no.esquerda == null) {
+            return no.direita;
+        }
+        no.esquerda = removerMinimo(no.esquerda);
+        return balancear(no);
+    }
+
+    private static <T> No<T> balancear(No<T> no) {
+        atualizar(no);
+        int fator = altura(no.esquerda) - altura(no.direita);
+        if (fator > 1) {
+            if (altura(no.esquerda.esquerda) < altura(no.esquerda.direita)) {
+                no.esquerda = girarEsquerda(no.esquerda);
+            }
+            return girarDireita(no);
+        }
+        if (fator < -1) {
+            if (altura(no.direita.direita) < altura(no.direita.esquerda)) {
+                no.direita = girarDireita(no.direita);
+            }
+            return girarEsquerda(no);
+        }
+        return no;
+    }
+
+    private static <T> No<T> girarDireita(No<T> no) {
+        No<T> esquerda = no.esquerda;
+        no.esquerda = esquerda.direita;
+        esquerda.direita = no;
+        atualizar(no);
+        atualizar(esquerda);
+        return esquerda;
+    }
+
+    private static <T> No<T> girarEsquerda(No<T> no) {
+        No<T> direita = no.direita;
+        no.direita = direita.esquerda;
+        direita.esquerda = no;
+        atualizar(no);
+        atualizar(direita);
+        return direita;
+    }
+
+    private static void atualizar(No<?> no) {
+        no.altura = 1 + Math.max(altura(no.esquerda), altura(no.direita));
+        LocalDateTime maior = no.fim;
+        if (no.esquerda != null && no.esquerda.maiorFim.isAfter(maior)) {
+            maior = no.esquerda.maiorFim;
+        }
+        if (no.direita != null && no.direita.maiorFim.isAfter(maior)) {
+            maior = no.direita.maiorFim;
+        }
+        no.maiorFim = maior;
+    }
+
+    private static int altura(No<?> no) {
+        return no == null ? 0 : no.altura;
+    }
+
+    static final class No<T> implements Comparable<No<T>> {
+
+        private final T valor;
+        private final LocalDateTime inicio;
+        private final LocalDateTime fim;
+        private final long sequencia;
+        private LocalDateTime maiorFim;
+        private int altura = 1;
+        private No<T> esquerda;
+        private No<T> direita;
+
+        private No(T valor, LocalDateTime inicio, LocalDateTime fim, long sequencia) {
+            this.valor = valor;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.sequencia = sequencia;
+            this.maiorFim = fim;
+        }
+
+        T valor() {
+            return valor;
+        }
+
+        LocalDateTime fim() {
+            return fim;
+        }
+
+        LocalDateTime maiorFim() {
+            return maiorFim;
+        }
+
+        int altura() {
+            return altura;
+        }
+
+        No<T> esquerda() {
+            return esquerda;
+        }
+
+        No<T> direita() {
+            return direita;
+        }
+
+        @Override
+        public int compareTo(No<T> outro) {
+            int comparacao = inicio.compareTo(outro.inicio);
+            return comparacao != 0 ? comparacao : Long.compare(sequencia, outro.sequencia);
+        }
+    }
+}
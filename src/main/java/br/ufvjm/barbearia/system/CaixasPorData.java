@@ -0,0 +1,106 @@
+package br.ufvjm.barbearia.system;
+
+import br.ufvjm.barbearia.model.CaixaDiario;
+import br.ufvjm.barbearia.util.Log;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Caixas diários do {@link Sistema} indexados pela data.
+ * <p>
+ * A iteração segue a ordem cronológica, qualquer que seja a ordem em que os
+ * meses do histórico forem lidos. Abertura, busca e remoção custam
+ * O(log n); recortes por período custam O(log n + k) e devolvem os próprios
+ * caixas, cujos acumulados de entradas e saídas já resumem os movimentos do
+ * dia.
+ * </p>
+ * <p>
+ * Assim como as demais coleções do sistema, não é segura para uso concorrente.
+ * </p>
+ */
+final class CaixasPorData extends AbstractCollection<CaixaDiario> {
+
+    private final NavigableMap<LocalDate, CaixaDiario> porData = new TreeMap<>();
+
+    /**
+     * Reconstrói o índice a partir dos caixas carregados. Havendo datas
+     * repetidas, prevalece o último caixa lido.
+     */
+    static CaixasPorData de(Collection<CaixaDiario> caixas) {
+        Objects.requireNonNull(caixas, "caixas não pode ser nulo");
+        CaixasPorData indice = new CaixasPorData();
+        int repetidos = 0;
+        for (CaixaDiario caixa : caixas) {
+            if (indice.porData.put(dataDe(caixa), caixa) != null) {
+                repetidos++;
+            }
+        }
+        if (repetidos > 0) {
+            Log.warning("%d caixa(s) com data repetida descartado(s) ao indexar", repetidos);
+        }
+        return indice;
+    }
+
+    /**
+     * @throws IllegalStateException se já houver caixa na mesma data.
+     */
+    @Override
+    public boolean add(CaixaDiario caixa) {
+        LocalDate data = dataDe(caixa);
+        if (porData.putIfAbsent(data, caixa) != null) {
+            throw new IllegalStateException("Já existe caixa para a data " + data);
+        }
+        return true;
+    }
+
+    Optional<CaixaDiario> buscar(LocalDate data) {
+        return Optional.ofNullable(porData.get(data));
+    }
+
+    /**
+     * @return {@code false} se não houver caixa na data.
+     */
+    boolean remover(LocalDate data) {
+        return porData.remove(data) != null;
+    }
+
+    /**
+     * @return caixas com data em {@code [inicio, fim]}, em ordem cronológica.
+     */
+    Collection<CaixaDiario> entre(LocalDate inicio, LocalDate fim) {
+        Objects.requireNonNull(inicio, "inicio não pode ser nulo");
+        Objects.requireNonNull(fim, "fim não pode ser nulo");
+        if (fim.isBefore(inicio)) {
+            throw new IllegalArgumentException("fim não pode ser anterior ao início");
+        }
+        return porData.subMap(inicio, true, fim, true).values();
+    }
+
+    /**
+     * @return cópia imutável em ordem cronológica.
+     */
+    List<CaixaDiario> listar() {
+        return List.copyOf(porData.values());
+    }
+
+    @Override
+    public Iterator<CaixaDiario> iterator() {
+        return porData.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return porData.size();
+    }
+
+    private static LocalDate dataDe(CaixaDiario caixa) {
+        return Objects.requireNonNull(caixa, "caixa não pode ser nulo").getData();
+    }
+}
@@ -0,0 +1,106 @@
+package br.ufvjm.barbearia.system;
+
+import br.ufvjm.barbearia.model.Produto;
+import br.ufvjm.barbearia.model.Servico;
+import br.ufvjm.barbearia.util.Log;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Índices de busca do catálogo para o balcão: produtos por SKU e produtos e
+ * serviços por prefixo do nome ({@link TriePrefixos}).
+ * <p>
+ * O SKU é comparado sem diferenciar maiúsculas de minúsculas. Os produtos
+ * indexados recebem um observador de nome, de forma que
+ * {@link Produto#atualizarNome(String)} reposiciona o produto na árvore sem
+ * reconstruí-la.
+ * </p>
+ */
+final class CatalogoIndexado {
+
+    private final Map<String, Produto> porSku = new HashMap<>();
+    private final TriePrefixos<Produto> produtosPorNome = new TriePrefixos<>();
+    private final TriePrefixos<Servico> servicosPorNome = new TriePrefixos<>();
+    private final BiConsumer<Produto, String> aoRenomear = this::renomear;
+
+    /**
+     * Reconstrói os índices a partir do catálogo carregado. Havendo SKUs
+     * repetidos, a busca por SKU devolve o primeiro produto lido; todos
+     * continuam encontráveis pelo nome.
+     */
+    static CatalogoIndexado de(Iterable<Produto> produtos, Iterable<Servico> servicos) {
+        CatalogoIndexado catalogo = new CatalogoIndexado();
+        int repetidos = 0;
+        for (Produto produto : produtos) {
+            if (catalogo.porSku.containsKey(chaveSku(produto.getSku()))) {
+                repetidos++;
+            }
+            catalogo.indexar(produto);
+        }
+        servicos.forEach(catalogo::adicionar);
+        if (repetidos > 0) {
+            Log.warning("%d produto(s) com SKU repetido ao indexar o catálogo", repetidos);
+        }
+        return catalogo;
+    }
+
+    /**
+     * @throws IllegalArgumentException se outro produto já usar o SKU.
+     */
+    void verificarSkuLivre(Produto produto) {
+        Produto existente = porSku.get(chaveSku(produto.getSku()));
+        if (existente != null && existente != produto) {
+            throw new IllegalArgumentException("SKU já cadastrado: " + produto.getSku());
+        }
+    }
+
+    void adicionar(Produto produto) {
+        indexar(produto);
+    }
+
+    void adicionar(Servico servico) {
+        servicosPorNome.inserir(servico.getNome(), servico);
+    }
+
+    /**
+     * Desliga o observador de nome dos produtos indexados, para que um índice
+     * descartado não continue recebendo trocas de nome.
+     */
+    void descartar(Iterable<Produto> produtos) {
+        for (Produto produto : produtos) {
+            produto.removerObservadorNome(aoRenomear);
+        }
+    }
+
+    Optional<Produto> porSku(String sku) {
+        return Optional.ofNullable(porSku.get(chaveSku(sku)));
+    }
+
+    List<Produto> produtos(String prefixo, int limite) {
+        return produtosPorNome.buscar(prefixo, limite);
+    }
+
+    List<Servico> servicos(String prefixo, int limite) {
+        return servicosPorNome.buscar(prefixo, limite);
+    }
+
+    private void indexar(Produto produto) {
+        porSku.putIfAbsent(chaveSku(produto.getSku()), produto);
+        produtosPorNome.inserir(produto.getNome(), produto);
+        produto.adicionarObservadorNome(aoRenomear);
+    }
+
+    private void renomear(Produto produto, String nomeAnterior) {
+        produtosPorNome.remover(nomeAnterior, produto);
+        produtosPorNome.inserir(produto.getNome(), produto);
+    }
+
+    private static String chaveSku(String sku) {
+        return Objects.requireNonNull(sku, "sku não pode ser nulo").trim().toUpperCase(Locale.ROOT);
+    }
+}
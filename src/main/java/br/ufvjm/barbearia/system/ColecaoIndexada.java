@@ -0,0 +1,171 @@
+package br.ufvjm.barbearia.system;
+
+import br.ufvjm.barbearia.util.Log;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Coleção de entidades do {@link Sistema} indexada pelo identificador.
+ * <p>
+ * Mantém a ordem de inserção (a mesma gravada nos snapshots) e resolve
+ * busca, substituição e remoção por {@link UUID} em tempo constante. Cada
+ * identificador aparece no máximo uma vez: {@link #add(Object)} recusa
+ * duplicatas, e {@link #de(Collection, Function)} as descarta ao reconstruir
+ * o índice a partir de dados já gravados.
+ * </p>
+ * <p>
+ * Assim como as listas que substitui, não é segura para uso concorrente.
+ * </p>
+ *
+ * @param <T> tipo da entidade.
+ */
+final class ColecaoIndexada<T> extends AbstractCollection<T> {
+
+    private final Function<? super T, UUID> chave;
+    private Map<UUID, T> indice = new LinkedHashMap<>();
+
+    ColecaoIndexada(Function<? super T, UUID> chave) {
+        this.chave = Objects.requireNonNull(chave, "chave não pode ser nula");
+    }
+
+    /**
+     * Reconstrói o índice a partir de elementos carregados. Havendo
+     * identificadores repetidos, prevalece o último na posição do primeiro,
+     * como na consolidação do journal.
+     */
+    static <T> ColecaoIndexada<T> de(Collection<? extends T> elementos, Function<? super T, UUID> chave) {
+        Objects.requireNonNull(elementos, "elementos não pode ser nulo");
+        ColecaoIndexada<T> colecao = new ColecaoIndexada<>(chave);
+        int repetidos = 0;
+        for (T elemento : elementos) {
+            if (colecao.indice.put(colecao.chaveDe(elemento), elemento) != null) {
+                repetidos++;
+            }
+        }
+        if (repetidos > 0) {
+            Log.warning("%d registro(s) com identificador repetido descartado(s) ao indexar %s",
+                    repetidos, elementos.iterator().next().getClass().getSimpleName());
+        }
+        return colecao;
+    }
+
+    /**
+     * @throws IllegalArgumentException se já houver elemento com o mesmo identificador.
+     */
+    @Override
+    public boolean add(T elemento) {
+        verificarNovo(elemento);
+        indice.put(chaveDe(elemento), elemento);
+        return true;
+    }
+
+    /**
+     * Permite recusar a duplicata antes de efeitos colaterais que precedem o
+     * {@link #add(Object)}.
+     *
+     * @throws IllegalArgumentException se já houver elemento com o mesmo identificador.
+     */
+    void verificarNovo(T elemento) {
+        UUID id = chaveDe(elemento);
+        if (indice.containsKey(id)) {
+            throw new IllegalArgumentException("Registro já cadastrado: " + id);
+        }
+    }
+
+    Optional<T> buscar(UUID id) {
+        return Optional.ofNullable(indice.get(id));
+    }
+
+    /**
+     * @return {@code true} se a própria instância (e não uma cópia) estiver na coleção.
+     */
+    boolean contem(T elemento) {
+        return elemento != null && indice.get(chave.apply(elemento)) == elemento;
+    }
+
+    /**
+     * Troca o elemento do identificador mantendo a posição.
+     *
+     * @return {@code false} se o identificador não estiver na coleção.
+     * @throws IllegalArgumentException se o novo elemento tiver outro identificador.
+     */
+    boolean substituir(UUID id, T atualizado) {
+        if (!chaveDe(atualizado).equals(id)) {
+            throw new IllegalArgumentException("Identificador divergente: " + id);
+        }
+        return indice.replace(id, atualizado) != null;
+    }
+
+    /**
+     * @return {@code false} se o identificador não estiver na coleção.
+     */
+    boolean remover(UUID id) {
+        return indice.remove(id) != null;
+    }
+
+    /**
+     * Insere cada elemento do lote antes dos elementos finais que o sucedem
+     * segundo {@code ordem}, reconstruindo o índice uma única vez. Elementos
+     * cujo identificador já está na coleção são mantidos como estão.
+     */
+    void inserirOrdenado(Collection<? extends T> lote, Comparator<? super T> ordem) {
+        Objects.requireNonNull(lote, "lote não pode ser nulo");
+        Objects.requireNonNull(ordem, "ordem não pode ser nula");
+        if (lote.isEmpty()) {
+            return;
+        }
+        List<T> elementos = new ArrayList<>(indice.values());
+        int ignorados = 0;
+        for (T elemento : lote) {
+            if (indice.containsKey(chaveDe(elemento))) {
+                ignorados++;
+                continue;
+            }
+            int posicao = elementos.size();
+            while (posicao > 0 && ordem.compare(elementos.get(posicao - 1), elemento) > 0) {
+                posicao--;
+            }
+            elementos.add(posicao, elemento);
+        }
+        if (ignorados > 0) {
+            Log.warning("%d registro(s) já presentes ignorados ao inserir lote", ignorados);
+        }
+        Map<UUID, T> reconstruido = new LinkedHashMap<>();
+        for (T elemento : elementos) {
+            reconstruido.putIfAbsent(chave.apply(elemento), elemento);
+        }
+        indice = reconstruido;
+    }
+
+    /**
+     * @return cópia imutável na ordem de inserção.
+     */
+    List<T> listar() {
+        return List.copyOf(indice.values());
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return indice.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return indice.size();
+    }
+
+    private UUID chaveDe(T elemento) {
+        Objects.requireNonNull(elemento, "elemento não pode ser nulo");
+        return Objects.requireNonNull(chave.apply(elemento), "identificador não pode ser nulo");
+    }
+}
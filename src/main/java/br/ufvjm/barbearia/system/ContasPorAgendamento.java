@@ -0,0 +1,112 @@
+package br.ufvjm.barbearia.system;
+
+import br.ufvjm.barbearia.model.ContaAtendimento;
+import br.ufvjm.barbearia.util.Log;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Contas de atendimento indexadas pelo agendamento (OS) que cobram.
+ * <p>
+ * Cada OS tem, na prática, uma única conta; as listas existem apenas para
+ * acomodar históricos antigos com contas repetidas e são trocadas por cópia,
+ * de modo que o caso comum ocupa uma lista imutável de um elemento. A busca
+ * custa O(1) independentemente do total de contas e devolve a conta aberta
+ * da OS, ou a primeira registrada quando todas estiverem fechadas.
+ * </p>
+ */
+final class ContasPorAgendamento {
+
+    private final Map<UUID, List<ContaAtendimento>> porAgendamento = new HashMap<>();
+
+    /**
+     * Reconstrói o índice a partir das contas carregadas, sem recusar OS com
+     * mais de uma conta aberta gravadas antes desta verificação existir.
+     */
+    static ContasPorAgendamento de(Iterable<ContaAtendimento> contas) {
+        ContasPorAgendamento indice = new ContasPorAgendamento();
+        int duplicadas = 0;
+        for (ContaAtendimento conta : contas) {
+            if (!conta.isFechada() && indice.abertaDe(agendamentoDe(conta)).isPresent()) {
+                duplicadas++;
+            }
+            indice.adicionar(conta);
+        }
+        if (duplicadas > 0) {
+            Log.warning("%d conta(s) aberta(s) excedente(s) em OS que já possuíam conta aberta", duplicadas);
+        }
+        return indice;
+    }
+
+    Optional<ContaAtendimento> buscar(UUID agendamentoId) {
+        List<ContaAtendimento> contas = porAgendamento.get(agendamentoId);
+        if (contas == null) {
+            return Optional.empty();
+        }
+        for (ContaAtendimento conta : contas) {
+            if (!conta.isFechada()) {
+                return Optional.of(conta);
+            }
+        }
+        return Optional.of(contas.get(0));
+    }
+
+    /**
+     * @throws IllegalStateException se a conta estiver aberta e a OS já tiver
+     *                               outra conta aberta.
+     */
+    void verificarUnicaAberta(ContaAtendimento conta) {
+        if (conta.isFechada()) {
+            return;
+        }
+        Optional<ContaAtendimento> aberta = abertaDe(agendamentoDe(conta));
+        if (aberta.isPresent() && !aberta.get().getId().equals(conta.getId())) {
+            throw new IllegalStateException("Agendamento " + agendamentoDe(conta)
+                    + " já possui conta aberta: " + aberta.get().getId());
+        }
+    }
+
+    void adicionar(ContaAtendimento conta) {
+        porAgendamento.merge(agendamentoDe(conta), List.of(conta), (atuais, nova) -> {
+            List<ContaAtendimento> copia = new ArrayList<>(atuais);
+            copia.addAll(nova);
+            return List.copyOf(copia);
+        });
+    }
+
+    void remover(ContaAtendimento conta) {
+        porAgendamento.computeIfPresent(agendamentoDe(conta), (id, atuais) -> {
+            List<ContaAtendimento> copia = new ArrayList<>(atuais);
+            copia.removeIf(c -> c.getId().equals(conta.getId()));
+            return copia.isEmpty() ? null : List.copyOf(copia);
+        });
+    }
+
+    /**
+     * Troca a conta mantendo a posição quando a OS não muda.
+     */
+    void substituir(ContaAtendimento anterior, ContaAtendimento atualizada) {
+        UUID agendamentoId = agendamentoDe(atualizada);
+        List<ContaAtendimento> atuais = porAgendamento.get(agendamentoId);
+        if (!agendamentoDe(anterior).equals(agendamentoId) || atuais == null) {
+            remover(anterior);
+            adicionar(atualizada);
+            return;
+        }
+        List<ContaAtendimento> copia = new ArrayList<>(atuais);
+        copia.replaceAll(c -> c.getId().equals(anterior.getId()) ? atualizada : c);
+        porAgendamento.put(agendamentoId, List.copyOf(copia));
+    }
+
+    private Optional<ContaAtendimento> abertaDe(UUID agendamentoId) {
+        return buscar(agendamentoId).filter(c -> !c.isFechada());
+    }
+
+    private static UUID agendamentoDe(ContaAtendimento conta) {
+        return conta.getAgendamento().getId();
+    }
+}
@@ -29,7 +29,6 @@ import br.ufvjm.barbearia.value.Email;
 import br.ufvjm.barbearia.value.Endereco;
 import br.ufvjm.barbearia.value.Quantidade;
 import br.ufvjm.barbearia.value.Telefone;
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -45,7 +44,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Classe responsável por demonstrar, em sequência, as dezoito questões exigidas
@@ -257,15 +255,12 @@ public class EntregaFinalMain {
                     + ", fila vazia após pop=" + topoDepoisPop.isEmpty();
         });
 
-        // Questao 10: Extratos automáticos – provocar fechamento de atendimento e registrar venda; checar se extratos foram gerados (arquivo existe)
+        // Questao 10: Extratos automáticos – provocar fechamento de atendimento e registrar venda; checar se extratos foram gerados (referência legível)
         executarQuestao(10, () -> {
-            Path extratosDir = Path.of("data", "extratos");
-            limparDiretorio(extratosDir);
-
             ContaAtendimento contaFechada = sistema.fecharContaAtendimento(colaborador,
                     agendamentoPrincipal.getId(), FormaPagamento.PIX);
             String referenciaServico = contaFechada.getReferenciaExtratoServico();
-            boolean extratoServicoExiste = referenciaServico != null && Files.exists(Path.of(referenciaServico));
+            boolean extratoServicoExiste = referenciaServico != null && sistema.lerExtrato(referenciaServico).isPresent();
 
             Venda venda = new Venda(UUID.randomUUID(), clientePrincipal,
                     LocalDateTime.of(2025, Month.JANUARY, 16, 14, 30), FormaPagamento.CARTAO_DEBITO);
@@ -274,7 +269,7 @@ public class EntregaFinalMain {
             venda.calcularTotal();
             sistema.registrarVenda(colaborador, venda);
             String referenciaVenda = venda.getReferenciaExtrato();
-            boolean extratoVendaExiste = referenciaVenda != null && Files.exists(Path.of(referenciaVenda));
+            boolean extratoVendaExiste = referenciaVenda != null && sistema.lerExtrato(referenciaVenda).isPresent();
 
             Agendamento agendamentoCancelado = sistema.criarAgendamento(UUID.randomUUID(), clientePrincipal,
                     Estacao.ESTACOES[1],
@@ -285,7 +280,7 @@ public class EntregaFinalMain {
             sistema.cancelarAgendamento(colaborador, agendamentoCancelado.getId());
             String referenciaCancelamento = agendamentoCancelado.getReferenciaExtratoCancelamento();
             boolean extratoCancelamentoExiste = referenciaCancelamento != null
-                    && Files.exists(Path.of(referenciaCancelamento));
+                    && sistema.lerExtrato(referenciaCancelamento).isPresent();
 
             List<String> extratosGerados = new ArrayList<>();
             if (referenciaServico != null) {
@@ -335,7 +330,7 @@ public class EntregaFinalMain {
             agendamentoA.adicionarItemServico(new ItemDeServico(servicoBarba, servicoBarba.getPreco(),
                     servicoBarba.getDuracaoMin()));
             Agendamento agendamentoB = sistema.criarAgendamento(UUID.randomUUID(), clienteComparatorB,
-                    Estacao.ESTACOES[1], LocalDateTime.of(2025, Month.JANUARY, 20, 10, 0),
+                    Estacao.ESTACOES[2], LocalDateTime.of(2025, Month.JANUARY, 20, 10, 0),
                     LocalDateTime.of(2025, Month.JANUARY, 20, 10, 40), Dinheiro.of(new BigDecimal("25.00"), BRL));
             agendamentoB.adicionarItemServico(new ItemDeServico(servicoCorte, servicoCorte.getPreco(),
                     servicoCorte.getDuracaoMin()));
@@ -750,10 +745,12 @@ public class EntregaFinalMain {
 
             long extratosAntesLoad = 0;
             for (Cliente cliente : clientesPipeline) {
-                List<String> extratosCliente = cliente.getExtratosGerados();
-                extratosAntesLoad += extratosCliente.size();
-                System.out.printf("Extratos gerados para %s (%d): %s%n", cliente.getNome(), extratosCliente.size(),
-                        extratosCliente.isEmpty() ? "(nenhum)" : String.join(" | ", extratosCliente));
+                List<String> recentes = sistema.listarExtratosRecentes(cliente.getId(), 3).stream()
+                        .map(registro -> registro.getReferencia().toString())
+                        .collect(Collectors.toList());
+                extratosAntesLoad += cliente.getTotalExtratos();
+                System.out.printf("Extratos gerados para %s (%d): %s%n", cliente.getNome(), cliente.getTotalExtratos(),
+                        recentes.isEmpty() ? "(nenhum)" : String.join(" | ", recentes));
             }
 
             Path snapshotFinal = Path.of("data", "snapshot_final.json");
@@ -763,7 +760,7 @@ public class EntregaFinalMain {
             sistema.loadAll(snapshotFinal);
             List<Cliente> clientesReidratados = sistema.listarClientesOrdenados();
             long extratosPosLoad = clientesReidratados.stream()
-                    .mapToLong(c -> c.getExtratosGerados().size())
+                    .mapToLong(Cliente::getTotalExtratos)
                     .sum();
             System.out.printf("Reidratação concluída -> clientes=%d | OS=%d | Serviços=%d | Extratos=%d%n",
                     clientesReidratados.size(), Sistema.getTotalOrdensServicoCriadas(),
@@ -814,31 +811,4 @@ public class EntregaFinalMain {
                 .findFirst()
                 .orElse(0);
     }
-
-    /**
-     * Remove arquivos existentes dentro de um diretório sem apagá-lo.
-     * <p>
-     * A limpeza garante que os extratos gerados nas questões 10 e 18 sejam
-     * criados a partir de um estado conhecido, evitando falsos positivos.
-     * </p>
-     *
-     * @param dir diretório alvo da limpeza.
-     * @throws IOException caso ocorra falha ao excluir ou criar estruturas.
-     */
-    private static void limparDiretorio(Path dir) throws IOException {
-        if (Files.exists(dir)) {
-            try (Stream<Path> stream = Files.walk(dir)) {
-                stream.filter(path -> !path.equals(dir))
-                        .sorted((a, b) -> b.getNameCount() - a.getNameCount())
-                        .forEach(path -> {
-                            try {
-                                Files.deleteIfExists(path);
-                            } catch (IOException ignored) {
-                                // ignora para manter execução
-                            }
-                        });
-            }
-        }
-        Files.createDirectories(dir);
-    }
 }
@@ -0,0 +1,100 @@
+package br.ufvjm.barbearia.system;
+
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.ContaAtendimento;
+import br.ufvjm.barbearia.model.Venda;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Índice secundário por cliente dos agendamentos, vendas e contas do
+ * {@link Sistema}.
+ * <p>
+ * Cada cliente com atividade tem um {@link IndiceTemporal} por tipo de
+ * registro: agendamentos pelo início, vendas pela data e contas pelo início
+ * do agendamento atendido (a mesma base da competência). Assim o histórico de
+ * um cliente sai em ordem cronológica em O(k) no tamanho do próprio histórico,
+ * sem percorrer as coleções inteiras. Vendas sem cliente (consumidor final)
+ * não são indexadas.
+ * </p>
+ */
+final class IndiceClientes {
+
+    private final Map<UUID, Atividade> porCliente = new HashMap<>();
+
+    /**
+     * Reconstrói o índice a partir das coleções carregadas.
+     */
+    static IndiceClientes de(Iterable<Agendamento> agendamentos, Iterable<Venda> vendas,
+                             Iterable<ContaAtendimento> contas) {
+        IndiceClientes indice = new IndiceClientes();
+        agendamentos.forEach(indice::adicionar);
+        vendas.forEach(indice::adicionar);
+        contas.forEach(indice::adicionar);
+        return indice;
+    }
+
+    void adicionar(Agendamento agendamento) {
+        atividade(agendamento.getCliente().getId()).agendamentos.adicionar(agendamento);
+    }
+
+    void adicionar(Venda venda) {
+        if (venda.getCliente() != null) {
+            atividade(venda.getCliente().getId()).vendas.adicionar(venda);
+        }
+    }
+
+    void adicionar(ContaAtendimento conta) {
+        atividade(clienteDe(conta)).contas.adicionar(conta);
+    }
+
+    void remover(ContaAtendimento conta) {
+        Atividade atividade = porCliente.get(clienteDe(conta));
+        if (atividade != null) {
+            atividade.contas.remover(conta.getId());
+        }
+    }
+
+    /**
+     * Troca a conta indexada, inclusive quando a versão atualizada aponta
+     * para um agendamento de outro cliente ou de outro horário.
+     */
+    void substituir(ContaAtendimento anterior, ContaAtendimento atualizada) {
+        remover(anterior);
+        adicionar(atualizada);
+    }
+
+    List<Agendamento> agendamentos(UUID clienteId) {
+        Atividade atividade = porCliente.get(clienteId);
+        return atividade == null ? List.of() : atividade.agendamentos.recortar(0, Integer.MAX_VALUE);
+    }
+
+    List<Venda> vendas(UUID clienteId) {
+        Atividade atividade = porCliente.get(clienteId);
+        return atividade == null ? List.of() : atividade.vendas.recortar(0, Integer.MAX_VALUE);
+    }
+
+    List<ContaAtendimento> contas(UUID clienteId) {
+        Atividade atividade = porCliente.get(clienteId);
+        return atividade == null ? List.of() : atividade.contas.recortar(0, Integer.MAX_VALUE);
+    }
+
+    private Atividade atividade(UUID clienteId) {
+        return porCliente.computeIfAbsent(clienteId, id -> new Atividade());
+    }
+
+    private static UUID clienteDe(ContaAtendimento conta) {
+        return conta.getAgendamento().getCliente().getId();
+    }
+
+    private static final class Atividade {
+
+        private final IndiceTemporal<Agendamento> agendamentos =
+                new IndiceTemporal<>(Agendamento::getId, Agendamento::getInicio);
+        private final IndiceTemporal<Venda> vendas = new IndiceTemporal<>(Venda::getId, Venda::getDataHora);
+        private final IndiceTemporal<ContaAtendimento> contas =
+                new IndiceTemporal<>(ContaAtendimento::getId, c -> c.getAgendamento().getInicio());
+    }
+}
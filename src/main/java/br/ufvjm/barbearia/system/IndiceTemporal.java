@@ -0,0 +1,124 @@
+package br.ufvjm.barbearia.system;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Índice ordenado pelo instante de início, mantido junto de uma
+ * {@link ColecaoIndexada}.
+ * <p>
+ * A chave é {@code (inicio, sequência de inserção)}: empates no início
+ * preservam a ordem de cadastro, exatamente como a ordenação estável da
+ * coleção completa. Listagens ordenadas custam O(offset + limit) e consultas
+ * por intervalo O(log n + k), sem copiar nem reordenar a coleção.
+ * </p>
+ *
+ * @param <T> tipo da entidade; o início precisa ser imutável enquanto ela estiver indexada.
+ */
+final class IndiceTemporal<T> {
+
+    private final Function<? super T, UUID> id;
+    private final Function<? super T, LocalDateTime> inicio;
+    private final NavigableMap<Chave, T> porInicio = new TreeMap<>();
+    private final Map<UUID, Chave> chaves = new HashMap<>();
+    private long sequencia;
+
+    IndiceTemporal(Function<? super T, UUID> id, Function<? super T, LocalDateTime> inicio) {
+        this.id = Objects.requireNonNull(id, "id não pode ser nulo");
+        this.inicio = Objects.requireNonNull(inicio, "inicio não pode ser nulo");
+    }
+
+    /**
+     * Cria o índice percorrendo os elementos na ordem da coleção.
+     */
+    static <T> IndiceTemporal<T> de(Collection<? extends T> elementos, Function<? super T, UUID> id,
+                                    Function<? super T, LocalDateTime> inicio) {
+        IndiceTemporal<T> indice = new IndiceTemporal<>(id, inicio);
+        for (T elemento : elementos) {
+            indice.adicionar(elemento);
+        }
+        return indice;
+    }
+
+    /**
+     * Indexa o elemento; se o identificador já estiver indexado, a entrada
+     * anterior é substituída.
+     */
+    void adicionar(T elemento) {
+        Objects.requireNonNull(elemento, "elemento não pode ser nulo");
+        UUID chaveId = Objects.requireNonNull(id.apply(elemento), "identificador não pode ser nulo");
+        LocalDateTime instante = Objects.requireNonNull(inicio.apply(elemento), "início não pode ser nulo");
+        Chave anterior = chaves.remove(chaveId);
+        if (anterior != null) {
+            porInicio.remove(anterior);
+        }
+        Chave chave = new Chave(instante, sequencia++);
+        porInicio.put(chave, elemento);
+        chaves.put(chaveId, chave);
+    }
+
+    /**
+     * @return {@code false} se o identificador não estava indexado.
+     */
+    boolean remover(UUID chaveId) {
+        Chave chave = chaves.remove(chaveId);
+        if (chave == null) {
+            return false;
+        }
+        porInicio.remove(chave);
+        return true;
+    }
+
+    /**
+     * @return até {@code limit} elementos a partir da posição {@code offset}, em ordem de início.
+     */
+    List<T> recortar(int offset, int limit) {
+        List<T> resultado = new ArrayList<>(Math.min(limit, porInicio.size()));
+        Iterator<T> it = porInicio.values().iterator();
+        for (int i = 0; i < offset && it.hasNext(); i++) {
+            it.next();
+        }
+        while (resultado.size() < limit && it.hasNext()) {
+            resultado.add(it.next());
+        }
+        return resultado;
+    }
+
+    /**
+     * @return elementos com início em {@code [de, ate)}, em ordem de início.
+     */
+    Collection<T> entre(LocalDateTime de, LocalDateTime ate) {
+        return porInicio.subMap(new Chave(de, Long.MIN_VALUE), true, new Chave(ate, Long.MIN_VALUE), false).values();
+    }
+
+    int size() {
+        return porInicio.size();
+    }
+
+    private static final class Chave implements Comparable<Chave> {
+
+        private final LocalDateTime inicio;
+        private final long sequencia;
+
+        private Chave(LocalDateTime inicio, long sequencia) {
+            this.inicio = inicio;
+            this.sequencia = sequencia;
+        }
+
+        @Override
+        public int compareTo(Chave outra) {
+            int comparacao = inicio.compareTo(outra.inicio);
+            return comparacao != 0 ? comparacao : Long.compare(sequencia, outra.sequencia);
+        }
+    }
+}
@@ -27,21 +27,17 @@ import br.ufvjm.barbearia.value.Email;
 import br.ufvjm.barbearia.value.Endereco;
 import br.ufvjm.barbearia.value.Quantidade;
 import br.ufvjm.barbearia.value.Telefone;
-import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Currency;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -57,10 +53,8 @@ public final class Main {
     public static void main(String[] args) {
         Sistema sistema = new Sistema();
 
-        Path extratosDir = Path.of("data/extratos");
         Path snapshotPath = Path.of("data/snapshots/barbearia_snapshot.json");
         Currency brl = Currency.getInstance("BRL");
-        Set<Path> extratosAntes = listarArquivos(extratosDir);
 
         CaixaDiario caixaHoje = sistema.abrirCaixa(LocalDate.now(), Dinheiro.of(BigDecimal.ZERO, brl));
         System.out.printf("Caixa aberto para %s com saldo inicial %s%n", caixaHoje.getData(), caixaHoje.getSaldoAbertura());
@@ -387,15 +381,17 @@ public final class Main {
         vendaConsumidorFinal.calcularTotal();
         sistema.registrarVenda(colaborador, vendaConsumidorFinal);
 
-        Set<Path> extratosDepois = listarArquivos(extratosDir);
-        extratosDepois.removeAll(extratosAntes);
-        List<Path> extratosGerados = new ArrayList<>(extratosDepois);
-        extratosGerados.sort(Comparator.comparing(Path::toString));
+        List<String> extratosGerados = new ArrayList<>();
+        extratosGerados.add(agendamentoPrincipal.getReferenciaExtratoCancelamento());
+        extratosGerados.add(contaRecuperada.getReferenciaExtratoServico());
+        extratosGerados.add(venda.getReferenciaExtrato());
+        extratosGerados.add(vendaConsumidorFinal.getReferenciaExtrato());
+        extratosGerados.removeIf(Objects::isNull);
         if (extratosGerados.isEmpty()) {
-            System.out.printf("Nenhum novo extrato encontrado em %s%n", extratosDir.toAbsolutePath());
+            System.out.println("Nenhum novo extrato gerado");
         } else {
-            extratosGerados.forEach(path ->
-                    System.out.printf("Extrato salvo em: %s%n", path.toAbsolutePath()));
+            extratosGerados.forEach(referencia -> System.out.printf("Extrato salvo em: %s (%d caracteres)%n",
+                    referencia, sistema.lerExtrato(referencia).map(String::length).orElse(0)));
         }
 
         DateTimeFormatter dataHoraFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
@@ -504,19 +500,6 @@ public final class Main {
         return "Main[roteiro demonstrativo do Sistema da barbearia]";
     }
 
-    private static Set<Path> listarArquivos(Path dir) {
-        if (!Files.exists(dir)) {
-            return new HashSet<>();
-        }
-        try (var stream = Files.list(dir)) {
-            return stream
-                    .filter(Files::isRegularFile)
-                    .collect(Collectors.toCollection(HashSet::new));
-        } catch (java.io.IOException e) {
-            throw new UncheckedIOException("Falha ao listar arquivos em " + dir, e);
-        }
-    }
-
     private static String descricaoFilaSecundaria(Agendamento agendamento) {
         if (agendamento == null) {
             return "(fila vazia)";
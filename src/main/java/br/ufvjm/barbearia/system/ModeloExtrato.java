@@ -0,0 +1,399 @@
+package br.ufvjm.barbearia.system;
+
+import br.ufvjm.barbearia.value.Dinheiro;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Layout de extrato compilado uma única vez em segmentos literais e campos.
+ * <p>
+ * O layout usa {@code {nome}} para marcar campos; chaves duplicadas
+ * produzem uma chave literal. Os trechos literais já ficam em UTF-8 e a
+ * renderização escreve os valores direto em um buffer de bytes reaproveitado
+ * por thread, de modo que cada extrato aloca basicamente o array entregue ao
+ * arquivo. Valores
+ * {@link Dinheiro} e datas são formatados conforme o {@link Locale} do
+ * modelo, com símbolos e formatadores guardados em cache.
+ * </p>
+ *
+ * <pre>{@code
+ * ModeloExtrato modelo = ModeloExtrato.compilar("Cliente: {cliente}\nTotal: {total}", LOCALE);
+ * byte[] utf8 = modelo.preencher().com("cliente", nome).com("total", total).paraUtf8();
+ * }</pre>
+ * <p>
+ * O {@link Preenchimento} devolvido por {@link #preencher()} pertence à
+ * thread e é reiniciado a cada chamada; não deve ser guardado.
+ * </p>
+ */
+final class ModeloExtrato {
+
+    private static final String PADRAO_DATA_HORA = "dd/MM/yyyy HH:mm";
+    private static final int CAPACIDADE_INICIAL = 256;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final long[] POTENCIAS = new long[19];
+    private static final Map<Locale, Formatos> FORMATOS = new ConcurrentHashMap<>();
+
+    static {
+        POTENCIAS[0] = 1;
+        for (int i = 1; i < POTENCIAS.length; i++) {
+            POTENCIAS[i] = POTENCIAS[i - 1] * 10;
+        }
+    }
+
+    private final String layout;
+    private final byte[][] literais;
+    private final int[] campos;
+    private final String[] nomes;
+    private final Formatos formatos;
+    private final ThreadLocal<Preenchimento> preenchimentos;
+
+    private ModeloExtrato(String layout, byte[][] literais, int[] campos, String[] nomes, Locale locale) {
+        this.layout = layout;
+        this.literais = literais;
+        this.campos = campos;
+        this.nomes = nomes;
+        this.formatos = FORMATOS.computeIfAbsent(locale, Formatos::new);
+        this.preenchimentos = ThreadLocal.withInitial(() -> new Preenchimento(nomes.length));
+    }
+
+    /**
+     * Compila um layout.
+     *
+     * @param layout texto com campos {@code {nome}}.
+     * @param locale idioma usado na formatação de valores e datas.
+     * @return modelo pronto para renderizar.
+     * @throws IllegalArgumentException se houver chave sem par ou campo sem nome.
+     */
+    static ModeloExtrato compilar(String layout, Locale locale) {
+        Objects.requireNonNull(layout, "layout não pode ser nulo");
+        Objects.requireNonNull(locale, "locale não pode ser nulo");
+        List<String> literais = new ArrayList<>();
+        List<Integer> campos = new ArrayList<>();
+        Map<String, Integer> indices = new HashMap<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < layout.length()) {
+            char c = layout.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < layout.length() && layout.charAt(i + 1) == c) {
+                literal.append(c);
+                i += 2;
+            } else if (c == '{') {
+                int fim = layout.indexOf('}', i + 1);
+                if (fim < 0) {
+                    throw new IllegalArgumentException("Campo sem fechamento na posição " + i + ": " + layout);
+                }
+                String nome = layout.substring(i + 1, fim).trim();
+                if (nome.isEmpty() || nome.indexOf('{') >= 0) {
+                    throw new IllegalArgumentException("Campo inválido na posição " + i + ": " + layout);
+                }
+                literais.add(literal.toString());
+                literal.setLength(0);
+                campos.add(indices.computeIfAbsent(nome, n -> indices.size()));
+                i = fim + 1;
+            } else if (c == '}') {
+                throw new IllegalArgumentException("Chave sem abertura na posição " + i + ": " + layout);
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literais.add(literal.toString());
+
+        String[] nomes = new String[indices.size()];
+        indices.forEach((nome, indice) -> nomes[indice] = nome);
+        byte[][] literaisUtf8 = new byte[literais.size()][];
+        for (int j = 0; j < literaisUtf8.length; j++) {
+            literaisUtf8[j] = literais.get(j).getBytes(StandardCharsets.UTF_8);
+        }
+        return new ModeloExtrato(layout, literaisUtf8,
+                campos.stream().mapToInt(Integer::intValue).toArray(), nomes, locale);
+    }
+
+    /**
+     * @return preenchimento vazio da thread atual.
+     */
+    Preenchimento preencher() {
+        Preenchimento preenchimento = preenchimentos.get();
+        Arrays.fill(preenchimento.valores, null);
+        return preenchimento;
+    }
+
+    Locale getLocale() {
+        return formatos.locale;
+    }
+
+    @Override
+    public String toString() {
+        return "ModeloExtrato[campos=" + Arrays.toString(nomes) + ", locale=" + formatos.locale + "]";
+    }
+
+    private int indice(String nome) {
+        for (int i = 0; i < nomes.length; i++) {
+            if (nomes[i].equals(nome)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Campo inexistente no modelo: " + nome + " (" + layout + ")");
+    }
+
+    /**
+     * Valores de uma renderização e buffers reaproveitados pela thread.
+     */
+    final class Preenchimento {
+
+        private final Object[] valores;
+        private final StringBuilder auxiliar = new StringBuilder(32);
+        private byte[] saida = new byte[CAPACIDADE_INICIAL];
+        private int tamanho;
+
+        private Preenchimento(int campos) {
+            this.valores = new Object[campos];
+        }
+
+        /**
+         * Define o valor de um campo. {@link Dinheiro}, {@link BigDecimal},
+         * {@link TemporalAccessor} e {@link UUID} recebem formatação própria;
+         * os demais usam {@code toString()} e {@code null} vira texto vazio.
+         *
+         * @throws IllegalArgumentException se o campo não existir no layout.
+         */
+        Preenchimento com(String campo, Object valor) {
+            valores[indice(campo)] = valor;
+            return this;
+        }
+
+        /**
+         * @return extrato renderizado em UTF-8, em um array do tamanho exato.
+         */
+        byte[] paraUtf8() {
+            renderizar();
+            return Arrays.copyOf(saida, tamanho);
+        }
+
+        /**
+         * @return extrato renderizado como texto.
+         */
+        String paraTexto() {
+            renderizar();
+            return new String(saida, 0, tamanho, StandardCharsets.UTF_8);
+        }
+
+        private void renderizar() {
+            tamanho = 0;
+            for (int i = 0; i < campos.length; i++) {
+                escrever(literais[i]);
+                formatar(valores[campos[i]]);
+            }
+            escrever(literais[campos.length]);
+        }
+
+        private void formatar(Object valor) {
+            if (valor == null) {
+                return;
+            }
+            if (valor instanceof CharSequence) {
+                escrever((CharSequence) valor);
+            } else if (valor instanceof Dinheiro) {
+                dinheiro((Dinheiro) valor);
+            } else if (valor instanceof BigDecimal) {
+                numero((BigDecimal) valor);
+            } else if (valor instanceof TemporalAccessor) {
+                auxiliar.setLength(0);
+                formatos.dataHora.formatTo((TemporalAccessor) valor, auxiliar);
+                escrever(auxiliar);
+            } else if (valor instanceof UUID) {
+                uuid((UUID) valor);
+            } else {
+                escrever(valor.toString());
+            }
+        }
+
+        /**
+         * Escreve {@code R$ 1.234,56}, ou o equivalente do locale.
+         */
+        private void dinheiro(Dinheiro dinheiro) {
+            BigDecimal valor = dinheiro.getValor();
+            if (valor.signum() < 0) {
+                escrever('-');
+            }
+            escrever(formatos.simbolo(dinheiro.getMoeda()));
+            escrever(' ');
+            numero(valor.abs());
+        }
+
+        /**
+         * Escreve o número com os separadores do locale, sem textos
+         * intermediários para valores de até 18 dígitos.
+         */
+        private void numero(BigDecimal valor) {
+            int escala = valor.scale();
+            if (escala < 0 || escala >= POTENCIAS.length || valor.precision() >= POTENCIAS.length) {
+                numero(valor.toPlainString());
+                return;
+            }
+            if (valor.signum() < 0) {
+                escrever('-');
+            }
+            long unidades = Math.abs(valor.unscaledValue().longValue());
+            long divisor = POTENCIAS[escala];
+            inteiro(unidades / divisor, false);
+            if (escala > 0) {
+                escrever(formatos.separadorDecimal);
+                long fracao = unidades % divisor;
+                for (long p = divisor / 10; p > 0; p /= 10) {
+                    escrever((char) ('0' + fracao / p % 10));
+                }
+            }
+        }
+
+        private void inteiro(long valor, boolean completar) {
+            if (valor >= 1000) {
+                inteiro(valor / 1000, false);
+                escrever(formatos.separadorMilhar);
+                inteiro(valor % 1000, true);
+            } else if (completar) {
+                escrever((char) ('0' + valor / 100));
+                escrever((char) ('0' + valor / 10 % 10));
+                escrever((char) ('0' + valor % 10));
+            } else if (valor >= 10) {
+                inteiro(valor / 10, false);
+                escrever((char) ('0' + valor % 10));
+            } else {
+                escrever((char) ('0' + valor));
+            }
+        }
+
+        private void numero(String plano) {
+            int inicio = plano.startsWith("-") ? 1 : 0;
+            int ponto = plano.indexOf('.');
+            int fimInteiro = ponto >= 0 ? ponto : plano.length();
+            if (inicio > 0) {
+                escrever('-');
+            }
+            for (int i = inicio; i < fimInteiro; i++) {
+                if (i > inicio && (fimInteiro - i) % 3 == 0) {
+                    escrever(formatos.separadorMilhar);
+                }
+                escrever(plano.charAt(i));
+            }
+            if (ponto >= 0) {
+                escrever(formatos.separadorDecimal);
+                escrever(plano.substring(ponto + 1));
+            }
+        }
+
+        private void uuid(UUID uuid) {
+            hex(uuid.getMostSignificantBits() >>> 32, 8);
+            escrever('-');
+            hex(uuid.getMostSignificantBits() >>> 16, 4);
+            escrever('-');
+            hex(uuid.getMostSignificantBits(), 4);
+            escrever('-');
+            hex(uuid.getLeastSignificantBits() >>> 48, 4);
+            escrever('-');
+            hex(uuid.getLeastSignificantBits(), 12);
+        }
+
+        private void hex(long valor, int digitos) {
+            garantir(digitos);
+            for (int deslocamento = (digitos - 1) * 4; deslocamento >= 0; deslocamento -= 4) {
+                saida[tamanho++] = HEX[(int) (valor >>> deslocamento) & 0xF];
+            }
+        }
+
+        private void escrever(byte[] utf8) {
+            garantir(utf8.length);
+            System.arraycopy(utf8, 0, saida, tamanho, utf8.length);
+            tamanho += utf8.length;
+        }
+
+        private void escrever(CharSequence texto) {
+            int n = texto.length();
+            garantir(n * 3);
+            for (int i = 0; i < n; i++) {
+                char c = texto.charAt(i);
+                if (c < 0x80) {
+                    saida[tamanho++] = (byte) c;
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                    int codigo = Character.toCodePoint(c, texto.charAt(++i));
+                    saida[tamanho++] = (byte) (0xF0 | codigo >> 18);
+                    saida[tamanho++] = (byte) (0x80 | codigo >> 12 & 0x3F);
+                    saida[tamanho++] = (byte) (0x80 | codigo >> 6 & 0x3F);
+                    saida[tamanho++] = (byte) (0x80 | codigo & 0x3F);
+                } else {
+                    codificar(c);
+                }
+            }
+        }
+
+        private void escrever(char c) {
+            garantir(3);
+            if (c < 0x80) {
+                saida[tamanho++] = (byte) c;
+            } else {
+                codificar(c);
+            }
+        }
+
+        private void codificar(char c) {
+            if (c < 0x800) {
+                saida[tamanho++] = (byte) (0xC0 | c >> 6);
+                saida[tamanho++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                saida[tamanho++] = '?';
+            } else {
+                saida[tamanho++] = (byte) (0xE0 | c >> 12);
+                saida[tamanho++] = (byte) (0x80 | c >> 6 & 0x3F);
+                saida[tamanho++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+
+        private void garantir(int adicionais) {
+            if (tamanho + adicionais > saida.length) {
+                saida = Arrays.copyOf(saida, Math.max(saida.length * 2, tamanho + adicionais));
+            }
+        }
+    }
+
+    /**
+     * Símbolos e formatadores de um {@link Locale}, compartilhados entre modelos.
+     */
+    private static final class Formatos {
+
+        private final Locale locale;
+        private final char separadorDecimal;
+        private final char separadorMilhar;
+        private final DateTimeFormatter dataHora;
+        private final Map<Currency, byte[]> simbolos = new ConcurrentHashMap<>();
+
+        private Formatos(Locale locale) {
+            DecimalFormatSymbols simbolosDecimais = DecimalFormatSymbols.getInstance(locale);
+            this.locale = locale;
+            this.separadorDecimal = simbolosDecimais.getMonetaryDecimalSeparator();
+            this.separadorMilhar = simbolosDecimais.getGroupingSeparator();
+            this.dataHora = DateTimeFormatter.ofPattern(PADRAO_DATA_HORA, locale);
+        }
+
+        private byte[] simbolo(Currency moeda) {
+            byte[] simbolo = simbolos.get(moeda);
+            if (simbolo == null) {
+                simbolo = moeda.getSymbol(locale).getBytes(StandardCharsets.UTF_8);
+                simbolos.putIfAbsent(moeda, simbolo);
+            }
+            return simbolo;
+        }
+    }
+}
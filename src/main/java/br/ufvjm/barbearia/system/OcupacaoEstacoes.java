@@ -0,0 +1,86 @@
+package br.ufvjm.barbearia.system;
+
+import br.ufvjm.barbearia.enums.StatusAtendimento;
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.Estacao;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Ocupação das estações: uma {@link ArvoreIntervalos} por estação com os
+ * agendamentos não cancelados.
+ * <p>
+ * As árvores das posições de {@link Estacao#ESTACOES} existem desde o início;
+ * estações avulsas ganham a sua no primeiro agendamento. Agendamentos
+ * cancelados fora do {@link Sistema} são descartados na primeira consulta que
+ * os encontrar.
+ * </p>
+ */
+final class OcupacaoEstacoes {
+
+    private final Map<Integer, ArvoreIntervalos<Agendamento>> porEstacao = new HashMap<>();
+
+    OcupacaoEstacoes() {
+        for (Estacao estacao : Estacao.ESTACOES) {
+            porEstacao.put(estacao.getNumero(), new ArvoreIntervalos<>());
+        }
+    }
+
+    /**
+     * Reconstrói a ocupação a partir dos agendamentos carregados.
+     */
+    static OcupacaoEstacoes de(Iterable<Agendamento> agendamentos) {
+        OcupacaoEstacoes ocupacao = new OcupacaoEstacoes();
+        for (Agendamento agendamento : agendamentos) {
+            if (agendamento.getStatus() != StatusAtendimento.CANCELADO) {
+                ocupacao.ocupar(agendamento);
+            }
+        }
+        return ocupacao;
+    }
+
+    void ocupar(Agendamento agendamento) {
+        porEstacao.computeIfAbsent(agendamento.getEstacao().getNumero(), n -> new ArvoreIntervalos<>())
+                .inserir(agendamento, agendamento.getInicio(), agendamento.getFim());
+    }
+
+    void liberar(Agendamento agendamento) {
+        ArvoreIntervalos<Agendamento> arvore = porEstacao.get(agendamento.getEstacao().getNumero());
+        if (arvore != null) {
+            arvore.remover(agendamento);
+        }
+    }
+
+    /**
+     * @return agendamentos da estação que cruzam {@code [inicio, fim)}, em ordem de início.
+     */
+    List<Agendamento> conflitos(Estacao estacao, LocalDateTime inicio, LocalDateTime fim) {
+        ArvoreIntervalos<Agendamento> arvore = porEstacao.get(Objects.requireNonNull(estacao,
+                "estacao não pode ser nula").getNumero());
+        return arvore == null ? List.of() : ativos(arvore, arvore.sobrepostos(inicio, fim));
+    }
+
+    /**
+     * @return agendamentos em andamento na estação no instante informado.
+     */
+    List<Agendamento> ocupantes(Estacao estacao, LocalDateTime instante) {
+        ArvoreIntervalos<Agendamento> arvore = porEstacao.get(Objects.requireNonNull(estacao,
+                "estacao não pode ser nula").getNumero());
+        return arvore == null ? List.of() : ativos(arvore, arvore.em(instante));
+    }
+
+    private static List<Agendamento> ativos(ArvoreIntervalos<Agendamento> arvore, List<Agendamento> encontrados) {
+        for (Iterator<Agendamento> it = encontrados.iterator(); it.hasNext(); ) {
+            Agendamento agendamento = it.next();
+            if (agendamento.getStatus() == StatusAtendimento.CANCELADO) {
+                arvore.remover(agendamento);
+                it.remove();
+            }
+        }
+        return List.copyOf(encontrados);
+    }
+}
@@ -4,6 +4,8 @@ import br.ufvjm.barbearia.compare.AgendamentoPorInicio;
 import br.ufvjm.barbearia.compare.ClientePorNome;
 import br.ufvjm.barbearia.enums.FormaPagamento;
 import br.ufvjm.barbearia.enums.Papel;
+import br.ufvjm.barbearia.enums.StatusAtendimento;
+import br.ufvjm.barbearia.exceptions.ConflitoAgendamentoException;
 import br.ufvjm.barbearia.exceptions.PermissaoNegadaException;
 import br.ufvjm.barbearia.model.Agendamento;
 import br.ufvjm.barbearia.model.CaixaDiario;
@@ -17,31 +19,59 @@ import br.ufvjm.barbearia.model.RecebimentoFornecedor;
 import br.ufvjm.barbearia.model.Servico;
 import br.ufvjm.barbearia.model.Usuario;
 import br.ufvjm.barbearia.model.Venda;
+import br.ufvjm.barbearia.persist.AgendadorSnapshot;
+import br.ufvjm.barbearia.persist.ArquivoAtomico;
+import br.ufvjm.barbearia.persist.ArquivoExtratos;
+import br.ufvjm.barbearia.persist.ColecaoSnapshot;
+import br.ufvjm.barbearia.persist.CompactadorExtratos;
 import br.ufvjm.barbearia.persist.DataSnapshot;
+import br.ufvjm.barbearia.persist.DiretorioSnapshot;
+import br.ufvjm.barbearia.persist.EscritorExtratos;
 import br.ufvjm.barbearia.persist.ExtratoIO;
+import br.ufvjm.barbearia.persist.JournalOperacoes;
 import br.ufvjm.barbearia.persist.JsonStorage;
+import br.ufvjm.barbearia.persist.ParticoesHistoricas;
+import br.ufvjm.barbearia.persist.ReferenciaExtrato;
+import br.ufvjm.barbearia.persist.RegistroJournal;
+import br.ufvjm.barbearia.persist.SnapshotFormato;
+import br.ufvjm.barbearia.persist.SnapshotIncremental;
+import br.ufvjm.barbearia.persist.SnapshotSink;
 import br.ufvjm.barbearia.util.Log;
 import br.ufvjm.barbearia.value.Dinheiro;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Currency;
 import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -64,8 +94,40 @@ import java.util.stream.Collectors;
  *     atendimentos quando há cancelamentos.</li>
  *     <li>Reforçar invariantes financeiros, como nunca permitir {@code null} em
  *     totais, valores ou path de persistência.</li>
- *     <li>Delegar a persistência para {@link JsonStorage}, mantendo a classe como
+ *     <li>Delegar a persistência para {@link JsonStorage} (ou para o formato
+ *     binário, conforme {@link SnapshotFormato}), mantendo a classe como
  *     orquestradora, e não responsável pela serialização em si.</li>
+ *     <li>Quando um {@link JournalOperacoes} é configurado, registrar o estado
+ *     resultante de cada operação de escrita para que {@link #loadAll(Path)}
+ *     recupere o que foi feito após o último snapshot.</li>
+ *     <li>Com snapshots incrementais ativos
+ *     ({@link #configurarSnapshotsIncrementais(int)}), acompanhar as entidades
+ *     alteradas para que {@link #saveAll(Usuario, Path)} grave apenas um delta
+ *     sobre a última base completa ({@link SnapshotIncremental}).</li>
+ *     <li>Com um {@link EscritorExtratos} configurado, gravar os extratos em
+ *     segundo plano: as operações apenas enfileiram o texto, e a marcação do
+ *     extrato na entidade e no cliente é aplicada quando a gravação termina.</li>
+ *     <li>Anexar os extratos a um {@link ArquivoExtratos} (segmentos com
+ *     índice), guardando nas entidades a referência {@code segmento#offset};
+ *     {@link #lerExtrato(String)} resolve tanto essas referências quanto os
+ *     caminhos de arquivos avulsos gravados por versões anteriores.</li>
+ *     <li>Com um {@link CompactadorExtratos} configurado, os extratos antigos
+ *     são movidos em segundo plano para arquivos mensais e as referências das
+ *     vendas, contas e agendamentos são trocadas na thread do sistema.</li>
+ *     <li>Recusar agendamentos que disputam a mesma estação no mesmo horário
+ *     ({@link ConflitoAgendamentoException}), consultando uma árvore de
+ *     intervalos por estação em vez de percorrer a agenda.</li>
+ *     <li>Renderizar os extratos a partir de modelos pré-compilados
+ *     ({@link ModeloExtrato}), com valores e datas no formato brasileiro.</li>
+ *     <li>Manter um índice por cliente ({@link IndiceClientes}) com seus
+ *     agendamentos, vendas e contas em ordem cronológica, para que o
+ *     histórico de um cliente não dependa do tamanho das coleções.</li>
+ *     <li>Garantir no máximo uma conta aberta por OS, localizando a conta de
+ *     cada agendamento por um índice em vez de percorrer as contas.</li>
+ *     <li>Manter os caixas diários ordenados por data ({@link CaixasPorData}),
+ *     com consultas e resumos por período ({@link ResumoCaixas}).</li>
+ *     <li>Localizar produtos por SKU e produtos e serviços por prefixo do nome
+ *     sem acentos ({@link CatalogoIndexado}), para a busca no balcão.</li>
  * </ul>
  *
  * <p>
@@ -99,6 +161,27 @@ public class Sistema {
     private static final ClientePorNome DEFAULT_CLIENTE_COMPARATOR = new ClientePorNome();
     private static final AgendamentoPorInicio DEFAULT_AGENDAMENTO_COMPARATOR = new AgendamentoPorInicio();
     private static final Path EXTRATOS_DIR = Path.of("data/extratos");
+    private static final Locale LOCALE_EXTRATOS = Locale.forLanguageTag("pt-BR");
+    private static final ModeloExtrato EXTRATO_SERVICO = ModeloExtrato.compilar("Extrato de Serviço\n"
+            + "OS: {os}\n"
+            + "Cliente: {cliente}\n"
+            + "Barbeiro: {barbeiro}\n"
+            + "Total serviços: {totalServicos}\n"
+            + "Total conta: {totalConta}\n"
+            + "Forma de pagamento: {formaPagamento}\n"
+            + "Emitido em: {emitidoEm}", LOCALE_EXTRATOS);
+    private static final ModeloExtrato EXTRATO_VENDA = ModeloExtrato.compilar("Extrato de Venda\n"
+            + "Cliente: {cliente}\n"
+            + "Total: {total}\n"
+            + "Emitido em: {emitidoEm}", LOCALE_EXTRATOS);
+    private static final ModeloExtrato EXTRATO_CANCELAMENTO = ModeloExtrato.compilar("Extrato de Cancelamento\n"
+            + "Cliente: {cliente}\n"
+            + "Ordem de Serviço: {os}\n"
+            + "Total de Serviços: {totalServicos}\n"
+            + "Retenção ({percentual}%): {retencao}\n"
+            + "Valor a reembolsar: {reembolso}\n"
+            + "Emitido em: {emitidoEm}", LOCALE_EXTRATOS);
+    private static final int GERACOES_SNAPSHOT_PADRAO = 3;
 
     /**
      * Implementação utilitária de busca linear usando {@link Iterator} e um {@link Comparator}.
@@ -191,24 +274,244 @@ public class Sistema {
         }
     }
 
+    /**
+     * Totais de um período de caixas diários, somados a partir dos acumulados
+     * de cada caixa.
+     */
+    public static final class ResumoCaixas {
+
+        private final LocalDate inicio;
+        private final LocalDate fim;
+        private final int quantidadeCaixas;
+        private final Dinheiro entradas;
+        private final Dinheiro saidas;
+
+        private ResumoCaixas(LocalDate inicio, LocalDate fim, int quantidadeCaixas, Dinheiro entradas,
+                             Dinheiro saidas) {
+            this.inicio = inicio;
+            this.fim = fim;
+            this.quantidadeCaixas = quantidadeCaixas;
+            this.entradas = entradas;
+            this.saidas = saidas;
+        }
+
+        public LocalDate getInicio() {
+            return inicio;
+        }
+
+        public LocalDate getFim() {
+            return fim;
+        }
+
+        public int getQuantidadeCaixas() {
+            return quantidadeCaixas;
+        }
+
+        public Dinheiro getEntradas() {
+            return entradas;
+        }
+
+        public Dinheiro getSaidas() {
+            return saidas;
+        }
+
+        public Dinheiro getSaldo() {
+            return entradas.subtrair(saidas);
+        }
+
+        @Override
+        public String toString() {
+            return "ResumoCaixas{"
+                    + "inicio=" + inicio
+                    + ", fim=" + fim
+                    + ", caixas=" + quantidadeCaixas
+                    + ", entradas=" + entradas
+                    + ", saidas=" + saidas
+                    + '}';
+        }
+    }
+
     // 🔹 Estruturas principais
-    private List<Cliente> clientes = new ArrayList<>();
-    private List<Usuario> usuarios = new ArrayList<>();
-    private List<Servico> servicos = new ArrayList<>();
-    private List<Produto> produtos = new ArrayList<>();
-    private List<Agendamento> agendamentos = new ArrayList<>();
-    private List<Venda> vendas = new ArrayList<>();
-    private List<ContaAtendimento> contas = new ArrayList<>();
-    private List<Despesa> despesas = new ArrayList<>();
-    private List<RecebimentoFornecedor> recebimentos = new ArrayList<>();
-    private List<CaixaDiario> caixas = new ArrayList<>();
+    private ColecaoIndexada<Cliente> clientes = new ColecaoIndexada<>(Cliente::getId);
+    private ColecaoIndexada<Usuario> usuarios = new ColecaoIndexada<>(Usuario::getId);
+    private ColecaoIndexada<Servico> servicos = new ColecaoIndexada<>(Servico::getId);
+    private ColecaoIndexada<Produto> produtos = new ColecaoIndexada<>(Produto::getId);
+    private CatalogoIndexado catalogo = new CatalogoIndexado();
+    private ColecaoIndexada<Agendamento> agendamentos = new ColecaoIndexada<>(Agendamento::getId);
+    private IndiceTemporal<Agendamento> agenda = new IndiceTemporal<>(Agendamento::getId, Agendamento::getInicio);
+    private OcupacaoEstacoes ocupacao = new OcupacaoEstacoes();
+    private IndiceClientes atividadeClientes = new IndiceClientes();
+    private ColecaoIndexada<Venda> vendas = new ColecaoIndexada<>(Venda::getId);
+    private ColecaoIndexada<ContaAtendimento> contas = new ColecaoIndexada<>(ContaAtendimento::getId);
+    private ContasPorAgendamento contasPorAgendamento = new ContasPorAgendamento();
+    private ColecaoIndexada<Despesa> despesas = new ColecaoIndexada<>(Despesa::getId);
+    private ColecaoIndexada<RecebimentoFornecedor> recebimentos = new ColecaoIndexada<>(RecebimentoFornecedor::getId);
+    private CaixasPorData caixas = new CaixasPorData();
 
     // 🔹 Pilha de atendimentos secundários
     private Deque<Agendamento> filaSecundaria = new ArrayDeque<>();
 
+    // 🔹 Journal de operações (opcional)
+    private JournalOperacoes journal;
+
+    // 🔹 Competências ainda não lidas de um snapshot aberto sob demanda
+    private ParticoesHistoricas historico;
+
+    // 🔹 Gravação de snapshots
+    private int geracoesSnapshot = GERACOES_SNAPSHOT_PADRAO;
+    private AgendadorSnapshot agendador;
+
+    // 🔹 Snapshots incrementais: alterações desde a última base completa
+    private int deltasAteCompactar;
+    private SnapshotIncremental.Alteracoes alteracoes = new SnapshotIncremental.Alteracoes();
+    private Path baseIncremental;
+    private String assinaturaBase;
+    private int deltasNaBase;
+
+    // 🔹 Arquivo de extratos (aberto na primeira emissão ou leitura)
+    private ArquivoExtratos arquivoExtratos;
+
+    // 🔹 Extratos gravados em segundo plano (opcional)
+    private EscritorExtratos escritorExtratos;
+    private final Set<UUID> extratosPendentes = new HashSet<>();
+    private final Queue<Runnable> extratosConcluidos = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Associa um journal de operações ao sistema.
+     * <p>
+     * A partir desta chamada, cada operação de escrita acrescenta ao journal o
+     * estado resultante das entidades afetadas; {@link #loadAll(Path)} reaplica
+     * esses registros sobre o snapshot e {@link #saveAll(Usuario, Path)} descarta
+     * os registros já cobertos pelo novo snapshot (checkpoint). Alterações feitas
+     * diretamente nas entidades, fora dos métodos do sistema, só são persistidas
+     * no próximo snapshot.
+     * </p>
+     * <p>
+     * Entidades aninhadas já cadastradas no sistema são gravadas no journal
+     * apenas pela chave. Por isso o journal deve ser configurado antes da
+     * carga ou de qualquer cadastro ainda não coberto por um snapshot.
+     * </p>
+     *
+     * @param journal journal aberto, ou {@code null} para desativar o registro.
+     */
+    public void configurarJournal(JournalOperacoes journal) {
+        this.journal = journal;
+        if (journal != null) {
+            journal.usarCadastro(this::entidadeCadastrada);
+        }
+    }
+
+    /**
+     * Entidade de topo cadastrada com o tipo e a chave informados, ou
+     * {@code null}; consultada pelo journal para gravar referências.
+     */
+    private Object entidadeCadastrada(Class<?> tipo, String chave) {
+        UUID id = UUID.fromString(chave);
+        if (tipo == Cliente.class) {
+            return clientes.buscar(id).orElse(null);
+        } else if (tipo == Usuario.class) {
+            return usuarios.buscar(id).orElse(null);
+        } else if (tipo == Servico.class) {
+            return servicos.buscar(id).orElse(null);
+        } else if (tipo == Produto.class) {
+            return produtos.buscar(id).orElse(null);
+        } else if (tipo == Agendamento.class) {
+            return agendamentos.buscar(id).orElse(null);
+        } else if (tipo == Venda.class) {
+            return vendas.buscar(id).orElse(null);
+        } else if (tipo == ContaAtendimento.class) {
+            return contas.buscar(id).orElse(null);
+        }
+        return null;
+    }
+
+    /**
+     * Passa a gravar os extratos em segundo plano.
+     * <p>
+     * As operações de venda, fechamento de conta e cancelamento deixam de
+     * esperar pelo disco: o extrato é enfileirado no escritor e a marcação na
+     * entidade ({@code marcarExtratoGerado} e afins) e no cliente
+     * ({@link Cliente#registrarExtrato()}) é aplicada na thread do
+     * sistema, na próxima operação que emitir extratos ou em
+     * {@link #sincronizarExtratos()}. {@link #saveAll(Usuario, Path)} e
+     * {@link #loadAll(Path)} sincronizam antes de começar. O escritor continua
+     * pertencendo a quem o criou, que deve fechá-lo ao final.
+     * </p>
+     *
+     * @param escritor escritor aberto, ou {@code null} para voltar à gravação síncrona.
+     */
+    public void configurarEscritorExtratos(EscritorExtratos escritor) {
+        sincronizarExtratos();
+        this.escritorExtratos = escritor;
+    }
+
+    /**
+     * Define o arquivo onde os extratos são anexados.
+     * <p>
+     * Sem esta chamada, o sistema abre {@code data/extratos} na primeira
+     * emissão ou leitura. Os extratos já enfileirados são concluídos no
+     * arquivo anterior. O arquivo continua pertencendo a quem o abriu.
+     * </p>
+     *
+     * @param arquivo arquivo de extratos aberto.
+     */
+    public void configurarArquivoExtratos(ArquivoExtratos arquivo) {
+        Objects.requireNonNull(arquivo, "arquivo não pode ser nulo");
+        sincronizarExtratos();
+        this.arquivoExtratos = arquivo;
+    }
+
+    /**
+     * Passa a compactar em segundo plano os extratos mais antigos que a
+     * retenção do compactador.
+     * <p>
+     * Cada compactação move extratos para os arquivos mensais; a troca das
+     * referências em vendas, contas e agendamentos carregados é aplicada na
+     * thread do sistema, como as marcações de {@link EscritorExtratos}, e
+     * registrada no journal em um único append. Referências que ficarem para
+     * trás (histórico ainda não carregado, snapshots antigos) continuam
+     * legíveis por {@link #lerExtrato(String)}. O compactador continua
+     * pertencendo a quem o criou, que deve fechá-lo ao final.
+     * </p>
+     *
+     * @param compactador compactador aberto.
+     */
+    public void configurarCompactacaoExtratos(CompactadorExtratos compactador) {
+        Objects.requireNonNull(compactador, "compactador não pode ser nulo");
+        sincronizarExtratos();
+        compactador.agendar(arquivoExtratos(),
+                compactacao -> extratosConcluidos.add(() -> aplicarRealocacoes(compactacao)));
+    }
+
+    private ArquivoExtratos arquivoExtratos() {
+        if (arquivoExtratos == null) {
+            try {
+                arquivoExtratos = ArquivoExtratos.abrir(EXTRATOS_DIR);
+            } catch (IOException e) {
+                Log.error("Falha ao abrir o arquivo de extratos em " + EXTRATOS_DIR, e);
+                throw new UncheckedIOException("Falha ao abrir o arquivo de extratos", e);
+            }
+        }
+        return arquivoExtratos;
+    }
+
+    /**
+     * Aguarda os extratos enfileirados e aplica as marcações pendentes.
+     */
+    public void sincronizarExtratos() {
+        if (escritorExtratos != null) {
+            escritorExtratos.descarregar();
+        }
+        aplicarExtratosConcluidos();
+    }
+
     // 🔹 CRUD de Cliente
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     */
     public void cadastrarCliente(Cliente c) {
         clientes.add(Objects.requireNonNull(c, "cliente não pode ser nulo"));
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.CLIENTES, c));
     }
 
     public void editarCliente(UUID id, Cliente novo) {
@@ -218,14 +521,15 @@ public class Sistema {
             throw new IllegalArgumentException("ID do cliente não corresponde ao registro atualizado");
         }
         substituirCliente(id, clienteAtualizado);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.CLIENTES, clienteAtualizado));
     }
 
     public void removerCliente(UUID id) {
         Objects.requireNonNull(id, "id não pode ser nulo");
-        boolean removido = clientes.removeIf(c -> c.getId().equals(id));
-        if (!removido) {
+        if (!clientes.remover(id)) {
             throw new IllegalArgumentException("Cliente não encontrado: " + id);
         }
+        registrarAlteracoes(RegistroJournal.remocao(ColecaoSnapshot.CLIENTES, id));
     }
 
     public List<Cliente> listarClientesOrdenados() {
@@ -242,9 +546,13 @@ public class Sistema {
     }
 
     // 🔹 CRUD de Colaboradores
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     */
     public void cadastrarUsuario(Usuario solicitante, Usuario novoUsuario) {
         assertAdmin(solicitante);
         usuarios.add(Objects.requireNonNull(novoUsuario, "usuario não pode ser nulo"));
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.USUARIOS, novoUsuario));
     }
 
     public void editarUsuario(Usuario solicitante, UUID id, Usuario novo) {
@@ -255,21 +563,26 @@ public class Sistema {
             throw new IllegalArgumentException("ID do usuário não corresponde ao registro atualizado");
         }
         substituirUsuario(id, usuarioAtualizado);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.USUARIOS, usuarioAtualizado));
     }
 
     public void removerUsuario(Usuario solicitante, UUID id) {
         assertAdmin(solicitante);
         Objects.requireNonNull(id, "id não pode ser nulo");
-        boolean removido = usuarios.removeIf(u -> u.getId().equals(id));
-        if (!removido) {
+        if (!usuarios.remover(id)) {
             throw new IllegalArgumentException("Usuário não encontrado: " + id);
         }
+        registrarAlteracoes(RegistroJournal.remocao(ColecaoSnapshot.USUARIOS, id));
     }
 
     // 🔹 Despesas e balanço
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     */
     public void registrarDespesa(Usuario solicitante, Despesa despesa) {
         assertAdmin(solicitante);
         despesas.add(Objects.requireNonNull(despesa, "despesa não pode ser nula"));
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.DESPESAS, despesa));
     }
 
     public List<Despesa> listarDespesas(Usuario solicitante) {
@@ -280,16 +593,17 @@ public class Sistema {
     public void removerDespesa(Usuario solicitante, UUID id) {
         assertAdmin(solicitante);
         Objects.requireNonNull(id, "id não pode ser nulo");
-        boolean removido = despesas.removeIf(d -> d.getId().equals(id));
-        if (!removido) {
+        if (!despesas.remover(id)) {
             throw new IllegalArgumentException("Despesa não encontrada: " + id);
         }
+        registrarAlteracoes(RegistroJournal.remocao(ColecaoSnapshot.DESPESAS, id));
     }
 
     public Dinheiro calcularBalancoMensal(Usuario solicitante, YearMonth competencia, Currency moedaBase) {
         assertAdmin(solicitante);
         Objects.requireNonNull(competencia, "competencia não pode ser nula");
         Currency moeda = Objects.requireNonNull(moedaBase, "moedaBase não pode ser nula");
+        garantirCompetencia(competencia);
 
         Dinheiro totalReceitas = Dinheiro.of(BigDecimal.ZERO, moeda);
         for (Venda venda : vendas) {
@@ -376,46 +690,109 @@ public class Sistema {
     }
 
     // 🔹 Catálogo de Serviços
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     */
     public void cadastrarServico(Servico servico) {
         servicos.add(Objects.requireNonNull(servico, "servico não pode ser nulo"));
+        catalogo.adicionar(servico);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.SERVICOS, servico));
     }
 
     public List<Servico> listarServicos() {
         return List.copyOf(servicos);
     }
 
+    /**
+     * Busca para digitação no balcão: serviços com alguma palavra do nome
+     * iniciada pelo prefixo, ignorando acentos e maiúsculas.
+     *
+     * @return até {@code limite} serviços, em ordem alfabética do trecho encontrado.
+     */
+    public List<Servico> buscarServicosPorNome(String prefixo, int limite) {
+        Objects.requireNonNull(prefixo, "prefixo não pode ser nulo");
+        return catalogo.servicos(prefixo, limite);
+    }
+
     // 🔹 Catálogo de Produtos
+    /**
+     * @throws IllegalArgumentException se o id ou o SKU já estiverem cadastrados.
+     */
     public void cadastrarProduto(Produto produto) {
-        produtos.add(Objects.requireNonNull(produto, "produto não pode ser nulo"));
+        Objects.requireNonNull(produto, "produto não pode ser nulo");
+        catalogo.verificarSkuLivre(produto);
+        produtos.add(produto);
+        catalogo.adicionar(produto);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.PRODUTOS, produto));
     }
 
     public List<Produto> listarProdutos() {
         return List.copyOf(produtos);
     }
 
+    /**
+     * @return produto com o SKU informado, sem diferenciar maiúsculas de minúsculas.
+     */
+    public Optional<Produto> buscarProdutoPorSku(String sku) {
+        Objects.requireNonNull(sku, "sku não pode ser nulo");
+        return catalogo.porSku(sku);
+    }
+
+    /**
+     * Busca para digitação no balcão: produtos com alguma palavra do nome
+     * iniciada pelo prefixo, ignorando acentos e maiúsculas. Acompanha as
+     * trocas feitas por {@link Produto#atualizarNome(String)}.
+     *
+     * @return até {@code limite} produtos, em ordem alfabética do trecho encontrado.
+     */
+    public List<Produto> buscarProdutosPorNome(String prefixo, int limite) {
+        Objects.requireNonNull(prefixo, "prefixo não pode ser nulo");
+        return catalogo.produtos(prefixo, limite);
+    }
+
     // 🔹 Vendas
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     */
     public void registrarVenda(Usuario solicitante, Venda venda) {
         assertColaboradorOuAdmin(solicitante);
         Venda registro = Objects.requireNonNull(venda, "venda não pode ser nula");
+        garantirCompetencia(ColecaoSnapshot.VENDAS.competenciaDe(registro));
         vendas.add(registro);
-        gerarExtratoVenda(registro);
+        atividadeClientes.adicionar(registro);
+        emitirExtratoVenda(registro);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.VENDAS, registro),
+                gravacaoCliente(registro.getCliente()));
     }
 
     public List<Venda> listarVendas(Usuario solicitante) {
         assertAdmin(solicitante);
+        garantirHistoricoCompleto();
         return List.copyOf(vendas);
     }
 
     // 🔹 Contas de Atendimento
+    /**
+     * @throws IllegalStateException se a OS já tiver uma conta aberta.
+     */
     public ContaAtendimento criarContaAtendimento(Agendamento agendamento) {
-        ContaAtendimento conta = new ContaAtendimento(UUID.randomUUID(),
-                Objects.requireNonNull(agendamento, "agendamento não pode ser nulo"));
-        contas.add(conta);
+        ContaAtendimento conta = novaContaAtendimento(agendamento);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.CONTAS, conta));
         return conta;
     }
 
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     * @throws IllegalStateException se a conta estiver aberta e a OS já tiver outra conta aberta.
+     */
     public void registrarConta(ContaAtendimento conta) {
-        contas.add(Objects.requireNonNull(conta, "conta não pode ser nula"));
+        Objects.requireNonNull(conta, "conta não pode ser nula");
+        garantirCompetencia(ColecaoSnapshot.CONTAS.competenciaDe(conta));
+        contasPorAgendamento.verificarUnicaAberta(conta);
+        contas.add(conta);
+        contasPorAgendamento.adicionar(conta);
+        atividadeClientes.adicionar(conta);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.CONTAS, conta));
     }
 
     public void atualizarConta(UUID id, ContaAtendimento contaAtualizada) {
@@ -424,26 +801,48 @@ public class Sistema {
         if (!atualizada.getId().equals(id)) {
             throw new IllegalArgumentException("ID da conta não corresponde ao registro atualizado");
         }
+        garantirCompetencia(ColecaoSnapshot.CONTAS.competenciaDe(atualizada));
+        contasPorAgendamento.verificarUnicaAberta(atualizada);
         substituirConta(id, atualizada);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.CONTAS, atualizada));
     }
 
     public void removerConta(UUID id) {
         Objects.requireNonNull(id, "id não pode ser nulo");
-        boolean removida = contas.removeIf(c -> c.getId().equals(id));
-        if (!removida) {
+        Optional<ContaAtendimento> removida = contas.buscar(id);
+        if (removida.isEmpty() && historico != null) {
+            garantirHistoricoCompleto();
+            removida = contas.buscar(id);
+        }
+        if (removida.isEmpty()) {
             throw new IllegalArgumentException("Conta não encontrada: " + id);
         }
+        contas.remover(id);
+        contasPorAgendamento.remover(removida.get());
+        atividadeClientes.remover(removida.get());
+        registrarAlteracoes(RegistroJournal.remocao(ColecaoSnapshot.CONTAS, id));
     }
 
     public List<ContaAtendimento> listarContas() {
+        garantirHistoricoCompleto();
         return List.copyOf(contas);
     }
 
+    /**
+     * @return conta aberta da OS ou, se todas estiverem fechadas, a primeira
+     * registrada; a busca usa o índice por agendamento e não percorre as contas.
+     */
     public Optional<ContaAtendimento> buscarContaPorAgendamento(UUID agendamentoId) {
         Objects.requireNonNull(agendamentoId, "agendamentoId não pode ser nulo");
-        return contas.stream()
-                .filter(c -> c.getAgendamento().getId().equals(agendamentoId))
-                .findFirst();
+        if (historico != null) {
+            Optional<Agendamento> agendamento = agendamentos.buscar(agendamentoId);
+            if (agendamento.isPresent()) {
+                garantirCompetencia(YearMonth.from(agendamento.get().getInicio()));
+            } else {
+                garantirHistoricoCompleto();
+            }
+        }
+        return contasPorAgendamento.buscar(agendamentoId);
     }
 
     public ContaAtendimento fecharContaAtendimento(Usuario solicitante, UUID agendamentoId,
@@ -454,7 +853,7 @@ public class Sistema {
 
         Agendamento agendamento = localizarAgendamento(agendamentoId);
         ContaAtendimento conta = buscarContaPorAgendamento(agendamentoId)
-                .orElseGet(() -> criarContaAtendimento(agendamento));
+                .orElseGet(() -> novaContaAtendimento(agendamento));
 
         if (!conta.isFechada()) {
             boolean totalCalculado = true;
@@ -472,7 +871,9 @@ public class Sistema {
             Log.debug("Conta de atendimento %s já estava fechada", conta.getId());
         }
 
-        gerarExtratoServico(conta);
+        emitirExtratoServico(conta);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.CONTAS, conta),
+                gravacaoCliente(agendamento.getCliente()));
         return conta;
     }
 
@@ -485,12 +886,59 @@ public class Sistema {
         }
         CaixaDiario caixa = new CaixaDiario(data, saldoAbertura);
         caixas.add(caixa);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.CAIXAS, caixa));
         return caixa;
     }
 
     public List<CaixaDiario> listarCaixas(Usuario solicitante) {
         assertAdmin(solicitante);
-        return List.copyOf(caixas);
+        garantirHistoricoCompleto();
+        return caixas.listar();
+    }
+
+    /**
+     * @return caixas com data em {@code [inicio, fim]}, em ordem cronológica;
+     * apenas as competências do período são lidas do histórico.
+     */
+    public List<CaixaDiario> listarCaixasEntre(Usuario solicitante, LocalDate inicio, LocalDate fim) {
+        assertAdmin(solicitante);
+        garantirCompetencias(inicio, fim);
+        return List.copyOf(caixas.entre(inicio, fim));
+    }
+
+    /**
+     * @return caixas da semana (segunda a domingo) que contém o dia.
+     */
+    public List<CaixaDiario> listarCaixasDaSemana(Usuario solicitante, LocalDate dia) {
+        LocalDate segunda = Objects.requireNonNull(dia, "dia não pode ser nulo").with(DayOfWeek.MONDAY);
+        return listarCaixasEntre(solicitante, segunda, segunda.plusDays(6));
+    }
+
+    public List<CaixaDiario> listarCaixasDoMes(Usuario solicitante, YearMonth competencia) {
+        Objects.requireNonNull(competencia, "competencia não pode ser nula");
+        return listarCaixasEntre(solicitante, competencia.atDay(1), competencia.atEndOfMonth());
+    }
+
+    /**
+     * Soma as entradas e saídas dos caixas com data em {@code [inicio, fim]}.
+     * Cada caixa contribui com seus acumulados, sem percorrer os movimentos.
+     */
+    public ResumoCaixas resumirCaixas(Usuario solicitante, LocalDate inicio, LocalDate fim, Currency moedaBase) {
+        assertAdmin(solicitante);
+        Currency moeda = Objects.requireNonNull(moedaBase, "moedaBase não pode ser nula");
+        garantirCompetencias(inicio, fim);
+
+        Dinheiro entradas = Dinheiro.of(BigDecimal.ZERO, moeda);
+        Dinheiro saidas = Dinheiro.of(BigDecimal.ZERO, moeda);
+        int quantidade = 0;
+        for (CaixaDiario caixa : caixas.entre(inicio, fim)) {
+            validarMoeda(caixa.getEntradasAcumuladas(), moeda);
+            validarMoeda(caixa.getSaidasAcumuladas(), moeda);
+            entradas = entradas.somar(caixa.getEntradasAcumuladas());
+            saidas = saidas.somar(caixa.getSaidasAcumuladas());
+            quantidade++;
+        }
+        return new ResumoCaixas(inicio, fim, quantidade, entradas, saidas);
     }
 
     public Optional<CaixaDiario> localizarCaixa(Usuario solicitante, LocalDate data) {
@@ -508,13 +956,18 @@ public class Sistema {
 
     public void removerCaixa(LocalDate data) {
         Objects.requireNonNull(data, "data não pode ser nula");
-        boolean removido = caixas.removeIf(c -> c.getData().equals(data));
-        if (!removido) {
+        garantirCompetencia(YearMonth.from(data));
+        if (!caixas.remover(data)) {
             throw new IllegalArgumentException("Caixa não encontrado: " + data);
         }
+        registrarAlteracoes(RegistroJournal.remocao(ColecaoSnapshot.CAIXAS, data));
     }
 
     // 🔹 Agendamentos
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     * @throws ConflitoAgendamentoException se a estação já estiver reservada em parte do horário.
+     */
     public Agendamento criarAgendamento(UUID id, Cliente cliente, Estacao estacao,
                                         LocalDateTime inicio, LocalDateTime fim, Dinheiro sinal) {
         Agendamento agendamento = new Agendamento(id, cliente, estacao, inicio, fim, sinal);
@@ -528,22 +981,79 @@ public class Sistema {
      * O método é utilizado tanto pelo fluxo padrão de criação quanto pela
      * promoção de agendamentos vindos da fila secundária. O incremento do
      * contador de OS acontece em um único ponto para garantir consistência
-     * estatística.
+     * estatística. A estação precisa estar livre em {@code [inicio, fim)};
+     * a verificação consulta apenas a árvore de intervalos da estação.
      * </p>
      *
      * @param ag agendamento validado a ser incluído na agenda.
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     * @throws ConflitoAgendamentoException se a estação já estiver reservada em parte do horário.
      */
     public void realizarAgendamento(Agendamento ag) {
         registrarAgendamento(Objects.requireNonNull(ag, "agendamento não pode ser nulo"));
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.AGENDAMENTOS, ag));
     }
 
     private void registrarAgendamento(Agendamento ag) {
+        verificarDisponibilidade(ag);
         agendamentos.add(ag);
+        agenda.adicionar(ag);
+        atividadeClientes.adicionar(ag);
+        if (ag.getStatus() != StatusAtendimento.CANCELADO) {
+            ocupacao.ocupar(ag);
+        }
         incrementarTotalOS();
         String clienteNome = ag.getCliente() != null ? ag.getCliente().getNome() : "(sem cliente)";
         Log.info("Agendamento registrado: %s para %s", ag.getId(), clienteNome);
     }
 
+    private void verificarDisponibilidade(Agendamento ag) {
+        if (ag.getStatus() == StatusAtendimento.CANCELADO) {
+            return;
+        }
+        List<UUID> conflitantes = ocupacao.conflitos(ag.getEstacao(), ag.getInicio(), ag.getFim()).stream()
+                .map(Agendamento::getId)
+                .filter(id -> !id.equals(ag.getId()))
+                .collect(Collectors.toList());
+        if (!conflitantes.isEmpty()) {
+            int estacao = ag.getEstacao().getNumero();
+            Log.warning("Agendamento %s recusado: estação %d ocupada em %s por %s", ag.getId(), estacao,
+                    ag.periodo(), conflitantes);
+            throw new ConflitoAgendamentoException("Estação " + estacao + " já reservada em " + ag.periodo(),
+                    estacao, conflitantes);
+        }
+    }
+
+    /**
+     * Agendamentos não cancelados em andamento na estação no instante
+     * informado (início inclusivo, fim exclusivo).
+     *
+     * @param estacao  estação consultada.
+     * @param instante momento de interesse.
+     * @return ocupantes da estação, normalmente zero ou um.
+     */
+    public List<Agendamento> listarOcupantesDaEstacao(Estacao estacao, LocalDateTime instante) {
+        Objects.requireNonNull(estacao, "estacao não pode ser nula");
+        Objects.requireNonNull(instante, "instante não pode ser nulo");
+        return ocupacao.ocupantes(estacao, instante);
+    }
+
+    /**
+     * Agendamentos não cancelados da estação que cruzam a janela
+     * {@code [inicio, fim)}; vazio significa que a janela pode ser reservada.
+     *
+     * @param estacao estação consultada.
+     * @param inicio  início da janela, inclusivo.
+     * @param fim     fim da janela, exclusivo.
+     * @return agendamentos conflitantes em ordem de início.
+     */
+    public List<Agendamento> listarConflitosNaEstacao(Estacao estacao, LocalDateTime inicio, LocalDateTime fim) {
+        Objects.requireNonNull(estacao, "estacao não pode ser nula");
+        Objects.requireNonNull(inicio, "inicio não pode ser nulo");
+        Objects.requireNonNull(fim, "fim não pode ser nulo");
+        return ocupacao.conflitos(estacao, inicio, fim);
+    }
+
     public List<Agendamento> listarAgendamentosOrdenados() {
         return listarAgendamentosOrdenados(DEFAULT_AGENDAMENTO_COMPARATOR, 0, agendamentos.size());
     }
@@ -552,9 +1062,48 @@ public class Sistema {
         return listarAgendamentosOrdenados(DEFAULT_AGENDAMENTO_COMPARATOR, offset, limit);
     }
 
+    /**
+     * Lista os agendamentos na ordem do comparator, paginados. Na ordem padrão
+     * (por início) a página sai direto do índice da agenda, sem ordenar a
+     * coleção.
+     */
     public List<Agendamento> listarAgendamentosOrdenados(Comparator<Agendamento> comparator, int offset, int limit) {
-        Comparator<Agendamento> criterio = comparator != null ? comparator : DEFAULT_AGENDAMENTO_COMPARATOR;
-        return ordenarERecortar(agendamentos, criterio, offset, limit);
+        if (comparator == null || comparator.getClass() == AgendamentoPorInicio.class) {
+            int safeOffset = normalizarOffset(offset);
+            int safeLimit = normalizarLimite(limit, agenda.size(), safeOffset);
+            return safeLimit <= 0 ? List.of() : List.copyOf(agenda.recortar(safeOffset, safeLimit));
+        }
+        return ordenarERecortar(agendamentos, comparator, offset, limit);
+    }
+
+    /**
+     * Agendamentos com início no intervalo {@code [inicio, fim)}, em ordem de
+     * início, incluindo os cancelados.
+     *
+     * @param inicio instante inicial, inclusivo.
+     * @param fim    instante final, exclusivo.
+     * @return lista imutável; vazia se {@code fim} não for posterior a {@code inicio}.
+     */
+    public List<Agendamento> listarAgendamentosEntre(LocalDateTime inicio, LocalDateTime fim) {
+        Objects.requireNonNull(inicio, "inicio não pode ser nulo");
+        Objects.requireNonNull(fim, "fim não pode ser nulo");
+        if (!fim.isAfter(inicio)) {
+            return List.of();
+        }
+        return List.copyOf(agenda.entre(inicio, fim));
+    }
+
+    /**
+     * Agenda do balcão: agendamentos não cancelados que começam no dia.
+     *
+     * @param dia data da agenda.
+     * @return agendamentos do dia em ordem de início.
+     */
+    public List<Agendamento> listarAgendaDoDia(LocalDate dia) {
+        Objects.requireNonNull(dia, "dia não pode ser nulo");
+        return agenda.entre(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay()).stream()
+                .filter(a -> a.getStatus() != StatusAtendimento.CANCELADO)
+                .collect(Collectors.toUnmodifiableList());
     }
 
     /**
@@ -622,8 +1171,9 @@ public class Sistema {
         Agendamento agendamento = localizarAgendamento(agendamentoId);
         // Política financeira: retenção fixa de 35% sobre os serviços contratados.
         Agendamento.Cancelamento cancelamento = agendamento.cancelar(RETENCAO_CANCELAMENTO);
+        ocupacao.liberar(agendamento);
         ContaAtendimento conta = buscarContaPorAgendamento(agendamentoId)
-                .orElseGet(() -> criarContaAtendimento(agendamento));
+                .orElseGet(() -> novaContaAtendimento(agendamento));
         conta.registrarRetencaoCancelamento(cancelamento);
         conta.calcularTotal(agendamento.totalServicos());
 
@@ -637,16 +1187,41 @@ public class Sistema {
             caixa.adicionarConta(conta);
         }
 
-        gerarExtratoCancelamento(agendamento, cancelamento);
+        emitirExtratoCancelamento(agendamento, cancelamento);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.AGENDAMENTOS, agendamento),
+                RegistroJournal.gravacao(ColecaoSnapshot.CONTAS, conta),
+                RegistroJournal.gravacao(ColecaoSnapshot.CAIXAS, caixa),
+                gravacaoCliente(agendamento.getCliente()));
         Log.info("Agendamento cancelado: %s (retenção %s)", agendamento.getId(), valorRetencao);
         return cancelamento;
     }
 
+    /**
+     * @return agendamentos do cliente em ordem de início, lidos do índice por
+     * cliente em tempo proporcional ao histórico dele.
+     */
     public List<Agendamento> listarOrdensDeServicoDoCliente(UUID clienteId) {
         Objects.requireNonNull(clienteId, "clienteId não pode ser nulo");
-        return agendamentos.stream()
-                .filter(a -> a.getCliente().getId().equals(clienteId))
-                .collect(Collectors.toList());
+        return atividadeClientes.agendamentos(clienteId);
+    }
+
+    /**
+     * @return vendas do cliente em ordem de data; vendas a consumidor final não entram.
+     */
+    public List<Venda> listarVendasDoCliente(Usuario solicitante, UUID clienteId) {
+        assertColaboradorOuAdmin(solicitante);
+        Objects.requireNonNull(clienteId, "clienteId não pode ser nulo");
+        garantirHistoricoCompleto();
+        return List.copyOf(atividadeClientes.vendas(clienteId));
+    }
+
+    /**
+     * @return contas de atendimento do cliente em ordem de início do agendamento.
+     */
+    public List<ContaAtendimento> listarContasDoCliente(UUID clienteId) {
+        Objects.requireNonNull(clienteId, "clienteId não pode ser nulo");
+        garantirHistoricoCompleto();
+        return List.copyOf(atividadeClientes.contas(clienteId));
     }
 
     public void imprimirOrdensDeServicoDoCliente(UUID clienteId) {
@@ -655,19 +1230,31 @@ public class Sistema {
     }
 
     // 🔹 Recebimentos de Fornecedor
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     */
     public void registrarRecebimentoFornecedor(Usuario solicitante, RecebimentoFornecedor recebimento) {
         registrarRecebimentoFornecedor(solicitante, recebimento, null, null);
     }
 
+    /**
+     * @throws IllegalArgumentException se o id já estiver cadastrado.
+     */
     public void registrarRecebimentoFornecedor(Usuario solicitante, RecebimentoFornecedor recebimento,
                                                Dinheiro pagamento, LocalDate dataPagamento) {
         assertAdmin(solicitante);
         RecebimentoFornecedor registro = Objects.requireNonNull(recebimento, "recebimento não pode ser nulo");
+        recebimentos.verificarNovo(registro);
+        List<RegistroJournal> alteracoes = new ArrayList<>();
         registro.calcularTotal();
         for (ItemRecebimento item : registro.getItens()) {
             Produto produto = item.getProduto();
             produto.movimentarEntrada(item.getQuantidade());
             produto.atualizarCustoMedio(item.getCustoUnitario());
+            RegistroJournal alteracaoProduto = gravacaoSeCadastrada(ColecaoSnapshot.PRODUTOS, produtos, produto);
+            if (alteracaoProduto != null) {
+                alteracoes.add(alteracaoProduto);
+            }
         }
         if (pagamento != null) {
             registro.registrarPagamento(pagamento);
@@ -675,8 +1262,11 @@ public class Sistema {
             CaixaDiario caixa = obterOuCriarCaixa(dataMovimento,
                     Dinheiro.of(BigDecimal.ZERO, pagamento.getMoeda()));
             caixa.registrarSaida(pagamento, "Pagamento fornecedor " + registro.getFornecedor());
+            alteracoes.add(RegistroJournal.gravacao(ColecaoSnapshot.CAIXAS, caixa));
         }
         recebimentos.add(registro);
+        alteracoes.add(RegistroJournal.gravacao(ColecaoSnapshot.RECEBIMENTOS, registro));
+        registrarAlteracoes(alteracoes.toArray(new RegistroJournal[0]));
     }
 
     public void atualizarRecebimentoFornecedor(Usuario solicitante, UUID id, RecebimentoFornecedor atualizado) {
@@ -687,15 +1277,16 @@ public class Sistema {
             throw new IllegalArgumentException("ID do recebimento não corresponde ao registro atualizado");
         }
         substituirRecebimento(id, novo);
+        registrarAlteracoes(RegistroJournal.gravacao(ColecaoSnapshot.RECEBIMENTOS, novo));
     }
 
     public void removerRecebimentoFornecedor(Usuario solicitante, UUID id) {
         assertAdmin(solicitante);
         Objects.requireNonNull(id, "id não pode ser nulo");
-        boolean removido = recebimentos.removeIf(r -> r.getId().equals(id));
-        if (!removido) {
+        if (!recebimentos.remover(id)) {
             throw new IllegalArgumentException("Recebimento não encontrado: " + id);
         }
+        registrarAlteracoes(RegistroJournal.remocao(ColecaoSnapshot.RECEBIMENTOS, id));
     }
 
     public List<RecebimentoFornecedor> listarRecebimentos(Usuario solicitante) {
@@ -710,11 +1301,21 @@ public class Sistema {
      * @param conta conta de atendimento cujo extrato será materializado.
      */
     public void gerarExtratoServico(ContaAtendimento conta) {
+        if (emitirExtratoServico(conta)) {
+            registrarAlteracoes(gravacaoSeCadastrada(ColecaoSnapshot.CONTAS, contas, conta),
+                    gravacaoCliente(conta.getAgendamento().getCliente()));
+        }
+    }
+
+    private boolean emitirExtratoServico(ContaAtendimento conta) {
         Objects.requireNonNull(conta, "conta não pode ser nula");
         if (conta.isExtratoServicoGerado()) {
             Log.debug("Extrato de serviço da conta %s já gerado em %s", conta.getId(),
                     conta.getExtratoServicoGeradoEm());
-            return;
+            return false;
+        }
+        if (extratoEmGravacao(conta.getId())) {
+            return false;
         }
 
         Agendamento ag = conta.getAgendamento();
@@ -729,27 +1330,21 @@ public class Sistema {
         }
         String formaPagamentoTexto = conta.isFechada() ? conta.getFormaPagamento().name() : "(não informado)";
 
-        String extrato = new StringBuilder()
-                .append("Extrato de Serviço\n")
-                .append("OS: ").append(ag.getId()).append('\n')
-                .append("Cliente: ").append(nomeCliente).append('\n')
-                .append("Barbeiro: ").append(nomeBarbeiro).append('\n')
-                .append("Total serviços: ").append(ag.totalServicos()).append('\n')
-                .append("Total conta: ").append(totalConta).append('\n')
-                .append("Forma de pagamento: ").append(formaPagamentoTexto)
-                .toString();
+        LocalDateTime emitidoEm = LocalDateTime.now();
+        byte[] extrato = EXTRATO_SERVICO.preencher()
+                .com("os", ag.getId())
+                .com("cliente", nomeCliente)
+                .com("barbeiro", nomeBarbeiro)
+                .com("totalServicos", ag.totalServicos())
+                .com("totalConta", totalConta)
+                .com("formaPagamento", formaPagamentoTexto)
+                .com("emitidoEm", emitidoEm)
+                .paraUtf8();
 
-        try {
-            Path arquivo = ExtratoIO.saveExtrato(cliente, extrato, EXTRATOS_DIR);
-            conta.marcarExtratoServicoGerado(LocalDateTime.now(), arquivo.toString());
-            if (cliente != null) {
-                cliente.registrarExtrato(arquivo.toString());
-            }
-            Log.info("Extrato de serviço gerado em %s para %s", arquivo.toAbsolutePath(), nomeCliente);
-        } catch (IOException e) {
-            Log.error("Falha ao gerar extrato de serviço", e);
-            throw new UncheckedIOException("Falha ao gerar extrato de serviço", e);
-        }
+        return gravarExtrato("serviço", conta.getId(), cliente, nomeCliente, emitidoEm, extrato,
+                conta::marcarExtratoServicoGerado,
+                () -> new RegistroJournal[]{gravacaoSeCadastrada(ColecaoSnapshot.CONTAS, contas, conta),
+                        gravacaoCliente(cliente)});
     }
 
     /**
@@ -758,10 +1353,20 @@ public class Sistema {
      * @param v venda que terá o comprovante gravado em disco.
      */
     public void gerarExtratoVenda(Venda v) {
+        if (emitirExtratoVenda(v)) {
+            registrarAlteracoes(gravacaoSeCadastrada(ColecaoSnapshot.VENDAS, vendas, v),
+                    gravacaoCliente(v.getCliente()));
+        }
+    }
+
+    private boolean emitirExtratoVenda(Venda v) {
         Objects.requireNonNull(v, "venda não pode ser nula");
         if (v.isExtratoGerado()) {
             Log.debug("Extrato da venda %s já gerado em %s", v.getId(), v.getExtratoGeradoEm());
-            return;
+            return false;
+        }
+        if (extratoEmGravacao(v.getId())) {
+            return false;
         }
         Cliente cliente = v.getCliente();
         String nomeCliente = cliente != null ? cliente.getNome() : "Consumidor final";
@@ -771,20 +1376,15 @@ public class Sistema {
         } catch (IllegalStateException e) {
             totalVenda = v.calcularTotal();
         }
-        String extrato = "Extrato de Venda\nCliente: "
-                + nomeCliente
-                + "\nTotal: " + totalVenda;
-        try {
-            Path arquivo = ExtratoIO.saveExtrato(cliente, extrato, EXTRATOS_DIR);
-            if (cliente != null) {
-                cliente.registrarExtrato(arquivo.toString());
-            }
-            v.marcarExtratoGerado(LocalDateTime.now(), arquivo.toString());
-            Log.info("Extrato de venda gerado em %s para %s", arquivo.toAbsolutePath(), nomeCliente);
-        } catch (IOException e) {
-            Log.error("Falha ao gerar extrato de venda", e);
-            throw new UncheckedIOException("Falha ao gerar extrato de venda", e);
-        }
+        LocalDateTime emitidoEm = LocalDateTime.now();
+        byte[] extrato = EXTRATO_VENDA.preencher()
+                .com("cliente", nomeCliente)
+                .com("total", totalVenda)
+                .com("emitidoEm", emitidoEm)
+                .paraUtf8();
+        return gravarExtrato("venda", v.getId(), cliente, nomeCliente, emitidoEm, extrato, v::marcarExtratoGerado,
+                () -> new RegistroJournal[]{gravacaoSeCadastrada(ColecaoSnapshot.VENDAS, vendas, v),
+                        gravacaoCliente(cliente)});
     }
 
     /**
@@ -794,85 +1394,458 @@ public class Sistema {
      * @param cancelamento dados financeiros calculados durante o cancelamento.
      */
     public void gerarExtratoCancelamento(Agendamento agendamento, Agendamento.Cancelamento cancelamento) {
+        if (emitirExtratoCancelamento(agendamento, cancelamento)) {
+            registrarAlteracoes(gravacaoSeCadastrada(ColecaoSnapshot.AGENDAMENTOS, agendamentos, agendamento),
+                    gravacaoCliente(agendamento.getCliente()));
+        }
+    }
+
+    private boolean emitirExtratoCancelamento(Agendamento agendamento, Agendamento.Cancelamento cancelamento) {
         Objects.requireNonNull(agendamento, "agendamento não pode ser nulo");
         Objects.requireNonNull(cancelamento, "cancelamento não pode ser nulo");
         if (agendamento.isExtratoCancelamentoGerado()) {
             Log.debug("Extrato de cancelamento da OS %s já gerado em %s",
                     agendamento.getId(), agendamento.getExtratoCancelamentoGeradoEm());
-            return;
+            return false;
+        }
+        if (extratoEmGravacao(agendamento.getId())) {
+            return false;
         }
         Cliente cliente = agendamento.getCliente();
         BigDecimal percentual = cancelamento.getPercentualRetencao().multiply(BigDecimal.valueOf(100));
-        String extrato = "Extrato de Cancelamento\nCliente: " + cliente.getNome()
-                + "\nOrdem de Serviço: " + agendamento.getId()
-                + "\nTotal de Serviços: " + cancelamento.getTotalServicos()
-                + "\nRetenção (" + percentual.stripTrailingZeros().toPlainString() + "%): " + cancelamento.getValorRetencao()
-                + "\nValor a reembolsar: " + cancelamento.getValorReembolso();
+        LocalDateTime emitidoEm = LocalDateTime.now();
+        byte[] extrato = EXTRATO_CANCELAMENTO.preencher()
+                .com("cliente", cliente.getNome())
+                .com("os", agendamento.getId())
+                .com("totalServicos", cancelamento.getTotalServicos())
+                .com("percentual", percentual.stripTrailingZeros())
+                .com("retencao", cancelamento.getValorRetencao())
+                .com("reembolso", cancelamento.getValorReembolso())
+                .com("emitidoEm", emitidoEm)
+                .paraUtf8();
+        return gravarExtrato("cancelamento", agendamento.getId(), cliente, cliente.getNome(), emitidoEm, extrato,
+                agendamento::marcarExtratoCancelamentoGerado,
+                () -> new RegistroJournal[]{
+                        gravacaoSeCadastrada(ColecaoSnapshot.AGENDAMENTOS, agendamentos, agendamento),
+                        gravacaoCliente(cliente)});
+    }
+
+    /**
+     * Lê o texto de um extrato a partir da referência guardada na entidade
+     * ({@code getReferenciaExtrato()} e afins) ou no cliente.
+     *
+     * @param referencia referência {@code segmento#offset} ou caminho de um extrato antigo.
+     * @return texto do extrato, ou vazio se o extrato antigo não existe mais.
+     */
+    public Optional<String> lerExtrato(String referencia) {
+        Objects.requireNonNull(referencia, "referencia não pode ser nula");
+        sincronizarExtratos();
+        try {
+            return arquivoExtratos().ler(referencia);
+        } catch (IOException e) {
+            Log.error("Falha ao ler extrato " + referencia, e);
+            throw new UncheckedIOException("Falha ao ler extrato " + referencia, e);
+        }
+    }
+
+    /**
+     * Últimos extratos de um cliente, do mais recente para o mais antigo,
+     * consultados no índice do arquivo de extratos.
+     *
+     * @param clienteId identificador do cliente.
+     * @param limit     quantidade máxima de extratos.
+     * @return entradas do índice com referência e instante de emissão.
+     */
+    public List<ArquivoExtratos.Registro> listarExtratosRecentes(UUID clienteId, int limit) {
+        Objects.requireNonNull(clienteId, "clienteId não pode ser nulo");
+        if (limit <= 0) {
+            return List.of();
+        }
+        sincronizarExtratos();
+        return arquivoExtratos().ultimos(clienteId, limit);
+    }
+
+    /**
+     * Página dos extratos de um cliente emitidos no intervalo {@code [de, ate)},
+     * em ordem de emissão. A busca no índice é binária e apenas a página é
+     * copiada, independentemente do tamanho do histórico.
+     *
+     * @param clienteId identificador do cliente.
+     * @param de        início do intervalo (inclusive).
+     * @param ate       fim do intervalo (exclusivo).
+     * @param offset    extratos do intervalo a pular.
+     * @param limit     tamanho da página; {@code 0} ou negativo devolve o restante do intervalo.
+     * @return entradas do índice com referência e instante de emissão.
+     */
+    public List<ArquivoExtratos.Registro> listarExtratosDoCliente(UUID clienteId, LocalDateTime de,
+                                                                 LocalDateTime ate, int offset, int limit) {
+        Objects.requireNonNull(clienteId, "clienteId não pode ser nulo");
+        sincronizarExtratos();
+        return arquivoExtratos().historico(clienteId, de, ate, normalizarOffset(offset),
+                limit > 0 ? limit : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Busca extratos pelo conteúdo (nome do cliente, id da OS, valores, forma
+     * de pagamento...), usando o índice textual do arquivo de extratos.
+     *
+     * @param consulta palavras que devem aparecer todas; trechos entre aspas
+     *                 devem aparecer em sequência (ver {@link ArquivoExtratos#buscar(String, int)}).
+     * @param limit    quantidade máxima de resultados; {@code 0} ou negativo devolve todos.
+     * @return referências dos extratos, dos mais recentes para os mais antigos.
+     */
+    public List<String> buscarExtratos(String consulta, int limit) {
+        Objects.requireNonNull(consulta, "consulta não pode ser nula");
+        sincronizarExtratos();
+        return arquivoExtratos().buscar(consulta, limit > 0 ? limit : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Exporta para um ZIP todos os extratos de um cliente (auditoria).
+     *
+     * @param solicitante usuário que solicita a exportação (apenas administradores).
+     * @param clienteId   identificador do cliente.
+     * @param zip         arquivo ZIP a gerar.
+     * @return quantidade, volume e duração da exportação.
+     */
+    public ExtratoIO.Exportacao exportarExtratosDoCliente(Usuario solicitante, UUID clienteId, Path zip) {
+        assertAdmin(solicitante);
+        Objects.requireNonNull(clienteId, "clienteId não pode ser nulo");
+        sincronizarExtratos();
+        try {
+            return ExtratoIO.exportarCliente(arquivoExtratos(), clienteId, zip);
+        } catch (IOException e) {
+            Log.error("Falha ao exportar extratos do cliente " + clienteId, e);
+            throw new UncheckedIOException("Falha ao exportar extratos do cliente " + clienteId, e);
+        }
+    }
+
+    /**
+     * Exporta para um ZIP os extratos emitidos em um mês, de todos os clientes (auditoria).
+     *
+     * @param solicitante usuário que solicita a exportação (apenas administradores).
+     * @param mes         mês de emissão.
+     * @param zip         arquivo ZIP a gerar.
+     * @return quantidade, volume e duração da exportação.
+     */
+    public ExtratoIO.Exportacao exportarExtratosDoMes(Usuario solicitante, YearMonth mes, Path zip) {
+        assertAdmin(solicitante);
+        sincronizarExtratos();
         try {
-            Path arquivo = ExtratoIO.saveExtrato(cliente, extrato, EXTRATOS_DIR);
-            cliente.registrarExtrato(arquivo.toString());
-            agendamento.marcarExtratoCancelamentoGerado(LocalDateTime.now(), arquivo.toString());
-            Log.info("Extrato de cancelamento gerado em %s para %s", arquivo.toAbsolutePath(), cliente.getNome());
+            return ExtratoIO.exportarMes(arquivoExtratos(), mes, zip);
         } catch (IOException e) {
-            Log.error("Falha ao gerar extrato de cancelamento", e);
-            throw new UncheckedIOException("Falha ao gerar extrato de cancelamento", e);
+            Log.error("Falha ao exportar extratos de " + mes, e);
+            throw new UncheckedIOException("Falha ao exportar extratos de " + mes, e);
+        }
+    }
+
+    private boolean extratoEmGravacao(UUID chave) {
+        if (extratosPendentes.contains(chave)) {
+            Log.debug("Extrato de %s já enfileirado para gravação", chave);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Grava o extrato e marca a emissão na entidade e no cliente.
+     * <p>
+     * Sem escritor configurado, o extrato é anexado na hora. Com escritor, os
+     * bytes já renderizados são enfileirados e a marcação, seguida do registro
+     * das alterações, fica para {@link #aplicarExtratosConcluidos()}; em caso
+     * de falha a entidade continua sem extrato e uma nova solicitação o refaz.
+     * </p>
+     *
+     * @return {@code true} se a marcação já foi aplicada e as alterações ainda
+     *         precisam ser registradas por quem chamou.
+     */
+    private boolean gravarExtrato(String tipo, UUID chave, Cliente cliente, String nomeCliente,
+                                  LocalDateTime emitidoEm, byte[] extrato,
+                                  BiConsumer<LocalDateTime, String> marcar,
+                                  Supplier<RegistroJournal[]> alteracoesConfirmadas) {
+        if (escritorExtratos == null) {
+            try {
+                ReferenciaExtrato referencia = arquivoExtratos().anexar(cliente, extrato, emitidoEm);
+                confirmarExtrato(tipo, cliente, nomeCliente, marcar, emitidoEm, referencia);
+                return true;
+            } catch (IOException e) {
+                Log.error("Falha ao gerar extrato de " + tipo, e);
+                throw new UncheckedIOException("Falha ao gerar extrato de " + tipo, e);
+            }
+        }
+
+        extratosPendentes.add(chave);
+        escritorExtratos.enviar(arquivoExtratos(), cliente, extrato, emitidoEm)
+                .whenComplete((referencia, erro) -> extratosConcluidos.add(() -> {
+                    extratosPendentes.remove(chave);
+                    if (erro != null) {
+                        Log.warning("Extrato de %s de %s não foi gravado: %s", tipo, nomeCliente, erro.getMessage());
+                        return;
+                    }
+                    confirmarExtrato(tipo, cliente, nomeCliente, marcar, emitidoEm, referencia);
+                    registrarAlteracoes(alteracoesConfirmadas.get());
+                }));
+        aplicarExtratosConcluidos();
+        return false;
+    }
+
+    private static void confirmarExtrato(String tipo, Cliente cliente, String nomeCliente,
+                                         BiConsumer<LocalDateTime, String> marcar, LocalDateTime emitidoEm,
+                                         ReferenciaExtrato referencia) {
+        marcar.accept(emitidoEm, referencia.toString());
+        if (cliente != null) {
+            cliente.registrarExtrato();
         }
+        Log.info("Extrato de %s gerado em %s para %s", tipo, referencia, nomeCliente);
+    }
+
+    /**
+     * Aplica, na thread do sistema, as marcações dos extratos cuja gravação em
+     * segundo plano já terminou.
+     */
+    private void aplicarExtratosConcluidos() {
+        Runnable confirmacao;
+        while ((confirmacao = extratosConcluidos.poll()) != null) {
+            confirmacao.run();
+        }
+    }
+
+    /**
+     * Troca as referências dos extratos movidos por uma compactação e
+     * registra todas as entidades alteradas de uma vez.
+     */
+    private void aplicarRealocacoes(ArquivoExtratos.Compactacao compactacao) {
+        List<RegistroJournal> alteradas = new ArrayList<>();
+        for (Venda venda : vendas) {
+            Optional<String> nova = compactacao.realocar(venda.getReferenciaExtrato());
+            if (nova.isPresent()) {
+                venda.realocarExtrato(nova.get());
+                alteradas.add(RegistroJournal.gravacao(ColecaoSnapshot.VENDAS, venda));
+            }
+        }
+        for (ContaAtendimento conta : contas) {
+            Optional<String> nova = compactacao.realocar(conta.getReferenciaExtratoServico());
+            if (nova.isPresent()) {
+                conta.realocarExtratoServico(nova.get());
+                alteradas.add(RegistroJournal.gravacao(ColecaoSnapshot.CONTAS, conta));
+            }
+        }
+        for (Agendamento agendamento : agendamentos) {
+            Optional<String> nova = compactacao.realocar(agendamento.getReferenciaExtratoCancelamento());
+            if (nova.isPresent()) {
+                agendamento.realocarExtratoCancelamento(nova.get());
+                alteradas.add(RegistroJournal.gravacao(ColecaoSnapshot.AGENDAMENTOS, agendamento));
+            }
+        }
+        if (!alteradas.isEmpty()) {
+            registrarAlteracoes(alteradas.toArray(new RegistroJournal[0]));
+        }
+        Log.info("Referências de %d extrato(s) compactado(s) atualizadas em %d entidade(s)",
+                compactacao.getExtratos(), alteradas.size());
     }
 
     // 🔹 Persistência
     /**
      * Persiste um snapshot completo do sistema no caminho informado.
+     * <p>
+     * Com um journal configurado, a gravação funciona como checkpoint: após o
+     * snapshot ser escrito com sucesso, os registros que ele já contempla são
+     * removidos do journal. O arquivo é substituído de forma atômica e as
+     * versões anteriores ficam preservadas conforme
+     * {@link #configurarGeracoesSnapshot(int)}.
+     * </p>
+     * <p>
+     * Com snapshots incrementais ativos e o caminho sendo a base lida ou
+     * gravada por último, apenas as entidades alteradas desde então são
+     * gravadas em um delta. Ao atingir o limite de deltas, uma nova base
+     * completa é gravada e os deltas anteriores são descartados (compactação).
+     * </p>
      *
      * @param solicitante usuário com papel {@code ADMIN} responsável pela operação.
-     * @param path        destino do arquivo JSON.
+     * @param path        destino do snapshot; o formato segue {@link SnapshotFormato#detectar(Path)}.
      */
     public void saveAll(Usuario solicitante, Path path) {
         assertAdmin(solicitante);
         Objects.requireNonNull(path, "path não pode ser nulo");
-        DataSnapshot snap = DataSnapshot.builder()
-                .withClientes(clientes)
-                .withUsuarios(usuarios)
-                .withServicos(servicos)
-                .withProdutos(produtos)
-                .withAgendamentos(agendamentos)
-                .withVendas(vendas)
-                .withContas(contas)
-                .withDespesas(despesas)
-                .withRecebimentos(recebimentos)
-                .withCaixas(caixas)
-                .build();
-        Log.info("Persistindo snapshot em %s via %s", path.toAbsolutePath(), JsonStorage.description());
+        sincronizarExtratos();
         try {
-            JsonStorage.save(snap, path);
+            prepararHistoricoPara(path);
+            long sequenciaCoberta = journal != null ? journal.ultimaSequencia() : 0L;
+            if (podeGravarDelta(path)) {
+                gravarDelta(path);
+            } else {
+                DataSnapshot snap = capturarSnapshot();
+                SnapshotFormato formato = SnapshotFormato.detectar(path);
+                if (deltasNaBase > 0 && mesmoCaminho(baseIncremental, path)) {
+                    Log.info("Compactando %d delta(s) em nova base %s", deltasNaBase, path.toAbsolutePath());
+                }
+                Log.info("Persistindo snapshot em %s via %s", path.toAbsolutePath(), formato.descricao());
+                formato.salvar(snap, path, geracoesSnapshot);
+                SnapshotIncremental.descartarDeltas(path);
+                redefinirBaseIncremental(path, 0);
+            }
+            checkpointJournal(sequenciaCoberta);
         } catch (IOException e) {
             Log.error("Falha ao salvar dados do sistema", e);
             throw new UncheckedIOException("Falha ao salvar dados do sistema", e);
         }
     }
 
+    /**
+     * Agenda a gravação de um snapshot em segundo plano e retorna imediatamente.
+     * <p>
+     * Na thread de quem chama o estado é serializado em arquivos temporários
+     * ao lado do destino, junto com a sequência atual do journal; o custo
+     * cresce com o volume de dados, como na gravação síncrona. O fsync, a
+     * substituição atômica do arquivo e o checkpoint do journal ocorrem no
+     * {@link AgendadorSnapshot}. O arquivo
+     * reflete exatamente o momento da chamada; alterações posteriores
+     * continuam registradas no journal e são reaplicadas no próximo
+     * {@link #loadAll(Path)}.
+     * </p>
+     * <p>
+     * A gravação em segundo plano é sempre completa; se o destino for a base
+     * dos snapshots incrementais, a próxima gravação síncrona também será.
+     * </p>
+     *
+     * @param solicitante usuário com papel {@code ADMIN} responsável pela operação.
+     * @param path        destino do snapshot; o formato segue {@link SnapshotFormato#detectar(Path)}.
+     * @return futuro concluído quando o snapshot estiver gravado.
+     */
+    public CompletableFuture<Path> saveAllAsync(Usuario solicitante, Path path) {
+        assertAdmin(solicitante);
+        Objects.requireNonNull(path, "path não pode ser nulo");
+        sincronizarExtratos();
+        try {
+            prepararHistoricoPara(path);
+        } catch (IOException e) {
+            Log.error("Falha ao preparar snapshot", e);
+            throw new UncheckedIOException("Falha ao preparar snapshot", e);
+        }
+        DataSnapshot snap = capturarSnapshot();
+        long sequenciaCoberta = journal != null ? journal.ultimaSequencia() : 0L;
+        if (mesmoCaminho(baseIncremental, path)) {
+            baseIncremental = null;
+        }
+        Log.info("Snapshot agendado para %s", path.toAbsolutePath());
+        return agendador().agendar(snap, path, () -> {
+            SnapshotIncremental.descartarDeltas(path);
+            checkpointJournal(sequenciaCoberta);
+        });
+    }
+
+    /**
+     * Define quantas versões anteriores do snapshot são preservadas a cada
+     * gravação ({@code sistema.json.1}, {@code sistema.json.2}, ...).
+     *
+     * @param geracoes quantidade de gerações (0 desativa).
+     */
+    public synchronized void configurarGeracoesSnapshot(int geracoes) {
+        if (geracoes < 0) {
+            throw new IllegalArgumentException("geracoes não pode ser negativo");
+        }
+        this.geracoesSnapshot = geracoes;
+        if (agendador != null) {
+            agendador.close();
+            agendador = null;
+        }
+    }
+
+    /**
+     * Ativa os snapshots incrementais: a partir da base lida ou gravada por
+     * último, cada {@link #saveAll(Usuario, Path)} no mesmo caminho grava
+     * apenas um delta com as entidades alteradas pelos métodos do sistema.
+     * Alterações feitas diretamente nas entidades, fora desses métodos, só são
+     * persistidas na próxima base completa.
+     *
+     * @param deltasAteCompactar quantidade de deltas acumulados antes de uma
+     *                           nova base completa (0 desativa).
+     */
+    public synchronized void configurarSnapshotsIncrementais(int deltasAteCompactar) {
+        if (deltasAteCompactar < 0) {
+            throw new IllegalArgumentException("deltasAteCompactar não pode ser negativo");
+        }
+        this.deltasAteCompactar = deltasAteCompactar;
+    }
+
     /**
      * Carrega um snapshot previamente salvo, reidratando coleções e contadores.
+     * <p>
+     * A leitura é feita em streaming: cada entidade é adicionada às novas
+     * listas assim que é desserializada, e as coleções do sistema só são
+     * substituídas quando o arquivo inteiro foi lido com sucesso.
+     * </p>
+     * <p>
+     * Os deltas gravados sobre o snapshot ({@link SnapshotIncremental}) são
+     * reaplicados em ordem. Se houver um journal configurado, seus registros
+     * são reaplicados em seguida (ou sobre coleções vazias, quando o snapshot
+     * ainda não existe). Se o arquivo principal estiver ilegível, as gerações
+     * anteriores são tentadas em ordem, sem os deltas.
+     * </p>
      *
-     * @param path caminho do arquivo JSON produzido por {@link #saveAll(Usuario, Path)}.
+     * @param path caminho do snapshot (arquivo JSON, binário ou diretório) produzido por {@link #saveAll(Usuario, Path)}.
      */
     public void loadAll(Path path) {
         Objects.requireNonNull(path, "path não pode ser nulo");
+        sincronizarExtratos();
         try {
-            DataSnapshot snap = JsonStorage.load(path);
-            Log.info("Snapshot carregado de %s usando %s", path.toAbsolutePath(), JsonStorage.description());
-            this.clientes = new ArrayList<>(snap.getClientes());
-            this.usuarios = new ArrayList<>(snap.getUsuarios());
-            this.servicos = new ArrayList<>(snap.getServicos());
-            this.produtos = new ArrayList<>(snap.getProdutos());
-            this.agendamentos = new ArrayList<>(snap.getAgendamentos());
-            this.vendas = new ArrayList<>(snap.getVendas());
-            this.contas = new ArrayList<>(snap.getContas());
-            this.despesas = new ArrayList<>(snap.getDespesas());
-            this.recebimentos = new ArrayList<>(snap.getRecebimentos());
-            this.caixas = new ArrayList<>(snap.getCaixas());
-
-            Servico.reidratarContadores(this.servicos);
-            redefinirTotalOrdensServico(contarElementos(this.agendamentos));
+            ColecoesCarregadas carregadas = journal == null || Files.exists(path)
+                    ? carregarSnapshot(path)
+                    : new ColecoesCarregadas();
+            int deltas = 0;
+            if (path.equals(carregadas.origem)) {
+                deltas = SnapshotIncremental.reproduzir(path, carregadas.comoSnapshot(), carregadas::aplicar);
+            }
+            // Registros do journal ainda não constam da base nem dos deltas.
+            SnapshotIncremental.Alteracoes pendentes = new SnapshotIncremental.Alteracoes();
+            if (journal != null) {
+                journal.reproduzir(carregadas.comoSnapshot(), registro -> {
+                    carregadas.aplicar(registro);
+                    pendentes.registrar(registro);
+                });
+            }
+            carregadas.consolidar();
+            aplicarCarregadas(carregadas, null);
+            redefinirBaseIncremental(path.equals(carregadas.origem) ? path : null, deltas);
+            alteracoes = pendentes;
+        } catch (IOException e) {
+            Log.error("Falha ao carregar dados do sistema", e);
+            throw new UncheckedIOException("Falha ao carregar dados do sistema", e);
+        }
+    }
+
+    /**
+     * Carrega um snapshot em diretório sob demanda: vendas, contas e caixas são
+     * lidos apenas para o {@code periodoAtivo}, e as demais competências são
+     * lidas na primeira operação que precisar delas (por exemplo,
+     * {@link #calcularBalancoMensal(Usuario, YearMonth, Currency)} de um mês
+     * anterior ou {@link #listarCaixas(Usuario)}).
+     * <p>
+     * Para snapshots em arquivo, ou quando o journal ou deltas incrementais
+     * ainda possuem registros a reaplicar, a carga é completa, como em
+     * {@link #loadAll(Path)}.
+     * {@link #saveAll(Usuario, Path)} no mesmo diretório preserva as
+     * competências não lidas; em qualquer outro destino o histórico é lido
+     * por completo antes da gravação.
+     * </p>
+     *
+     * @param path         diretório produzido por {@link #saveAll(Usuario, Path)}.
+     * @param periodoAtivo competência carregada imediatamente.
+     */
+    public void loadAll(Path path, YearMonth periodoAtivo) {
+        Objects.requireNonNull(path, "path não pode ser nulo");
+        Objects.requireNonNull(periodoAtivo, "periodoAtivo não pode ser nulo");
+        sincronizarExtratos();
+        try {
+            if (SnapshotFormato.detectar(path) != SnapshotFormato.DIRETORIO || (journal != null && !journal.vazio())
+                    || !SnapshotIncremental.deltas(path).isEmpty()) {
+                loadAll(path);
+                return;
+            }
+            ColecoesCarregadas carregadas = new ColecoesCarregadas();
+            ParticoesHistoricas particoes = DiretorioSnapshot.abrir(path, periodoAtivo, carregadas);
+            aplicarCarregadas(carregadas, particoes.getPendentes().isEmpty() ? null : particoes);
+            redefinirBaseIncremental(path, 0);
         } catch (IOException e) {
             Log.error("Falha ao carregar dados do sistema", e);
             throw new UncheckedIOException("Falha ao carregar dados do sistema", e);
@@ -885,6 +1858,276 @@ public class Sistema {
                 clientes.size(), usuarios.size(), agendamentos.size(), vendas.size(), caixas.size());
     }
 
+    private void aplicarCarregadas(ColecoesCarregadas carregadas, ParticoesHistoricas pendentes) {
+        this.clientes = ColecaoIndexada.de(carregadas.clientes, Cliente::getId);
+        this.usuarios = ColecaoIndexada.de(carregadas.usuarios, Usuario::getId);
+        this.servicos = ColecaoIndexada.de(carregadas.servicos, Servico::getId);
+        this.catalogo.descartar(this.produtos);
+        this.produtos = ColecaoIndexada.de(carregadas.produtos, Produto::getId);
+        this.catalogo = CatalogoIndexado.de(this.produtos, this.servicos);
+        this.agendamentos = ColecaoIndexada.de(carregadas.agendamentos, Agendamento::getId);
+        this.agenda = IndiceTemporal.de(this.agendamentos, Agendamento::getId, Agendamento::getInicio);
+        this.ocupacao = OcupacaoEstacoes.de(this.agendamentos);
+        this.vendas = ColecaoIndexada.de(carregadas.vendas, Venda::getId);
+        this.contas = ColecaoIndexada.de(carregadas.contas, ContaAtendimento::getId);
+        this.despesas = ColecaoIndexada.de(carregadas.despesas, Despesa::getId);
+        this.recebimentos = ColecaoIndexada.de(carregadas.recebimentos, RecebimentoFornecedor::getId);
+        this.contasPorAgendamento = ContasPorAgendamento.de(this.contas);
+        this.atividadeClientes = IndiceClientes.de(this.agendamentos, this.vendas, this.contas);
+        this.caixas = CaixasPorData.de(carregadas.caixas);
+        this.historico = pendentes;
+
+        Servico.reidratarContadores(this.servicos);
+        redefinirTotalOrdensServico(contarElementos(this.agendamentos));
+    }
+
+    /**
+     * Lê vendas, contas e caixas da competência, se ainda estiverem pendentes.
+     */
+    private void garantirCompetencia(YearMonth competencia) {
+        if (historico == null || historico.isCarregada(competencia)) {
+            return;
+        }
+        Map<ColecaoSnapshot, List<Object>> lidos = new EnumMap<>(ColecaoSnapshot.class);
+        try {
+            historico.carregar(competencia, (colecao, elemento) -> acumular(lidos, colecao, elemento));
+        } catch (IOException e) {
+            Log.error("Falha ao carregar histórico de " + competencia, e);
+            throw new UncheckedIOException("Falha ao carregar histórico de " + competencia, e);
+        }
+        anexarHistorico(lidos);
+        if (historico.getPendentes().isEmpty()) {
+            historico = null;
+        }
+    }
+
+    private void garantirHistoricoCompleto() {
+        if (historico == null) {
+            return;
+        }
+        Map<ColecaoSnapshot, List<Object>> lidos = new EnumMap<>(ColecaoSnapshot.class);
+        try {
+            historico.carregarTodas((colecao, elemento) -> acumular(lidos, colecao, elemento));
+        } catch (IOException e) {
+            Log.error("Falha ao carregar histórico completo", e);
+            throw new UncheckedIOException("Falha ao carregar histórico completo", e);
+        }
+        anexarHistorico(lidos);
+        historico = null;
+    }
+
+    private static void acumular(Map<ColecaoSnapshot, List<Object>> lidos, ColecaoSnapshot colecao, Object elemento) {
+        if (colecao != ColecaoSnapshot.VENDAS && colecao != ColecaoSnapshot.CONTAS
+                && colecao != ColecaoSnapshot.CAIXAS) {
+            throw new IllegalArgumentException("Coleção não histórica: " + colecao);
+        }
+        lidos.computeIfAbsent(colecao, c -> new ArrayList<>()).add(elemento);
+    }
+
+    /**
+     * Anexa os elementos lidos de uma vez por coleção, de modo que os índices
+     * de vendas e contas sejam reconstruídos uma única vez por leitura.
+     */
+    @SuppressWarnings("unchecked")
+    private void anexarHistorico(Map<ColecaoSnapshot, List<Object>> lidos) {
+        lidos.forEach((colecao, elementos) -> {
+            Comparator<Object> porCompetencia = Comparator.comparing(colecao::competenciaDe);
+            switch (colecao) {
+                case VENDAS:
+                    vendas.inserirOrdenado((List<Venda>) (List<?>) elementos, porCompetencia);
+                    for (Object elemento : elementos) {
+                        if (vendas.contem((Venda) elemento)) {
+                            atividadeClientes.adicionar((Venda) elemento);
+                        }
+                    }
+                    break;
+                case CONTAS:
+                    contas.inserirOrdenado((List<ContaAtendimento>) (List<?>) elementos, porCompetencia);
+                    for (Object elemento : elementos) {
+                        if (contas.contem((ContaAtendimento) elemento)) {
+                            contasPorAgendamento.adicionar((ContaAtendimento) elemento);
+                            atividadeClientes.adicionar((ContaAtendimento) elemento);
+                        }
+                    }
+                    break;
+                default:
+                    int ignorados = 0;
+                    for (Object elemento : elementos) {
+                        CaixaDiario caixa = (CaixaDiario) elemento;
+                        if (caixas.buscar(caixa.getData()).isPresent()) {
+                            ignorados++;
+                        } else {
+                            caixas.add(caixa);
+                        }
+                    }
+                    if (ignorados > 0) {
+                        Log.warning("%d caixa(s) já presentes ignorados ao carregar histórico", ignorados);
+                    }
+                    break;
+            }
+        });
+    }
+
+    /**
+     * O histórico pendente só pode ser preservado quando o snapshot é gravado
+     * no próprio diretório de origem; nos demais destinos ele é lido antes.
+     */
+    private void prepararHistoricoPara(Path destino) throws IOException {
+        if (historico == null) {
+            return;
+        }
+        boolean mesmoDiretorio = SnapshotFormato.detectar(destino) == SnapshotFormato.DIRETORIO
+                && historico.getDiretorio().toAbsolutePath().normalize().equals(destino.toAbsolutePath().normalize());
+        if (!mesmoDiretorio) {
+            garantirHistoricoCompleto();
+        }
+    }
+
+    private DataSnapshot capturarSnapshot() {
+        return DataSnapshot.builder()
+                .withClientes(clientes.listar())
+                .withUsuarios(usuarios.listar())
+                .withServicos(servicos.listar())
+                .withProdutos(produtos.listar())
+                .withAgendamentos(agendamentos.listar())
+                .withVendas(vendas.listar())
+                .withContas(contas.listar())
+                .withDespesas(despesas.listar())
+                .withRecebimentos(recebimentos.listar())
+                .withCaixas(caixas.listar())
+                .withHistoricoPendente(historico)
+                .build();
+    }
+
+    private synchronized AgendadorSnapshot agendador() {
+        if (agendador == null) {
+            agendador = new AgendadorSnapshot(geracoesSnapshot);
+        }
+        return agendador;
+    }
+
+    private void checkpointJournal(long sequenciaCoberta) throws IOException {
+        if (journal == null) {
+            return;
+        }
+        journal.truncarAte(sequenciaCoberta);
+        Log.info("Checkpoint do journal %s até a sequência %d", journal.getArquivo(), sequenciaCoberta);
+    }
+
+    /**
+     * Um delta só é gravado sobre a base lida ou gravada por último por este
+     * sistema, ainda intacta, e com todo o histórico em memória (a propagação
+     * de alterações percorre as entidades carregadas).
+     */
+    private boolean podeGravarDelta(Path path) throws IOException {
+        return deltasAteCompactar > 0
+                && historico == null
+                && mesmoCaminho(baseIncremental, path)
+                && deltasNaBase < deltasAteCompactar
+                && Objects.equals(assinaturaBase, SnapshotIncremental.assinatura(path));
+    }
+
+    private void gravarDelta(Path path) throws IOException {
+        if (alteracoes.isVazia()) {
+            Log.info("Nenhuma alteração desde o último snapshot de %s", path.toAbsolutePath());
+            return;
+        }
+        SnapshotIncremental.salvarDelta(path, assinaturaBase, capturarSnapshot(), alteracoes);
+        alteracoes = new SnapshotIncremental.Alteracoes();
+        deltasNaBase++;
+    }
+
+    /**
+     * Passa a acompanhar as alterações a partir da base informada.
+     *
+     * @param base   snapshot recém-gravado ou lido, ou {@code null} quando não há base válida.
+     * @param deltas deltas já existentes sobre a base.
+     */
+    private void redefinirBaseIncremental(Path base, int deltas) throws IOException {
+        alteracoes = new SnapshotIncremental.Alteracoes();
+        baseIncremental = base != null ? base.toAbsolutePath().normalize() : null;
+        assinaturaBase = base != null ? SnapshotIncremental.assinatura(base) : null;
+        deltasNaBase = deltas;
+    }
+
+    private static boolean mesmoCaminho(Path base, Path path) {
+        return base != null && base.equals(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Lê o snapshot principal; se ele estiver ilegível, tenta as gerações
+     * anteriores, da mais recente para a mais antiga.
+     */
+    private static ColecoesCarregadas carregarSnapshot(Path path) throws IOException {
+        List<Path> versoes = ArquivoAtomico.versoesExistentes(path);
+        if (versoes.isEmpty()) {
+            versoes = List.of(path);
+        }
+        IOException falha = null;
+        for (Path versao : versoes) {
+            ColecoesCarregadas carregadas = new ColecoesCarregadas();
+            try {
+                SnapshotFormato formato = SnapshotFormato.detectar(versao);
+                formato.carregar(versao, carregadas);
+                carregadas.origem = versao;
+                Log.info("Snapshot carregado de %s usando %s", versao.toAbsolutePath(), formato.descricao());
+                return carregadas;
+            } catch (IOException | RuntimeException e) {
+                Log.warning("Snapshot %s ilegível (%s); tentando versão anterior", versao, e.getMessage());
+                if (falha == null) {
+                    falha = e instanceof IOException io ? io : new IOException(e);
+                } else {
+                    falha.addSuppressed(e);
+                }
+            }
+        }
+        throw falha;
+    }
+
+    /**
+     * Marca as entidades como alteradas para o próximo delta e, havendo
+     * journal, acrescenta os registros a ele.
+     */
+    private void registrarAlteracoes(RegistroJournal... registros) {
+        RegistroJournal[] validos = Arrays.stream(registros)
+                .filter(Objects::nonNull)
+                .toArray(RegistroJournal[]::new);
+        alteracoes.registrar(validos);
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.registrar(validos);
+        } catch (IOException e) {
+            Log.error("Falha ao registrar operação no journal", e);
+            throw new UncheckedIOException("Falha ao registrar operação no journal", e);
+        }
+    }
+
+    /**
+     * Registro do cliente apenas quando a instância é a mantida pelo sistema,
+     * evitando que cópias avulsas (sem cadastro) sejam incluídas no replay.
+     */
+    private RegistroJournal gravacaoCliente(Cliente cliente) {
+        return gravacaoSeCadastrada(ColecaoSnapshot.CLIENTES, clientes, cliente);
+    }
+
+    private static <T> RegistroJournal gravacaoSeCadastrada(ColecaoSnapshot colecao, ColecaoIndexada<T> cadastro,
+                                                            T entidade) {
+        return cadastro.contem(entidade) ? RegistroJournal.gravacao(colecao, entidade) : null;
+    }
+
+    private ContaAtendimento novaContaAtendimento(Agendamento agendamento) {
+        Objects.requireNonNull(agendamento, "agendamento não pode ser nulo");
+        garantirCompetencia(YearMonth.from(agendamento.getInicio()));
+        ContaAtendimento conta = new ContaAtendimento(UUID.randomUUID(), agendamento);
+        contasPorAgendamento.verificarUnicaAberta(conta);
+        contas.add(conta);
+        contasPorAgendamento.adicionar(conta);
+        atividadeClientes.adicionar(conta);
+        return conta;
+    }
+
     private CaixaDiario obterOuCriarCaixa(LocalDate data, Dinheiro saldoAberturaPadrao) {
         Objects.requireNonNull(data, "data não pode ser nula");
         Dinheiro saldo = Objects.requireNonNull(saldoAberturaPadrao, "saldoAberturaPadrao não pode ser nulo");
@@ -897,29 +2140,36 @@ public class Sistema {
 
     private Optional<CaixaDiario> localizarCaixaInterno(LocalDate data) {
         Objects.requireNonNull(data, "data não pode ser nula");
-        return caixas.stream()
-                .filter(c -> c.getData().equals(data))
-                .findFirst();
+        garantirCompetencia(YearMonth.from(data));
+        return caixas.buscar(data);
     }
 
-    private Agendamento localizarAgendamento(UUID id) {
-        for (Agendamento agendamento : agendamentos) {
-            if (agendamento.getId().equals(id)) {
-                return agendamento;
-            }
+    /**
+     * Lê do histórico as competências que o período {@code [inicio, fim]} alcança.
+     */
+    private void garantirCompetencias(LocalDate inicio, LocalDate fim) {
+        Objects.requireNonNull(inicio, "inicio não pode ser nulo");
+        Objects.requireNonNull(fim, "fim não pode ser nulo");
+        if (fim.isBefore(inicio)) {
+            throw new IllegalArgumentException("fim não pode ser anterior ao início");
+        }
+        YearMonth ultimo = YearMonth.from(fim);
+        for (YearMonth mes = YearMonth.from(inicio); historico != null && !mes.isAfter(ultimo); mes = mes.plusMonths(1)) {
+            garantirCompetencia(mes);
         }
-        throw new IllegalArgumentException("Agendamento não encontrado: " + id);
+    }
+
+    private Agendamento localizarAgendamento(UUID id) {
+        return agendamentos.buscar(id)
+                .orElseThrow(() -> new IllegalArgumentException("Agendamento não encontrado: " + id));
     }
 
     private void substituirConta(UUID id, ContaAtendimento contaAtualizada) {
-        for (ListIterator<ContaAtendimento> it = contas.listIterator(); it.hasNext(); ) {
-            ContaAtendimento atual = it.next();
-            if (atual.getId().equals(id)) {
-                it.set(contaAtualizada);
-                return;
-            }
-        }
-        throw new IllegalArgumentException("Conta não encontrada: " + id);
+        ContaAtendimento anterior = contas.buscar(id)
+                .orElseThrow(() -> new IllegalArgumentException("Conta não encontrada: " + id));
+        contas.substituir(id, contaAtualizada);
+        contasPorAgendamento.substituir(anterior, contaAtualizada);
+        atividadeClientes.substituir(anterior, contaAtualizada);
     }
 
     private static int contarElementos(Iterable<?> elementos) {
@@ -934,14 +2184,9 @@ public class Sistema {
     }
 
     private void substituirRecebimento(UUID id, RecebimentoFornecedor atualizado) {
-        for (ListIterator<RecebimentoFornecedor> it = recebimentos.listIterator(); it.hasNext(); ) {
-            RecebimentoFornecedor atual = it.next();
-            if (atual.getId().equals(id)) {
-                it.set(atualizado);
-                return;
-            }
+        if (!recebimentos.substituir(id, atualizado)) {
+            throw new IllegalArgumentException("Recebimento não encontrado: " + id);
         }
-        throw new IllegalArgumentException("Recebimento não encontrado: " + id);
     }
 
     private static String formatarEmail(Cliente cliente) {
@@ -967,7 +2212,7 @@ public class Sistema {
         return limiteOriginal <= 0 ? "todos" : Integer.toString(limiteNormalizado);
     }
 
-    private static <T> List<T> ordenarERecortar(List<T> origem, Comparator<T> comparator, int offset, int limit) {
+    private static <T> List<T> ordenarERecortar(Collection<T> origem, Comparator<T> comparator, int offset, int limit) {
         List<T> ordenada = new ArrayList<>(origem);
         ordenada.sort(comparator);
         int safeOffset = normalizarOffset(offset);
@@ -979,25 +2224,15 @@ public class Sistema {
     }
 
     private void substituirCliente(UUID id, Cliente clienteAtualizado) {
-        for (ListIterator<Cliente> it = clientes.listIterator(); it.hasNext(); ) {
-            Cliente atual = it.next();
-            if (atual.getId().equals(id)) {
-                it.set(clienteAtualizado);
-                return;
-            }
+        if (!clientes.substituir(id, clienteAtualizado)) {
+            throw new IllegalArgumentException("Cliente não encontrado: " + id);
         }
-        throw new IllegalArgumentException("Cliente não encontrado: " + id);
     }
 
     private void substituirUsuario(UUID id, Usuario usuarioAtualizado) {
-        for (ListIterator<Usuario> it = usuarios.listIterator(); it.hasNext(); ) {
-            Usuario atual = it.next();
-            if (atual.getId().equals(id)) {
-                it.set(usuarioAtualizado);
-                return;
-            }
+        if (!usuarios.substituir(id, usuarioAtualizado)) {
+            throw new IllegalArgumentException("Usuário não encontrado: " + id);
         }
-        throw new IllegalArgumentException("Usuário não encontrado: " + id);
     }
 
     private void assertAdmin(Usuario usuario) {
@@ -1020,4 +2255,100 @@ public class Sistema {
             throw new IllegalArgumentException("Moeda divergente do balanço informado");
         }
     }
+
+    /**
+     * Destino do carregamento em streaming: acumula as entidades em listas novas
+     * à medida que o {@link JsonStorage} as entrega e, em seguida, aplica os
+     * registros do journal por chave.
+     */
+    private static final class ColecoesCarregadas implements SnapshotSink {
+        private final List<Cliente> clientes = new ArrayList<>();
+        private final List<Usuario> usuarios = new ArrayList<>();
+        private final List<Servico> servicos = new ArrayList<>();
+        private final List<Produto> produtos = new ArrayList<>();
+        private final List<Agendamento> agendamentos = new ArrayList<>();
+        private final List<Venda> vendas = new ArrayList<>();
+        private final List<ContaAtendimento> contas = new ArrayList<>();
+        private final List<Despesa> despesas = new ArrayList<>();
+        private final List<RecebimentoFornecedor> recebimentos = new ArrayList<>();
+        private final List<CaixaDiario> caixas = new ArrayList<>();
+        // Índices por chave criados apenas para as coleções tocadas pelo journal.
+        private final Map<ColecaoSnapshot, Map<String, Object>> indices = new EnumMap<>(ColecaoSnapshot.class);
+        // Versão do snapshot efetivamente lida (o principal ou uma geração anterior).
+        private Path origem;
+
+        @Override
+        public void aceitar(ColecaoSnapshot colecao, Object elemento) {
+            lista(colecao).add(colecao.getTipo().cast(elemento));
+        }
+
+        void aplicar(RegistroJournal registro) {
+            Map<String, Object> indice = indices.computeIfAbsent(registro.getColecao(), this::indexar);
+            if (registro.getTipo() == RegistroJournal.Tipo.GRAVACAO) {
+                indice.put(registro.getChave(), registro.getEntidade());
+            } else {
+                indice.remove(registro.getChave());
+            }
+        }
+
+        void consolidar() {
+            indices.forEach((colecao, indice) -> {
+                List<Object> destino = lista(colecao);
+                destino.clear();
+                destino.addAll(indice.values());
+            });
+            indices.clear();
+        }
+
+        DataSnapshot comoSnapshot() {
+            return DataSnapshot.builder()
+                    .withClientes(clientes)
+                    .withUsuarios(usuarios)
+                    .withServicos(servicos)
+                    .withProdutos(produtos)
+                    .withAgendamentos(agendamentos)
+                    .withVendas(vendas)
+                    .withContas(contas)
+                    .withDespesas(despesas)
+                    .withRecebimentos(recebimentos)
+                    .withCaixas(caixas)
+                    .build();
+        }
+
+        private Map<String, Object> indexar(ColecaoSnapshot colecao) {
+            Map<String, Object> indice = new LinkedHashMap<>();
+            for (Object elemento : lista(colecao)) {
+                indice.put(colecao.chaveDe(elemento), elemento);
+            }
+            return indice;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Object> lista(ColecaoSnapshot colecao) {
+            switch (colecao) {
+                case CLIENTES:
+                    return (List<Object>) (List<?>) clientes;
+                case USUARIOS:
+                    return (List<Object>) (List<?>) usuarios;
+                case SERVICOS:
+                    return (List<Object>) (List<?>) servicos;
+                case PRODUTOS:
+                    return (List<Object>) (List<?>) produtos;
+                case AGENDAMENTOS:
+                    return (List<Object>) (List<?>) agendamentos;
+                case VENDAS:
+                    return (List<Object>) (List<?>) vendas;
+                case CONTAS:
+                    return (List<Object>) (List<?>) contas;
+                case DESPESAS:
+                    return (List<Object>) (List<?>) despesas;
+                case RECEBIMENTOS:
+                    return (List<Object>) (List<?>) recebimentos;
+                case CAIXAS:
+                    return (List<Object>) (List<?>) caixas;
+                default:
+                    throw new IllegalArgumentException("Coleção desconhecida: " + colecao);
+            }
+        }
+    }
 }
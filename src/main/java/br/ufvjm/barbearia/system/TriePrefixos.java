@@ -0,0 +1,194 @@
+package br.ufvjm.barbearia.system;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Árvore de prefixos sobre nomes sem acento, para busca enquanto se digita.
+ * <p>
+ * Os nomes são dobrados ({@link #dobrar(String)}: sem acentos, em minúsculas
+ * e com separadores reduzidos a um espaço) e indexados a partir do início de
+ * cada palavra, de modo que "mod" encontra "Cera Modeladora". Os filhos de cada
+ * nó ficam em vetores ordenados; a busca desce pelo prefixo e percorre a
+ * subárvore em ordem alfabética, parando assim que reúne o limite de valores
+ * distintos.
+ * </p>
+ *
+ * @param <T> valor associado aos nomes; comparado por {@code equals} na remoção.
+ */
+final class TriePrefixos<T> {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final No<T> raiz = new No<>();
+
+    void inserir(String nome, T valor) {
+        Objects.requireNonNull(valor, "valor não pode ser nulo");
+        String dobrado = dobrar(nome);
+        for (int inicio : iniciosDePalavra(dobrado)) {
+            No<T> no = raiz;
+            for (int i = inicio; i < dobrado.length(); i++) {
+                no = no.filhoOuNovo(dobrado.charAt(i));
+            }
+            no.adicionar(valor);
+        }
+    }
+
+    void remover(String nome, T valor) {
+        String dobrado = dobrar(nome);
+        for (int inicio : iniciosDePalavra(dobrado)) {
+            Deque<No<T>> caminho = new ArrayDeque<>();
+            No<T> no = raiz;
+            for (int i = inicio; i < dobrado.length() && no != null; i++) {
+                caminho.push(no);
+                no = no.filho(dobrado.charAt(i));
+            }
+            if (no == null || !no.remover(valor)) {
+                continue;
+            }
+            for (int i = dobrado.length() - 1; i >= inicio && no.vazio(); i--) {
+                No<T> pai = caminho.pop();
+                pai.removerFilho(dobrado.charAt(i));
+                no = pai;
+            }
+        }
+    }
+
+    /**
+     * @return até {@code limite} valores distintos cujo nome tem alguma
+     * palavra iniciada pelo prefixo, em ordem alfabética do trecho encontrado.
+     */
+    List<T> buscar(String prefixo, int limite) {
+        if (limite <= 0) {
+            return List.of();
+        }
+        String dobrado = dobrar(prefixo);
+        No<T> no = raiz;
+        for (int i = 0; i < dobrado.length() && no != null; i++) {
+            no = no.filho(dobrado.charAt(i));
+        }
+        if (no == null) {
+            return List.of();
+        }
+        Set<T> encontrados = new LinkedHashSet<>();
+        coletar(no, limite, encontrados);
+        return new ArrayList<>(encontrados);
+    }
+
+    /**
+     * Remove acentos, passa para minúsculas e troca qualquer sequência de
+     * caracteres que não sejam letras ou dígitos por um único espaço.
+     */
+    static String dobrar(String texto) {
+        String semAcento = MARCAS.matcher(Normalizer.normalize(
+                Objects.requireNonNull(texto, "texto não pode ser nulo"), Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(semAcento.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static int[] iniciosDePalavra(String dobrado) {
+        if (dobrado.isEmpty()) {
+            return new int[0];
+        }
+        int[] inicios = new int[dobrado.length()];
+        int total = 0;
+        inicios[total++] = 0;
+        for (int i = dobrado.indexOf(' '); i >= 0; i = dobrado.indexOf(' ', i + 1)) {
+            inicios[total++] = i + 1;
+        }
+        return Arrays.copyOf(inicios, total);
+    }
+
+    private static <T> boolean coletar(No<T> no, int limite, Set<T> destino) {
+        for (T valor : no.valores) {
+            destino.add(valor);
+            if (destino.size() >= limite) {
+                return true;
+            }
+        }
+        for (int i = 0; i < no.quantidadeFilhos; i++) {
+            if (coletar(no.filhos[i], limite, destino)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class No<T> {
+
+        private static final char[] SEM_ROTULOS = new char[0];
+
+        private char[] rotulos = SEM_ROTULOS;
+        private No<T>[] filhos;
+        private int quantidadeFilhos;
+        private List<T> valores = List.of();
+
+        No<T> filho(char rotulo) {
+            int posicao = Arrays.binarySearch(rotulos, 0, quantidadeFilhos, rotulo);
+            return posicao >= 0 ? filhos[posicao] : null;
+        }
+
+        No<T> filhoOuNovo(char rotulo) {
+            int posicao = Arrays.binarySearch(rotulos, 0, quantidadeFilhos, rotulo);
+            if (posicao >= 0) {
+                return filhos[posicao];
+            }
+            posicao = -posicao - 1;
+            if (quantidadeFilhos == rotulos.length) {
+                int capacidade = Math.max(2, quantidadeFilhos * 2);
+                rotulos = Arrays.copyOf(rotulos, capacidade);
+                if (filhos == null) {
+                    @SuppressWarnings("unchecked")
+                    No<T>[] novos = (No<T>[]) new No<?>[capacidade];
+                    filhos = novos;
+                } else {
+                    filhos = Arrays.copyOf(filhos, capacidade);
+                }
+            }
+            System.arraycopy(rotulos, posicao, rotulos, posicao + 1, quantidadeFilhos - posicao);
+            System.arraycopy(filhos, posicao, filhos, posicao + 1, quantidadeFilhos - posicao);
+            No<T> novo = new No<>();
+            rotulos[posicao] = rotulo;
+            filhos[posicao] = novo;
+            quantidadeFilhos++;
+            return novo;
+        }
+
+        void removerFilho(char rotulo) {
+            int posicao = Arrays.binarySearch(rotulos, 0, quantidadeFilhos, rotulo);
+            if (posicao < 0) {
+                return;
+            }
+            System.arraycopy(rotulos, posicao + 1, rotulos, posicao, quantidadeFilhos - posicao - 1);
+            System.arraycopy(filhos, posicao + 1, filhos, posicao, quantidadeFilhos - posicao - 1);
+            quantidadeFilhos--;
+            filhos[quantidadeFilhos] = null;
+        }
+
+        void adicionar(T valor) {
+            if (valores.isEmpty()) {
+                valores = new ArrayList<>(1);
+            }
+            if (!valores.contains(valor)) {
+                valores.add(valor);
+            }
+        }
+
+        boolean remover(T valor) {
+            return !valores.isEmpty() && valores.remove(valor);
+        }
+
+        boolean vazio() {
+            return valores.isEmpty() && quantidadeFilhos == 0;
+        }
+    }
+}
@@ -32,6 +32,14 @@ public final class CpfHash {
         return new CpfHash(hash, mascara);
     }
 
+    /**
+     * Reconstrói um CPF já protegido, a partir do hash e da máscara persistidos.
+     */
+    public static CpfHash reidratar(String hash, String mascara) {
+        return new CpfHash(Objects.requireNonNull(hash, "hash não pode ser nulo"),
+                Objects.requireNonNull(mascara, "mascara não pode ser nula"));
+    }
+
     private static String gerarHash(String valor) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
@@ -0,0 +1,139 @@
+package br.ufvjm.barbearia.persist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.value.CpfHash;
+import br.ufvjm.barbearia.value.Email;
+import br.ufvjm.barbearia.value.Endereco;
+import br.ufvjm.barbearia.value.Telefone;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Confere a recuperação do arquivo de extratos após quedas (registro
+ * incompleto no fim do segmento, índice incompleto ou ausente) e a troca de
+ * segmento no meio de uma anexação em lote.
+ */
+class ArquivoExtratosTest {
+
+    private static final long TAMANHO_SEGMENTO = 256;
+    private static final LocalDateTime EMISSAO = LocalDateTime.of(2025, 3, 10, 9, 0);
+    private static final Cliente CLIENTE = new Cliente(UUID.randomUUID(), "Cliente Extratos",
+            Endereco.builder()
+                    .logradouro("Rua das Acácias")
+                    .numero("100")
+                    .bairro("Centro")
+                    .cidade("Diamantina")
+                    .estado("MG")
+                    .cep("39100000")
+                    .build(),
+            Telefone.of("38 3531-0000"), Email.of("cliente@teste.com"), CpfHash.fromMasked("123.456.789-09"), true);
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void deveIniciarNovoSegmentoDentroDoMesmoLote() throws IOException {
+        List<String> textos = textos(5);
+        List<ReferenciaExtrato> referencias;
+        try (ArquivoExtratos arquivo = ArquivoExtratos.abrir(temp, TAMANHO_SEGMENTO)) {
+            referencias = arquivo.anexar(novos(textos));
+            assertEquals(3, arquivo.getSegmentos(), "Cinco registros de ~100 bytes ocupam três segmentos");
+            assertEquals(List.of(1, 1, 2, 2, 3), referencias.stream().map(ReferenciaExtrato::getSegmento)
+                    .collect(Collectors.toList()));
+            assertEquals(0, referencias.get(2).getOffset(), "Registro que não cabe deve abrir o novo segmento");
+            for (int i = 0; i < textos.size(); i++) {
+                assertEquals(textos.get(i), arquivo.ler(referencias.get(i)));
+            }
+        }
+
+        try (ArquivoExtratos reaberto = ArquivoExtratos.abrir(temp, TAMANHO_SEGMENTO)) {
+            assertEquals(referencias, referencias(reaberto), "Índice deve listar os extratos de todos os segmentos");
+        }
+    }
+
+    @Test
+    void deveTruncarRegistroIncompletoNoFimDoSegmento() throws IOException {
+        List<String> textos = textos(2);
+        try (ArquivoExtratos arquivo = ArquivoExtratos.abrir(temp, TAMANHO_SEGMENTO)) {
+            arquivo.anexar(novos(textos));
+        }
+        Path segmento = temp.resolve(ReferenciaExtrato.nomeSegmento(1));
+        long tamanhoIntegro = Files.size(segmento);
+        byte[] registro = Files.readAllBytes(segmento);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.APPEND)) {
+            // queda no meio da escrita de um terceiro registro
+            canal.write(ByteBuffer.wrap(registro, 0, registro.length / 2 - 10));
+        }
+
+        try (ArquivoExtratos reaberto = ArquivoExtratos.abrir(temp, TAMANHO_SEGMENTO)) {
+            assertEquals(tamanhoIntegro, Files.size(segmento), "Registro incompleto deve ser truncado");
+            assertEquals(2, reaberto.getTotal());
+            ReferenciaExtrato nova = reaberto.anexar(CLIENTE, "depois da queda", EMISSAO.plusDays(1));
+            assertEquals(tamanhoIntegro, nova.getOffset(), "Próximo registro deve ocupar o lugar do truncado");
+            assertEquals("depois da queda", reaberto.ler(nova));
+        }
+        try (ArquivoExtratos reaberto = ArquivoExtratos.abrir(temp, TAMANHO_SEGMENTO)) {
+            assertEquals(3, reaberto.getTotal());
+        }
+    }
+
+    @Test
+    void deveRederivarOIndiceAPartirDosSegmentos() throws IOException {
+        List<String> textos = textos(4);
+        List<ReferenciaExtrato> referencias;
+        try (ArquivoExtratos arquivo = ArquivoExtratos.abrir(temp, TAMANHO_SEGMENTO)) {
+            referencias = arquivo.anexar(novos(textos));
+        }
+        Path indice = temp.resolve(ArquivoExtratos.INDICE);
+        long tamanhoIndice = Files.size(indice);
+        try (FileChannel canal = FileChannel.open(indice, StandardOpenOption.WRITE)) {
+            // primeira entrada inteira e a segunda pela metade
+            canal.truncate(tamanhoIndice / referencias.size() + 10);
+        }
+
+        try (ArquivoExtratos reaberto = ArquivoExtratos.abrir(temp, TAMANHO_SEGMENTO)) {
+            assertEquals(referencias, referencias(reaberto), "Entradas perdidas devem ser reindexadas");
+            assertEquals(textos.get(3), reaberto.ler(referencias.get(3)));
+        }
+        assertEquals(tamanhoIndice, Files.size(indice), "Índice deve voltar a ter uma entrada por extrato");
+
+        Files.delete(indice);
+        try (ArquivoExtratos reaberto = ArquivoExtratos.abrir(temp, TAMANHO_SEGMENTO)) {
+            assertEquals(referencias, referencias(reaberto), "Índice ausente deve ser reconstruído");
+        }
+    }
+
+    private static List<ReferenciaExtrato> referencias(ArquivoExtratos arquivo) {
+        return arquivo.historico(CLIENTE.getId()).stream().map(ArquivoExtratos.Registro::getReferencia)
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> textos(int quantidade) {
+        List<String> textos = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            textos.add(String.format("Extrato %02d - corte e barba - total R$ 40,00 - cliente fiel", i));
+        }
+        return textos;
+    }
+
+    private static List<ArquivoExtratos.NovoExtrato> novos(List<String> textos) {
+        List<ArquivoExtratos.NovoExtrato> novos = new ArrayList<>();
+        for (int i = 0; i < textos.size(); i++) {
+            novos.add(new ArquivoExtratos.NovoExtrato(CLIENTE, textos.get(i), EMISSAO.plusMinutes(i)));
+        }
+        return novos;
+    }
+}
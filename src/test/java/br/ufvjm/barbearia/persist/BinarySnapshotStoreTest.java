@@ -0,0 +1,87 @@
+package br.ufvjm.barbearia.persist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.ufvjm.barbearia.enums.CategoriaDespesa;
+import br.ufvjm.barbearia.enums.FormaPagamento;
+import br.ufvjm.barbearia.model.Despesa;
+import br.ufvjm.barbearia.model.ItemVenda;
+import br.ufvjm.barbearia.model.Produto;
+import br.ufvjm.barbearia.model.Venda;
+import br.ufvjm.barbearia.value.Dinheiro;
+import br.ufvjm.barbearia.value.Quantidade;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Garante que a conversão JSON → binário → JSON devolve exatamente o mesmo
+ * arquivo que o JSON gravaria a partir das mesmas entidades.
+ */
+class BinarySnapshotStoreTest {
+
+    private static final Currency BRL = Currency.getInstance("BRL");
+    private static final String SKU_MAIUSCULO = "3F2504E0-4F89-11D3-9A0C-0305E82C3301";
+    private static final String SKU_LARGURA_TOTAL = "３f2504e0-4f89-11d3-9a0c-0305e82c3301";
+    private static final String SKU_MINUSCULO = "3f2504e0-4f89-11d3-9a0c-0305e82c3301";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void deveConverterIdaEVoltaSemAlterarBytes() throws IOException {
+        Produto maiusculo = produto("Pomada", SKU_MAIUSCULO);
+        Produto larguraTotal = produto("Cera", SKU_LARGURA_TOTAL);
+        Produto minusculo = produto("Óleo", SKU_MINUSCULO);
+        Venda balcao = new Venda(UUID.randomUUID(), null, LocalDateTime.of(2025, 2, 3, 14, 5, 7, 120_000_000),
+                FormaPagamento.PIX);
+        balcao.adicionarItem(new ItemVenda(maiusculo, Quantidade.of(new BigDecimal("2"), "un"),
+                maiusculo.getPrecoVenda()));
+        Despesa semPagamento = new Despesa(UUID.randomUUID(), CategoriaDespesa.OUTRAS, "Reparo",
+                Dinheiro.of(new BigDecimal("99.90"), BRL), YearMonth.of(2025, 2));
+        DataSnapshot snapshot = DataSnapshot.builder()
+                .withProdutos(List.of(maiusculo, larguraTotal, minusculo))
+                .withVendas(List.of(balcao))
+                .withDespesas(List.of(semPagamento))
+                .build();
+
+        Path gravado = temp.resolve("gravado.json");
+        JsonStorage.save(snapshot, gravado);
+        // Valores fora da escala de Dinheiro, como em arquivos editados à mão.
+        String json = Files.readString(gravado, StandardCharsets.UTF_8)
+                .replace("\"99.90\"", "\"99.9\"")
+                .replace("\"12.50\"", "\"12.499\"");
+        Path origem = temp.resolve("origem.json");
+        Files.writeString(origem, json, StandardCharsets.UTF_8);
+
+        Path esperado = temp.resolve("esperado.json");
+        JsonStorage.save(JsonStorage.load(origem), esperado);
+        Path binario = temp.resolve("snapshot.bin");
+        Path convertido = temp.resolve("convertido.json");
+        BinarySnapshotStore.converterDeJson(origem, binario);
+        BinarySnapshotStore.converterParaJson(binario, convertido);
+
+        String textoEsperado = Files.readString(esperado, StandardCharsets.UTF_8);
+        assertEquals(textoEsperado, Files.readString(convertido, StandardCharsets.UTF_8));
+        assertEquals(-1L, Files.mismatch(esperado, convertido), "Conversão deve preservar os bytes");
+        assertTrue(textoEsperado.contains(SKU_MAIUSCULO), "SKU em maiúsculas deve ser preservado");
+        assertTrue(textoEsperado.contains(SKU_LARGURA_TOTAL), "Dígito de largura total deve ser preservado");
+        assertTrue(textoEsperado.contains("\"99.90\""), "Dinheiro deve voltar na escala padrão");
+    }
+
+    private static Produto produto(String nome, String sku) {
+        return new Produto(UUID.randomUUID(), nome, sku, Quantidade.of(new BigDecimal("10"), "un"),
+                Quantidade.of(new BigDecimal("1.5"), "un"), Dinheiro.of(new BigDecimal("12.50"), BRL),
+                Dinheiro.of(new BigDecimal("7.25"), BRL));
+    }
+}
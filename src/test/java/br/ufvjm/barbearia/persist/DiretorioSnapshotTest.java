@@ -0,0 +1,125 @@
+package br.ufvjm.barbearia.persist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.ufvjm.barbearia.enums.Papel;
+import br.ufvjm.barbearia.enums.StatusAtendimento;
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.model.Estacao;
+import br.ufvjm.barbearia.model.ItemDeServico;
+import br.ufvjm.barbearia.model.Produto;
+import br.ufvjm.barbearia.model.Servico;
+import br.ufvjm.barbearia.model.Usuario;
+import br.ufvjm.barbearia.system.Sistema;
+import br.ufvjm.barbearia.value.CpfHash;
+import br.ufvjm.barbearia.value.Dinheiro;
+import br.ufvjm.barbearia.value.Email;
+import br.ufvjm.barbearia.value.Endereco;
+import br.ufvjm.barbearia.value.Quantidade;
+import br.ufvjm.barbearia.value.Telefone;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Garante que a gravação em diretório persiste alterações feitas diretamente
+ * nas entidades, sem passar pelos métodos do {@link Sistema}, e que a gravação
+ * em segundo plano reflete o estado do momento da chamada.
+ */
+class DiretorioSnapshotTest {
+
+    private static final Currency BRL = Currency.getInstance("BRL");
+    private static final String SKU = "POM-001";
+    private static final Endereco ENDERECO = Endereco.builder()
+            .logradouro("Rua das Acácias")
+            .numero("100")
+            .bairro("Centro")
+            .cidade("Diamantina")
+            .estado("MG")
+            .cep("39100000")
+            .build();
+    private static final Usuario ADMIN = new Usuario(UUID.randomUUID(), "Admin", ENDERECO,
+            Telefone.of("38 3531-0001"), Email.of("admin@teste.com"), Papel.ADMIN, "admin", "hash", true);
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void deveGravarAlteracoesFeitasDiretamenteNasEntidades() throws IOException {
+        Path diretorio = temp.resolve("sistema");
+        Sistema original = sistemaComAgendamento();
+        original.saveAll(ADMIN, diretorio);
+        assertTrue(Files.isRegularFile(diretorio.resolve(DiretorioSnapshot.MANIFESTO)), "Destino deve ser um diretório");
+
+        Sistema carregado = new Sistema();
+        carregado.loadAll(diretorio);
+        carregado.buscarProdutoPorSku(SKU).orElseThrow().atualizarNome("Pomada Matte");
+        Agendamento agendamento = carregado.listarAgendamentosOrdenados().get(0);
+        agendamento.adicionarItemServico(new ItemDeServico(carregado.listarServicos().get(0),
+                Dinheiro.of(new BigDecimal("40.00"), BRL), 30));
+        agendamento.alterarStatus(StatusAtendimento.EM_ATENDIMENTO);
+        carregado.saveAll(ADMIN, diretorio);
+
+        Sistema relido = new Sistema();
+        relido.loadAll(diretorio);
+        assertEquals("Pomada Matte", relido.buscarProdutoPorSku(SKU).orElseThrow().getNome(),
+                "Troca de nome pela entidade deve ser gravada");
+        Agendamento agendamentoRelido = relido.listarAgendamentosOrdenados().get(0);
+        assertEquals(StatusAtendimento.EM_ATENDIMENTO, agendamentoRelido.getStatus());
+        assertEquals(1, agendamentoRelido.getItens().size(), "Item adicionado pela entidade deve ser gravado");
+        assertEquals(1, relido.buscarProdutosPorNome("matte", 5).size(), "Catálogo deve indexar o nome gravado");
+    }
+
+    @Test
+    void deveGravarEmSegundoPlanoOEstadoDoMomentoDaChamada() throws IOException {
+        Path diretorio = temp.resolve("sistema");
+        Sistema sistema = sistemaComAgendamento();
+        sistema.saveAll(ADMIN, diretorio);
+
+        sistema.buscarProdutoPorSku(SKU).orElseThrow().atualizarNome("Pomada Matte");
+        var primeira = sistema.saveAllAsync(ADMIN, diretorio);
+        sistema.buscarProdutoPorSku(SKU).orElseThrow().atualizarNome("Pomada Brilho");
+        var segunda = sistema.saveAllAsync(ADMIN, temp.resolve("sistema.json"));
+        sistema.buscarProdutoPorSku(SKU).orElseThrow().atualizarNome("Pomada Cera");
+        assertEquals(diretorio, primeira.join());
+        segunda.join();
+
+        Sistema relido = new Sistema();
+        relido.loadAll(diretorio);
+        assertEquals("Pomada Matte", relido.buscarProdutoPorSku(SKU).orElseThrow().getNome(),
+                "Diretório deve refletir o estado da chamada");
+        Sistema arquivo = new Sistema();
+        arquivo.loadAll(temp.resolve("sistema.json"));
+        assertEquals("Pomada Brilho", arquivo.buscarProdutoPorSku(SKU).orElseThrow().getNome(),
+                "Arquivo deve refletir o estado da chamada");
+        try (Stream<Path> arquivos = Stream.concat(Files.list(temp), Files.list(diretorio))) {
+            assertTrue(arquivos.noneMatch(p -> p.getFileName().toString().endsWith(".tmp")),
+                    "Temporários devem ser removidos após a gravação");
+        }
+    }
+
+    private static Sistema sistemaComAgendamento() {
+        Servico corte = new Servico(UUID.randomUUID(), "Corte", Dinheiro.of(new BigDecimal("40.00"), BRL), 30, false);
+        Sistema original = new Sistema();
+        original.cadastrarServico(corte);
+        original.cadastrarProduto(new Produto(UUID.randomUUID(), "Pomada", SKU,
+                Quantidade.of(new BigDecimal("10"), "un"), Quantidade.of(new BigDecimal("1"), "un"),
+                Dinheiro.of(new BigDecimal("25.00"), BRL), Dinheiro.of(new BigDecimal("12.00"), BRL)));
+        Cliente cliente = new Cliente(UUID.randomUUID(), "Cliente Diretório", ENDERECO,
+                Telefone.of("38 3531-0000"), Email.of("cliente@teste.com"), CpfHash.fromMasked("123.456.789-09"), true);
+        original.cadastrarCliente(cliente);
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 10, 9, 0);
+        original.criarAgendamento(UUID.randomUUID(), cliente, Estacao.ESTACOES[0], inicio, inicio.plusMinutes(30),
+                Dinheiro.of(BigDecimal.ZERO, BRL));
+        return original;
+    }
+}
@@ -0,0 +1,83 @@
+package br.ufvjm.barbearia.persist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.system.Sistema;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Confere a migração de um snapshot no formato original (v1, sem cabeçalho,
+ * com entidades embutidas e a lista {@code extratosGerados}) até a versão
+ * atual, tanto na leitura em memória quanto na regravação em streaming.
+ */
+class EsquemaSnapshotTest {
+
+    private static final String CLIENTE_ID = "5b0e7c1a-3f2d-4e8b-9a61-2c4d8e0f7a13";
+    private static final String CLIENTE_V1 = """
+            {"id": "%s", "nome": "Cliente Antigo", "ativo": true,
+             "cpf": {"hash": "7ec94663084bd506d4f0c3e21042df233681fd7426e93f397c921b1d3e397bba",
+                     "mascara": "***.***.789-09"},
+             "endereco": {"logradouro": "Rua das Flores", "numero": "123", "bairro": "Centro",
+                          "cidade": "Diamantina", "estado": "MG", "cep": "39100-000"},
+             "telefone": {"ddd": "38", "numero": "988881122"},
+             "email": {"valor": "cliente@teste.com"},
+             "extratosGerados": ["extrato_1.txt", "extrato_2.txt"]}
+            """.formatted(CLIENTE_ID);
+    private static final String SNAPSHOT_V1 = """
+            {"clientes": [%s],
+             "agendamentos": [{"id": "9d3a6b52-1e7f-4c08-b2a4-6f5e3c9d1b70", "cliente": %s, "estacao": 1,
+                               "inicio": "2025-03-10T09:00:00", "fim": "2025-03-10T09:30:00", "itens": [],
+                               "status": "EM_ESPERA", "sinal": {"valor": "0.00", "moeda": "BRL"}}]}
+            """.formatted(CLIENTE_V1, CLIENTE_V1);
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void deveMigrarSnapshotV1NaLeitura() throws IOException {
+        Path arquivo = temp.resolve("sistema.json");
+        Files.writeString(arquivo, SNAPSHOT_V1, StandardCharsets.UTF_8);
+        assertEquals(1, EsquemaSnapshot.versao(arquivo), "Documento sem cabeçalho deve ser v1");
+
+        verificarCarregado(arquivo);
+        assertEquals(SNAPSHOT_V1, Files.readString(arquivo, StandardCharsets.UTF_8),
+                "Leitura não deve alterar o arquivo");
+    }
+
+    @Test
+    void deveRegravarSnapshotV1NaVersaoAtual() throws IOException {
+        Path arquivo = temp.resolve("sistema.json");
+        Files.writeString(arquivo, SNAPSHOT_V1, StandardCharsets.UTF_8);
+
+        assertEquals(1, EsquemaSnapshot.migrar(arquivo, arquivo, 0), "Deve informar a versão de origem");
+        assertEquals(EsquemaSnapshot.VERSAO_ATUAL, EsquemaSnapshot.versao(arquivo));
+        JsonObject documento = JsonParser.parseString(Files.readString(arquivo, StandardCharsets.UTF_8))
+                .getAsJsonObject();
+        JsonObject cliente = documento.getAsJsonArray("clientes").get(0).getAsJsonObject();
+        assertFalse(cliente.has("extratosGerados"), "Lista de extratos deve ser removida");
+        assertEquals(2, cliente.get("totalExtratos").getAsInt(), "Total deve ser a quantidade da lista");
+        assertEquals(CLIENTE_ID, documento.getAsJsonArray("agendamentos").get(0).getAsJsonObject()
+                .get("cliente").getAsString(), "Cliente embutido deve virar referência por id");
+
+        verificarCarregado(arquivo);
+    }
+
+    private static void verificarCarregado(Path arquivo) {
+        Sistema sistema = new Sistema();
+        sistema.loadAll(arquivo);
+        Cliente cliente = sistema.listarClientesOrdenados().get(0);
+        assertEquals(2, cliente.getTotalExtratos(), "extratosGerados deve virar totalExtratos");
+        assertSame(cliente, sistema.listarAgendamentosOrdenados().get(0).getCliente(),
+                "Agendamento deve apontar para o cliente da coleção");
+    }
+}
@@ -0,0 +1,163 @@
+package br.ufvjm.barbearia.persist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.model.Estacao;
+import br.ufvjm.barbearia.system.Sistema;
+import br.ufvjm.barbearia.value.CpfHash;
+import br.ufvjm.barbearia.value.Dinheiro;
+import br.ufvjm.barbearia.value.Email;
+import br.ufvjm.barbearia.value.Endereco;
+import br.ufvjm.barbearia.value.Telefone;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Garante que o journal sobrevive à reabertura, a quedas durante a escrita e
+ * ao checkpoint, e que o replay devolve um grafo com instâncias compartilhadas.
+ */
+class JournalOperacoesTest {
+
+    private static final Currency BRL = Currency.getInstance("BRL");
+    private static final DataSnapshot VAZIO = DataSnapshot.builder().build();
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void deveReaplicarRegistrosAposReabrir() throws IOException {
+        Path arquivo = temp.resolve("sistema.journal");
+        Cliente cliente = cliente("Cliente Journal");
+        try (JournalOperacoes journal = abrir(arquivo)) {
+            journal.registrar(RegistroJournal.gravacao(ColecaoSnapshot.CLIENTES, cliente));
+            journal.registrar(RegistroJournal.remocao(ColecaoSnapshot.CLIENTES, UUID.randomUUID()));
+        }
+
+        try (JournalOperacoes journal = abrir(arquivo)) {
+            assertEquals(2, journal.ultimaSequencia(), "Sequência deve continuar de onde parou");
+            List<RegistroJournal> lidos = reproduzir(journal);
+            assertEquals(2, lidos.size());
+            assertEquals(1, lidos.get(0).getSequencia());
+            assertEquals(RegistroJournal.Tipo.GRAVACAO, lidos.get(0).getTipo());
+            assertEquals("Cliente Journal", ((Cliente) lidos.get(0).getEntidade()).getNome());
+            assertEquals(RegistroJournal.Tipo.REMOCAO, lidos.get(1).getTipo());
+        }
+    }
+
+    @Test
+    void deveDescartarLinhaFinalIncompleta() throws IOException {
+        Path arquivo = temp.resolve("sistema.journal");
+        try (JournalOperacoes journal = abrir(arquivo)) {
+            journal.registrar(RegistroJournal.gravacao(ColecaoSnapshot.CLIENTES, cliente("Cliente Íntegro")));
+        }
+        long tamanhoValido = Files.size(arquivo);
+        Files.writeString(arquivo, "{\"seq\":2,\"op\":\"GRAVA", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (JournalOperacoes journal = abrir(arquivo)) {
+            assertEquals(tamanhoValido, Files.size(arquivo), "Linha incompleta deve ser truncada");
+            assertEquals(1, journal.ultimaSequencia());
+            assertEquals(1, reproduzir(journal).size());
+            assertEquals(2, journal.registrar(RegistroJournal.remocao(ColecaoSnapshot.CLIENTES, UUID.randomUUID())),
+                    "Novo registro deve reaproveitar a sequência descartada");
+        }
+    }
+
+    @Test
+    void deveManterApenasRegistrosPosterioresAoCheckpoint() throws IOException {
+        Path arquivo = temp.resolve("sistema.journal");
+        try (JournalOperacoes journal = abrir(arquivo)) {
+            for (int i = 1; i <= 3; i++) {
+                journal.registrar(RegistroJournal.gravacao(ColecaoSnapshot.CLIENTES, cliente("Cliente " + i)));
+            }
+
+            journal.truncarAte(2);
+            List<RegistroJournal> restantes = reproduzir(journal);
+            assertEquals(1, restantes.size());
+            assertEquals(3, restantes.get(0).getSequencia());
+            assertEquals("Cliente 3", ((Cliente) restantes.get(0).getEntidade()).getNome());
+
+            journal.truncarAte(journal.ultimaSequencia());
+            assertTrue(journal.vazio(), "Checkpoint completo deve esvaziar o journal");
+            assertEquals(4, journal.registrar(RegistroJournal.remocao(ColecaoSnapshot.CLIENTES, UUID.randomUUID())));
+        }
+    }
+
+    @Test
+    void deveCompartilharInstanciasAposLoadAll() throws IOException {
+        Path arquivo = temp.resolve("sistema.journal");
+        Path snapshot = temp.resolve("sistema.json");
+        Cliente cliente = cliente("Cliente Compartilhado");
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 10, 9, 0);
+        try (JournalOperacoes journal = abrir(arquivo)) {
+            Sistema sistema = new Sistema();
+            sistema.configurarJournal(journal);
+            sistema.cadastrarCliente(cliente);
+            sistema.criarAgendamento(UUID.randomUUID(), cliente, Estacao.ESTACOES[0], inicio,
+                    inicio.plusMinutes(30), Dinheiro.of(BigDecimal.ZERO, BRL));
+            sistema.criarAgendamento(UUID.randomUUID(), cliente, Estacao.ESTACOES[0], inicio.plusHours(1),
+                    inicio.plusHours(1).plusMinutes(30), Dinheiro.of(BigDecimal.ZERO, BRL));
+            Cliente editado = new Cliente(cliente.getId(), "Cliente Editado", cliente.getEndereco(),
+                    cliente.getTelefone(), cliente.getEmail(), cliente.getCpf(), true);
+            sistema.editarCliente(cliente.getId(), editado);
+        }
+        String linhas = Files.readString(arquivo, StandardCharsets.UTF_8);
+        assertEquals(1, linhas.split("\"Cliente Compartilhado\"", -1).length - 1,
+                "Agendamentos devem gravar o cliente apenas pela chave");
+
+        try (JournalOperacoes journal = abrir(arquivo)) {
+            Sistema sistema = new Sistema();
+            sistema.configurarJournal(journal);
+            sistema.loadAll(snapshot);
+
+            Cliente carregado = sistema.listarClientesOrdenados().get(0);
+            List<Agendamento> agendamentos = sistema.listarAgendamentosOrdenados();
+            assertEquals("Cliente Editado", carregado.getNome());
+            assertEquals(2, agendamentos.size());
+            assertSame(carregado, agendamentos.get(0).getCliente(), "Agendamento deve apontar para o cliente listado");
+            assertSame(carregado, agendamentos.get(1).getCliente(), "Agendamentos devem compartilhar o cliente");
+
+            carregado.atualizarContato(carregado.getEndereco(), Telefone.of("38 99999-0000"), carregado.getEmail());
+            assertEquals(Telefone.of("38 99999-0000"), agendamentos.get(0).getCliente().getTelefone());
+            assertNotSame(cliente, carregado);
+        }
+    }
+
+    private static JournalOperacoes abrir(Path arquivo) throws IOException {
+        return JournalOperacoes.abrir(arquivo, JournalOperacoes.Configuracao.sincronizarSempre());
+    }
+
+    private static List<RegistroJournal> reproduzir(JournalOperacoes journal) throws IOException {
+        List<RegistroJournal> lidos = new ArrayList<>();
+        journal.reproduzir(VAZIO, lidos::add);
+        return lidos;
+    }
+
+    private static Cliente cliente(String nome) {
+        return new Cliente(UUID.randomUUID(), nome, Endereco.builder()
+                .logradouro("Rua das Acácias")
+                .numero("100")
+                .bairro("Centro")
+                .cidade("Diamantina")
+                .estado("MG")
+                .cep("39100000")
+                .build(),
+                Telefone.of("38 3531-0000"), Email.of("cliente@teste.com"),
+                CpfHash.fromMasked("123.456.789-09"), true);
+    }
+}
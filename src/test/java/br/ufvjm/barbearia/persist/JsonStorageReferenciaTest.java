@@ -0,0 +1,90 @@
+package br.ufvjm.barbearia.persist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.CaixaDiario;
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.model.ContaAtendimento;
+import br.ufvjm.barbearia.model.Estacao;
+import br.ufvjm.barbearia.model.ItemDeServico;
+import br.ufvjm.barbearia.model.Servico;
+import br.ufvjm.barbearia.value.CpfHash;
+import br.ufvjm.barbearia.value.Dinheiro;
+import br.ufvjm.barbearia.value.Email;
+import br.ufvjm.barbearia.value.Endereco;
+import br.ufvjm.barbearia.value.Telefone;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Garante que o snapshot grava cada entidade uma única vez e que a leitura
+ * devolve instâncias compartilhadas entre as coleções.
+ */
+class JsonStorageReferenciaTest {
+
+    private static final Currency BRL = Currency.getInstance("BRL");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void deveResolverReferenciasParaInstanciasCompartilhadas() throws IOException {
+        Cliente cliente = new Cliente(UUID.randomUUID(), "Cliente Teste", Endereco.builder()
+                .logradouro("Rua das Acácias")
+                .numero("100")
+                .bairro("Centro")
+                .cidade("Diamantina")
+                .estado("MG")
+                .cep("39100000")
+                .build(),
+                Telefone.of("38 3531-0000"), Email.of("cliente@teste.com"),
+                CpfHash.fromMasked("123.456.789-09"), true);
+        Servico corte = new Servico(UUID.randomUUID(), "Corte", Dinheiro.of(new BigDecimal("40.00"), BRL), 30, false);
+        LocalDateTime inicio = LocalDateTime.of(2025, 1, 10, 9, 0);
+        Agendamento agendamento = new Agendamento(UUID.randomUUID(), cliente, Estacao.ESTACOES[1],
+                inicio, inicio.plusMinutes(30), Dinheiro.of(new BigDecimal("10.00"), BRL));
+        agendamento.adicionarItemServico(new ItemDeServico(corte, corte.getPreco(), 30));
+        ContaAtendimento conta = new ContaAtendimento(UUID.randomUUID(), agendamento);
+        CaixaDiario caixa = new CaixaDiario(LocalDate.of(2025, 1, 10), Dinheiro.of(BigDecimal.ZERO, BRL));
+        caixa.adicionarConta(conta);
+
+        DataSnapshot snapshot = DataSnapshot.builder()
+                .withClientes(List.of(cliente))
+                .withServicos(List.of(corte))
+                .withAgendamentos(List.of(agendamento))
+                .withContas(List.of(conta))
+                .withCaixas(List.of(caixa))
+                .build();
+        Path arquivo = temp.resolve("snapshot.json");
+        JsonStorage.save(snapshot, arquivo);
+
+        String json = Files.readString(arquivo, StandardCharsets.UTF_8);
+        assertEquals(1, json.split("\"Cliente Teste\"", -1).length - 1,
+                "Cliente deve ser gravado por completo apenas uma vez");
+        assertFalse(json.contains("possuiLavagem"), "Estação deve ser gravada pelo número");
+
+        DataSnapshot lido = JsonStorage.load(arquivo);
+        Cliente clienteLido = lido.getClientes().get(0);
+        Agendamento agendamentoLido = lido.getAgendamentos().get(0);
+        ContaAtendimento contaLida = lido.getContas().get(0);
+        assertSame(clienteLido, agendamentoLido.getCliente(), "Agendamento deve apontar para o cliente carregado");
+        assertSame(lido.getServicos().get(0), agendamentoLido.getItens().get(0).getServico(),
+                "Item deve apontar para o serviço carregado");
+        assertSame(Estacao.ESTACOES[1], agendamentoLido.getEstacao(), "Estação deve ser a instância compartilhada");
+        assertSame(agendamentoLido, contaLida.getAgendamento(), "Conta deve apontar para o agendamento carregado");
+        assertSame(contaLida, lido.getCaixas().get(0).getContas().get(0), "Caixa deve apontar para a conta carregada");
+    }
+}
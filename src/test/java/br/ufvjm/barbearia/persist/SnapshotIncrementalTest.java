@@ -0,0 +1,104 @@
+package br.ufvjm.barbearia.persist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import br.ufvjm.barbearia.enums.Papel;
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.model.Usuario;
+import br.ufvjm.barbearia.system.Sistema;
+import br.ufvjm.barbearia.value.CpfHash;
+import br.ufvjm.barbearia.value.Email;
+import br.ufvjm.barbearia.value.Endereco;
+import br.ufvjm.barbearia.value.Telefone;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Cobre o ciclo dos snapshots incrementais pelo {@link Sistema}: base, deltas
+ * com inclusões e remoções, releitura, compactação e o descarte de deltas
+ * produzidos sobre outra versão da base.
+ */
+class SnapshotIncrementalTest {
+
+    private static final Endereco ENDERECO = Endereco.builder()
+            .logradouro("Rua das Acácias")
+            .numero("100")
+            .bairro("Centro")
+            .cidade("Diamantina")
+            .estado("MG")
+            .cep("39100000")
+            .build();
+    private static final Usuario ADMIN = new Usuario(UUID.randomUUID(), "Admin", ENDERECO,
+            Telefone.of("38 3531-0001"), Email.of("admin@teste.com"), Papel.ADMIN, "admin", "hash", true);
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void deveReaplicarDeltasECompactarAoAtingirOLimite() throws IOException {
+        Path base = temp.resolve("sistema.json");
+        Sistema sistema = new Sistema();
+        sistema.configurarSnapshotsIncrementais(2);
+        Cliente ana = cliente("Ana");
+        sistema.cadastrarCliente(ana);
+        sistema.saveAll(ADMIN, base);
+        String assinaturaBase = SnapshotIncremental.assinatura(base);
+
+        sistema.cadastrarCliente(cliente("Bruno"));
+        sistema.saveAll(ADMIN, base);
+        sistema.removerCliente(ana.getId());
+        sistema.saveAll(ADMIN, base);
+        assertEquals(2, SnapshotIncremental.deltas(base).size(), "Cada gravação deve produzir um delta");
+        assertEquals(assinaturaBase, SnapshotIncremental.assinatura(base), "Deltas não devem regravar a base");
+        assertEquals(Set.of("Bruno"), nomes(carregar(base)), "Releitura deve reaplicar inclusão e remoção");
+
+        sistema.cadastrarCliente(cliente("Carla"));
+        sistema.saveAll(ADMIN, base);
+        assertEquals(List.of(), SnapshotIncremental.deltas(base), "Compactação deve descartar os deltas");
+        assertEquals(Set.of("Bruno", "Carla"), nomes(carregar(base)), "Nova base deve conter o estado completo");
+    }
+
+    @Test
+    void deveIgnorarDeltasProduzidosSobreOutraBase() throws IOException {
+        Path base = temp.resolve("sistema.json");
+        Sistema sistema = new Sistema();
+        sistema.configurarSnapshotsIncrementais(5);
+        sistema.cadastrarCliente(cliente("Ana"));
+        sistema.saveAll(ADMIN, base);
+        sistema.cadastrarCliente(cliente("Bruno"));
+        sistema.saveAll(ADMIN, base);
+        Path delta = SnapshotIncremental.deltas(base).get(0);
+        Path sobra = temp.resolve("delta-antigo");
+        Files.copy(delta, sobra);
+
+        // Nova base completa, como em uma compactação interrompida antes de descartar os deltas.
+        Sistema outro = new Sistema();
+        outro.cadastrarCliente(cliente("Davi"));
+        outro.saveAll(ADMIN, base);
+        Files.copy(sobra, delta);
+
+        assertEquals(Set.of("Davi"), nomes(carregar(base)), "Delta de outra base deve ser ignorado");
+    }
+
+    private static Sistema carregar(Path base) {
+        Sistema sistema = new Sistema();
+        sistema.loadAll(base);
+        return sistema;
+    }
+
+    private static Set<String> nomes(Sistema sistema) {
+        return sistema.listarClientesOrdenados().stream().map(Cliente::getNome).collect(Collectors.toSet());
+    }
+
+    private static Cliente cliente(String nome) {
+        return new Cliente(UUID.randomUUID(), nome, ENDERECO, Telefone.of("38 3531-0000"),
+                Email.of(nome.toLowerCase() + "@teste.com"), CpfHash.fromMasked("123.456.789-09"), true);
+    }
+}
@@ -0,0 +1,177 @@
+package br.ufvjm.barbearia.persist.adapters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import br.ufvjm.barbearia.enums.CategoriaDespesa;
+import br.ufvjm.barbearia.enums.FormaPagamento;
+import br.ufvjm.barbearia.enums.ModoConsumoProduto;
+import br.ufvjm.barbearia.enums.Papel;
+import br.ufvjm.barbearia.enums.StatusAtendimento;
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.CaixaDiario;
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.model.ConsumoDeProduto;
+import br.ufvjm.barbearia.model.ContaAtendimento;
+import br.ufvjm.barbearia.model.Despesa;
+import br.ufvjm.barbearia.model.Estacao;
+import br.ufvjm.barbearia.model.ItemContaProduto;
+import br.ufvjm.barbearia.model.ItemDeServico;
+import br.ufvjm.barbearia.model.ItemRecebimento;
+import br.ufvjm.barbearia.model.ItemVenda;
+import br.ufvjm.barbearia.model.Produto;
+import br.ufvjm.barbearia.model.RecebimentoFornecedor;
+import br.ufvjm.barbearia.model.Servico;
+import br.ufvjm.barbearia.model.Usuario;
+import br.ufvjm.barbearia.model.Venda;
+import br.ufvjm.barbearia.value.CpfHash;
+import br.ufvjm.barbearia.value.Dinheiro;
+import br.ufvjm.barbearia.value.Email;
+import br.ufvjm.barbearia.value.Endereco;
+import br.ufvjm.barbearia.value.Quantidade;
+import br.ufvjm.barbearia.value.Telefone;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Garante que os adapters escritos à mão produzem exatamente o mesmo JSON que
+ * o adapter reflexivo do Gson e que a leitura reconstrói o mesmo estado.
+ */
+class ModeloAdapterFactoryTest {
+
+    private static final Currency BRL = Currency.getInstance("BRL");
+
+    private final Gson reflexivo = builder().create();
+    private final Gson modelo = builder().registerTypeAdapterFactory(new ModeloAdapterFactory()).create();
+
+    @Test
+    void deveGerarMesmoJsonQueAdapterReflexivo() {
+        for (Object raiz : grafo(true)) {
+            assertEquals(reflexivo.toJson(raiz), modelo.toJson(raiz), raiz.getClass().getSimpleName());
+        }
+        for (Object raiz : grafo(false)) {
+            assertEquals(reflexivo.toJson(raiz), modelo.toJson(raiz), raiz.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void deveReconstruirMesmoEstadoNaLeitura() {
+        for (Object raiz : grafo(true)) {
+            String json = reflexivo.toJson(raiz);
+            Object lido = modelo.fromJson(json, raiz.getClass());
+            assertEquals(json, reflexivo.toJson(lido), raiz.getClass().getSimpleName());
+        }
+        for (Object raiz : grafo(false)) {
+            String json = reflexivo.toJson(raiz);
+            Object lido = modelo.fromJson(json, raiz.getClass());
+            assertEquals(json, reflexivo.toJson(lido), raiz.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void deveRejeitarEntidadeInvalida() {
+        assertThrows(JsonParseException.class,
+                () -> modelo.fromJson("{\"nome\":\"Corte\",\"duracaoMin\":30}", Servico.class));
+    }
+
+    private static GsonBuilder builder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+                .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+                .registerTypeAdapter(YearMonth.class, new YearMonthAdapter())
+                .registerTypeAdapter(Dinheiro.class, new DinheiroAdapter())
+                .setPrettyPrinting();
+    }
+
+    /**
+     * Monta um grafo com todos os tipos persistidos. Com {@code concluido}
+     * falso, os campos calculados sob demanda (totais, pagamentos, fechamento)
+     * ficam sem valor.
+     */
+    private static List<Object> grafo(boolean concluido) {
+        Endereco endereco = Endereco.builder()
+                .logradouro("Rua da Glória")
+                .numero("12")
+                .complemento("Sala 2")
+                .bairro("Centro")
+                .cidade("Diamantina")
+                .estado("MG")
+                .cep("39100000")
+                .build();
+        Cliente cliente = new Cliente(UUID.randomUUID(), "Ana \"Aninha\" Souza", endereco,
+                Telefone.of("38 99999-0000"), Email.of("ana@teste.com"), CpfHash.fromMasked("123.456.789-09"), true);
+        cliente.registrarExtrato();
+        Usuario barbeiro = new Usuario(UUID.randomUUID(), "João", endereco, Telefone.of("38 3531-0000"),
+                Email.of("joao@teste.com"), Papel.BARBEIRO, "joao", "hash", true);
+        Produto pomada = new Produto(UUID.randomUUID(), "Pomada", "POM-1", Quantidade.of(new BigDecimal("10"), "un"),
+                Quantidade.of(new BigDecimal("2"), "un"), dinheiro("35.90"), dinheiro("20.00"));
+        Servico corte = new Servico(UUID.randomUUID(), "Corte", dinheiro("40.00"), 30, true);
+
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 4, 9, 0);
+        Agendamento agendamento = new Agendamento(UUID.randomUUID(), cliente, Estacao.ESTACOES[0],
+                inicio, inicio.plusMinutes(30), dinheiro("10.00"));
+        ItemDeServico item = new ItemDeServico(corte, corte.getPreco(), 30);
+        item.registrarConsumo(new ConsumoDeProduto(pomada, Quantidade.of(new BigDecimal("0.5"), "un"),
+                ModoConsumoProduto.CONSUMO_INTERNO));
+        agendamento.adicionarItemServico(item);
+        agendamento.associarBarbeiro(barbeiro);
+        agendamento.alterarStatus(StatusAtendimento.EM_ATENDIMENTO);
+
+        ContaAtendimento conta = new ContaAtendimento(UUID.randomUUID(), agendamento, dinheiro("5.00"));
+        conta.adicionarProdutoFaturado(new ItemContaProduto(pomada, Quantidade.of(BigDecimal.ONE, "un"),
+                pomada.getPrecoVenda()));
+        conta.registrarAjuste(ContaAtendimento.AjusteConta.credito("Cortesia", dinheiro("2.00")));
+
+        Venda venda = new Venda(UUID.randomUUID(), null, inicio.plusHours(1), FormaPagamento.PIX);
+        venda.adicionarItem(new ItemVenda(pomada, Quantidade.of(new BigDecimal("2"), "un"), pomada.getPrecoVenda()));
+
+        RecebimentoFornecedor recebimento = new RecebimentoFornecedor(UUID.randomUUID(), "Distribuidora",
+                inicio.minusDays(1), "NF-123");
+        recebimento.adicionarItem(new ItemRecebimento(pomada, Quantidade.of(new BigDecimal("5"), "un"),
+                dinheiro("19.50")));
+
+        Despesa despesa = new Despesa(UUID.randomUUID(), CategoriaDespesa.LIMPEZA, "Produtos de limpeza",
+                dinheiro("80.00"), YearMonth.of(2025, 3));
+
+        CaixaDiario caixa = new CaixaDiario(inicio.toLocalDate(), dinheiro("100.00"));
+        caixa.adicionarVenda(venda);
+        caixa.adicionarConta(conta);
+        caixa.registrarSaida(dinheiro("15.00"), "Troco");
+
+        if (concluido) {
+            conta.calcularTotal();
+            conta.fecharConta(FormaPagamento.CARTAO_DEBITO);
+            conta.marcarExtratoServicoGerado(inicio.plusHours(2), "extratos/conta.txt");
+            venda.calcularTotal();
+            venda.marcarExtratoGerado(inicio.plusHours(2), "extratos/venda.txt");
+            recebimento.calcularTotal();
+            recebimento.registrarPagamento(dinheiro("50.00"));
+            despesa.registrarPagamento(LocalDate.of(2025, 3, 10));
+            caixa.registrarEntrada(dinheiro("20.00"), "Suprimento");
+            caixa.consolidar();
+
+            Agendamento cancelado = new Agendamento(UUID.randomUUID(), cliente, Estacao.ESTACOES[2],
+                    inicio.plusDays(1), inicio.plusDays(1).plusMinutes(30), dinheiro("10.00"));
+            cancelado.adicionarItemServico(new ItemDeServico(corte, corte.getPreco(), 30));
+            ContaAtendimento contaCancelada = new ContaAtendimento(UUID.randomUUID(), cancelado);
+            contaCancelada.registrarRetencaoCancelamento(cancelado.cancelar(new BigDecimal("0.35")));
+            cancelado.marcarExtratoCancelamentoGerado(inicio.plusDays(1), "extratos/cancelamento.txt");
+            return List.of(cliente, barbeiro, pomada, corte, agendamento, conta, venda, recebimento, despesa, caixa,
+                    cancelado, contaCancelada);
+        }
+        return List.of(cliente, barbeiro, pomada, corte, agendamento, conta, venda, recebimento, despesa, caixa);
+    }
+
+    private static Dinheiro dinheiro(String valor) {
+        return Dinheiro.of(new BigDecimal(valor), BRL);
+    }
+}
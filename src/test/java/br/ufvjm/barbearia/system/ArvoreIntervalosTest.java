@@ -0,0 +1,190 @@
+package br.ufvjm.barbearia.system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Garante que a árvore de intervalos continua balanceada e com o maior fim de
+ * cada subárvore correto depois das rotações, e que as consultas devolvem o
+ * mesmo que uma varredura linear.
+ */
+class ArvoreIntervalosTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 10, 8, 0);
+
+    @Test
+    void deveAceitarIntervalosQueApenasSeEncostam() {
+        ArvoreIntervalos<String> arvore = new ArvoreIntervalos<>();
+        arvore.inserir("manha", hora(0), hora(1));
+
+        assertTrue(arvore.sobrepostos(hora(1), hora(2)).isEmpty(), "[a,b) e [b,c) não se sobrepõem");
+        assertTrue(arvore.sobrepostos(hora(-1), hora(0)).isEmpty(), "[c,a) e [a,b) não se sobrepõem");
+        assertEquals(List.of("manha"), arvore.sobrepostos(minuto(59), hora(2)));
+        assertEquals(List.of("manha"), arvore.em(hora(0)), "Início é inclusivo");
+        assertTrue(arvore.em(hora(1)).isEmpty(), "Fim é exclusivo");
+    }
+
+    @Test
+    void deveManterMaiorFimNasRotacoesSimples() {
+        // Crescente força rotação à esquerda; o intervalo longo desce para a esquerda da nova raiz.
+        ArvoreIntervalos<String> crescente = new ArvoreIntervalos<>();
+        crescente.inserir("longo", hora(0), hora(10));
+        crescente.inserir("b", hora(1), hora(2));
+        crescente.inserir("c", hora(2), hora(3));
+        verificarInvariantes(crescente);
+        assertEquals(List.of("longo"), crescente.sobrepostos(hora(9), hora(11)));
+
+        // Decrescente força rotação à direita; o intervalo longo sobe para a raiz.
+        ArvoreIntervalos<String> decrescente = new ArvoreIntervalos<>();
+        decrescente.inserir("c", hora(2), hora(3));
+        decrescente.inserir("b", hora(1), hora(2));
+        decrescente.inserir("longo", hora(0), hora(10));
+        verificarInvariantes(decrescente);
+        assertEquals(List.of("longo"), decrescente.sobrepostos(hora(9), hora(11)));
+    }
+
+    @Test
+    void deveManterMaiorFimNasRotacoesDuplas() {
+        // Esquerda-direita: o último inserido vira raiz, com o intervalo longo à esquerda.
+        ArvoreIntervalos<String> esquerdaDireita = new ArvoreIntervalos<>();
+        esquerdaDireita.inserir("c", hora(4), hora(5));
+        esquerdaDireita.inserir("longo", hora(0), hora(12));
+        esquerdaDireita.inserir("b", hora(2), hora(3));
+        verificarInvariantes(esquerdaDireita);
+        assertEquals(List.of("longo"), esquerdaDireita.sobrepostos(hora(11), hora(13)));
+
+        // Direita-esquerda: o intervalo longo é o último inserido e vira raiz.
+        ArvoreIntervalos<String> direitaEsquerda = new ArvoreIntervalos<>();
+        direitaEsquerda.inserir("a", hora(0), hora(1));
+        direitaEsquerda.inserir("c", hora(4), hora(5));
+        direitaEsquerda.inserir("longo", hora(2), hora(12));
+        verificarInvariantes(direitaEsquerda);
+        assertEquals(List.of("longo"), direitaEsquerda.sobrepostos(hora(11), hora(13)));
+        assertEquals(List.of("a", "longo", "c"), direitaEsquerda.sobrepostos(hora(0), hora(6)));
+    }
+
+    @Test
+    void deveRebalancearAoRemoverNoComDoisFilhos() {
+        ArvoreIntervalos<Integer> arvore = new ArvoreIntervalos<>();
+        for (int i = 0; i < 7; i++) {
+            arvore.inserir(i, hora(i), hora(i == 5 ? 20 : i + 1));
+        }
+        verificarInvariantes(arvore);
+
+        assertTrue(arvore.remover(3), "Raiz com dois filhos deve ser removida");
+        assertTrue(arvore.remover(1));
+        assertTrue(arvore.remover(0));
+        assertFalse(arvore.remover(0), "Remoção repetida não encontra o valor");
+        verificarInvariantes(arvore);
+        assertEquals(4, arvore.size());
+        assertEquals(List.of(5), arvore.sobrepostos(hora(10), hora(11)));
+
+        assertTrue(arvore.remover(5));
+        verificarInvariantes(arvore);
+        assertTrue(arvore.sobrepostos(hora(10), hora(11)).isEmpty(), "Maior fim deve cair com a remoção");
+    }
+
+    @Test
+    void deveReposicionarAoReinserirMesmoValor() {
+        ArvoreIntervalos<String> arvore = new ArvoreIntervalos<>();
+        arvore.inserir("corte", hora(0), hora(1));
+        arvore.inserir("corte", hora(3), hora(4));
+
+        verificarInvariantes(arvore);
+        assertEquals(1, arvore.size());
+        assertTrue(arvore.em(hora(0)).isEmpty(), "Intervalo anterior deve ser substituído");
+        assertEquals(List.of("corte"), arvore.em(hora(3)));
+    }
+
+    @Test
+    void deveCoincidirComVarreduraLinear() {
+        Random aleatorio = new Random(20250310L);
+        ArvoreIntervalos<Integer> arvore = new ArvoreIntervalos<>();
+        Map<Integer, LocalDateTime[]> esperado = new HashMap<>();
+        for (int passo = 0; passo < 2_000; passo++) {
+            int valor = aleatorio.nextInt(200);
+            if (aleatorio.nextInt(3) == 0) {
+                assertEquals(esperado.remove(valor) != null, arvore.remover(valor));
+            } else {
+                LocalDateTime inicio = minuto(aleatorio.nextInt(600));
+                LocalDateTime fim = inicio.plusMinutes(aleatorio.nextInt(aleatorio.nextInt(10) == 0 ? 300 : 60));
+                arvore.inserir(valor, inicio, fim);
+                esperado.put(valor, new LocalDateTime[] {inicio, fim});
+            }
+            verificarInvariantes(arvore);
+
+            LocalDateTime inicio = minuto(aleatorio.nextInt(660));
+            LocalDateTime fim = inicio.plusMinutes(1 + aleatorio.nextInt(90));
+            List<Integer> encontrados = arvore.sobrepostos(inicio, fim);
+            assertEquals(varrer(esperado, inicio, fim), new HashSet<>(encontrados),
+                    "Consulta de " + inicio + " a " + fim + " no passo " + passo);
+            assertEquals(new HashSet<>(encontrados).size(), encontrados.size(), "Consulta sem repetições");
+            for (int i = 1; i < encontrados.size(); i++) {
+                assertFalse(esperado.get(encontrados.get(i))[0].isBefore(esperado.get(encontrados.get(i - 1))[0]),
+                        "Resultados devem vir em ordem de início");
+            }
+        }
+        assertEquals(esperado.size(), arvore.size());
+    }
+
+    /**
+     * Confere ordem, balanceamento, alturas e o maior fim guardado em cada nó.
+     */
+    private static void verificarInvariantes(ArvoreIntervalos<?> arvore) {
+        assertEquals(arvore.size(), verificar(arvore.raiz(), null, null), "Todos os valores devem estar na árvore");
+    }
+
+    private static <T> int verificar(ArvoreIntervalos.No<T> no, ArvoreIntervalos.No<T> menor,
+                                     ArvoreIntervalos.No<T> maior) {
+        if (no == null) {
+            return 0;
+        }
+        assertTrue(menor == null || no.compareTo(menor) > 0, "Nó fora de ordem: " + no.valor());
+        assertTrue(maior == null || no.compareTo(maior) < 0, "Nó fora de ordem: " + no.valor());
+        int total = 1 + verificar(no.esquerda(), menor, no) + verificar(no.direita(), no, maior);
+
+        int alturaEsquerda = no.esquerda() == null ? 0 : no.esquerda().altura();
+        int alturaDireita = no.direita() == null ? 0 : no.direita().altura();
+        assertEquals(1 + Math.max(alturaEsquerda, alturaDireita), no.altura(), "Altura de " + no.valor());
+        assertTrue(Math.abs(alturaEsquerda - alturaDireita) <= 1, "Nó desbalanceado: " + no.valor());
+
+        LocalDateTime maiorFim = no.fim();
+        for (ArvoreIntervalos.No<T> filho : Arrays.asList(no.esquerda(), no.direita())) {
+            if (filho != null && filho.maiorFim().isAfter(maiorFim)) {
+                maiorFim = filho.maiorFim();
+            }
+        }
+        assertEquals(maiorFim, no.maiorFim(), "Maior fim desatualizado em " + no.valor());
+        return total;
+    }
+
+    private static Set<Integer> varrer(Map<Integer, LocalDateTime[]> intervalos, LocalDateTime inicio,
+                                       LocalDateTime fim) {
+        Set<Integer> encontrados = new HashSet<>();
+        intervalos.forEach((valor, intervalo) -> {
+            if (intervalo[0].isBefore(fim) && intervalo[1].isAfter(inicio)) {
+                encontrados.add(valor);
+            }
+        });
+        return encontrados;
+    }
+
+    private static LocalDateTime hora(int horas) {
+        return BASE.plusHours(horas);
+    }
+
+    private static LocalDateTime minuto(int minutos) {
+        return BASE.plusMinutes(minutos);
+    }
+}
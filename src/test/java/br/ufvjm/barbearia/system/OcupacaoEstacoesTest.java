@@ -0,0 +1,125 @@
+package br.ufvjm.barbearia.system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.ufvjm.barbearia.enums.StatusAtendimento;
+import br.ufvjm.barbearia.exceptions.ConflitoAgendamentoException;
+import br.ufvjm.barbearia.model.Agendamento;
+import br.ufvjm.barbearia.model.Cliente;
+import br.ufvjm.barbearia.model.Estacao;
+import br.ufvjm.barbearia.value.CpfHash;
+import br.ufvjm.barbearia.value.Dinheiro;
+import br.ufvjm.barbearia.value.Email;
+import br.ufvjm.barbearia.value.Endereco;
+import br.ufvjm.barbearia.value.Telefone;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Garante que a reserva das estações recusa apenas sobreposições reais na
+ * mesma estação e que agendamentos cancelados deixam de ocupar o horário.
+ */
+class OcupacaoEstacoesTest {
+
+    private static final Currency BRL = Currency.getInstance("BRL");
+    private static final LocalDateTime NOVE = LocalDateTime.of(2025, 3, 10, 9, 0);
+    private static final Cliente CLIENTE = new Cliente(UUID.randomUUID(), "Cliente Estação", Endereco.builder()
+            .logradouro("Rua das Acácias")
+            .numero("100")
+            .bairro("Centro")
+            .cidade("Diamantina")
+            .estado("MG")
+            .cep("39100000")
+            .build(),
+            Telefone.of("38 3531-0000"), Email.of("cliente@teste.com"),
+            CpfHash.fromMasked("123.456.789-09"), true);
+
+    @Test
+    void deveAceitarAgendamentosQueApenasSeEncostam() {
+        Sistema sistema = new Sistema();
+        Estacao estacao = Estacao.ESTACOES[0];
+        agendar(sistema, estacao, NOVE, NOVE.plusMinutes(30));
+        agendar(sistema, estacao, NOVE.plusMinutes(30), NOVE.plusHours(1));
+        agendar(sistema, estacao, NOVE.minusMinutes(30), NOVE);
+
+        assertEquals(3, sistema.listarAgendamentosOrdenados().size());
+        assertEquals(1, sistema.listarOcupantesDaEstacao(estacao, NOVE.plusMinutes(30)).size(),
+                "Só o agendamento que começa no instante deve ocupá-lo");
+    }
+
+    @Test
+    void deveRecusarSobreposicaoNaMesmaEstacao() {
+        Sistema sistema = new Sistema();
+        Estacao estacao = Estacao.ESTACOES[1];
+        Agendamento existente = agendar(sistema, estacao, NOVE, NOVE.plusHours(1));
+
+        ConflitoAgendamentoException conflito = assertThrows(ConflitoAgendamentoException.class,
+                () -> agendar(sistema, estacao, NOVE.plusMinutes(59), NOVE.plusHours(2)));
+        assertEquals(estacao.getNumero(), conflito.getEstacao());
+        assertEquals(List.of(existente.getId()), conflito.getConflitantes());
+        assertThrows(ConflitoAgendamentoException.class,
+                () -> agendar(sistema, estacao, NOVE.plusMinutes(15), NOVE.plusMinutes(45)),
+                "Horário contido no existente também conflita");
+        assertEquals(1, sistema.listarAgendamentosOrdenados().size(), "Agendamento recusado não deve ser incluído");
+    }
+
+    @Test
+    void deveAceitarMesmoHorarioEmOutraEstacao() {
+        Sistema sistema = new Sistema();
+        agendar(sistema, Estacao.ESTACOES[0], NOVE, NOVE.plusHours(1));
+        agendar(sistema, Estacao.ESTACOES[2], NOVE, NOVE.plusHours(1));
+
+        assertEquals(2, sistema.listarAgendamentosOrdenados().size());
+        assertEquals(1, sistema.listarConflitosNaEstacao(Estacao.ESTACOES[2], NOVE, NOVE.plusHours(1)).size());
+        assertTrue(sistema.listarConflitosNaEstacao(Estacao.ESTACOES[1], NOVE, NOVE.plusHours(1)).isEmpty());
+    }
+
+    @Test
+    void deveLiberarHorarioAoCancelar() {
+        OcupacaoEstacoes ocupacao = new OcupacaoEstacoes();
+        Estacao estacao = Estacao.ESTACOES[0];
+        Agendamento cancelado = agendamento(estacao, NOVE, NOVE.plusHours(1));
+        ocupacao.ocupar(cancelado);
+        assertEquals(List.of(cancelado), ocupacao.conflitos(estacao, NOVE, NOVE.plusHours(1)));
+
+        cancelado.alterarStatus(StatusAtendimento.CANCELADO);
+        ocupacao.liberar(cancelado);
+        assertTrue(ocupacao.conflitos(estacao, NOVE, NOVE.plusHours(1)).isEmpty(), "Cancelamento libera a estação");
+
+        Agendamento canceladoPorFora = agendamento(estacao, NOVE.plusHours(2), NOVE.plusHours(3));
+        ocupacao.ocupar(canceladoPorFora);
+        canceladoPorFora.alterarStatus(StatusAtendimento.CANCELADO);
+        assertTrue(ocupacao.ocupantes(estacao, NOVE.plusHours(2)).isEmpty(),
+                "Cancelado fora do sistema deve ser descartado na consulta");
+    }
+
+    @Test
+    void deveIgnorarCanceladosAoReconstruir() {
+        Estacao estacao = Estacao.ESTACOES[0];
+        Agendamento cancelado = agendamento(estacao, NOVE, NOVE.plusHours(1));
+        cancelado.alterarStatus(StatusAtendimento.CANCELADO);
+        Agendamento ativo = agendamento(estacao, NOVE.plusMinutes(30), NOVE.plusHours(2));
+        Agendamento avulso = agendamento(new Estacao(9, false), NOVE, NOVE.plusHours(1));
+
+        OcupacaoEstacoes ocupacao = OcupacaoEstacoes.de(List.of(cancelado, ativo, avulso));
+
+        assertEquals(List.of(ativo), ocupacao.conflitos(estacao, NOVE, NOVE.plusHours(1)));
+        assertEquals(List.of(avulso), ocupacao.ocupantes(avulso.getEstacao(), NOVE));
+        assertTrue(ocupacao.conflitos(new Estacao(8, false), NOVE, NOVE.plusHours(1)).isEmpty());
+    }
+
+    private static Agendamento agendar(Sistema sistema, Estacao estacao, LocalDateTime inicio, LocalDateTime fim) {
+        return sistema.criarAgendamento(UUID.randomUUID(), CLIENTE, estacao, inicio, fim,
+                Dinheiro.of(BigDecimal.ZERO, BRL));
+    }
+
+    private static Agendamento agendamento(Estacao estacao, LocalDateTime inicio, LocalDateTime fim) {
+        return new Agendamento(UUID.randomUUID(), CLIENTE, estacao, inicio, fim, Dinheiro.of(BigDecimal.ZERO, BRL));
+    }
+}